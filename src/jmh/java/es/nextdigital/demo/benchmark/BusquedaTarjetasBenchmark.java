@@ -0,0 +1,97 @@
+package es.nextdigital.demo.benchmark;
+
+import es.nextdigital.demo.DemoApplication;
+import es.nextdigital.demo.model.Tarjeta;
+import es.nextdigital.demo.model.TarjetaAutenticada;
+import es.nextdigital.demo.repositorio.TarjetaRepository;
+import es.nextdigital.demo.servicios.EncriptadorPin;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencia de la busqueda de tarjetas en base de datos, sin la cache de tarjetas delante, sobre una tabla con
+ * {@code tarjetas} filas creadas con el esquema de las migraciones. Sirve para comprobar que la latencia no crece con el
+ * tamano de la tabla.
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="BusquedaTarjetasBenchmark -p tarjetas=10000000"
+ * </pre>
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class BusquedaTarjetasBenchmark {
+
+    private static final String NUMERO_CUENTA = "ES-BUSQUEDA";
+    private static final int TAMANO_LOTE_SIEMBRA = 1_000_000;
+
+    @Param("1000000")
+    private int tarjetas;
+
+    private ConfigurableApplicationContext contexto;
+    private TarjetaRepository tarjetaRepository;
+    private String pinEncriptado;
+
+    @Setup(Level.Trial)
+    public void arrancar() {
+        this.contexto = new SpringApplicationBuilder(DemoApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN",
+                        "spring.datasource.url=jdbc:h2:mem:busqueda-tarjetas;DB_CLOSE_ON_EXIT=FALSE")
+                .run();
+        this.tarjetaRepository = this.contexto.getBean(TarjetaRepository.class);
+        this.pinEncriptado = this.contexto.getBean(EncriptadorPin.class).encriptar(SiembraDatos.PIN);
+        sembrar();
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        this.contexto.close();
+    }
+
+    @Benchmark
+    public Optional<TarjetaAutenticada> buscarAutenticada() {
+        return this.tarjetaRepository.findAutenticadaByNumero(SiembraDatos.numeroTarjeta(tarjetaAleatoria()));
+    }
+
+    @Benchmark
+    public Optional<Tarjeta> buscarPorNumeroYPin() {
+        return this.tarjetaRepository.findByNumeroAndPinEncriptado(SiembraDatos.numeroTarjeta(tarjetaAleatoria()), this.pinEncriptado);
+    }
+
+    // Con SQL en vez de entidades: con millones de tarjetas la siembra por JPA tarda mas que el propio benchmark
+    private void sembrar() {
+        final JdbcTemplate jdbcTemplate = this.contexto.getBean(JdbcTemplate.class);
+        final TransactionTemplate transactionTemplate = new TransactionTemplate(this.contexto.getBean(PlatformTransactionManager.class));
+        transactionTemplate.executeWithoutResult(status ->
+                jdbcTemplate.update("insert into cuenta (numero_cuenta, saldo_centimos, version) values (?, 0, 0)", NUMERO_CUENTA));
+        for (int inicio = 0; inicio < this.tarjetas; inicio += TAMANO_LOTE_SIEMBRA) {
+            final int fin = Math.min(inicio + TAMANO_LOTE_SIEMBRA, this.tarjetas);
+            final int primera = inicio;
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(
+                    "insert into tarjeta (numero_tarjeta, mes_caducidad, ano_caducidad, cvv, pin_encriptado, activada, "
+                            + "limite_retirada_centimos, limite_credito_centimos, tipo_tarjeta, cuenta_id) "
+                            + "select cast(4000000000 + x as varchar), 12, 2030, 123, ?, true, 100000, 0, 0, ? "
+                            + "from system_range(?, ?)",
+                    this.pinEncriptado, NUMERO_CUENTA, primera, fin - 1));
+        }
+    }
+
+    private int tarjetaAleatoria() {
+        return ThreadLocalRandom.current().nextInt(this.tarjetas);
+    }
+}
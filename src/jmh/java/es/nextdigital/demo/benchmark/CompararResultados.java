@@ -0,0 +1,78 @@
+package es.nextdigital.demo.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compara dos ficheros de resultados JMH en JSON ({@code -rf json}) y muestra la variacion de cada benchmark. Termina
+ * con codigo 1 si alguno empeora mas que el umbral (por defecto un 10%), para poder usarlo en integracion continua.
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.main=es.nextdigital.demo.benchmark.CompararResultados \
+ *     -Djmh.args="target/base.json target/jmh-result.json 10"
+ * </pre>
+ */
+public final class CompararResultados {
+
+    private CompararResultados() {
+    }
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Uso: CompararResultados <base.json> <nuevo.json> [umbral %]");
+            System.exit(2);
+        }
+        final double umbral = args.length > 2 ? Double.parseDouble(args[2]) : 10d;
+
+        final Map<String, JsonNode> base = leer(new File(args[0]));
+        final Map<String, JsonNode> nuevo = leer(new File(args[1]));
+
+        boolean empeora = false;
+        System.out.printf("%-90s %14s %14s %9s%n", "Benchmark", "Base", "Nuevo", "Cambio");
+        for (Map.Entry<String, JsonNode> entrada : nuevo.entrySet()) {
+            final JsonNode resultadoBase = base.get(entrada.getKey());
+            final JsonNode metrica = entrada.getValue().get("primaryMetric");
+            if (resultadoBase == null) {
+                System.out.printf("%-90s %14s %14.3f %9s%n", entrada.getKey(), "-", metrica.get("score").asDouble(), "nuevo");
+                continue;
+            }
+
+            final double puntuacionBase = resultadoBase.get("primaryMetric").get("score").asDouble();
+            final double puntuacion = metrica.get("score").asDouble();
+            final double cambio = (puntuacion - puntuacionBase) / puntuacionBase * 100d;
+            // En throughput mas es mejor; en el resto de modos se mide tiempo y menos es mejor
+            final boolean masEsMejor = "thrpt".equals(entrada.getValue().get("mode").asText());
+            final boolean regresion = masEsMejor ? cambio < -umbral : cambio > umbral;
+            empeora |= regresion;
+
+            System.out.printf("%-90s %14.3f %14.3f %+8.1f%% %s%s%n", entrada.getKey(), puntuacionBase, puntuacion, cambio,
+                    metrica.get("scoreUnit").asText(), regresion ? "  <-- REGRESION" : "");
+        }
+
+        System.exit(empeora ? 1 : 0);
+    }
+
+    private static Map<String, JsonNode> leer(final File fichero) throws IOException {
+        final Map<String, JsonNode> resultados = new LinkedHashMap<>();
+        for (JsonNode resultado : new ObjectMapper().readTree(fichero)) {
+            final StringBuilder clave = new StringBuilder(resultado.get("benchmark").asText())
+                    .append(' ').append(resultado.get("mode").asText());
+            final JsonNode parametros = resultado.get("params");
+            if (parametros != null) {
+                final Iterator<Map.Entry<String, JsonNode>> campos = parametros.fields();
+                while (campos.hasNext()) {
+                    final Map.Entry<String, JsonNode> campo = campos.next();
+                    clave.append(' ').append(campo.getKey()).append('=').append(campo.getValue().asText());
+                }
+            }
+            resultados.put(clave.toString(), resultado);
+        }
+        return resultados;
+    }
+}
@@ -0,0 +1,117 @@
+package es.nextdigital.demo.benchmark;
+
+import es.nextdigital.demo.DemoApplication;
+import es.nextdigital.demo.conciliacion.ConciliadorCuentas;
+import es.nextdigital.demo.model.InformeConciliacion;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tiempo de una conciliacion completa de {@code movimientos} movimientos repartidos entre {@code cuentas} cuentas, con
+ * {@code paralelismo} tramos a la vez. Una de cada {@value #CUENTAS_POR_DIFERENCIA} cuentas tiene un centimo de mas.
+ * La base de datos va a fichero: con diez millones de movimientos no cabe en el heap.
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="ConciliacionBenchmark -p paralelismo=1,2,4,8"
+ * </pre>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class ConciliacionBenchmark {
+
+    static final int CUENTAS_POR_DIFERENCIA = 1_000;
+
+    private static final int TAMANO_LOTE_SIEMBRA = 1_000_000;
+    private static final int CACHE_H2_KB = 1024 * 1024;
+
+    @Param("10000000")
+    private int movimientos;
+
+    @Param("100000")
+    private int cuentas;
+
+    @Param({"1", "4"})
+    private int paralelismo;
+
+    private ConfigurableApplicationContext contexto;
+    private ConciliadorCuentas conciliador;
+    private Path directorio;
+
+    @Setup(Level.Trial)
+    public void arrancar() {
+        this.directorio = Paths.get("target", "conciliacion-benchmark", UUID.randomUUID().toString());
+        this.contexto = new SpringApplicationBuilder(DemoApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN",
+                        "carlosbank.conciliacion.paralelismo=" + this.paralelismo,
+                        // Una conexion por tramo en curso
+                        "spring.datasource.hikari.maximum-pool-size=" + Math.max(10, this.paralelismo + 2),
+                        "spring.datasource.url=jdbc:h2:file:./" + this.directorio.resolve("conciliacion")
+                                + ";DB_CLOSE_ON_EXIT=FALSE;CACHE_SIZE=" + CACHE_H2_KB)
+                .run();
+        this.conciliador = this.contexto.getBean(ConciliadorCuentas.class);
+        sembrar();
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() throws IOException {
+        this.contexto.close();
+        FileSystemUtils.deleteRecursively(this.directorio);
+    }
+
+    @Benchmark
+    public InformeConciliacion conciliar() {
+        final InformeConciliacion informe = this.conciliador.conciliar();
+        if (informe.movimientos() != this.movimientos || informe.cuentasConDiferencias() != this.cuentas / CUENTAS_POR_DIFERENCIA) {
+            throw new IllegalStateException("Conciliacion inesperada: " + informe.movimientos() + " movimientos, "
+                    + informe.cuentasConDiferencias() + " diferencias");
+        }
+        return informe;
+    }
+
+    // Con SQL en vez de entidades, como en ExportacionMovimientosBenchmark. Los movimientos van por orden de cuenta (y
+    // los numeros de cuenta con ceros a la izquierda) para que los indices se rellenen en orden y no a saltos por el
+    // fichero; los saldos se calculan despues a partir de ellos
+    private void sembrar() {
+        final JdbcTemplate jdbcTemplate = this.contexto.getBean(JdbcTemplate.class);
+        final TransactionTemplate transactionTemplate = new TransactionTemplate(this.contexto.getBean(PlatformTransactionManager.class));
+        final int movimientosPorCuenta = Math.max(1, this.movimientos / this.cuentas);
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(
+                "insert into cuenta (numero_cuenta, saldo_centimos, version) "
+                        + "select concat('ES-CONCILIACION-', lpad(x, 9, '0')), 0, 0 from system_range(0, ?)", this.cuentas - 1));
+        for (int inicio = 0; inicio < this.movimientos; inicio += TAMANO_LOTE_SIEMBRA) {
+            final int fin = Math.min(inicio + TAMANO_LOTE_SIEMBRA, this.movimientos);
+            final int primero = inicio;
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(
+                    "insert into movimiento (movimiento_id, fecha_movimiento, tipo_movimiento, importe_centimos, cuenta_id) "
+                            + "select x + 1, dateadd(second, x, timestamp '2023-01-01 00:00:00'), mod(x, 5), 125 + mod(x, 1000), "
+                            + "concat('ES-CONCILIACION-', lpad(least(x / ?, ?), 9, '0')) from system_range(?, ?)",
+                    movimientosPorCuenta, this.cuentas - 1, primero, fin - 1));
+        }
+        // INGRESO (0) y TRANSFERENCIA_ENTRANTE (4) suman, el resto resta
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(
+                "update cuenta c set saldo_centimos = coalesce((select sum(case when m.tipo_movimiento in (0, 4) "
+                        + "then m.importe_centimos else -m.importe_centimos end) from movimiento m where m.cuenta_id = c.numero_cuenta), 0)"));
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(
+                "update cuenta set saldo_centimos = saldo_centimos + 1 "
+                        + "where mod(cast(substring(numero_cuenta, 17) as int), ?) = 0", CUENTAS_POR_DIFERENCIA));
+    }
+}
@@ -0,0 +1,64 @@
+package es.nextdigital.demo.benchmark;
+
+import es.nextdigital.demo.model.Dinero;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aritmetica de una retirada (comprobar saldo y restar) y de una transferencia con comision (multiplicar por 1,3,
+ * redondear al centimo y restar) con {@link Dinero} frente a {@link BigDecimal} con escala 2. Con {@code -prof gc}
+ * JMH informa de los bytes reservados por operacion.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DineroBenchmark {
+
+    private static final BigDecimal COMISION_BIG_DECIMAL = new BigDecimal("1.3");
+
+    private Dinero saldoDinero;
+    private BigDecimal saldoBigDecimal;
+
+    @Setup
+    public void setUp() {
+        this.saldoDinero = Dinero.valueOf("1000000.00");
+        this.saldoBigDecimal = new BigDecimal("1000000.00");
+    }
+
+    @Benchmark
+    public Dinero retiradaDinero() {
+        final Dinero cantidad = Dinero.deCentimos(importeAleatorio());
+        return cantidad.esMayorQue(this.saldoDinero) ? this.saldoDinero : this.saldoDinero.restar(cantidad);
+    }
+
+    @Benchmark
+    public BigDecimal retiradaBigDecimal() {
+        final BigDecimal cantidad = BigDecimal.valueOf(importeAleatorio(), 2);
+        return cantidad.compareTo(this.saldoBigDecimal) > 0 ? this.saldoBigDecimal : this.saldoBigDecimal.subtract(cantidad);
+    }
+
+    @Benchmark
+    public Dinero transferenciaDinero() {
+        final Dinero importe = Dinero.deCentimos(importeAleatorio()).multiplicar(1_300L, 1_000L);
+        return importe.esMayorQue(this.saldoDinero) ? this.saldoDinero : this.saldoDinero.restar(importe);
+    }
+
+    @Benchmark
+    public BigDecimal transferenciaBigDecimal() {
+        final BigDecimal importe = BigDecimal.valueOf(importeAleatorio(), 2)
+                .multiply(COMISION_BIG_DECIMAL)
+                .setScale(2, RoundingMode.HALF_UP);
+        return importe.compareTo(this.saldoBigDecimal) > 0 ? this.saldoBigDecimal : this.saldoBigDecimal.subtract(importe);
+    }
+
+    private static long importeAleatorio() {
+        return ThreadLocalRandom.current().nextLong(1L, 100_000L);
+    }
+}
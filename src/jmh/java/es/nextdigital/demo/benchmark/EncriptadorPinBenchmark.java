@@ -0,0 +1,70 @@
+package es.nextdigital.demo.benchmark;
+
+import es.nextdigital.demo.servicios.EncriptadorPin;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste por llamada del hash de pin: implementacion original (MessageDigest nuevo, Integer.toHexString y
+ * StringBuilder) frente a {@link EncriptadorPin} con y sin tabla precalculada. Se ejecuta con varios hilos para ver
+ * el efecto de la contencion; con {@code -prof gc} JMH informa ademas de los bytes reservados por operacion.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class EncriptadorPinBenchmark {
+
+    private EncriptadorPin encriptadorSinTabla;
+    private EncriptadorPin encriptadorConTabla;
+
+    @Setup
+    public void setUp() {
+        this.encriptadorSinTabla = new EncriptadorPin(false);
+        this.encriptadorConTabla = new EncriptadorPin(true);
+    }
+
+    @Benchmark
+    public String original() {
+        return encriptarPinOriginal(pinAleatorio());
+    }
+
+    @Benchmark
+    public String digestPorHilo() {
+        return this.encriptadorSinTabla.encriptar(pinAleatorio());
+    }
+
+    @Benchmark
+    public String tablaPrecalculada() {
+        return this.encriptadorConTabla.encriptar(pinAleatorio());
+    }
+
+    private static int pinAleatorio() {
+        return ThreadLocalRandom.current().nextInt(10_000);
+    }
+
+    private static String encriptarPinOriginal(final int pin) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(Integer.toString(pin).getBytes());
+
+            StringBuilder hexString = new StringBuilder();
+            for (byte b : hash) {
+                String hex = Integer.toHexString(0xff & b);
+                if (hex.length() == 1) hexString.append('0');
+                hexString.append(hex);
+            }
+            return hexString.toString();
+
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("Error al generar hash SHA-256", e);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package es.nextdigital.demo.benchmark;
+
+import es.nextdigital.demo.DemoApplication;
+import es.nextdigital.demo.exportacion.ExportadorMovimientos;
+import es.nextdigital.demo.model.EstadoExportacion;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tiempo de una exportacion completa de {@code movimientos} movimientos de {@code cuentas} cuentas a ficheros CSV
+ * comprimidos, desde que se lanza hasta que termina.
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="ExportacionMovimientosBenchmark -p movimientos=10000000"
+ * </pre>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ExportacionMovimientosBenchmark {
+
+    private static final int TAMANO_LOTE_SIEMBRA = 1_000_000;
+
+    @Param("5000000")
+    private int movimientos;
+
+    @Param("100")
+    private int cuentas;
+
+    private ConfigurableApplicationContext contexto;
+    private ExportadorMovimientos exportador;
+    private Path directorio;
+
+    @Setup(Level.Trial)
+    public void arrancar() {
+        this.directorio = Paths.get("target", "exportaciones-benchmark", UUID.randomUUID().toString());
+        this.contexto = new SpringApplicationBuilder(DemoApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN",
+                        "carlosbank.exportacion.directorio=" + this.directorio,
+                        "spring.datasource.url=jdbc:h2:mem:exportacion-movimientos;DB_CLOSE_ON_EXIT=FALSE")
+                .run();
+        this.exportador = this.contexto.getBean(ExportadorMovimientos.class);
+        sembrar();
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() throws IOException {
+        this.contexto.close();
+        FileSystemUtils.deleteRecursively(this.directorio);
+    }
+
+    @Benchmark
+    public EstadoExportacion exportar() throws InterruptedException {
+        final String nombre = UUID.randomUUID().toString();
+        this.exportador.iniciar(nombre, List.of());
+        while (true) {
+            final EstadoExportacion estado = this.exportador.consultar(nombre).orElseThrow();
+            if (estado.situacion() == EstadoExportacion.Situacion.TERMINADA) {
+                return estado;
+            }
+            if (estado.situacion() == EstadoExportacion.Situacion.FALLIDA) {
+                throw new IllegalStateException(estado.error());
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    // Con SQL en vez de entidades, como en BusquedaTarjetasBenchmark
+    private void sembrar() {
+        final JdbcTemplate jdbcTemplate = this.contexto.getBean(JdbcTemplate.class);
+        final TransactionTemplate transactionTemplate = new TransactionTemplate(this.contexto.getBean(PlatformTransactionManager.class));
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(
+                "insert into cuenta (numero_cuenta, saldo_centimos, version) "
+                        + "select concat('ES-EXPORTACION-', x), 0, 0 from system_range(0, ?)", this.cuentas - 1));
+        for (int inicio = 0; inicio < this.movimientos; inicio += TAMANO_LOTE_SIEMBRA) {
+            final int fin = Math.min(inicio + TAMANO_LOTE_SIEMBRA, this.movimientos);
+            final int primero = inicio;
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(
+                    "insert into movimiento (movimiento_id, fecha_movimiento, tipo_movimiento, importe_centimos, cuenta_id) "
+                            + "select x + 1, dateadd(second, x, timestamp '2023-01-01 00:00:00'), mod(x, 5), 125 + mod(x, 1000), "
+                            + "concat('ES-EXPORTACION-', mod(x, ?)) from system_range(?, ?)",
+                    this.cuentas, primero, fin - 1));
+        }
+    }
+}
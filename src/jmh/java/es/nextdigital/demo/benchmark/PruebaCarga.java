@@ -0,0 +1,183 @@
+package es.nextdigital.demo.benchmark;
+
+import es.nextdigital.demo.DemoApplication;
+import es.nextdigital.demo.common.ConstantData;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Prueba de carga de la API por HTTP con {@code clientes} clientes concurrentes en bucle cerrado (cada cliente lanza su
+ * siguiente peticion al recibir la respuesta anterior). Arranca la aplicacion en esta misma JVM en un puerto libre, la
+ * siembra con {@link SiembraDatos} y mide rendimiento y percentiles de latencia tras el calentamiento. Los clientes son
+ * asincronos, asi que 10.000 clientes no necesitan 10.000 hilos.
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.main=es.nextdigital.demo.benchmark.PruebaCarga -Djmh.args="clientes=10000"
+ * mvn -Pbenchmark,java21 test-compile exec:exec -Djmh.main=es.nextdigital.demo.benchmark.PruebaCarga -Djmh.args="clientes=10000 hilosVirtuales=true"
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.main=es.nextdigital.demo.benchmark.PruebaCarga -Djmh.args="clientes=10000 reactivo=true"
+ * </pre>
+ *
+ * Parametros (clave=valor): clientes (10000), duracion en segundos (30), calentamiento en segundos (10),
+ * cuentas (10000), hilosVirtuales (false), reactivo (false, arranca con el perfil {@code reactivo}) y operacion
+ * ({@code sacar} o {@code movimientos}). Cliente y servidor comparten proceso, asi que cada cliente ocupa dos descriptores
+ * de fichero: 10.000 clientes necesitan {@code ulimit -n} por encima de 20.000.
+ * <p>
+ * Ademas de rendimiento y latencia, el informe da la memoria por conexion: el heap ocupado tras un GC a mitad de la
+ * medida menos el ocupado antes de conectar los clientes, dividido entre los clientes, y los hilos vivos en ese momento.
+ * Incluye la parte del cliente HTTP, igual en las dos variantes, asi que sirve para compararlas y no como valor absoluto.
+ */
+public final class PruebaCarga {
+
+    private static final int MAX_MUESTRAS = 5_000_000;
+
+    private final HttpClient cliente = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(30)).build();
+    private final String urlBase;
+    private final String operacion;
+    private final int cuentas;
+    private final long inicioMedida;
+    private final long fin;
+
+    private final long[] latencias = new long[MAX_MUESTRAS];
+    private final AtomicInteger muestras = new AtomicInteger();
+    private final Map<String, LongAdder> respuestas = new ConcurrentHashMap<>();
+    private long heapPorCliente;
+    private int hilos;
+
+    private PruebaCarga(final String urlBase, final String operacion, final int cuentas, final long inicioMedida, final long fin) {
+        this.urlBase = urlBase;
+        this.operacion = operacion;
+        this.cuentas = cuentas;
+        this.inicioMedida = inicioMedida;
+        this.fin = fin;
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final Map<String, String> parametros = new HashMap<>();
+        for (String arg : args) {
+            final int igual = arg.indexOf('=');
+            parametros.put(arg.substring(0, igual), arg.substring(igual + 1));
+        }
+        final int clientes = Integer.parseInt(parametros.getOrDefault("clientes", "10000"));
+        final int duracion = Integer.parseInt(parametros.getOrDefault("duracion", "30"));
+        final int calentamiento = Integer.parseInt(parametros.getOrDefault("calentamiento", "10"));
+        final int cuentas = Integer.parseInt(parametros.getOrDefault("cuentas", "10000"));
+        final boolean hilosVirtuales = Boolean.parseBoolean(parametros.getOrDefault("hilosVirtuales", "false"));
+        final boolean reactivo = Boolean.parseBoolean(parametros.getOrDefault("reactivo", "false"));
+        final String operacion = parametros.getOrDefault("operacion", "sacar");
+        // devtools esta en el classpath de exec:exec y relanzaria la aplicacion en otro hilo al arrancar desde main
+        System.setProperty("spring.devtools.restart.enabled", "false");
+
+        try (ConfigurableApplicationContext contexto = new SpringApplicationBuilder(DemoApplication.class)
+                .profiles(reactivo ? new String[] {"reactivo"} : new String[0])
+                .properties(
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN",
+                        "server.port=0",
+                        "server.tomcat.max-connections=" + (clientes + 100),
+                        "spring.datasource.url=jdbc:h2:mem:carga;DB_CLOSE_ON_EXIT=FALSE")
+                // Como argumentos para que tengan prioridad sobre application.properties; los clientes simulados repiten
+                // tarjetas y banco mucho mas deprisa de lo que permiten los limites por tarjeta y por banco
+                .run("--carlosbank.hilos-virtuales.habilitado=" + hilosVirtuales,
+                        "--carlosbank.limites.habilitado=false")) {
+            SiembraDatos.sembrar(contexto, cuentas, 20);
+            final long heapInicial = heapOcupado();
+
+            final long inicio = System.nanoTime();
+            final PruebaCarga prueba = new PruebaCarga("http://localhost:" + ((WebServerApplicationContext) contexto).getWebServer().getPort(),
+                    operacion, cuentas, inicio + calentamiento * 1_000_000_000L, inicio + (calentamiento + duracion) * 1_000_000_000L);
+            final CountDownLatch terminados = new CountDownLatch(clientes);
+            for (int i = 0; i < clientes; i++) {
+                prueba.lanzar(terminados);
+            }
+
+            Thread.sleep((calentamiento + duracion / 2) * 1_000L);
+            prueba.heapPorCliente = (heapOcupado() - heapInicial) / clientes;
+            prueba.hilos = ManagementFactory.getThreadMXBean().getThreadCount();
+            terminados.await();
+
+            prueba.informe(clientes, duracion, hilosVirtuales, reactivo);
+        }
+    }
+
+    private void lanzar(final CountDownLatch terminados) {
+        final long envio = System.nanoTime();
+        this.cliente.sendAsync(peticion(), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((respuesta, error) -> {
+                    final long recepcion = System.nanoTime();
+                    if (envio >= this.inicioMedida && recepcion <= this.fin) {
+                        final Throwable causa = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                        final String clave = causa != null ? causa.getClass().getSimpleName() : Integer.toString(respuesta.statusCode());
+                        this.respuestas.computeIfAbsent(clave, k -> new LongAdder()).increment();
+                        // Rendimiento y latencias solo de las respuestas correctas: un error rapido no es una mejora
+                        if (causa == null && respuesta.statusCode() < 300) {
+                            final int muestra = this.muestras.getAndIncrement();
+                            if (muestra < MAX_MUESTRAS) {
+                                this.latencias[muestra] = recepcion - envio;
+                            }
+                        }
+                    }
+                    if (recepcion < this.fin) {
+                        lanzar(terminados);
+                    } else {
+                        terminados.countDown();
+                    }
+                });
+    }
+
+    private HttpRequest peticion() {
+        final int i = ThreadLocalRandom.current().nextInt(this.cuentas);
+        final HttpRequest.Builder builder = HttpRequest.newBuilder().timeout(Duration.ofSeconds(60));
+        if ("movimientos".equals(this.operacion)) {
+            return builder.uri(URI.create(this.urlBase + "/carlosbank/api/cuentas/" + SiembraDatos.numeroCuenta(i) + "/movimientos/paginas?limite=20"))
+                    .GET()
+                    .build();
+        }
+        return builder.uri(URI.create(this.urlBase + "/carlosbank/api/tarjetas/" + SiembraDatos.numeroTarjeta(i)
+                        + "/sacar?pin=" + SiembraDatos.PIN + "&cantidad=1&banco=" + ConstantData.MI_BANCO))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+    }
+
+    private void informe(final int clientes, final int duracion, final boolean hilosVirtuales, final boolean reactivo) {
+        final int total = Math.min(this.muestras.get(), MAX_MUESTRAS);
+        final long[] ordenadas = Arrays.copyOf(this.latencias, total);
+        Arrays.sort(ordenadas);
+
+        System.out.printf("Operacion %s, %d clientes, hilos virtuales: %s, reactivo: %s%n", this.operacion, clientes, hilosVirtuales, reactivo);
+        System.out.printf("Respuestas: %s%n", new TreeMap<>(this.respuestas));
+        System.out.printf("Rendimiento: %.1f respuestas correctas/s%n", (double) this.muestras.get() / duracion);
+        if (total > 0) {
+            System.out.printf("Latencia (ms): p50 %.1f, p90 %.1f, p99 %.1f, p99.9 %.1f, max %.1f%n",
+                    percentil(ordenadas, 0.50), percentil(ordenadas, 0.90), percentil(ordenadas, 0.99),
+                    percentil(ordenadas, 0.999), ordenadas[total - 1] / 1e6);
+        }
+        System.out.printf("Memoria: %.1f KB de heap por cliente, %d hilos vivos%n", this.heapPorCliente / 1024.0, this.hilos);
+    }
+
+    private static long heapOcupado() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static double percentil(final long[] ordenadas, final double percentil) {
+        return ordenadas[(int) Math.min(ordenadas.length - 1, Math.ceil(percentil * ordenadas.length) - 1)] / 1e6;
+    }
+}
@@ -0,0 +1,140 @@
+package es.nextdigital.demo.benchmark;
+
+import es.nextdigital.demo.DemoApplication;
+import es.nextdigital.demo.common.ConstantData;
+import es.nextdigital.demo.model.Cuenta;
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.servicios.CuentaServicio;
+import es.nextdigital.demo.servicios.TarjetaServicio;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operaciones de los servicios de tarjeta y cuenta de extremo a extremo (servicio, JPA y H2 en memoria) sobre una base
+ * de datos sembrada con {@code cuentas} cuentas, una tarjeta por cuenta y {@code movimientosPorCuenta} movimientos de
+ * historico en cada una. Se informa del rendimiento y de la distribucion de latencias; los resultados en JSON se pueden
+ * comparar entre versiones con {@link CompararResultados}.
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="ServiciosBenchmark -p cuentas=10000 -rf json -rff target/base.json"
+ * </pre>
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ServiciosBenchmark {
+
+    private static final int PIN = SiembraDatos.PIN;
+    private static final int PIN_ALTERNATIVO = 4321;
+
+    @Param("1000")
+    private int cuentas;
+
+    @Param("50")
+    private int movimientosPorCuenta;
+
+    @Param("OPTIMISTA")
+    private String modoConcurrencia;
+
+    @Param("false")
+    private boolean ledger;
+
+    @Param("false")
+    private boolean diarioMovimientos;
+
+    @Param("ESTRICTA")
+    private String consistenciaSaldos;
+
+    private ConfigurableApplicationContext contexto;
+    private TarjetaServicio tarjetaServicio;
+    private CuentaServicio cuentaServicio;
+    private Cuenta[] cuentasSembradas;
+    private int[] pines;
+
+    @Setup(Level.Trial)
+    public void arrancar() throws Exception {
+        this.contexto = new SpringApplicationBuilder(DemoApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN",
+                        // La base de datos se cierra con el contexto en @TearDown, no al terminar la JVM de JMH
+                        "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_ON_EXIT=FALSE")
+                // Como argumentos para que tengan prioridad sobre application.properties
+                .run("--carlosbank.cuentas.concurrencia.modo=" + this.modoConcurrencia,
+                        "--carlosbank.ledger.habilitado=" + this.ledger,
+                        "--carlosbank.ledger.directorio=" + Files.createTempDirectory("ledger-benchmark"),
+                        "--carlosbank.movimientos.diario.habilitado=" + this.diarioMovimientos,
+                        "--carlosbank.movimientos.diario.directorio=" + Files.createTempDirectory("movimientos-benchmark"),
+                        "--carlosbank.cuentas.saldos.cache.consistencia=" + this.consistenciaSaldos);
+        this.tarjetaServicio = this.contexto.getBean(TarjetaServicio.class);
+        this.cuentaServicio = this.contexto.getBean(CuentaServicio.class);
+        this.cuentasSembradas = SiembraDatos.sembrar(this.contexto, this.cuentas, this.movimientosPorCuenta);
+        this.pines = new int[this.cuentas];
+        Arrays.fill(this.pines, PIN);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        this.contexto.close();
+    }
+
+    @Benchmark
+    public Dinero sacarDinero() {
+        final int i = cuentaAleatoria();
+        return this.tarjetaServicio.sacarDinero(SiembraDatos.numeroTarjeta(i), this.pines[i], Dinero.deUnidades(1), ConstantData.MI_BANCO);
+    }
+
+    @Benchmark
+    public void ingresarDinero() {
+        final int i = cuentaAleatoria();
+        this.tarjetaServicio.ingresarDinero(SiembraDatos.numeroTarjeta(i), this.pines[i], Dinero.deUnidades(1), ConstantData.MI_BANCO);
+    }
+
+    @Benchmark
+    public void cambiarPin() {
+        final int i = cuentaAleatoria();
+        // Con varios hilos dos cambios sobre la misma tarjeta tienen que ver el pin que dejo el anterior
+        synchronized (this.cuentasSembradas[i]) {
+            final int nuevoPin = this.pines[i] == PIN ? PIN_ALTERNATIVO : PIN;
+            this.tarjetaServicio.cambiarPin(SiembraDatos.numeroTarjeta(i), this.pines[i], nuevoPin);
+            this.pines[i] = nuevoPin;
+        }
+    }
+
+    @Benchmark
+    public void realizarTransferencia() {
+        final int origen = cuentaAleatoria();
+        final int destino = cuentaAleatoria();
+        this.cuentaServicio.realizarTransferencia(SiembraDatos.numeroCuenta(origen), SiembraDatos.numeroCuenta(destino), Dinero.deUnidades(1));
+    }
+
+    @Benchmark
+    public Dinero consultarSaldo() {
+        return this.cuentaServicio.consultarSaldo(SiembraDatos.numeroCuenta(cuentaAleatoria()));
+    }
+
+    @Benchmark
+    public Object listarMovimientos() {
+        return this.cuentaServicio.listarMovimientos(SiembraDatos.numeroCuenta(cuentaAleatoria()), null, 50);
+    }
+
+    @Benchmark
+    public Object listarMovimientosCompleto() {
+        return this.cuentaServicio.listarMovimientos(SiembraDatos.numeroCuenta(cuentaAleatoria()));
+    }
+
+    private int cuentaAleatoria() {
+        return ThreadLocalRandom.current().nextInt(this.cuentas);
+    }
+}
@@ -0,0 +1,86 @@
+package es.nextdigital.demo.benchmark;
+
+import es.nextdigital.demo.model.Cuenta;
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.model.Movimiento;
+import es.nextdigital.demo.model.Tarjeta;
+import es.nextdigital.demo.model.TipoMovimiento;
+import es.nextdigital.demo.model.TipoTarjeta;
+import es.nextdigital.demo.repositorio.CuentaRepository;
+import es.nextdigital.demo.repositorio.MovimientoRepository;
+import es.nextdigital.demo.repositorio.TarjetaRepository;
+import es.nextdigital.demo.servicios.EncriptadorPin;
+import org.springframework.context.ApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Datos de partida comunes a los benchmarks y a la prueba de carga: cuentas con saldo de sobra, una tarjeta de debito
+ * activada con pin {@value #PIN} por cuenta y un historico de movimientos en cada una.
+ */
+final class SiembraDatos {
+
+    static final int PIN = 1234;
+
+    private static final int TAMANO_LOTE_SIEMBRA = 1_000;
+
+    private SiembraDatos() {
+    }
+
+    static Cuenta[] sembrar(final ApplicationContext contexto, final int cuentas, final int movimientosPorCuenta) {
+        final CuentaRepository cuentaRepository = contexto.getBean(CuentaRepository.class);
+        final MovimientoRepository movimientoRepository = contexto.getBean(MovimientoRepository.class);
+        final TarjetaRepository tarjetaRepository = contexto.getBean(TarjetaRepository.class);
+        final String pinEncriptado = contexto.getBean(EncriptadorPin.class).encriptar(PIN);
+        final TransactionTemplate transactionTemplate = new TransactionTemplate(contexto.getBean(PlatformTransactionManager.class));
+
+        final Cuenta[] cuentasSembradas = new Cuenta[cuentas];
+        for (int inicio = 0; inicio < cuentas; inicio += TAMANO_LOTE_SIEMBRA) {
+            final int fin = Math.min(inicio + TAMANO_LOTE_SIEMBRA, cuentas);
+            final int primera = inicio;
+            transactionTemplate.executeWithoutResult(status -> {
+                final List<Tarjeta> tarjetas = new ArrayList<>();
+                final List<Movimiento> movimientos = new ArrayList<>();
+                for (int i = primera; i < fin; i++) {
+                    final Cuenta cuenta = new Cuenta();
+                    cuenta.setNumeroCuenta(numeroCuenta(i));
+                    cuenta.setSaldo(Dinero.deUnidades(1_000_000_000L));
+                    cuentasSembradas[i] = cuentaRepository.save(cuenta);
+
+                    final Tarjeta tarjeta = new Tarjeta();
+                    tarjeta.setNumeroTarjeta(numeroTarjeta(i));
+                    tarjeta.setActivada(true);
+                    tarjeta.setTipoTarjeta(TipoTarjeta.DEBITO);
+                    tarjeta.setLimiteRetirada(Dinero.deUnidades(1_000));
+                    tarjeta.setPinEncriptado(pinEncriptado);
+                    tarjeta.setCuenta(cuenta);
+                    tarjetas.add(tarjeta);
+
+                    for (int m = 0; m < movimientosPorCuenta; m++) {
+                        final Movimiento movimiento = new Movimiento();
+                        movimiento.setFechaMovimiento(new Date(m * 60_000L));
+                        movimiento.setTipoMovimiento(m % 2 == 0 ? TipoMovimiento.INGRESO : TipoMovimiento.RETIRADA);
+                        movimiento.setImporte(Dinero.deUnidades(10));
+                        movimiento.setCuenta(cuenta);
+                        movimientos.add(movimiento);
+                    }
+                }
+                tarjetaRepository.saveAll(tarjetas);
+                movimientoRepository.saveAll(movimientos);
+            });
+        }
+        return cuentasSembradas;
+    }
+
+    static String numeroCuenta(final int i) {
+        return "ES" + (1_000_000_000L + i);
+    }
+
+    static String numeroTarjeta(final int i) {
+        return Long.toString(4_000_000_000L + i);
+    }
+}
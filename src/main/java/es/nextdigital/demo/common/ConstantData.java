@@ -3,5 +3,6 @@ package es.nextdigital.demo.common;
 public interface ConstantData {
 
     String MI_BANCO = "carlosBank";
-    float COMISION_TRANSFERENCIA = 1.3f;
+    /** Factor de comision de las transferencias a otros bancos, en milesimas (1300 = x1,3). */
+    long COMISION_TRANSFERENCIA_POR_MIL = 1_300L;
 }
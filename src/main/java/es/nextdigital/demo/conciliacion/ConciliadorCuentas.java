@@ -0,0 +1,283 @@
+package es.nextdigital.demo.conciliacion;
+
+import es.nextdigital.demo.configuracion.ConciliacionProperties;
+import es.nextdigital.demo.model.DiferenciaSaldo;
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.model.InformeConciliacion;
+import es.nextdigital.demo.model.TipoMovimiento;
+import es.nextdigital.demo.model.TotalMovimientos;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Comprueba que el saldo de cada cuenta es el que resulta de sus movimientos. Las cuentas se reparten en tramos
+ * consecutivos de numero de cuenta que se concilian en paralelo en un {@link ForkJoinPool} propio. Cada tramo es una
+ * sola consulta de solo lectura que recorre sus cuentas con sus movimientos en orden de cuenta: se suman fila a fila
+ * y solo se guardan las sumas de la cuenta en curso, nunca su historico. Lo que la base de datos tenga que mantener
+ * para la consulta esta acotado por las cuentas del tramo.
+ * <p>
+ * Al ser una sola consulta, el saldo y los movimientos de un tramo salen de la misma foto de la base de datos y una
+ * operacion confirmada a mitad no aparece como diferencia. Si que aparecen los movimientos que aun estan en el diario
+ * sin insertar ({@code carlosbank.movimientos.diario}, ledger) y las cuentas dadas de alta con saldo sin movimiento
+ * que lo justifique.
+ */
+@Component
+public class ConciliadorCuentas {
+
+    static final String METRICA_DIFERENCIAS = "carlosbank.conciliacion.diferencias";
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConciliadorCuentas.class);
+    private static final TipoMovimiento[] TIPOS = TipoMovimiento.values();
+
+    private final DataSource dataSource;
+    private final int cuentasPorTramo;
+    private final int tamanoFetch;
+    private final int maxDiferencias;
+    private final ForkJoinPool pool;
+
+    // Cuentas con diferencias en la ultima conciliacion terminada
+    private final AtomicLong ultimasDiferencias = new AtomicLong();
+
+    public ConciliadorCuentas(final DataSource dataSource,
+                              final ConciliacionProperties propiedades,
+                              final MeterRegistry registro) {
+        this.dataSource = dataSource;
+        this.cuentasPorTramo = Math.max(1, propiedades.getCuentasPorTramo());
+        this.tamanoFetch = propiedades.getTamanoFetch();
+        this.maxDiferencias = propiedades.getMaxDiferencias();
+        final int paralelismo = propiedades.getParalelismo() > 0
+                ? propiedades.getParalelismo()
+                : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(paralelismo, pool -> {
+            final ForkJoinWorkerThread hilo = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            hilo.setName("conciliacion-" + hilo.getPoolIndex());
+            return hilo;
+        }, null, false);
+        Gauge.builder(METRICA_DIFERENCIAS, this.ultimasDiferencias, AtomicLong::get)
+                .description("Cuentas cuyo saldo no coincidia con sus movimientos en la ultima conciliacion")
+                .register(registro);
+    }
+
+    @PreDestroy
+    public void detener() {
+        this.pool.shutdownNow();
+    }
+
+    /**
+     * Lanza la conciliacion en el pool y devuelve su informe cuando termina, sin ocupar el hilo que la pide.
+     */
+    public CompletableFuture<InformeConciliacion> iniciar() {
+        return CompletableFuture.supplyAsync(this::conciliar, this.pool);
+    }
+
+    public InformeConciliacion conciliar() {
+        final long inicio = System.nanoTime();
+        final List<String> limites = this.limitesTramos();
+        final ResultadoTramos resultado = this.pool.invoke(new TareaConciliacion(limites, 0, limites.size() + 1));
+        final long duracion = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+
+        this.ultimasDiferencias.set(resultado.cuentasConDiferencias);
+        if (resultado.cuentasConDiferencias > 0) {
+            LOG.warn("Conciliacion con {} cuentas con diferencias de {} cuentas", resultado.cuentasConDiferencias, resultado.cuentas);
+        }
+        return new InformeConciliacion(resultado.cuentas, resultado.movimientos, resultado.cuentasConDiferencias,
+                List.copyOf(resultado.diferencias), limites.size() + 1, duracion);
+    }
+
+    /**
+     * Ultima cuenta de cada tramo salvo el ultimo, que llega hasta el final. Solo se guardan los limites, no las
+     * cuentas: el tramo {@code i} va del limite {@code i - 1} (excluido) al {@code i} (incluido).
+     */
+    private List<String> limitesTramos() {
+        final List<String> limites = new ArrayList<>();
+        try (Connection conexion = this.dataSource.getConnection()) {
+            conexion.setReadOnly(true);
+            try (PreparedStatement consulta = conexion.prepareStatement("select numero_cuenta from cuenta order by numero_cuenta",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                consulta.setFetchSize(this.tamanoFetch);
+                try (ResultSet cuentas = consulta.executeQuery()) {
+                    long leidas = 0;
+                    while (cuentas.next()) {
+                        if (++leidas % this.cuentasPorTramo == 0) {
+                            limites.add(cuentas.getString(1));
+                        }
+                    }
+                }
+            } finally {
+                // Solo lectura: se cierra la transaccion que abre el pool (auto-commit desactivado)
+                conexion.rollback();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("No se pueden leer las cuentas a conciliar", e);
+        }
+        return limites;
+    }
+
+    private ResultadoTramos conciliarTramo(final String desde, final String hasta) {
+        final ResultadoTramos resultado = new ResultadoTramos();
+        try (Connection conexion = this.dataSource.getConnection()) {
+            conexion.setReadOnly(true);
+            try (PreparedStatement consulta = conexion.prepareStatement(sql(desde, hasta),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                consulta.setFetchSize(this.tamanoFetch);
+                int parametro = 1;
+                if (desde != null) {
+                    consulta.setString(parametro++, desde);
+                }
+                if (hasta != null) {
+                    consulta.setString(parametro, hasta);
+                }
+
+                try (ResultSet filas = consulta.executeQuery()) {
+                    final long[] numeroPorTipo = new long[TIPOS.length];
+                    final long[] centimosPorTipo = new long[TIPOS.length];
+                    String cuenta = null;
+                    long saldoCentimos = 0;
+                    while (filas.next()) {
+                        final String numeroCuenta = filas.getString(1);
+                        if (!numeroCuenta.equals(cuenta)) {
+                            if (cuenta != null) {
+                                resultado.anadirCuenta(cuenta, saldoCentimos, numeroPorTipo, centimosPorTipo, this.maxDiferencias);
+                            }
+                            cuenta = numeroCuenta;
+                            saldoCentimos = filas.getLong(2);
+                            Arrays.fill(numeroPorTipo, 0L);
+                            Arrays.fill(centimosPorTipo, 0L);
+                        }
+                        // Nulo si la cuenta no tiene movimientos (left join); un movimiento sin tipo no se puede sumar
+                        final int tipo = filas.getInt(3);
+                        if (!filas.wasNull()) {
+                            numeroPorTipo[tipo]++;
+                            centimosPorTipo[tipo] = Math.addExact(centimosPorTipo[tipo], filas.getLong(4));
+                        }
+                    }
+                    if (cuenta != null) {
+                        resultado.anadirCuenta(cuenta, saldoCentimos, numeroPorTipo, centimosPorTipo, this.maxDiferencias);
+                    }
+                }
+            } finally {
+                conexion.rollback();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("No se puede conciliar el tramo (" + desde + ", " + hasta + "]", e);
+        }
+        return resultado;
+    }
+
+    // Se ordena por numero de cuenta para que las filas de cada cuenta lleguen seguidas. El tramo se acota por la clave
+    // primaria de cuenta y los movimientos de cada cuenta se buscan por el indice de cuenta_id
+    private static String sql(final String desde, final String hasta) {
+        final StringBuilder sql = new StringBuilder("select c.numero_cuenta, c.saldo_centimos, m.tipo_movimiento, m.importe_centimos "
+                + "from cuenta c left join movimiento m on m.cuenta_id = c.numero_cuenta where 1 = 1");
+        if (desde != null) {
+            sql.append(" and c.numero_cuenta > ?");
+        }
+        if (hasta != null) {
+            sql.append(" and c.numero_cuenta <= ?");
+        }
+        return sql.append(" order by c.numero_cuenta").toString();
+    }
+
+    private static boolean esAbono(final TipoMovimiento tipoMovimiento) {
+        return TipoMovimiento.INGRESO == tipoMovimiento || TipoMovimiento.TRANSFERENCIA_ENTRANTE == tipoMovimiento;
+    }
+
+    /**
+     * Concilia los tramos {@code [desde, hasta)}: parte el intervalo por la mitad hasta quedarse con un tramo y une los
+     * resultados en orden, asi las diferencias quedan ordenadas por cuenta.
+     */
+    private final class TareaConciliacion extends RecursiveTask<ResultadoTramos> {
+
+        private final List<String> limites;
+        private final int desde;
+        private final int hasta;
+
+        private TareaConciliacion(final List<String> limites, final int desde, final int hasta) {
+            this.limites = limites;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        @Override
+        protected ResultadoTramos compute() {
+            if (this.hasta - this.desde == 1) {
+                return ConciliadorCuentas.this.conciliarTramo(
+                        this.desde == 0 ? null : this.limites.get(this.desde - 1),
+                        this.desde == this.limites.size() ? null : this.limites.get(this.desde));
+            }
+
+            final int mitad = (this.desde + this.hasta) >>> 1;
+            final TareaConciliacion izquierda = new TareaConciliacion(this.limites, this.desde, mitad);
+            final TareaConciliacion derecha = new TareaConciliacion(this.limites, mitad, this.hasta);
+            izquierda.fork();
+            final ResultadoTramos resultadoDerecha = derecha.compute();
+            return izquierda.join().unir(resultadoDerecha, ConciliadorCuentas.this.maxDiferencias);
+        }
+    }
+
+    private static final class ResultadoTramos {
+
+        private long cuentas;
+        private long movimientos;
+        private long cuentasConDiferencias;
+        private final List<DiferenciaSaldo> diferencias = new ArrayList<>();
+
+        private void anadirCuenta(final String numeroCuenta, final long saldoCentimos, final long[] numeroPorTipo,
+                                  final long[] centimosPorTipo, final int maxDiferencias) {
+            this.cuentas++;
+            long saldoMovimientos = 0;
+            for (int i = 0; i < TIPOS.length; i++) {
+                this.movimientos += numeroPorTipo[i];
+                saldoMovimientos = esAbono(TIPOS[i])
+                        ? Math.addExact(saldoMovimientos, centimosPorTipo[i])
+                        : Math.subtractExact(saldoMovimientos, centimosPorTipo[i]);
+            }
+            if (saldoMovimientos == saldoCentimos) {
+                return;
+            }
+
+            this.cuentasConDiferencias++;
+            if (this.diferencias.size() < maxDiferencias) {
+                final List<TotalMovimientos> totales = new ArrayList<>(TIPOS.length);
+                for (int i = 0; i < TIPOS.length; i++) {
+                    if (numeroPorTipo[i] > 0) {
+                        totales.add(new TotalMovimientos(TIPOS[i], numeroPorTipo[i], Dinero.deCentimos(centimosPorTipo[i])));
+                    }
+                }
+                this.diferencias.add(new DiferenciaSaldo(numeroCuenta, Dinero.deCentimos(saldoCentimos),
+                        Dinero.deCentimos(saldoMovimientos), Dinero.deCentimos(saldoCentimos - saldoMovimientos), totales));
+            }
+        }
+
+        // Este resultado es el de los tramos anteriores a los de otro
+        private ResultadoTramos unir(final ResultadoTramos otro, final int maxDiferencias) {
+            this.cuentas += otro.cuentas;
+            this.movimientos += otro.movimientos;
+            this.cuentasConDiferencias += otro.cuentasConDiferencias;
+            final int hueco = maxDiferencias - this.diferencias.size();
+            if (hueco > 0) {
+                this.diferencias.addAll(otro.diferencias.subList(0, Math.min(hueco, otro.diferencias.size())));
+            }
+            return this;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package es.nextdigital.demo.configuracion;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "carlosbank.bancos.cache")
+public class CacheBancosProperties {
+
+    /** Tiempo que se mantiene en memoria un banco existente. */
+    private Duration ttl = Duration.ofMinutes(10);
+
+    /** Tiempo que se recuerda que un nombre de banco no existe. */
+    private Duration ttlNegativo = Duration.ofMinutes(1);
+
+    /** Numero maximo de nombres de banco (existentes o no) guardados. */
+    private long tamanoMaximo = 1_000;
+}
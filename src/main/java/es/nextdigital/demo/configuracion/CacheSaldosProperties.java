@@ -0,0 +1,23 @@
+package es.nextdigital.demo.configuracion;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "carlosbank.cuentas.saldos.cache")
+public class CacheSaldosProperties {
+
+    /** Si las consultas de saldo pueden servirse desde la copia en memoria o van siempre a base de datos. */
+    private ConsistenciaSaldos consistencia = ConsistenciaSaldos.ESTRICTA;
+
+    /**
+     * Tiempo maximo que se mantiene un saldo desde que se escribe. Con {@code INSTANTANEA} acota lo que puede ir por
+     * detras de las escrituras que no pasan por esta instancia.
+     */
+    private Duration ttl = Duration.ofSeconds(5);
+
+    /** Numero maximo de cuentas guardadas. */
+    private long tamanoMaximo = 100_000;
+}
@@ -0,0 +1,17 @@
+package es.nextdigital.demo.configuracion;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "carlosbank.tarjetas.cache")
+public class CacheTarjetasProperties {
+
+    /** Tiempo que se mantiene en memoria una tarjeta desde que se lee; cubre una sesion de cajero. */
+    private Duration ttl = Duration.ofMinutes(2);
+
+    /** Numero maximo de tarjetas (existentes o no) guardadas. */
+    private long tamanoMaximo = 10_000;
+}
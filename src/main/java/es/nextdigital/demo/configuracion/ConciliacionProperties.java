@@ -0,0 +1,24 @@
+package es.nextdigital.demo.configuracion;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "carlosbank.conciliacion")
+public class ConciliacionProperties {
+
+    /** Cuentas de cada tramo. Un tramo es la unidad de trabajo en paralelo y se lee con una sola consulta. */
+    private int cuentasPorTramo = 1_000;
+
+    /**
+     * Tramos que se concilian a la vez; 0 para uno por procesador. Cada uno ocupa una conexion del pool mientras dura,
+     * asi que por encima del tamano del pool solo se añade espera.
+     */
+    private int paralelismo = 0;
+
+    /** Filas que el driver trae de la base de datos en cada viaje mientras se recorre un tramo. */
+    private int tamanoFetch = 5_000;
+
+    /** Cuentas con diferencias que se detallan en el informe; el resto solo se cuentan. */
+    private int maxDiferencias = 1_000;
+}
@@ -0,0 +1,15 @@
+package es.nextdigital.demo.configuracion;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "carlosbank.cuentas.concurrencia")
+public class ConcurrenciaCuentasProperties {
+
+    /** Estrategia para serializar las modificaciones del saldo de una misma cuenta. */
+    private ModoConcurrencia modo = ModoConcurrencia.OPTIMISTA;
+
+    /** Numero maximo de intentos de una operacion que choca con otra sobre la misma cuenta. */
+    private int maxIntentos = 10;
+}
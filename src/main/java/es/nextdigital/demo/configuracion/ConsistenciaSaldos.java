@@ -0,0 +1,8 @@
+package es.nextdigital.demo.configuracion;
+
+public enum ConsistenciaSaldos {
+    /** Cada consulta lee el saldo y la version confirmados en base de datos, con una proyeccion y sin cargar la cuenta. */
+    ESTRICTA,
+    /** Se sirve la copia en memoria si existe; puede ir por detras de escrituras hechas desde otra instancia. */
+    INSTANTANEA;
+}
@@ -0,0 +1,35 @@
+package es.nextdigital.demo.configuracion;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "carlosbank.movimientos.diario")
+public class DiarioMovimientosProperties {
+
+    /** Si se activa, el saldo se confirma en la peticion y los movimientos se insertan despues, por lotes. */
+    private boolean habilitado = false;
+
+    /** Directorio del fichero de diario de movimientos. */
+    private String directorio = "data/movimientos";
+
+    /** Movimientos pendientes de insertar admitidos antes de frenar a las operaciones nuevas. */
+    private int capacidadCola = 10_000;
+
+    /** Movimientos que se insertan como maximo en cada transaccion. */
+    private int tamanoLote = 500;
+
+    /** Fallos seguidos de un lote antes de insertar sus movimientos uno a uno y apartar en cuarentena los que fallen. */
+    private int reintentosLote = 3;
+
+    /** Espera entre dos volcados a base de datos. */
+    private Duration intervaloVolcado = Duration.ofMillis(100);
+
+    /** Al alcanzar este tamano el diario se vacia en cuanto no tenga movimientos pendientes de insertar. */
+    private long tamanoMaximoDiario = 64L * 1024 * 1024;
+
+    /** Fuerza cada escritura a disco (fsync). Mas lento, pero sobrevive tambien a una caida del sistema operativo. */
+    private boolean sincronizarDisco = false;
+}
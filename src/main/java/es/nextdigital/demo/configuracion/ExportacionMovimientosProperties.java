@@ -0,0 +1,18 @@
+package es.nextdigital.demo.configuracion;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "carlosbank.exportacion")
+public class ExportacionMovimientosProperties {
+
+    /** Directorio base de las exportaciones; cada una escribe sus ficheros en un subdirectorio con su nombre. */
+    private String directorio = "data/exportaciones";
+
+    /** Movimientos por fichero. Cada fichero se lee con una consulta propia y es la unidad que se reanuda. */
+    private int movimientosPorFichero = 1_000_000;
+
+    /** Filas que el driver trae de la base de datos en cada viaje mientras se recorre el cursor. */
+    private int tamanoFetch = 5_000;
+}
@@ -0,0 +1,23 @@
+package es.nextdigital.demo.configuracion;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "carlosbank.hilos-virtuales")
+public class HilosVirtualesProperties {
+
+    /**
+     * Atiende las peticiones con un hilo virtual por peticion en lugar del pool de hilos de Tomcat. Requiere compilar
+     * y ejecutar con Java 21 ({@code mvn -Pjava21}); con Java 17 solo se activa el limitador de concurrencia.
+     */
+    private boolean habilitado = false;
+
+    /** Peticiones a la API atendidas a la vez. Con 0 se usa el tamano maximo del pool de conexiones de Hikari. */
+    private int maximoConcurrente = 0;
+
+    /** Espera maxima de una peticion por un hueco antes de responder 503. */
+    private Duration esperaMaxima = Duration.ofSeconds(5);
+}
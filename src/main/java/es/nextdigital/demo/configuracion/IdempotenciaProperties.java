@@ -0,0 +1,26 @@
+package es.nextdigital.demo.configuracion;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "carlosbank.idempotencia")
+public class IdempotenciaProperties {
+
+    /** Tiempo durante el que se recuerda el resultado de una clave de idempotencia. */
+    private Duration ttl = Duration.ofHours(24);
+
+    /** Numero maximo de claves recordadas en memoria. */
+    private long tamanoMaximo = 100_000;
+
+    /** Numero de cerrojos (potencia de dos) entre los que se reparten las claves en curso. */
+    private int cerrojos = 64;
+
+    /** Si se activa, los resultados se guardan tambien en base de datos y sobreviven a un reinicio. */
+    private boolean persistente = false;
+
+    /** Espera entre dos borrados de las claves caducadas en base de datos. */
+    private Duration intervaloPurga = Duration.ofMinutes(10);
+}
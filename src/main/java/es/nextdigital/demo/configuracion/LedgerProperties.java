@@ -0,0 +1,41 @@
+package es.nextdigital.demo.configuracion;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "carlosbank.ledger")
+public class LedgerProperties {
+
+    /** Si se activa, los saldos se mantienen en memoria y se persisten en diferido a partir de un diario. */
+    private boolean habilitado = false;
+
+    /** Numero de segmentos (potencia de dos) en los que se reparten las cuentas, cada uno con su propio cerrojo. */
+    private int segmentos = 64;
+
+    /** Directorio del fichero de diario. */
+    private String directorio = "data/ledger";
+
+    /** Entradas pendientes de persistir admitidas antes de frenar a las operaciones nuevas. */
+    private int capacidadCola = 10_000;
+
+    /** Espera maxima de una operacion a que haya hueco en la cola; pasada, se rechaza sin aplicarse. */
+    private Duration esperaMaximaCola = Duration.ofSeconds(5);
+
+    /** Entradas que se persisten como maximo en cada transaccion. */
+    private int tamanoLote = 500;
+
+    /** Fallos seguidos de un lote antes de persistir sus entradas una a una y apartar en cuarentena las que fallen. */
+    private int reintentosLote = 3;
+
+    /** Espera entre dos volcados a base de datos. */
+    private Duration intervaloVolcado = Duration.ofMillis(100);
+
+    /** Al alcanzar este tamano el diario se vacia en cuanto no tenga entradas pendientes de persistir. */
+    private long tamanoMaximoDiario = 64L * 1024 * 1024;
+
+    /** Fuerza cada entrada a disco (fsync). Mas lento, pero sobrevive tambien a una caida del sistema operativo. */
+    private boolean sincronizarDisco = false;
+}
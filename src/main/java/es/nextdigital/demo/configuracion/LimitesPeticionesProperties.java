@@ -0,0 +1,37 @@
+package es.nextdigital.demo.configuracion;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "carlosbank.limites")
+public class LimitesPeticionesProperties {
+
+    /** Rechaza con 429, antes de llegar a los servicios, las peticiones de tarjetas y cajeros que superan los limites. */
+    private boolean habilitado = true;
+
+    /** Limite por numero de tarjeta, para frenar los intentos de adivinar el pin. */
+    private Limite tarjeta = new Limite(10, Duration.ofSeconds(6));
+
+    /** Limite por banco del cajero, para que una red de cajeros no sature la API. */
+    private Limite banco = new Limite(2_000, Duration.ofMillis(1));
+
+    /** Numero maximo de tarjetas (y de bancos) con su limite en memoria; al superarlo se descartan los menos usados. */
+    private long tamanoMaximo = 100_000;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Limite {
+
+        /** Peticiones seguidas que se admiten partiendo de cero. */
+        private int capacidad;
+
+        /** Tiempo en recuperar una de esas peticiones. */
+        private Duration reposicion;
+    }
+}
@@ -0,0 +1,20 @@
+package es.nextdigital.demo.configuracion;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.ZoneId;
+
+@Data
+@ConfigurationProperties(prefix = "carlosbank.tarjetas.retiradas")
+public class LimitesRetiradaProperties {
+
+    /** El limite mensual de una tarjeta es su limite de retirada diario por este multiplo. */
+    private int multiploMensual = 10;
+
+    /** Zona horaria en la que se decide a que dia y mes pertenece cada retirada. */
+    private ZoneId zonaHoraria = ZoneId.of("Europe/Madrid");
+
+    /** Segmentos de los contadores en memoria, cada uno con su cerrojo. Se redondea a potencia de dos. */
+    private int segmentos = 64;
+}
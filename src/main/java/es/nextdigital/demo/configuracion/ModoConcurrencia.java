@@ -0,0 +1,8 @@
+package es.nextdigital.demo.configuracion;
+
+public enum ModoConcurrencia {
+    /** Lectura sin bloqueo; la columna {@code version} detecta escrituras concurrentes y la operacion se reintenta. */
+    OPTIMISTA,
+    /** La fila de la cuenta se bloquea con {@code SELECT ... FOR UPDATE} durante toda la operacion. */
+    PESIMISTA;
+}
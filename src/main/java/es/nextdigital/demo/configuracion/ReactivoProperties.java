@@ -0,0 +1,18 @@
+package es.nextdigital.demo.configuracion;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Solo para la variante WebFlux de la API (perfil {@code reactivo}).
+ */
+@Data
+@ConfigurationProperties(prefix = "carlosbank.reactivo")
+public class ReactivoProperties {
+
+    /** Hilos para las llamadas bloqueantes a los servicios. Con 0 se usa el tamano maximo del pool de conexiones de Hikari. */
+    private int hilosBloqueantes = 0;
+
+    /** Llamadas bloqueantes que pueden esperar hilo; por encima se responde 503. */
+    private int colaMaxima = 100_000;
+}
@@ -0,0 +1,14 @@
+package es.nextdigital.demo.configuracion;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.ZoneId;
+
+@Data
+@ConfigurationProperties(prefix = "carlosbank.resumenes")
+public class ResumenesCuentaProperties {
+
+    /** Zona horaria en la que se decide a que dia pertenece cada movimiento. */
+    private ZoneId zonaHoraria = ZoneId.of("Europe/Madrid");
+}
@@ -0,0 +1,28 @@
+package es.nextdigital.demo.configuracion;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.embedded.netty.NettyRouteProvider;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Solo con el perfil {@code reactivo}. Tomcat sigue en el classpath por la variante servlet y Spring Boot lo elige antes
+ * que Netty para WebFlux; declarando la factoria se fuerza Netty, que atiende todas las conexiones con unos pocos hilos
+ * de bucle de eventos.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ServidorReactivoConfiguracion {
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory(final ObjectProvider<NettyRouteProvider> rutas,
+                                                                       final ObjectProvider<NettyServerCustomizer> personalizaciones) {
+        final NettyReactiveWebServerFactory factoria = new NettyReactiveWebServerFactory();
+        rutas.orderedStream().forEach(factoria::addRouteProviders);
+        factoria.getServerCustomizers().addAll(personalizaciones.orderedStream().toList());
+        return factoria;
+    }
+}
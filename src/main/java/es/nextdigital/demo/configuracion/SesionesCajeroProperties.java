@@ -0,0 +1,17 @@
+package es.nextdigital.demo.configuracion;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "carlosbank.cajero.sesiones")
+public class SesionesCajeroProperties {
+
+    /** Tiempo sin operar tras el que caduca una sesion de cajero; cada operacion lo reinicia. */
+    private Duration inactividadMaxima = Duration.ofMinutes(2);
+
+    /** Numero maximo de sesiones abiertas a la vez; al superarlo se descartan las menos usadas. */
+    private long maximoSesiones = 100_000;
+}
@@ -0,0 +1,15 @@
+package es.nextdigital.demo.configuracion;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "carlosbank.transferencias.lote")
+public class TransferenciasLoteProperties {
+
+    /**
+     * Transferencias que se procesan en cada transaccion de un lote. Un bloque mayor reparte mejor el coste de la
+     * transaccion y de los accesos a base de datos, pero mantiene mas tiempo bloqueadas sus cuentas origen.
+     */
+    private int tamanoBloque = 500;
+}
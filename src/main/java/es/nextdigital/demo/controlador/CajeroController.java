@@ -0,0 +1,68 @@
+package es.nextdigital.demo.controlador;
+
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.servicios.Idempotencia;
+import es.nextdigital.demo.servicios.MetricasOperaciones;
+import es.nextdigital.demo.servicios.TarjetaServicio;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Operaciones de cajero dentro de una sesion: el titular introduce el pin una vez al abrirla y las operaciones
+ * siguientes envian el token de la sesion en la cabecera {@value #CABECERA_SESION}.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping("/carlosbank/api/cajero")
+@RequiredArgsConstructor
+public class CajeroController {
+
+    public static final String CABECERA_SESION = "X-Sesion-Cajero";
+
+    private final TarjetaServicio tarjetaServicio;
+    private final MetricasOperaciones metricas;
+    private final Idempotencia idempotencia;
+
+    @PostMapping("/sesiones")
+    public String abrirSesion(
+            @RequestParam String numeroTarjeta,
+            @RequestParam int pin) {
+        return this.metricas.operacion("cajero.abrir-sesion", () -> this.tarjetaServicio.abrirSesion(numeroTarjeta, pin));
+    }
+
+    @DeleteMapping("/sesiones")
+    public void cerrarSesion(@RequestHeader(CABECERA_SESION) String token) {
+        this.metricas.operacion("cajero.cerrar-sesion", () -> this.tarjetaServicio.cerrarSesion(token));
+    }
+
+    @PostMapping("/sacar")
+    public Dinero sacarDinero(
+            @RequestHeader(CABECERA_SESION) String token,
+            @RequestParam Dinero cantidad,
+            @RequestParam String banco,
+            @RequestHeader(name = Idempotencia.CABECERA, required = false) String claveIdempotencia) {
+        return this.metricas.operacion("cajero.sacar",
+                () -> this.idempotencia.ejecutar(claveIdempotencia, "cajero.sacar", List.of(token, cantidad, banco),
+                        () -> this.tarjetaServicio.sacarDineroEnSesion(token, cantidad, banco)));
+    }
+
+    @PostMapping("/ingresar")
+    public void ingresarDinero(
+            @RequestHeader(CABECERA_SESION) String token,
+            @RequestParam Dinero cantidad,
+            @RequestParam String banco,
+            @RequestHeader(name = Idempotencia.CABECERA, required = false) String claveIdempotencia) {
+        this.metricas.operacion("cajero.ingresar",
+                () -> this.idempotencia.ejecutar(claveIdempotencia, "cajero.ingresar", List.of(token, cantidad, banco),
+                        () -> this.tarjetaServicio.ingresarDineroEnSesion(token, cantidad, banco)));
+    }
+
+    @GetMapping("/configuracion")
+    public Dinero consultarConfiguracion(@RequestHeader(CABECERA_SESION) String token) {
+        return this.metricas.operacion("cajero.consultar-configuracion",
+                () -> this.tarjetaServicio.consultarConfiguracionEnSesion(token));
+    }
+}
@@ -0,0 +1,68 @@
+package es.nextdigital.demo.controlador;
+
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.servicios.Idempotencia;
+import es.nextdigital.demo.servicios.MetricasOperaciones;
+import es.nextdigital.demo.servicios.TarjetaServicio;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Variante WebFlux de {@link CajeroController} (perfil {@code reactivo}). En WebFlux los {@code @RequestParam} solo se
+ * leen de la URL, no de un formulario en el cuerpo.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/carlosbank/api/cajero")
+@RequiredArgsConstructor
+public class CajeroControllerReactivo {
+
+    private final TarjetaServicio tarjetaServicio;
+    private final MetricasOperaciones metricas;
+    private final Idempotencia idempotencia;
+    private final EjecutorBloqueante ejecutor;
+
+    @PostMapping("/sesiones")
+    public Mono<String> abrirSesion(
+            @RequestParam String numeroTarjeta,
+            @RequestParam int pin) {
+        return this.ejecutor.ejecutar(() -> this.metricas.operacion("cajero.abrir-sesion", () -> this.tarjetaServicio.abrirSesion(numeroTarjeta, pin)));
+    }
+
+    @DeleteMapping("/sesiones")
+    public Mono<Void> cerrarSesion(@RequestHeader(CajeroController.CABECERA_SESION) String token) {
+        return this.ejecutor.ejecutar(() -> this.metricas.operacion("cajero.cerrar-sesion", () -> this.tarjetaServicio.cerrarSesion(token)));
+    }
+
+    @PostMapping("/sacar")
+    public Mono<Dinero> sacarDinero(
+            @RequestHeader(CajeroController.CABECERA_SESION) String token,
+            @RequestParam Dinero cantidad,
+            @RequestParam String banco,
+            @RequestHeader(name = Idempotencia.CABECERA, required = false) String claveIdempotencia) {
+        return this.ejecutor.ejecutar(() -> this.metricas.operacion("cajero.sacar",
+                () -> this.idempotencia.ejecutar(claveIdempotencia, "cajero.sacar", List.of(token, cantidad, banco),
+                        () -> this.tarjetaServicio.sacarDineroEnSesion(token, cantidad, banco))));
+    }
+
+    @PostMapping("/ingresar")
+    public Mono<Void> ingresarDinero(
+            @RequestHeader(CajeroController.CABECERA_SESION) String token,
+            @RequestParam Dinero cantidad,
+            @RequestParam String banco,
+            @RequestHeader(name = Idempotencia.CABECERA, required = false) String claveIdempotencia) {
+        return this.ejecutor.ejecutar(() -> this.metricas.operacion("cajero.ingresar",
+                () -> this.idempotencia.ejecutar(claveIdempotencia, "cajero.ingresar", List.of(token, cantidad, banco),
+                        () -> this.tarjetaServicio.ingresarDineroEnSesion(token, cantidad, banco))));
+    }
+
+    @GetMapping("/configuracion")
+    public Mono<Dinero> consultarConfiguracion(@RequestHeader(CajeroController.CABECERA_SESION) String token) {
+        return this.ejecutor.ejecutar(() -> this.metricas.operacion("cajero.consultar-configuracion",
+                () -> this.tarjetaServicio.consultarConfiguracionEnSesion(token)));
+    }
+}
@@ -0,0 +1,27 @@
+package es.nextdigital.demo.controlador;
+
+import es.nextdigital.demo.conciliacion.ConciliadorCuentas;
+import es.nextdigital.demo.model.InformeConciliacion;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * La conciliacion se ejecuta en el pool de {@link ConciliadorCuentas} y la respuesta sale cuando termina: ni el hilo
+ * del servlet ni el de Netty se quedan esperando, asi que sirve igual con la variante reactiva.
+ */
+@RestController
+@RequestMapping("/carlosbank/api/conciliaciones")
+@RequiredArgsConstructor
+public class ConciliacionController {
+
+    private final ConciliadorCuentas conciliador;
+
+    @PostMapping
+    public CompletableFuture<InformeConciliacion> conciliar() {
+        return this.conciliador.iniciar();
+    }
+}
@@ -0,0 +1,84 @@
+package es.nextdigital.demo.controlador;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import es.nextdigital.demo.configuracion.LimitesPeticionesProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Un cubo de tokens por clave (tarjeta o banco). Cada cubo es un unico {@link AtomicLong} con el instante en que
+ * quedaria lleno otra vez (algoritmo GCRA, equivalente al cubo de tokens): consumir es leer, comparar y un
+ * compareAndSet, sin bloqueos.
+ */
+final class CubosTokens {
+
+    static final String METRICA_RECHAZADAS = "carlosbank.limites.rechazadas";
+    static final String METRICA_CUBOS = "carlosbank.limites.cubos";
+
+    private final Cache<String, AtomicLong> cubos;
+    private final long intervaloNanos;
+    private final long rafagaNanos;
+    private final Counter rechazadas;
+
+    CubosTokens(final String nombre, final LimitesPeticionesProperties.Limite limite, final long tamanoMaximo, final MeterRegistry registro) {
+        this.intervaloNanos = limite.getReposicion().toNanos();
+        this.rafagaNanos = this.intervaloNanos * limite.getCapacidad();
+        // Un cubo que lleva sin usarse lo que tarda en llenarse esta lleno: caducarlo no cambia nada. El limite de tamano
+        // si puede descartar un cubo todavia en deuda, y su clave vuelve a empezar con el cubo lleno
+        this.cubos = Caffeine.newBuilder()
+                .maximumSize(tamanoMaximo)
+                .expireAfterAccess(Duration.ofNanos(this.rafagaNanos))
+                .build();
+        this.rechazadas = Counter.builder(METRICA_RECHAZADAS)
+                .description("Peticiones rechazadas por superar su limite")
+                .tag("limite", nombre)
+                .register(registro);
+        Gauge.builder(METRICA_CUBOS, this.cubos, Cache::estimatedSize)
+                .description("Claves con su limite en memoria")
+                .tag("limite", nombre)
+                .register(registro);
+    }
+
+    /**
+     * Consume un token de la clave. Devuelve 0 si lo habia o, si no, los nanosegundos hasta que haya uno. Sin clave no
+     * se limita.
+     */
+    long consumir(final String clave, final long ahora) {
+        if (clave == null || clave.isEmpty()) {
+            return 0;
+        }
+
+        final AtomicLong cubo = this.cubos.get(clave, k -> new AtomicLong(ahora));
+        while (true) {
+            final long lleno = cubo.get();
+            final long nuevoLleno = (lleno - ahora < 0 ? ahora : lleno) + this.intervaloNanos;
+            final long exceso = nuevoLleno - ahora - this.rafagaNanos;
+            if (exceso > 0) {
+                this.rechazadas.increment();
+                return exceso;
+            }
+            if (cubo.compareAndSet(lleno, nuevoLleno)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Devuelve el token consumido por una peticion que al final se ha rechazado por otro limite.
+     */
+    void devolver(final String clave) {
+        if (clave == null || clave.isEmpty()) {
+            return;
+        }
+
+        final AtomicLong cubo = this.cubos.getIfPresent(clave);
+        if (cubo != null) {
+            cubo.addAndGet(-this.intervaloNanos);
+        }
+    }
+}
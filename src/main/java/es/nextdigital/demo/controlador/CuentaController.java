@@ -1,29 +1,154 @@
 package es.nextdigital.demo.controlador;
 
-import es.nextdigital.demo.model.Movimiento;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import es.nextdigital.demo.configuracion.TransferenciasLoteProperties;
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.model.MovimientoDto;
+import es.nextdigital.demo.model.PaginaMovimientos;
+import es.nextdigital.demo.model.ResultadoTransferencia;
+import es.nextdigital.demo.model.ResumenMovimientos;
+import es.nextdigital.demo.model.SolicitudTransferencia;
 import es.nextdigital.demo.servicios.CuentaServicio;
+import es.nextdigital.demo.servicios.Idempotencia;
+import es.nextdigital.demo.servicios.MetricasOperaciones;
+import es.nextdigital.demo.servicios.ResumenesCuenta;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/carlosbank/api/cuentas")
 @RequiredArgsConstructor
 public class CuentaController {
 
+    private static final int TAMANO_LOTE_STREAM = 500;
+
     private final CuentaServicio cuentaServicio;
+    private final ObjectMapper objectMapper;
+    private final TransferenciasLoteProperties transferenciasLoteProperties;
+    private final MetricasOperaciones metricas;
+    private final ResumenesCuenta resumenesCuenta;
+    private final Idempotencia idempotencia;
 
     @GetMapping("/{numeroCuenta}/movimientos")
-    public List<Movimiento> listarMovimientos(@PathVariable String numeroCuenta) {
-        return this.cuentaServicio.listarMovimientos(numeroCuenta);
+    public List<MovimientoDto> listarMovimientos(@PathVariable String numeroCuenta) {
+        return this.metricas.operacion("cuenta.listar-movimientos", () -> this.cuentaServicio.listarMovimientos(numeroCuenta));
+    }
+
+    @GetMapping("/{numeroCuenta}/saldo")
+    public Dinero consultarSaldo(@PathVariable String numeroCuenta) {
+        return this.metricas.operacion("cuenta.consultar-saldo", () -> this.cuentaServicio.consultarSaldo(numeroCuenta));
+    }
+
+    @GetMapping("/{numeroCuenta}/movimientos/paginas")
+    public PaginaMovimientos listarMovimientosPaginados(
+            @PathVariable String numeroCuenta,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limite) {
+        return this.metricas.operacion("cuenta.listar-movimientos-paginados",
+                () -> this.cuentaServicio.listarMovimientos(numeroCuenta, cursor, limite));
+    }
+
+    /**
+     * Totales por tipo de movimiento entre dos dias incluidos, calculados con los resumenes diarios de la cuenta.
+     */
+    @GetMapping("/{numeroCuenta}/resumen")
+    public ResumenMovimientos consultarResumen(
+            @PathVariable String numeroCuenta,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        return this.metricas.operacion("cuenta.resumen", () -> this.resumenesCuenta.consultar(numeroCuenta, desde, hasta));
+    }
+
+    @GetMapping(value = "/{numeroCuenta}/movimientos/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamMovimientos(@PathVariable String numeroCuenta) {
+        // La primera pagina se lee antes de empezar a escribir para que una cuenta inexistente devuelva un 404
+        final PaginaMovimientos primeraPagina = this.cuentaServicio.listarMovimientos(numeroCuenta, null, TAMANO_LOTE_STREAM);
+
+        return outputStream -> {
+            try (JsonGenerator generator = this.objectMapper.getFactory().createGenerator(outputStream)) {
+                // NDJSON: cada movimiento termina en salto de linea, sin el separador por defecto entre valores raiz
+                generator.setRootValueSeparator(null);
+                PaginaMovimientos pagina = primeraPagina;
+                escribirPagina(generator, pagina);
+                while (pagina.siguienteCursor() != null) {
+                    pagina = this.cuentaServicio.listarMovimientos(numeroCuenta, pagina.siguienteCursor(), TAMANO_LOTE_STREAM);
+                    escribirPagina(generator, pagina);
+                }
+            }
+        };
     }
 
     @PostMapping("/{numeroCuenta}/transferencias")
     public void realizarTransferencia(
             @PathVariable String numeroCuenta,
             @RequestParam String ibanDestino,
-            @RequestParam float cantidad) {
-        this.cuentaServicio.realizarTransferencia(numeroCuenta, ibanDestino, cantidad);
+            @RequestParam Dinero cantidad,
+            @RequestHeader(name = Idempotencia.CABECERA, required = false) String claveIdempotencia) {
+        this.metricas.operacion("cuenta.transferencia",
+                () -> this.idempotencia.ejecutar(claveIdempotencia, "cuenta.transferencia", List.of(numeroCuenta, ibanDestino, cantidad),
+                        () -> this.cuentaServicio.realizarTransferencia(numeroCuenta, ibanDestino, cantidad)));
+    }
+
+    @PostMapping(value = "/transferencias/lote", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<ResultadoTransferencia> realizarTransferencias(@RequestBody List<SolicitudTransferencia> transferencias) {
+        return this.metricas.operacion("cuenta.transferencias-lote", () -> this.cuentaServicio.realizarTransferencias(transferencias));
+    }
+
+    /**
+     * Version en streaming para lotes muy grandes: las transferencias se leen en NDJSON por bloques y el resultado de
+     * cada bloque se escribe en cuanto se confirma, sin tener el lote completo en memoria.
+     */
+    @PostMapping(value = "/transferencias/lote", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody realizarTransferenciasStream(HttpServletRequest request) throws IOException {
+        final InputStream entrada = request.getInputStream();
+        final int tamanoBloque = Math.max(1, this.transferenciasLoteProperties.getTamanoBloque());
+
+        return outputStream -> {
+            try (MappingIterator<SolicitudTransferencia> solicitudes = this.objectMapper.readerFor(SolicitudTransferencia.class).readValues(entrada);
+                 JsonGenerator generator = this.objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.setRootValueSeparator(null);
+                final List<SolicitudTransferencia> bloque = new ArrayList<>(tamanoBloque);
+                while (solicitudes.hasNextValue()) {
+                    bloque.add(solicitudes.nextValue());
+                    if (bloque.size() == tamanoBloque) {
+                        escribirResultados(generator, this.cuentaServicio.realizarTransferencias(bloque));
+                        bloque.clear();
+                    }
+                }
+                if (!bloque.isEmpty()) {
+                    escribirResultados(generator, this.cuentaServicio.realizarTransferencias(bloque));
+                }
+            }
+        };
+    }
+
+    private void escribirResultados(final JsonGenerator generator, final List<ResultadoTransferencia> resultados) throws IOException {
+        for (ResultadoTransferencia resultado : resultados) {
+            generator.writeObject(resultado);
+            generator.writeRaw('\n');
+        }
+        generator.flush();
+    }
+
+    private void escribirPagina(final JsonGenerator generator, final PaginaMovimientos pagina) throws IOException {
+        for (MovimientoDto movimiento : pagina.movimientos()) {
+            generator.writeObject(movimiento);
+            generator.writeRaw('\n');
+        }
+        generator.flush();
     }
 }
@@ -0,0 +1,113 @@
+package es.nextdigital.demo.controlador;
+
+import es.nextdigital.demo.configuracion.TransferenciasLoteProperties;
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.model.MovimientoDto;
+import es.nextdigital.demo.model.PaginaMovimientos;
+import es.nextdigital.demo.model.ResultadoTransferencia;
+import es.nextdigital.demo.model.ResumenMovimientos;
+import es.nextdigital.demo.model.SolicitudTransferencia;
+import es.nextdigital.demo.servicios.CuentaServicio;
+import es.nextdigital.demo.servicios.Idempotencia;
+import es.nextdigital.demo.servicios.MetricasOperaciones;
+import es.nextdigital.demo.servicios.ResumenesCuenta;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Variante WebFlux de {@link CuentaController} (perfil {@code reactivo}). Los endpoints NDJSON son {@link Flux}: el
+ * historico se lee pagina a pagina segun el cliente va consumiendo, y los lotes de transferencias se agrupan en bloques
+ * a medida que llegan, sin un hilo esperando al cliente en ninguno de los dos casos.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/carlosbank/api/cuentas")
+@RequiredArgsConstructor
+public class CuentaControllerReactivo {
+
+    private static final int TAMANO_LOTE_STREAM = 500;
+
+    private final CuentaServicio cuentaServicio;
+    private final TransferenciasLoteProperties transferenciasLoteProperties;
+    private final MetricasOperaciones metricas;
+    private final ResumenesCuenta resumenesCuenta;
+    private final Idempotencia idempotencia;
+    private final EjecutorBloqueante ejecutor;
+
+    @GetMapping("/{numeroCuenta}/movimientos")
+    public Mono<List<MovimientoDto>> listarMovimientos(@PathVariable String numeroCuenta) {
+        return this.ejecutor.ejecutar(() -> this.metricas.operacion("cuenta.listar-movimientos",
+                () -> this.cuentaServicio.listarMovimientos(numeroCuenta)));
+    }
+
+    @GetMapping("/{numeroCuenta}/saldo")
+    public Mono<Dinero> consultarSaldo(@PathVariable String numeroCuenta) {
+        return this.ejecutor.ejecutar(() -> this.metricas.operacion("cuenta.consultar-saldo",
+                () -> this.cuentaServicio.consultarSaldo(numeroCuenta)));
+    }
+
+    @GetMapping("/{numeroCuenta}/movimientos/paginas")
+    public Mono<PaginaMovimientos> listarMovimientosPaginados(
+            @PathVariable String numeroCuenta,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limite) {
+        return this.ejecutor.ejecutar(() -> this.metricas.operacion("cuenta.listar-movimientos-paginados",
+                () -> this.cuentaServicio.listarMovimientos(numeroCuenta, cursor, limite)));
+    }
+
+    @GetMapping("/{numeroCuenta}/resumen")
+    public Mono<ResumenMovimientos> consultarResumen(
+            @PathVariable String numeroCuenta,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        return this.ejecutor.ejecutar(() -> this.metricas.operacion("cuenta.resumen",
+                () -> this.resumenesCuenta.consultar(numeroCuenta, desde, hasta)));
+    }
+
+    /**
+     * Cada pagina se pide cuando el cliente ha consumido la anterior. Una cuenta inexistente falla en la primera, antes
+     * de escribir nada, y devuelve un 404.
+     */
+    @GetMapping(value = "/{numeroCuenta}/movimientos/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<MovimientoDto> streamMovimientos(@PathVariable String numeroCuenta) {
+        return this.ejecutor.ejecutar(() -> this.cuentaServicio.listarMovimientos(numeroCuenta, null, TAMANO_LOTE_STREAM))
+                .expand(pagina -> pagina.siguienteCursor() == null
+                        ? Mono.empty()
+                        : this.ejecutor.ejecutar(() -> this.cuentaServicio.listarMovimientos(numeroCuenta, pagina.siguienteCursor(), TAMANO_LOTE_STREAM)))
+                .concatMapIterable(PaginaMovimientos::movimientos);
+    }
+
+    @PostMapping("/{numeroCuenta}/transferencias")
+    public Mono<Void> realizarTransferencia(
+            @PathVariable String numeroCuenta,
+            @RequestParam String ibanDestino,
+            @RequestParam Dinero cantidad,
+            @RequestHeader(name = Idempotencia.CABECERA, required = false) String claveIdempotencia) {
+        return this.ejecutor.ejecutar(() -> this.metricas.operacion("cuenta.transferencia",
+                () -> this.idempotencia.ejecutar(claveIdempotencia, "cuenta.transferencia", List.of(numeroCuenta, ibanDestino, cantidad),
+                        () -> this.cuentaServicio.realizarTransferencia(numeroCuenta, ibanDestino, cantidad))));
+    }
+
+    @PostMapping(value = "/transferencias/lote", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<List<ResultadoTransferencia>> realizarTransferencias(@RequestBody List<SolicitudTransferencia> transferencias) {
+        return this.ejecutor.ejecutar(() -> this.metricas.operacion("cuenta.transferencias-lote",
+                () -> this.cuentaServicio.realizarTransferencias(transferencias)));
+    }
+
+    @PostMapping(value = "/transferencias/lote", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<ResultadoTransferencia> realizarTransferenciasStream(@RequestBody Flux<SolicitudTransferencia> solicitudes) {
+        final int tamanoBloque = Math.max(1, this.transferenciasLoteProperties.getTamanoBloque());
+
+        return solicitudes.buffer(tamanoBloque)
+                .concatMap(bloque -> this.ejecutor.ejecutar(() -> this.cuentaServicio.realizarTransferencias(bloque)))
+                .concatMapIterable(resultados -> resultados);
+    }
+}
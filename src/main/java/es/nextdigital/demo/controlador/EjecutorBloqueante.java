@@ -0,0 +1,45 @@
+package es.nextdigital.demo.controlador;
+
+import es.nextdigital.demo.configuracion.ReactivoProperties;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.sql.DataSource;
+import java.util.function.Supplier;
+
+/**
+ * Los servicios son bloqueantes (JPA sobre JDBC) y no pueden ejecutarse en los hilos de Netty. Los controladores
+ * reactivos los llaman a traves de este ejecutor, con tantos hilos como conexiones tiene el pool: ningun hilo espera
+ * conexion, y las llamadas que no caben esperan en una cola acotada sin ocupar hilo. Con la cola llena se responde 503,
+ * igual que el {@link LimitadorConcurrenciaFilter} de la variante servlet.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class EjecutorBloqueante {
+
+    private final Scheduler scheduler;
+
+    public EjecutorBloqueante(final DataSource dataSource, final ReactivoProperties propiedades) {
+        final int hilos = propiedades.getHilosBloqueantes() > 0
+                ? propiedades.getHilosBloqueantes()
+                : LimitadorConcurrenciaFilter.tamanoPool(dataSource);
+        this.scheduler = Schedulers.newBoundedElastic(hilos, propiedades.getColaMaxima(), "carlosbank-jdbc", 60, true);
+    }
+
+    public <T> Mono<T> ejecutar(final Supplier<T> accion) {
+        return Mono.fromSupplier(accion).subscribeOn(this.scheduler);
+    }
+
+    public Mono<Void> ejecutar(final Runnable accion) {
+        return Mono.<Void>fromRunnable(accion).subscribeOn(this.scheduler);
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        this.scheduler.dispose();
+    }
+}
@@ -0,0 +1,41 @@
+package es.nextdigital.demo.controlador;
+
+import es.nextdigital.demo.exceptions.NotFoundException;
+import es.nextdigital.demo.exportacion.ExportadorMovimientos;
+import es.nextdigital.demo.model.EstadoExportacion;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Las exportaciones se ejecutan en segundo plano: {@code POST} las lanza (o reanuda) y responde enseguida, y
+ * {@code GET} devuelve su progreso. Sin dependencias de servlet, sirve igual con la variante reactiva.
+ */
+@RestController
+@RequestMapping("/carlosbank/api/exportaciones")
+@RequiredArgsConstructor
+public class ExportacionController {
+
+    private final ExportadorMovimientos exportador;
+
+    @PostMapping("/{nombre}")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public EstadoExportacion iniciarExportacion(
+            @PathVariable String nombre,
+            @RequestParam(required = false) List<String> cuentas) {
+        return this.exportador.iniciar(nombre, cuentas == null ? List.of() : cuentas);
+    }
+
+    @GetMapping("/{nombre}")
+    public EstadoExportacion consultarExportacion(@PathVariable String nombre) {
+        final Optional<EstadoExportacion> estado = this.exportador.consultar(nombre);
+        if (estado.isPresent()) {
+            return estado.get();
+        } else {
+            throw new NotFoundException("Exportacion no encontrada");
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package es.nextdigital.demo.controlador;
+
+import com.zaxxer.hikari.HikariDataSource;
+import es.nextdigital.demo.configuracion.HilosVirtualesProperties;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Con hilos virtuales no hay un pool de hilos que limite cuantas peticiones entran a la vez, asi que miles de ellas
+ * llegarian a la vez a pedir conexion a Hikari. Este filtro deja pasar a la API tantas peticiones como conexiones tiene
+ * el pool; el resto espera su turno en orden de llegada (aparcar un hilo virtual no cuesta un hilo de plataforma) y,
+ * si la espera supera el maximo configurado, se responde 503.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(prefix = "carlosbank.hilos-virtuales", name = "habilitado", havingValue = "true")
+public class LimitadorConcurrenciaFilter extends OncePerRequestFilter {
+
+    private static final String PREFIJO_API = "/carlosbank/api/";
+    // Hikari no fija su tamano por defecto hasta que arranca el pool, que puede ser despues de crear este filtro
+    private static final int TAMANO_POOL_HIKARI_POR_DEFECTO = 10;
+
+    private final Semaphore permisos;
+    private final long esperaMaximaNanos;
+
+    public LimitadorConcurrenciaFilter(final DataSource dataSource, final HilosVirtualesProperties propiedades) {
+        final int maximoConcurrente = propiedades.getMaximoConcurrente() > 0
+                ? propiedades.getMaximoConcurrente()
+                : tamanoPool(dataSource);
+        this.permisos = new Semaphore(maximoConcurrente, true);
+        this.esperaMaximaNanos = propiedades.getEsperaMaxima().toNanos();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(final HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(PREFIJO_API);
+    }
+
+    @Override
+    protected void doFilterInternal(final HttpServletRequest request, final HttpServletResponse response, final FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!adquirirPermiso()) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.setCharacterEncoding("UTF-8");
+            response.getWriter().write("Demasiadas peticiones simultaneas, intentelo de nuevo");
+            return;
+        }
+
+        boolean liberar = true;
+        try {
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                // Las respuestas en streaming siguen usando la base de datos despues de volver del filtro
+                request.getAsyncContext().addListener(new LiberarPermiso());
+                liberar = false;
+            }
+        } finally {
+            if (liberar) {
+                this.permisos.release();
+            }
+        }
+    }
+
+    int permisosDisponibles() {
+        return this.permisos.availablePermits();
+    }
+
+    private boolean adquirirPermiso() {
+        try {
+            return this.permisos.tryAcquire(this.esperaMaximaNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    static int tamanoPool(final DataSource dataSource) {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                final int tamanoPool = dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+                return tamanoPool > 0 ? tamanoPool : TAMANO_POOL_HIKARI_POR_DEFECTO;
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("No se puede consultar el pool de conexiones", e);
+        }
+        throw new IllegalStateException("El pool de conexiones no es Hikari: hay que indicar su tamano en la configuracion "
+                + "(carlosbank.hilos-virtuales.maximo-concurrente o carlosbank.reactivo.hilos-bloqueantes)");
+    }
+
+    private final class LiberarPermiso implements AsyncListener {
+
+        @Override
+        public void onComplete(final AsyncEvent event) {
+            // onComplete llega siempre, tambien despues de un error o un timeout
+            LimitadorConcurrenciaFilter.this.permisos.release();
+        }
+
+        @Override
+        public void onTimeout(final AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(final AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(final AsyncEvent event) {
+        }
+    }
+}
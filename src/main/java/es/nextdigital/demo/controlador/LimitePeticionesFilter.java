@@ -0,0 +1,62 @@
+package es.nextdigital.demo.controlador;
+
+import es.nextdigital.demo.configuracion.LimitesPeticionesProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.RequestPath;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Limita las peticiones de tarjetas y cajeros por numero de tarjeta y por banco del cajero. Cada intento con pin cuesta
+ * un hash y una consulta, asi que las que superan su limite se rechazan con 429 aqui, antes de la idempotencia, los
+ * servicios y la base de datos. Se ejecuta antes que el {@link LimitadorConcurrenciaFilter}: una peticion rechazada no
+ * llega a esperar turno.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(prefix = "carlosbank.limites", name = "habilitado", havingValue = "true", matchIfMissing = true)
+public class LimitePeticionesFilter extends OncePerRequestFilter {
+
+    private final LimitesPeticiones limites;
+
+    public LimitePeticionesFilter(final LimitesPeticionesProperties propiedades, final MeterRegistry registro) {
+        this.limites = new LimitesPeticiones(propiedades, registro);
+    }
+
+    @Override
+    protected void doFilterInternal(final HttpServletRequest request, final HttpServletResponse response, final FilterChain filterChain)
+            throws ServletException, IOException {
+        final List<String> segmentos = LimitesPeticiones.segmentos(
+                RequestPath.parse(request.getRequestURI(), request.getContextPath()).pathWithinApplication());
+        if (!LimitesPeticiones.aplica(segmentos)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        final long espera = this.limites.consumir(segmentos, request::getParameter);
+        if (espera > 0) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, LimitesPeticiones.segundosReintento(espera));
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.setCharacterEncoding("UTF-8");
+            response.getWriter().write(LimitesPeticiones.MENSAJE_RECHAZO);
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+}
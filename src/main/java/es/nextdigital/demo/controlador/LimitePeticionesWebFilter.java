@@ -0,0 +1,55 @@
+package es.nextdigital.demo.controlador;
+
+import es.nextdigital.demo.configuracion.LimitesPeticionesProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Version WebFlux de {@link LimitePeticionesFilter}, con los mismos limites. El banco y el numero de tarjeta se leen de
+ * la ruta y de los parametros de la URL, sin esperar al cuerpo de la peticion.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@ConditionalOnProperty(prefix = "carlosbank.limites", name = "habilitado", havingValue = "true", matchIfMissing = true)
+public class LimitePeticionesWebFilter implements WebFilter {
+
+    private final LimitesPeticiones limites;
+
+    public LimitePeticionesWebFilter(final LimitesPeticionesProperties propiedades, final MeterRegistry registro) {
+        this.limites = new LimitesPeticiones(propiedades, registro);
+    }
+
+    @Override
+    public Mono<Void> filter(final ServerWebExchange exchange, final WebFilterChain chain) {
+        final List<String> segmentos = LimitesPeticiones.segmentos(exchange.getRequest().getPath().pathWithinApplication());
+        if (!LimitesPeticiones.aplica(segmentos)) {
+            return chain.filter(exchange);
+        }
+
+        final long espera = this.limites.consumir(segmentos, exchange.getRequest().getQueryParams()::getFirst);
+        if (espera > 0) {
+            final ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER, LimitesPeticiones.segundosReintento(espera));
+            response.getHeaders().setContentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8));
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(LimitesPeticiones.MENSAJE_RECHAZO.getBytes(StandardCharsets.UTF_8))));
+        }
+        return chain.filter(exchange);
+    }
+}
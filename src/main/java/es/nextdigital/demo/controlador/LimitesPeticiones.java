@@ -0,0 +1,87 @@
+package es.nextdigital.demo.controlador;
+
+import es.nextdigital.demo.configuracion.LimitesPeticionesProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.server.PathContainer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * Limites por numero de tarjeta y por banco del cajero, comunes a {@link LimitePeticionesFilter} (servlet) y
+ * {@link LimitePeticionesWebFilter} (WebFlux).
+ */
+final class LimitesPeticiones {
+
+    static final String MENSAJE_RECHAZO = "Demasiadas peticiones, intentelo de nuevo mas tarde";
+
+    private static final String SEGMENTO_TARJETAS = "tarjetas";
+    private static final String SEGMENTO_CAJERO = "cajero";
+
+    private final CubosTokens tarjetas;
+    private final CubosTokens bancos;
+
+    LimitesPeticiones(final LimitesPeticionesProperties propiedades, final MeterRegistry registro) {
+        this.tarjetas = new CubosTokens("tarjeta", propiedades.getTarjeta(), propiedades.getTamanoMaximo(), registro);
+        this.bancos = new CubosTokens("banco", propiedades.getBanco(), propiedades.getTamanoMaximo(), registro);
+    }
+
+    /**
+     * Los segmentos de la ruta como los compara Spring con los patrones de los controladores: decodificados y sin
+     * parametros {@code ;}. Con la URI en bruto, {@code /tarjetas/%31234} o {@code /tarjetas/1234;v=1} llegarian a la
+     * tarjeta 1234 con otra clave y otro cubo.
+     */
+    static List<String> segmentos(final PathContainer ruta) {
+        final List<String> segmentos = new ArrayList<>();
+        for (PathContainer.Element elemento : ruta.elements()) {
+            if (elemento instanceof PathContainer.PathSegment segmento) {
+                segmentos.add(segmento.valueToMatch());
+            }
+        }
+        return segmentos;
+    }
+
+    static boolean aplica(final List<String> segmentos) {
+        return segmentos.size() > 2 && "carlosbank".equals(segmentos.get(0)) && "api".equals(segmentos.get(1))
+                && (SEGMENTO_TARJETAS.equals(segmentos.get(2)) || SEGMENTO_CAJERO.equals(segmentos.get(2)));
+    }
+
+    /**
+     * Consume un token de la tarjeta de la peticion y otro del banco. Devuelve 0 si se admite o, si no, los
+     * nanosegundos hasta que podria admitirse. La tarjeta va primero para que las peticiones de una sola tarjeta que
+     * abusa no gasten el cupo de todo su banco; si es el banco el que rechaza, se devuelve el token de la tarjeta.
+     */
+    long consumir(final List<String> segmentos, final UnaryOperator<String> parametro) {
+        final long ahora = System.nanoTime();
+        final String numeroTarjeta = numeroTarjeta(segmentos, parametro);
+        final long espera = this.tarjetas.consumir(numeroTarjeta, ahora);
+        if (espera > 0) {
+            return espera;
+        }
+        final long esperaBanco = this.bancos.consumir(parametro.apply("banco"), ahora);
+        if (esperaBanco > 0) {
+            this.tarjetas.devolver(numeroTarjeta);
+        }
+        return esperaBanco;
+    }
+
+    /**
+     * Valor de la cabecera Retry-After: la espera redondeada hacia arriba a segundos.
+     */
+    static String segundosReintento(final long esperaNanos) {
+        return Long.toString(TimeUnit.NANOSECONDS.toSeconds(esperaNanos - 1) + 1);
+    }
+
+    /**
+     * El numero de tarjeta va en la ruta de las operaciones de tarjeta y como parametro al abrir sesion en el cajero;
+     * las operaciones dentro de una sesion ya autenticada solo se limitan por banco.
+     */
+    private static String numeroTarjeta(final List<String> segmentos, final UnaryOperator<String> parametro) {
+        if (SEGMENTO_TARJETAS.equals(segmentos.get(2))) {
+            return segmentos.size() > 3 ? segmentos.get(3) : "";
+        }
+        return parametro.apply("numeroTarjeta");
+    }
+}
@@ -1,39 +1,54 @@
 package es.nextdigital.demo.controlador;
 
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.servicios.Idempotencia;
+import es.nextdigital.demo.servicios.MetricasOperaciones;
 import es.nextdigital.demo.servicios.TarjetaServicio;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/carlosbank/api/tarjetas")
 @RequiredArgsConstructor
 public class TarjetaController {
 
     private final TarjetaServicio tarjetaServicio;
+    private final MetricasOperaciones metricas;
+    private final Idempotencia idempotencia;
 
     @PostMapping("/{numeroTarjeta}/sacar")
-    public float sacarDinero(
+    public Dinero sacarDinero(
             @PathVariable String numeroTarjeta,
             @RequestParam int pin,
-            @RequestParam float cantidad,
-            @RequestParam String banco) {
-        return this.tarjetaServicio.sacarDinero(numeroTarjeta, pin, cantidad, banco);
+            @RequestParam Dinero cantidad,
+            @RequestParam String banco,
+            @RequestHeader(name = Idempotencia.CABECERA, required = false) String claveIdempotencia) {
+        return this.metricas.operacion("tarjeta.sacar",
+                () -> this.idempotencia.ejecutar(claveIdempotencia, "tarjeta.sacar", List.of(numeroTarjeta, cantidad, banco),
+                        () -> this.tarjetaServicio.sacarDinero(numeroTarjeta, pin, cantidad, banco)));
     }
 
     @PostMapping("/{numeroTarjeta}/ingresar")
     public void ingresarDinero(
             @PathVariable String numeroTarjeta,
             @RequestParam int pin,
-            @RequestParam float cantidad,
-            @RequestParam String banco) {
-        this.tarjetaServicio.ingresarDinero(numeroTarjeta, pin, cantidad, banco);
+            @RequestParam Dinero cantidad,
+            @RequestParam String banco,
+            @RequestHeader(name = Idempotencia.CABECERA, required = false) String claveIdempotencia) {
+        this.metricas.operacion("tarjeta.ingresar",
+                () -> this.idempotencia.ejecutar(claveIdempotencia, "tarjeta.ingresar", List.of(numeroTarjeta, cantidad, banco),
+                        () -> this.tarjetaServicio.ingresarDinero(numeroTarjeta, pin, cantidad, banco)));
     }
 
     @PostMapping("/{numeroTarjeta}/activar")
     public void activarTarjeta(
             @PathVariable String numeroTarjeta,
             @RequestParam int pin) {
-        this.tarjetaServicio.activarTarjeta(numeroTarjeta, pin);
+        this.metricas.operacion("tarjeta.activar", () -> this.tarjetaServicio.activarTarjeta(numeroTarjeta, pin));
     }
 
     @PostMapping("/{numeroTarjeta}/cambiar-pin")
@@ -41,21 +56,23 @@ public class TarjetaController {
             @PathVariable String numeroTarjeta,
             @RequestParam int pin,
             @RequestParam int nuevoPin) {
-        this.tarjetaServicio.cambiarPin(numeroTarjeta, pin, nuevoPin);
+        this.metricas.operacion("tarjeta.cambiar-pin", () -> this.tarjetaServicio.cambiarPin(numeroTarjeta, pin, nuevoPin));
     }
 
     @GetMapping("/{numeroTarjeta}/configuracion")
-    public float consultarConfiguracion(
+    public Dinero consultarConfiguracion(
             @PathVariable String numeroTarjeta,
             @RequestParam int pin) {
-        return this.tarjetaServicio.consultarConfiguracion(numeroTarjeta, pin);
+        return this.metricas.operacion("tarjeta.consultar-configuracion",
+                () -> this.tarjetaServicio.consultarConfiguracion(numeroTarjeta, pin));
     }
 
     @PostMapping("/{numeroTarjeta}/configuracion")
     public void modificarConfiguracion(
             @PathVariable String numeroTarjeta,
             @RequestParam int pin,
-            @RequestParam float limiteRetirada) {
-        this.tarjetaServicio.modificarConfiguracion(numeroTarjeta, pin, limiteRetirada);
+            @RequestParam Dinero limiteRetirada) {
+        this.metricas.operacion("tarjeta.modificar-configuracion",
+                () -> this.tarjetaServicio.modificarConfiguracion(numeroTarjeta, pin, limiteRetirada));
     }
 }
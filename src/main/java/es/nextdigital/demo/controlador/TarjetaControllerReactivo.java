@@ -0,0 +1,84 @@
+package es.nextdigital.demo.controlador;
+
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.servicios.Idempotencia;
+import es.nextdigital.demo.servicios.MetricasOperaciones;
+import es.nextdigital.demo.servicios.TarjetaServicio;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Variante WebFlux de {@link TarjetaController} (perfil {@code reactivo}): mismas rutas, mismos servicios y mismas
+ * metricas, con las llamadas a los servicios en el {@link EjecutorBloqueante}.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/carlosbank/api/tarjetas")
+@RequiredArgsConstructor
+public class TarjetaControllerReactivo {
+
+    private final TarjetaServicio tarjetaServicio;
+    private final MetricasOperaciones metricas;
+    private final Idempotencia idempotencia;
+    private final EjecutorBloqueante ejecutor;
+
+    @PostMapping("/{numeroTarjeta}/sacar")
+    public Mono<Dinero> sacarDinero(
+            @PathVariable String numeroTarjeta,
+            @RequestParam int pin,
+            @RequestParam Dinero cantidad,
+            @RequestParam String banco,
+            @RequestHeader(name = Idempotencia.CABECERA, required = false) String claveIdempotencia) {
+        return this.ejecutor.ejecutar(() -> this.metricas.operacion("tarjeta.sacar",
+                () -> this.idempotencia.ejecutar(claveIdempotencia, "tarjeta.sacar", List.of(numeroTarjeta, cantidad, banco),
+                        () -> this.tarjetaServicio.sacarDinero(numeroTarjeta, pin, cantidad, banco))));
+    }
+
+    @PostMapping("/{numeroTarjeta}/ingresar")
+    public Mono<Void> ingresarDinero(
+            @PathVariable String numeroTarjeta,
+            @RequestParam int pin,
+            @RequestParam Dinero cantidad,
+            @RequestParam String banco,
+            @RequestHeader(name = Idempotencia.CABECERA, required = false) String claveIdempotencia) {
+        return this.ejecutor.ejecutar(() -> this.metricas.operacion("tarjeta.ingresar",
+                () -> this.idempotencia.ejecutar(claveIdempotencia, "tarjeta.ingresar", List.of(numeroTarjeta, cantidad, banco),
+                        () -> this.tarjetaServicio.ingresarDinero(numeroTarjeta, pin, cantidad, banco))));
+    }
+
+    @PostMapping("/{numeroTarjeta}/activar")
+    public Mono<Void> activarTarjeta(
+            @PathVariable String numeroTarjeta,
+            @RequestParam int pin) {
+        return this.ejecutor.ejecutar(() -> this.metricas.operacion("tarjeta.activar", () -> this.tarjetaServicio.activarTarjeta(numeroTarjeta, pin)));
+    }
+
+    @PostMapping("/{numeroTarjeta}/cambiar-pin")
+    public Mono<Void> cambiarPin(
+            @PathVariable String numeroTarjeta,
+            @RequestParam int pin,
+            @RequestParam int nuevoPin) {
+        return this.ejecutor.ejecutar(() -> this.metricas.operacion("tarjeta.cambiar-pin", () -> this.tarjetaServicio.cambiarPin(numeroTarjeta, pin, nuevoPin)));
+    }
+
+    @GetMapping("/{numeroTarjeta}/configuracion")
+    public Mono<Dinero> consultarConfiguracion(
+            @PathVariable String numeroTarjeta,
+            @RequestParam int pin) {
+        return this.ejecutor.ejecutar(() -> this.metricas.operacion("tarjeta.consultar-configuracion",
+                () -> this.tarjetaServicio.consultarConfiguracion(numeroTarjeta, pin)));
+    }
+
+    @PostMapping("/{numeroTarjeta}/configuracion")
+    public Mono<Void> modificarConfiguracion(
+            @PathVariable String numeroTarjeta,
+            @RequestParam int pin,
+            @RequestParam Dinero limiteRetirada) {
+        return this.ejecutor.ejecutar(() -> this.metricas.operacion("tarjeta.modificar-configuracion",
+                () -> this.tarjetaServicio.modificarConfiguracion(numeroTarjeta, pin, limiteRetirada)));
+    }
+}
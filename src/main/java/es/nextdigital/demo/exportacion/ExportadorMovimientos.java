@@ -0,0 +1,308 @@
+package es.nextdigital.demo.exportacion;
+
+import es.nextdigital.demo.configuracion.ExportacionMovimientosProperties;
+import es.nextdigital.demo.exceptions.BadRequestException;
+import es.nextdigital.demo.exceptions.ConflictException;
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.model.EstadoExportacion;
+import es.nextdigital.demo.model.TipoMovimiento;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exporta el historico de movimientos a ficheros CSV comprimidos con gzip, fuera de las peticiones y con memoria
+ * acotada: cada fichero sale de una consulta de solo lectura que se recorre con un cursor de avance, sin entidades ni
+ * contexto de persistencia, y se escribe fila a fila. Los ficheros van por orden de identificador de movimiento; al
+ * terminar cada uno se guarda el progreso, y una exportacion interrumpida se reanuda desde el ultimo fichero completo.
+ * <p>
+ * La exportacion cubre hasta el mayor identificador que existia al empezar. Los identificadores se reparten en bloques
+ * (ver {@code movimiento_seq}), asi que un movimiento confirmado durante la exportacion con un identificador ya pasado
+ * queda para la siguiente.
+ */
+@Component
+public class ExportadorMovimientos {
+
+    static final String CABECERA = "movimiento_id,numero_cuenta,fecha,tipo_movimiento,importe\n";
+    static final String EXTENSION = ".csv.gz";
+    static final String EXTENSION_TEMPORAL = ".tmp";
+
+    private static final Logger LOG = LoggerFactory.getLogger(ExportadorMovimientos.class);
+    private static final Pattern NOMBRE_VALIDO = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    private static final TipoMovimiento[] TIPOS = TipoMovimiento.values();
+
+    private final DataSource dataSource;
+    private final Path directorio;
+    private final int movimientosPorFichero;
+    private final int tamanoFetch;
+    private final Counter exportados;
+    private final ExecutorService ejecutor;
+
+    // Exportaciones lanzadas desde que arranco la aplicacion, con su ultimo estado
+    private final Map<String, EstadoExportacion> estados = new ConcurrentHashMap<>();
+
+    public ExportadorMovimientos(final DataSource dataSource,
+                                 final ExportacionMovimientosProperties propiedades,
+                                 final MeterRegistry registro) {
+        this.dataSource = dataSource;
+        this.directorio = Paths.get(propiedades.getDirectorio());
+        this.movimientosPorFichero = propiedades.getMovimientosPorFichero();
+        this.tamanoFetch = propiedades.getTamanoFetch();
+        this.exportados = Counter.builder("carlosbank.exportacion.movimientos")
+                .description("Movimientos escritos en ficheros de exportacion completos")
+                .register(registro);
+        // Un solo hilo: las exportaciones se ejecutan de una en una y el resto espera en PENDIENTE
+        this.ejecutor = Executors.newSingleThreadExecutor(tarea -> {
+            final Thread hilo = new Thread(tarea, "exportacion-movimientos");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    @PreDestroy
+    public void detener() {
+        // La exportacion en curso se queda a medias en disco y se reanuda al volver a iniciarla
+        this.ejecutor.shutdownNow();
+    }
+
+    /**
+     * Lanza la exportacion {@code nombre} de los movimientos de {@code cuentas} (todas si esta vacia) o, si ya existe
+     * incompleta, la reanuda con las cuentas con las que se creo. Si ya esta en marcha o terminada devuelve su estado.
+     */
+    public EstadoExportacion iniciar(final String nombre, final List<String> cuentas) {
+        if (!NOMBRE_VALIDO.matcher(nombre).matches()) {
+            throw new BadRequestException("Nombre de exportacion no valido: solo letras, numeros, '-' y '_'");
+        }
+
+        synchronized (this.estados) {
+            final EstadoExportacion actual = this.estados.get(nombre);
+            if (actual != null && (actual.situacion() == EstadoExportacion.Situacion.PENDIENTE
+                    || actual.situacion() == EstadoExportacion.Situacion.EN_CURSO)) {
+                return actual;
+            }
+
+            final Path carpeta = this.directorio.resolve(nombre);
+            final ProgresoExportacion progreso;
+            try {
+                if (Files.exists(carpeta.resolve(ProgresoExportacion.FICHERO))) {
+                    progreso = ProgresoExportacion.leer(carpeta);
+                    if (!cuentas.isEmpty() && !new HashSet<>(cuentas).equals(new HashSet<>(progreso.cuentas()))) {
+                        throw new ConflictException("La exportacion " + nombre + " ya existe con otras cuentas");
+                    }
+                } else {
+                    progreso = ProgresoExportacion.nuevo(cuentas);
+                    Files.createDirectories(carpeta);
+                    progreso.escribir(carpeta);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se puede preparar la exportacion " + nombre, e);
+            }
+
+            if (progreso.terminada()) {
+                return this.actualizar(nombre, EstadoExportacion.Situacion.TERMINADA, progreso, null);
+            }
+            final EstadoExportacion estado = this.actualizar(nombre, EstadoExportacion.Situacion.PENDIENTE, progreso, null);
+            this.ejecutor.execute(() -> this.exportar(nombre, carpeta, progreso));
+            return estado;
+        }
+    }
+
+    public Optional<EstadoExportacion> consultar(final String nombre) {
+        final EstadoExportacion estado = this.estados.get(nombre);
+        if (estado != null) {
+            return Optional.of(estado);
+        }
+
+        // Lanzada antes de arrancar la aplicacion: solo queda lo que hay en disco
+        final Path carpeta = this.directorio.resolve(nombre);
+        if (!NOMBRE_VALIDO.matcher(nombre).matches() || !Files.exists(carpeta.resolve(ProgresoExportacion.FICHERO))) {
+            return Optional.empty();
+        }
+        try {
+            final ProgresoExportacion progreso = ProgresoExportacion.leer(carpeta);
+            return Optional.of(estado(nombre, progreso.terminada()
+                    ? EstadoExportacion.Situacion.TERMINADA
+                    : EstadoExportacion.Situacion.INTERRUMPIDA, progreso, null));
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se puede leer el progreso de la exportacion " + nombre, e);
+        }
+    }
+
+    private void exportar(final String nombre, final Path carpeta, final ProgresoExportacion inicial) {
+        ProgresoExportacion progreso = inicial;
+        try {
+            this.borrarTemporales(carpeta);
+            if (progreso.hasta() == ProgresoExportacion.SIN_FIJAR) {
+                progreso = progreso.conHasta(this.ultimoIdentificador());
+                progreso.escribir(carpeta);
+            }
+            this.actualizar(nombre, EstadoExportacion.Situacion.EN_CURSO, progreso, null);
+
+            while (progreso.ultimoMovimiento() < progreso.hasta()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                progreso = this.exportarFichero(carpeta, progreso);
+                progreso.escribir(carpeta);
+                this.actualizar(nombre, EstadoExportacion.Situacion.EN_CURSO, progreso, null);
+            }
+
+            progreso = progreso.terminar();
+            progreso.escribir(carpeta);
+            this.actualizar(nombre, EstadoExportacion.Situacion.TERMINADA, progreso, null);
+        } catch (IOException | SQLException | RuntimeException e) {
+            LOG.error("Error en la exportacion de movimientos {}", nombre, e);
+            this.actualizar(nombre, EstadoExportacion.Situacion.FALLIDA, progreso, e.getMessage());
+        }
+    }
+
+    /**
+     * Escribe el siguiente fichero con hasta {@code movimientosPorFichero} movimientos. Se escribe con extension
+     * temporal y se renombra al cerrarlo, asi que un fichero con su nombre definitivo siempre esta completo.
+     */
+    private ProgresoExportacion exportarFichero(final Path carpeta, final ProgresoExportacion progreso) throws IOException, SQLException {
+        final String nombreFichero = String.format("movimientos-%06d%s", progreso.ficheros() + 1, EXTENSION);
+        final Path temporal = carpeta.resolve(nombreFichero + EXTENSION_TEMPORAL);
+        long ultimo = progreso.ultimoMovimiento();
+        long filas = 0;
+
+        try (Connection conexion = this.dataSource.getConnection()) {
+            conexion.setReadOnly(true);
+            try (PreparedStatement consulta = conexion.prepareStatement(this.sql(progreso.cuentas().size()),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                consulta.setFetchSize(this.tamanoFetch);
+                int parametro = 1;
+                consulta.setLong(parametro++, progreso.ultimoMovimiento());
+                consulta.setLong(parametro++, progreso.hasta());
+                for (String cuenta : progreso.cuentas()) {
+                    consulta.setString(parametro++, cuenta);
+                }
+                consulta.setInt(parametro, this.movimientosPorFichero);
+
+                try (ResultSet filasLeidas = consulta.executeQuery();
+                     Writer salida = new BufferedWriter(new OutputStreamWriter(
+                             new GZIPOutputStream(Files.newOutputStream(temporal), 64 * 1024), StandardCharsets.UTF_8))) {
+                    salida.write(CABECERA);
+                    while (filasLeidas.next()) {
+                        ultimo = filasLeidas.getLong(1);
+                        escribirFila(salida, filasLeidas, ultimo);
+                        filas++;
+                    }
+                }
+            } finally {
+                // Solo lectura: se cierra la transaccion que abre el pool (auto-commit desactivado)
+                conexion.rollback();
+            }
+        }
+
+        // Menos filas de las pedidas: no queda nada hasta el limite de la exportacion
+        if (filas < this.movimientosPorFichero) {
+            ultimo = progreso.hasta();
+        }
+        if (filas == 0) {
+            Files.delete(temporal);
+            return progreso.conUltimoMovimiento(ultimo);
+        }
+        Files.move(temporal, carpeta.resolve(nombreFichero), StandardCopyOption.ATOMIC_MOVE);
+        this.exportados.increment(filas);
+        return progreso.conFichero(ultimo, filas);
+    }
+
+    private String sql(final int cuentas) {
+        final StringBuilder sql = new StringBuilder("select movimiento_id, cuenta_id, fecha_movimiento, tipo_movimiento, importe_centimos "
+                + "from movimiento where movimiento_id > ? and movimiento_id <= ?");
+        if (cuentas > 0) {
+            sql.append(" and cuenta_id in (").append("?,".repeat(cuentas - 1)).append("?)");
+        }
+        return sql.append(" order by movimiento_id fetch first ? rows only").toString();
+    }
+
+    private static void escribirFila(final Writer salida, final ResultSet fila, final long movimientoId) throws IOException, SQLException {
+        final Timestamp fecha = fila.getTimestamp(3);
+        final int tipo = fila.getInt(4);
+        final String tipoMovimiento = fila.wasNull() ? "" : TIPOS[tipo].name();
+        salida.write(Long.toString(movimientoId));
+        salida.write(',');
+        salida.write(campo(fila.getString(2)));
+        salida.write(',');
+        salida.write(fecha == null ? "" : fecha.toInstant().toString());
+        salida.write(',');
+        salida.write(tipoMovimiento);
+        salida.write(',');
+        salida.write(Dinero.deCentimos(fila.getLong(5)).toString());
+        salida.write('\n');
+    }
+
+    // Entre comillas solo si hace falta (RFC 4180)
+    private static String campo(final String valor) {
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0) {
+            return valor;
+        }
+        return '"' + valor.replace("\"", "\"\"") + '"';
+    }
+
+    private long ultimoIdentificador() throws SQLException {
+        try (Connection conexion = this.dataSource.getConnection()) {
+            conexion.setReadOnly(true);
+            try (PreparedStatement consulta = conexion.prepareStatement("select coalesce(max(movimiento_id), 0) from movimiento");
+                 ResultSet resultado = consulta.executeQuery()) {
+                resultado.next();
+                return resultado.getLong(1);
+            } finally {
+                conexion.rollback();
+            }
+        }
+    }
+
+    // Restos de un fichero que se estaba escribiendo cuando se interrumpio la exportacion
+    private void borrarTemporales(final Path carpeta) throws IOException {
+        try (DirectoryStream<Path> temporales = Files.newDirectoryStream(carpeta, "*" + EXTENSION + EXTENSION_TEMPORAL)) {
+            for (Path temporal : temporales) {
+                Files.delete(temporal);
+            }
+        }
+    }
+
+    private EstadoExportacion actualizar(final String nombre, final EstadoExportacion.Situacion situacion,
+                                         final ProgresoExportacion progreso, final String error) {
+        final EstadoExportacion estado = estado(nombre, situacion, progreso, error);
+        this.estados.put(nombre, estado);
+        return estado;
+    }
+
+    private static EstadoExportacion estado(final String nombre, final EstadoExportacion.Situacion situacion,
+                                            final ProgresoExportacion progreso, final String error) {
+        return new EstadoExportacion(nombre, situacion, progreso.movimientos(), progreso.ficheros(),
+                progreso.ultimoMovimiento(), progreso.hasta(), error);
+    }
+}
@@ -0,0 +1,76 @@
+package es.nextdigital.demo.exportacion;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Lo que se guarda en el directorio de una exportacion despues de cada fichero completo. {@code hasta} vale
+ * {@link #SIN_FIJAR} hasta que la exportacion empieza a leer movimientos.
+ */
+record ProgresoExportacion(List<String> cuentas, long hasta, long ultimoMovimiento, int ficheros, long movimientos,
+                           boolean terminada) {
+
+    static final String FICHERO = "progreso.properties";
+    static final long SIN_FIJAR = -1;
+
+    static ProgresoExportacion nuevo(final List<String> cuentas) {
+        return new ProgresoExportacion(List.copyOf(cuentas), SIN_FIJAR, 0, 0, 0, false);
+    }
+
+    ProgresoExportacion conHasta(final long hasta) {
+        return new ProgresoExportacion(cuentas, hasta, ultimoMovimiento, ficheros, movimientos, terminada);
+    }
+
+    ProgresoExportacion conUltimoMovimiento(final long ultimoMovimiento) {
+        return new ProgresoExportacion(cuentas, hasta, ultimoMovimiento, ficheros, movimientos, terminada);
+    }
+
+    ProgresoExportacion conFichero(final long ultimoMovimiento, final long movimientos) {
+        return new ProgresoExportacion(cuentas, hasta, ultimoMovimiento, ficheros + 1, this.movimientos + movimientos, terminada);
+    }
+
+    ProgresoExportacion terminar() {
+        return new ProgresoExportacion(cuentas, hasta, hasta, ficheros, movimientos, true);
+    }
+
+    /**
+     * Se escribe en un fichero temporal y se renombra: una caida a mitad deja el progreso anterior intacto.
+     */
+    void escribir(final Path carpeta) throws IOException {
+        final Properties propiedades = new Properties();
+        propiedades.setProperty("cuentas", String.join(",", cuentas));
+        propiedades.setProperty("hasta", Long.toString(hasta));
+        propiedades.setProperty("ultimoMovimiento", Long.toString(ultimoMovimiento));
+        propiedades.setProperty("ficheros", Integer.toString(ficheros));
+        propiedades.setProperty("movimientos", Long.toString(movimientos));
+        propiedades.setProperty("terminada", Boolean.toString(terminada));
+
+        final Path temporal = carpeta.resolve(FICHERO + ".tmp");
+        try (Writer escritor = Files.newBufferedWriter(temporal, StandardCharsets.UTF_8)) {
+            propiedades.store(escritor, null);
+        }
+        Files.move(temporal, carpeta.resolve(FICHERO), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static ProgresoExportacion leer(final Path carpeta) throws IOException {
+        final Properties propiedades = new Properties();
+        try (Reader lector = Files.newBufferedReader(carpeta.resolve(FICHERO), StandardCharsets.UTF_8)) {
+            propiedades.load(lector);
+        }
+        final String cuentas = propiedades.getProperty("cuentas");
+        return new ProgresoExportacion(cuentas.isEmpty() ? List.of() : Arrays.asList(cuentas.split(",")),
+                Long.parseLong(propiedades.getProperty("hasta")),
+                Long.parseLong(propiedades.getProperty("ultimoMovimiento")),
+                Integer.parseInt(propiedades.getProperty("ficheros")),
+                Long.parseLong(propiedades.getProperty("movimientos")),
+                Boolean.parseBoolean(propiedades.getProperty("terminada")));
+    }
+}
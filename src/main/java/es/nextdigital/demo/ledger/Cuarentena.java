@@ -0,0 +1,80 @@
+package es.nextdigital.demo.ledger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLDataException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.List;
+
+/**
+ * Entradas de diario que la base de datos rechaza por sus propios datos (una restriccion que no cumplen, una cuenta que
+ * ya no existe) y que por tanto fallarian igual en cada reintento. Se apartan, con su linea tal cual, a un fichero junto
+ * al diario para revisarlas a mano y se cuentan en una metrica, de modo que una sola entrada no detiene la persistencia
+ * de todas las demas.
+ */
+final class Cuarentena {
+
+    static final String NOMBRE_FICHERO = "cuarentena.log";
+
+    private static final Logger LOG = LoggerFactory.getLogger(Cuarentena.class);
+
+    private final Path fichero;
+    private final Counter apartadas;
+
+    Cuarentena(final Path directorio, final String metrica, final MeterRegistry registro) {
+        this.fichero = directorio.resolve(NOMBRE_FICHERO);
+        this.apartadas = Counter.builder(metrica)
+                .description("Entradas del diario apartadas en cuarentena por no poder persistirse")
+                .register(registro);
+    }
+
+    /**
+     * Si el error se debe a los datos de la entrada y no a la base de datos (caida, sin conexiones, bloqueos), que
+     * tarde o temprano se recupera.
+     */
+    static boolean esDefectuosa(final Throwable error) {
+        for (Throwable causa = error; causa != null; causa = causa.getCause()) {
+            if (causa instanceof DataIntegrityViolationException
+                    || causa instanceof SQLIntegrityConstraintViolationException
+                    || causa instanceof SQLDataException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Las lineas apartadas hasta ahora, tal como se escribieron.
+     */
+    List<String> lineas() {
+        try {
+            return Files.exists(this.fichero) ? Files.readAllLines(this.fichero, StandardCharsets.UTF_8) : List.of();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se puede leer " + this.fichero, e);
+        }
+    }
+
+    /**
+     * Anade la linea al fichero de cuarentena. La linea va tambien en el log, para no perderla si el fichero no se
+     * puede escribir.
+     */
+    void apartar(final String linea, final RuntimeException causa) {
+        LOG.error("Entrada del diario apartada en cuarentena, no se persistira: {}", linea.strip(), causa);
+        try {
+            Files.writeString(this.fichero, linea, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            LOG.error("No se puede escribir en {}", this.fichero, e);
+        }
+        this.apartadas.increment();
+    }
+}
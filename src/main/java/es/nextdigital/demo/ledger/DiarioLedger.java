@@ -0,0 +1,234 @@
+package es.nextdigital.demo.ledger;
+
+import es.nextdigital.demo.configuracion.LedgerProperties;
+import es.nextdigital.demo.model.TipoMovimiento;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Diario de solo escritura del ledger. Cada movimiento aplicado en memoria se anade al fichero antes de darse por
+ * hecho y se deja en una cola acotada para que {@link PersistidorLedger} lo lleve a base de datos por lotes. Si la
+ * cola se llena, las operaciones nuevas esperan (contrapresion) en lugar de acumular memoria sin limite, y pasada la
+ * espera maxima se rechazan con {@link RejectedExecutionException}.
+ * <p>
+ * El hueco en la cola se reserva antes de tomar el cerrojo y la cola no tiene limite propio: con el cerrojo tomado
+ * nunca se espera, asi que {@link #drenar} y {@link #confirmar} siempre pueden avanzar y liberar huecos.
+ */
+@Component
+@ConditionalOnProperty(prefix = "carlosbank.ledger", name = "habilitado", havingValue = "true")
+public class DiarioLedger {
+
+    static final String NOMBRE_FICHERO = "diario.log";
+
+    private final Path fichero;
+    private final boolean sincronizarDisco;
+    private final long tamanoMaximo;
+    private final long esperaMaximaColaNanos;
+    private final Semaphore huecos;
+    private final BlockingQueue<EntradaDiario> pendientes = new LinkedBlockingQueue<>();
+    private final Deque<EntradaDiario> recuperadas = new ArrayDeque<>();
+    private final ReentrantLock cerrojo = new ReentrantLock();
+
+    // FileOutputStream y no FileChannel: un canal se cierra si se interrumpe el hilo que escribe
+    private FileOutputStream salida;
+    private long ultimaSecuencia;
+    private long ultimaSecuenciaPersistida;
+
+    public DiarioLedger(final LedgerProperties propiedades) {
+        this.fichero = Paths.get(propiedades.getDirectorio(), NOMBRE_FICHERO);
+        this.sincronizarDisco = propiedades.isSincronizarDisco();
+        this.tamanoMaximo = propiedades.getTamanoMaximoDiario();
+        this.esperaMaximaColaNanos = propiedades.getEsperaMaximaCola().toNanos();
+        this.huecos = new Semaphore(propiedades.getCapacidadCola());
+        try {
+            Files.createDirectories(this.fichero.getParent());
+            this.salida = new FileOutputStream(this.fichero.toFile(), true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se puede abrir el diario del ledger", e);
+        }
+    }
+
+    /**
+     * Lee las entradas posteriores a {@code puntoControl} y las deja listas para volver a persistirse. Una ultima linea
+     * incompleta (caida a mitad de escritura) se descarta y se corta del fichero: esa operacion nunca llego a
+     * confirmarse, y las nuevas se anaden detras de la ultima linea completa.
+     */
+    public List<EntradaDiario> recuperar(final long puntoControl) {
+        this.cerrojo.lock();
+        try {
+            final List<EntradaDiario> leidas = new ArrayList<>();
+            try {
+                final long longitudValida = LineasDiario.leer(this.fichero, linea -> leidas.addAll(EntradaDiario.deLineaAgrupada(linea)));
+                LineasDiario.cortar(this.fichero, longitudValida);
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se puede leer el diario del ledger", e);
+            }
+
+            final List<EntradaDiario> entradas = new ArrayList<>();
+            long maximaSecuencia = puntoControl;
+            for (EntradaDiario entrada : leidas) {
+                maximaSecuencia = Math.max(maximaSecuencia, entrada.secuencia());
+                if (entrada.secuencia() > puntoControl) {
+                    entradas.add(entrada);
+                }
+            }
+
+            this.ultimaSecuencia = maximaSecuencia;
+            this.ultimaSecuenciaPersistida = puntoControl;
+            this.recuperadas.addAll(entradas);
+            return entradas;
+        } finally {
+            this.cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Anade una entrada al diario y la encola para persistir. Las secuencias se asignan bajo el mismo cerrojo que la
+     * escritura, de modo que el orden del fichero y el de la cola coinciden.
+     */
+    public EntradaDiario registrar(final String numeroCuenta, final TipoMovimiento tipoMovimiento,
+                                   final long importeCentimos, final long saldoCentimos) {
+        reservarHuecos(1);
+        boolean encolada = false;
+        this.cerrojo.lock();
+        try {
+            final EntradaDiario entrada = new EntradaDiario(this.ultimaSecuencia + 1, numeroCuenta, tipoMovimiento,
+                    importeCentimos, saldoCentimos, System.currentTimeMillis());
+            escribir(entrada.aLinea(), entrada.secuencia());
+            this.pendientes.add(entrada);
+            encolada = true;
+            return entrada;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se puede escribir en el diario del ledger", e);
+        } finally {
+            this.cerrojo.unlock();
+            if (!encolada) {
+                this.huecos.release(1);
+            }
+        }
+    }
+
+    /**
+     * Anota el cargo y el abono de una transferencia entre cuentas propias en una sola escritura: al recuperar se
+     * aplican las dos o ninguna.
+     */
+    public void registrarTransferencia(final String cuentaOrigen, final long importeCargoCentimos, final long saldoOrigenCentimos,
+                                       final String cuentaDestino, final long importeAbonoCentimos, final long saldoDestinoCentimos) {
+        reservarHuecos(2);
+        boolean encoladas = false;
+        this.cerrojo.lock();
+        try {
+            final long fechaMillis = System.currentTimeMillis();
+            final EntradaDiario cargo = new EntradaDiario(this.ultimaSecuencia + 1, cuentaOrigen,
+                    TipoMovimiento.TRANSFERENCIA_SALIENTE, importeCargoCentimos, saldoOrigenCentimos, fechaMillis);
+            final EntradaDiario abono = new EntradaDiario(this.ultimaSecuencia + 2, cuentaDestino,
+                    TipoMovimiento.TRANSFERENCIA_ENTRANTE, importeAbonoCentimos, saldoDestinoCentimos, fechaMillis);
+            escribir(EntradaDiario.aLinea(List.of(cargo, abono)), abono.secuencia());
+            this.pendientes.add(cargo);
+            this.pendientes.add(abono);
+            encoladas = true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se puede escribir en el diario del ledger", e);
+        } finally {
+            this.cerrojo.unlock();
+            if (!encoladas) {
+                this.huecos.release(2);
+            }
+        }
+    }
+
+    /**
+     * Saca hasta {@code maximo} entradas pendientes en orden de secuencia; primero las recuperadas al arrancar.
+     */
+    public int drenar(final Collection<EntradaDiario> destino, final int maximo) {
+        int drenadas = 0;
+        this.cerrojo.lock();
+        try {
+            while (drenadas < maximo && !this.recuperadas.isEmpty()) {
+                destino.add(this.recuperadas.poll());
+                drenadas++;
+            }
+        } finally {
+            this.cerrojo.unlock();
+        }
+        final int drenadasCola = this.pendientes.drainTo(destino, maximo - drenadas);
+        this.huecos.release(drenadasCola);
+        return drenadas + drenadasCola;
+    }
+
+    /**
+     * Marca como persistidas las entradas hasta {@code secuencia}. Si ya no queda nada pendiente y el fichero ha
+     * crecido demasiado se vacia, porque todo su contenido esta ya en base de datos.
+     */
+    public void confirmar(final long secuencia) {
+        this.cerrojo.lock();
+        try {
+            this.ultimaSecuenciaPersistida = Math.max(this.ultimaSecuenciaPersistida, secuencia);
+            if (this.ultimaSecuenciaPersistida == this.ultimaSecuencia && Files.size(this.fichero) > this.tamanoMaximo) {
+                this.salida.close();
+                this.salida = new FileOutputStream(this.fichero.toFile(), false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se puede vaciar el diario del ledger", e);
+        } finally {
+            this.cerrojo.unlock();
+        }
+    }
+
+    public int pendientes() {
+        return this.pendientes.size() + this.recuperadas.size();
+    }
+
+    @PreDestroy
+    public void cerrar() throws IOException {
+        this.cerrojo.lock();
+        try {
+            this.salida.close();
+        } finally {
+            this.cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Espera, sin el cerrojo, a que haya {@code numero} huecos en la cola. Si no llegan a tiempo la operacion se
+     * rechaza antes de escribir nada, asi que tampoco se aplica en memoria.
+     */
+    private void reservarHuecos(final int numero) {
+        try {
+            if (!this.huecos.tryAcquire(numero, this.esperaMaximaColaNanos, TimeUnit.NANOSECONDS)) {
+                throw new RejectedExecutionException("La cola del ledger esta llena");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido esperando hueco en la cola del ledger", e);
+        }
+    }
+
+    private void escribir(final String linea, final long ultimaSecuenciaLinea) throws IOException {
+        this.salida.write(linea.getBytes(StandardCharsets.UTF_8));
+        if (this.sincronizarDisco) {
+            this.salida.getFD().sync();
+        }
+        this.ultimaSecuencia = ultimaSecuenciaLinea;
+    }
+}
@@ -0,0 +1,225 @@
+package es.nextdigital.demo.ledger;
+
+import es.nextdigital.demo.configuracion.DiarioMovimientosProperties;
+import es.nextdigital.demo.model.Movimiento;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Diario de solo escritura de los movimientos de {@code CuentaServicioImpl}. La operacion confirma el saldo de la
+ * cuenta en su transaccion y deja aqui sus movimientos: se escriben en el fichero justo antes del commit, cuando la
+ * cuenta ya esta actualizada en base de datos, y se encolan para {@link EscritorMovimientos} al confirmarse. Si la
+ * cola se llena, las operaciones nuevas esperan (contrapresion) en lugar de acumular memoria sin limite.
+ */
+@Component
+@ConditionalOnProperty(prefix = "carlosbank.movimientos.diario", name = "habilitado", havingValue = "true")
+public class DiarioMovimientos {
+
+    static final String NOMBRE_FICHERO = "movimientos.log";
+
+    private final Path fichero;
+    private final boolean sincronizarDisco;
+    private final long tamanoMaximo;
+    private final BlockingQueue<EntradaMovimiento> pendientes;
+    private final Deque<EntradaMovimiento> recuperadas = new ArrayDeque<>();
+    private final ReentrantLock cerrojo = new ReentrantLock();
+
+    // FileOutputStream y no FileChannel: un canal se cierra si se interrumpe el hilo que escribe
+    private FileOutputStream salida;
+    private long ultimaSecuencia;
+    // Entradas escritas en el fichero que todavia no se han insertado ni descartado
+    private long sinResolver;
+
+    public DiarioMovimientos(final DiarioMovimientosProperties propiedades) {
+        this.fichero = Paths.get(propiedades.getDirectorio(), NOMBRE_FICHERO);
+        this.sincronizarDisco = propiedades.isSincronizarDisco();
+        this.tamanoMaximo = propiedades.getTamanoMaximoDiario();
+        this.pendientes = new ArrayBlockingQueue<>(propiedades.getCapacidadCola());
+        try {
+            Files.createDirectories(this.fichero.getParent());
+            this.salida = new FileOutputStream(this.fichero.toFile(), true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se puede abrir el diario de movimientos", e);
+        }
+    }
+
+    /**
+     * Lee todas las entradas completas del fichero. Una ultima linea incompleta (caida a mitad de escritura) se
+     * descarta, su transaccion nunca llego a confirmarse, y se corta del fichero para que lo siguiente que se escriba
+     * empiece en una linea nueva.
+     */
+    public List<EntradaMovimiento> leer() {
+        this.cerrojo.lock();
+        try {
+            final List<EntradaMovimiento> entradas = new ArrayList<>();
+            final long longitudValida = LineasDiario.leer(this.fichero, linea -> entradas.add(EntradaMovimiento.deLinea(linea)));
+            LineasDiario.cortar(this.fichero, longitudValida);
+            return entradas;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se puede leer el diario de movimientos", e);
+        } finally {
+            this.cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Deja listas para insertar las entradas recuperadas al arrancar y continua la numeracion despues de
+     * {@code ultimaSecuencia}, que tiene que cubrir tanto el fichero como lo ya insertado.
+     */
+    public void reanudar(final List<EntradaMovimiento> entradas, final long ultimaSecuencia) {
+        this.cerrojo.lock();
+        try {
+            this.ultimaSecuencia = ultimaSecuencia;
+            this.recuperadas.addAll(entradas);
+            this.sinResolver = entradas.size();
+        } finally {
+            this.cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Registra los movimientos de la transaccion en curso, que ya tiene que haber escrito las cuentas afectadas: la
+     * version de cada cuenta se toma de su entidad.
+     */
+    public void registrar(final List<Movimiento> movimientos) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Los movimientos del diario se registran dentro de una transaccion");
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+            private List<EntradaMovimiento> escritas;
+
+            @Override
+            public void beforeCommit(final boolean readOnly) {
+                this.escritas = DiarioMovimientos.this.escribir(movimientos);
+            }
+
+            @Override
+            public void afterCommit() {
+                DiarioMovimientos.this.encolar(this.escritas);
+            }
+
+            @Override
+            public void afterCompletion(final int estado) {
+                if (estado != STATUS_COMMITTED && this.escritas != null) {
+                    DiarioMovimientos.this.confirmar(this.escritas.size());
+                }
+            }
+        });
+    }
+
+    /**
+     * Saca hasta {@code maximo} entradas pendientes; primero las recuperadas al arrancar.
+     */
+    public int drenar(final Collection<EntradaMovimiento> destino, final int maximo) {
+        int drenadas = 0;
+        this.cerrojo.lock();
+        try {
+            while (drenadas < maximo && !this.recuperadas.isEmpty()) {
+                destino.add(this.recuperadas.poll());
+                drenadas++;
+            }
+        } finally {
+            this.cerrojo.unlock();
+        }
+        return drenadas + this.pendientes.drainTo(destino, maximo - drenadas);
+    }
+
+    /**
+     * Da por resueltas (insertadas o deshechas) {@code entradas} entradas. Si ya no queda ninguna y el fichero ha
+     * crecido demasiado se vacia, porque todo su contenido esta ya en base de datos.
+     */
+    public void confirmar(final int entradas) {
+        this.cerrojo.lock();
+        try {
+            this.sinResolver -= entradas;
+            if (this.sinResolver == 0 && Files.size(this.fichero) > this.tamanoMaximo) {
+                this.salida.close();
+                this.salida = new FileOutputStream(this.fichero.toFile(), false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se puede vaciar el diario de movimientos", e);
+        } finally {
+            this.cerrojo.unlock();
+        }
+    }
+
+    public int pendientes() {
+        this.cerrojo.lock();
+        try {
+            return this.pendientes.size() + this.recuperadas.size();
+        } finally {
+            this.cerrojo.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void cerrar() throws IOException {
+        this.cerrojo.lock();
+        try {
+            this.salida.close();
+        } finally {
+            this.cerrojo.unlock();
+        }
+    }
+
+    private List<EntradaMovimiento> escribir(final List<Movimiento> movimientos) {
+        this.cerrojo.lock();
+        try {
+            final long grupo = this.ultimaSecuencia + 1;
+            final List<EntradaMovimiento> entradas = new ArrayList<>(movimientos.size());
+            final StringBuilder lineas = new StringBuilder();
+            for (Movimiento movimiento : movimientos) {
+                final EntradaMovimiento entrada = new EntradaMovimiento(grupo + entradas.size(), grupo,
+                        movimiento.getCuenta().getNumeroCuenta(), movimiento.getCuenta().getVersion(),
+                        movimiento.getTipoMovimiento(), movimiento.getImporte().centimos(),
+                        movimiento.getFechaMovimiento().getTime());
+                entradas.add(entrada);
+                lineas.append(entrada.aLinea());
+            }
+            this.salida.write(lineas.toString().getBytes(StandardCharsets.UTF_8));
+            if (this.sincronizarDisco) {
+                this.salida.getFD().sync();
+            }
+            this.ultimaSecuencia += entradas.size();
+            this.sinResolver += entradas.size();
+            return entradas;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se puede escribir en el diario de movimientos", e);
+        } finally {
+            this.cerrojo.unlock();
+        }
+    }
+
+    private void encolar(final List<EntradaMovimiento> entradas) {
+        try {
+            for (EntradaMovimiento entrada : entradas) {
+                this.pendientes.put(entrada);
+            }
+        } catch (InterruptedException e) {
+            // Ya estan en el fichero: se insertaran al recuperar en el siguiente arranque
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido esperando hueco en la cola de movimientos", e);
+        }
+    }
+}
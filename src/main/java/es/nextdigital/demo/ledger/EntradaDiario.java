@@ -0,0 +1,57 @@
+package es.nextdigital.demo.ledger;
+
+import es.nextdigital.demo.model.TipoMovimiento;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.regex.Pattern;
+
+/**
+ * Entrada del diario: un movimiento aplicado en memoria junto con el saldo resultante de la cuenta. Guardar el saldo
+ * absoluto permite reconstruir el estado leyendo solo las entradas no persistidas. Las dos entradas de una
+ * transferencia entre cuentas propias van en la misma linea, para que una caida no deje solo una de ellas.
+ */
+public record EntradaDiario(long secuencia, String numeroCuenta, TipoMovimiento tipoMovimiento,
+                            long importeCentimos, long saldoCentimos, long fechaMillis) {
+
+    private static final String SEPARADOR = ";";
+    private static final String SEPARADOR_ENTRADAS = "|";
+
+    String aLinea() {
+        return campos() + '\n';
+    }
+
+    static String aLinea(final List<EntradaDiario> entradas) {
+        final StringJoiner linea = new StringJoiner(SEPARADOR_ENTRADAS, "", "\n");
+        for (EntradaDiario entrada : entradas) {
+            linea.add(entrada.campos());
+        }
+        return linea.toString();
+    }
+
+    /**
+     * Lee todas las entradas de una linea; si alguna esta incompleta no se devuelve ninguna.
+     */
+    static List<EntradaDiario> deLineaAgrupada(final String linea) {
+        final List<EntradaDiario> entradas = new ArrayList<>(2);
+        for (String parte : linea.split(Pattern.quote(SEPARADOR_ENTRADAS))) {
+            entradas.add(deLinea(parte));
+        }
+        return entradas;
+    }
+
+    private String campos() {
+        return secuencia + SEPARADOR + numeroCuenta + SEPARADOR + tipoMovimiento.name() + SEPARADOR
+                + importeCentimos + SEPARADOR + saldoCentimos + SEPARADOR + fechaMillis;
+    }
+
+    static EntradaDiario deLinea(final String linea) {
+        final String[] campos = linea.split(SEPARADOR);
+        if (campos.length != 6) {
+            throw new IllegalArgumentException("Entrada de diario incompleta: " + linea);
+        }
+        return new EntradaDiario(Long.parseLong(campos[0]), campos[1], TipoMovimiento.valueOf(campos[2]),
+                Long.parseLong(campos[3]), Long.parseLong(campos[4]), Long.parseLong(campos[5]));
+    }
+}
@@ -0,0 +1,29 @@
+package es.nextdigital.demo.ledger;
+
+import es.nextdigital.demo.model.TipoMovimiento;
+
+/**
+ * Entrada del diario de movimientos. Guarda la version con la que quedo la cuenta al aplicar el movimiento y el grupo
+ * (primera secuencia de su transaccion): al recuperar, permiten distinguir los movimientos cuya transaccion llego a
+ * confirmarse de los que se escribieron y luego se deshicieron.
+ */
+public record EntradaMovimiento(long secuencia, long grupo, String numeroCuenta, long versionCuenta,
+                                TipoMovimiento tipoMovimiento, long importeCentimos, long fechaMillis) {
+
+    private static final String SEPARADOR = ";";
+
+    String aLinea() {
+        return secuencia + SEPARADOR + grupo + SEPARADOR + numeroCuenta + SEPARADOR + versionCuenta + SEPARADOR
+                + tipoMovimiento.name() + SEPARADOR + importeCentimos + SEPARADOR + fechaMillis + '\n';
+    }
+
+    static EntradaMovimiento deLinea(final String linea) {
+        final String[] campos = linea.split(SEPARADOR);
+        if (campos.length != 7) {
+            throw new IllegalArgumentException("Entrada de diario incompleta: " + linea);
+        }
+        return new EntradaMovimiento(Long.parseLong(campos[0]), Long.parseLong(campos[1]), campos[2],
+                Long.parseLong(campos[3]), TipoMovimiento.valueOf(campos[4]), Long.parseLong(campos[5]),
+                Long.parseLong(campos[6]));
+    }
+}
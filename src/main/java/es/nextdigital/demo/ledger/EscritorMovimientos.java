@@ -0,0 +1,234 @@
+package es.nextdigital.demo.ledger;
+
+import es.nextdigital.demo.configuracion.DiarioMovimientosProperties;
+import es.nextdigital.demo.model.Cuenta;
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.model.Movimiento;
+import es.nextdigital.demo.repositorio.MovimientoRepository;
+import es.nextdigital.demo.servicios.ResumenesCuenta;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserta en segundo plano, por lotes, los movimientos del {@link DiarioMovimientos} junto con sus resumenes diarios,
+ * en una transaccion por lote. Cada movimiento guarda su secuencia del diario, asi que al recuperar no se inserta dos
+ * veces. Si un lote falla se reintenta tal cual en el siguiente ciclo; tras {@code reintentosLote} fallos seguidos se
+ * inserta movimiento a movimiento y los que la base de datos rechaza por sus datos se apartan en la {@link Cuarentena}
+ * (metrica {@value #METRICA_CUARENTENA}) para que no detengan a los demas.
+ */
+@Component
+@ConditionalOnProperty(prefix = "carlosbank.movimientos.diario", name = "habilitado", havingValue = "true")
+public class EscritorMovimientos {
+
+    public static final String METRICA_CUARENTENA = "carlosbank.movimientos.cuarentena";
+
+    private static final Logger LOG = LoggerFactory.getLogger(EscritorMovimientos.class);
+
+    private final DiarioMovimientos diario;
+    private final MovimientoRepository movimientoRepository;
+    private final EntityManager entityManager;
+    private final ResumenesCuenta resumenesCuenta;
+    private final TransactionTemplate transactionTemplate;
+    private final int tamanoLote;
+    private final int reintentosLote;
+    private final Cuarentena cuarentena;
+    private final long intervaloMillis;
+    private final ScheduledExecutorService planificador;
+
+    // Solo lo toca el hilo del planificador (o el cierre, una vez detenido este)
+    private final List<EntradaMovimiento> lote = new ArrayList<>();
+    private int fallosSeguidos;
+
+    public EscritorMovimientos(final DiarioMovimientos diario,
+                               final MovimientoRepository movimientoRepository,
+                               final EntityManager entityManager,
+                               final ResumenesCuenta resumenesCuenta,
+                               final PlatformTransactionManager transactionManager,
+                               final DiarioMovimientosProperties propiedades,
+                               final MeterRegistry registro) {
+        this.diario = diario;
+        this.movimientoRepository = movimientoRepository;
+        this.entityManager = entityManager;
+        this.resumenesCuenta = resumenesCuenta;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tamanoLote = propiedades.getTamanoLote();
+        this.reintentosLote = propiedades.getReintentosLote();
+        this.cuarentena = new Cuarentena(Path.of(propiedades.getDirectorio()), METRICA_CUARENTENA, registro);
+        this.intervaloMillis = propiedades.getIntervaloVolcado().toMillis();
+        this.planificador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            final Thread hilo = new Thread(tarea, "movimientos-escritor");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        recuperar();
+        this.planificador.scheduleWithFixedDelay(this::volcarSinFallar, this.intervaloMillis, this.intervaloMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        this.planificador.shutdown();
+        this.planificador.awaitTermination(30, TimeUnit.SECONDS);
+        volcar();
+    }
+
+    /**
+     * Inserta todo lo pendiente en lotes de como mucho {@code tamanoLote} movimientos.
+     */
+    public void volcar() {
+        while (!this.lote.isEmpty() || this.diario.drenar(this.lote, this.tamanoLote) > 0) {
+            if (this.fallosSeguidos < this.reintentosLote) {
+                try {
+                    persistir(this.lote);
+                } catch (RuntimeException e) {
+                    this.fallosSeguidos++;
+                    throw e;
+                }
+                this.diario.confirmar(this.lote.size());
+                this.lote.clear();
+            } else {
+                persistirUnoAUno();
+            }
+            this.fallosSeguidos = 0;
+        }
+    }
+
+    /**
+     * Cada movimiento va en su propia transaccion y sale del lote en cuanto se inserta o se aparta, asi que si se
+     * interrumpe (la base de datos ha caido, no es culpa del movimiento) el siguiente ciclo sigue por donde se quedo.
+     */
+    private void persistirUnoAUno() {
+        final Iterator<EntradaMovimiento> pendientes = this.lote.iterator();
+        while (pendientes.hasNext()) {
+            final EntradaMovimiento entrada = pendientes.next();
+            try {
+                persistir(List.of(entrada));
+            } catch (RuntimeException e) {
+                if (!Cuarentena.esDefectuosa(e)) {
+                    throw e;
+                }
+                this.cuarentena.apartar(entrada.aLinea(), e);
+            }
+            pendientes.remove();
+            this.diario.confirmar(1);
+        }
+    }
+
+    /**
+     * Vuelve a encolar las entradas del fichero que no llegaron a insertarse antes de la ultima parada.
+     */
+    void recuperar() {
+        final List<EntradaMovimiento> leidas = this.diario.leer();
+        final Long ultimaInsertada = this.movimientoRepository.findMaximaSecuenciaDiario();
+        long ultimaSecuencia = ultimaInsertada == null ? 0L : ultimaInsertada;
+        if (leidas.isEmpty()) {
+            this.diario.reanudar(List.of(), ultimaSecuencia);
+            return;
+        }
+
+        ultimaSecuencia = Math.max(ultimaSecuencia, leidas.get(leidas.size() - 1).secuencia());
+        final Set<Long> insertadas = new HashSet<>(this.movimientoRepository.findSecuenciasDiarioDesde(leidas.get(0).secuencia()));
+        // Las apartadas siguen en el fichero hasta que se vacia; no se vuelven a intentar
+        for (String linea : this.cuarentena.lineas()) {
+            try {
+                insertadas.add(EntradaMovimiento.deLinea(linea).secuencia());
+            } catch (IllegalArgumentException e) {
+                LOG.warn("Linea ilegible en la cuarentena de movimientos: {}", linea);
+            }
+        }
+        final Set<String> cuentas = new HashSet<>();
+        for (EntradaMovimiento entrada : leidas) {
+            cuentas.add(entrada.numeroCuenta());
+        }
+        final List<EntradaMovimiento> recuperables = filtrarRecuperables(leidas, insertadas, versionesCuentas(cuentas));
+        if (!recuperables.isEmpty()) {
+            LOG.info("Recuperados {} movimientos del diario pendientes de insertar", recuperables.size());
+        }
+        this.diario.reanudar(recuperables, ultimaSecuencia);
+    }
+
+    /**
+     * Descarta las entradas ya insertadas y las de transacciones que no se confirmaron. Una transaccion confirmada dejo
+     * la cuenta al menos en la version de su entrada; si varias escribieron la misma version de una cuenta, solo la
+     * ultima pudo confirmarse, porque las anteriores se deshicieron antes de que otra volviera a actualizarla.
+     */
+    static List<EntradaMovimiento> filtrarRecuperables(final List<EntradaMovimiento> entradas,
+                                                       final Set<Long> insertadas,
+                                                       final Map<String, Long> versionesCuentas) {
+        final Map<String, Long> ultimoGrupo = new HashMap<>();
+        for (EntradaMovimiento entrada : entradas) {
+            ultimoGrupo.merge(entrada.numeroCuenta() + "@" + entrada.versionCuenta(), entrada.grupo(), Math::max);
+        }
+
+        final List<EntradaMovimiento> recuperables = new ArrayList<>();
+        for (EntradaMovimiento entrada : entradas) {
+            final Long versionActual = versionesCuentas.get(entrada.numeroCuenta());
+            if (!insertadas.contains(entrada.secuencia())
+                    && versionActual != null && entrada.versionCuenta() <= versionActual
+                    && ultimoGrupo.get(entrada.numeroCuenta() + "@" + entrada.versionCuenta()) == entrada.grupo()) {
+                recuperables.add(entrada);
+            }
+        }
+        return recuperables;
+    }
+
+    private Map<String, Long> versionesCuentas(final Set<String> cuentas) {
+        final Map<String, Long> versiones = new HashMap<>();
+        for (Object[] fila : this.entityManager.createQuery(
+                        "select c.numeroCuenta, c.version from Cuenta c where c.numeroCuenta in :cuentas", Object[].class)
+                .setParameter("cuentas", cuentas)
+                .getResultList()) {
+            versiones.put((String) fila[0], (Long) fila[1]);
+        }
+        return versiones;
+    }
+
+    private void volcarSinFallar() {
+        try {
+            volcar();
+        } catch (RuntimeException e) {
+            LOG.error("Error insertando los movimientos del diario; se reintentara", e);
+        }
+    }
+
+    private void persistir(final List<EntradaMovimiento> entradas) {
+        this.transactionTemplate.executeWithoutResult(status -> {
+            final List<Movimiento> movimientos = new ArrayList<>(entradas.size());
+            for (EntradaMovimiento entrada : entradas) {
+                final Movimiento movimiento = new Movimiento();
+                movimiento.setFechaMovimiento(new Date(entrada.fechaMillis()));
+                movimiento.setTipoMovimiento(entrada.tipoMovimiento());
+                movimiento.setImporte(Dinero.deCentimos(entrada.importeCentimos()));
+                movimiento.setCuenta(this.entityManager.getReference(Cuenta.class, entrada.numeroCuenta()));
+                movimiento.setSecuenciaDiario(entrada.secuencia());
+                this.entityManager.persist(movimiento);
+                movimientos.add(movimiento);
+            }
+            this.resumenesCuenta.registrar(movimientos);
+        });
+    }
+}
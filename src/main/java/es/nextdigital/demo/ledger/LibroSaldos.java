@@ -0,0 +1,183 @@
+package es.nextdigital.demo.ledger;
+
+import es.nextdigital.demo.configuracion.LedgerProperties;
+import es.nextdigital.demo.exceptions.NotFoundException;
+import es.nextdigital.demo.model.Cuenta;
+import es.nextdigital.demo.model.PuntoControlLedger;
+import es.nextdigital.demo.model.TipoMovimiento;
+import es.nextdigital.demo.repositorio.CuentaRepository;
+import es.nextdigital.demo.repositorio.PuntoControlLedgerRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Saldos de las cuentas en memoria, en centimos, repartidos en segmentos con su propio cerrojo para que operaciones
+ * sobre cuentas distintas no compitan entre si. Cada cargo o abono se comprueba y se aplica de forma atomica dentro de
+ * su segmento y se anota en el {@link DiarioLedger} antes de hacerse visible; la base de datos se actualiza despues.
+ */
+@Component
+@ConditionalOnProperty(prefix = "carlosbank.ledger", name = "habilitado", havingValue = "true")
+public class LibroSaldos {
+
+    /** Valor de {@code saldoMinimoCentimos} para operaciones que pueden dejar la cuenta en negativo. */
+    public static final long SIN_LIMITE = Long.MIN_VALUE;
+
+    private final Segmento[] segmentos;
+    private final DiarioLedger diario;
+    private final CuentaRepository cuentaRepository;
+    private final PuntoControlLedgerRepository puntoControlRepository;
+
+    public LibroSaldos(final LedgerProperties propiedades,
+                       final DiarioLedger diario,
+                       final CuentaRepository cuentaRepository,
+                       final PuntoControlLedgerRepository puntoControlRepository) {
+        final int numeroSegmentos = Integer.highestOneBit(Math.max(1, propiedades.getSegmentos()));
+        this.segmentos = new Segmento[numeroSegmentos];
+        for (int i = 0; i < numeroSegmentos; i++) {
+            this.segmentos[i] = new Segmento();
+        }
+        this.diario = diario;
+        this.cuentaRepository = cuentaRepository;
+        this.puntoControlRepository = puntoControlRepository;
+    }
+
+    /**
+     * Reconstruye los saldos que todavia no estaban en base de datos a partir de las entradas del diario posteriores
+     * al ultimo punto de control.
+     */
+    @PostConstruct
+    public void recuperar() {
+        final long puntoControl = this.puntoControlRepository.findById(PuntoControlLedger.ID)
+                .map(PuntoControlLedger::getUltimaSecuencia)
+                .orElse(0L);
+
+        for (EntradaDiario entrada : this.diario.recuperar(puntoControl)) {
+            final Segmento segmento = segmento(entrada.numeroCuenta());
+            segmento.lock();
+            try {
+                segmento.fijar(entrada.numeroCuenta(), entrada.saldoCentimos());
+            } finally {
+                segmento.unlock();
+            }
+        }
+    }
+
+    public long saldo(final String numeroCuenta) {
+        final Segmento segmento = cargar(numeroCuenta);
+        segmento.lock();
+        try {
+            return segmento.saldo(numeroCuenta);
+        } finally {
+            segmento.unlock();
+        }
+    }
+
+    /**
+     * Aplica un movimiento sobre la cuenta. Devuelve {@code false}, sin modificar nada, si el saldo resultante quedaria
+     * por debajo de {@code saldoMinimoCentimos}.
+     */
+    public boolean aplicar(final String numeroCuenta, final TipoMovimiento tipoMovimiento,
+                           final long importeCentimos, final long saldoMinimoCentimos) {
+        final long delta = esAbono(tipoMovimiento) ? importeCentimos : -importeCentimos;
+
+        final Segmento segmento = cargar(numeroCuenta);
+        segmento.lock();
+        try {
+            final long nuevoSaldo = segmento.saldo(numeroCuenta) + delta;
+            if (delta < 0 && nuevoSaldo < saldoMinimoCentimos) {
+                return false;
+            }
+            // Primero el diario: si no se puede anotar, el saldo en memoria no cambia
+            this.diario.registrar(numeroCuenta, tipoMovimiento, importeCentimos, nuevoSaldo);
+            segmento.fijar(numeroCuenta, nuevoSaldo);
+            return true;
+        } finally {
+            segmento.unlock();
+        }
+    }
+
+    /**
+     * Carga {@code importeCargoCentimos} en el origen y abona {@code importeAbonoCentimos} en el destino de forma
+     * atomica. Los dos segmentos se bloquean siempre en el mismo orden (por posicion) para que dos transferencias
+     * cruzadas no se esperen mutuamente. Devuelve {@code false}, sin modificar nada, si el origen no tiene saldo. Los
+     * importes tienen que ser positivos: el saldo del destino no se comprueba.
+     */
+    public boolean transferir(final String cuentaOrigen, final String cuentaDestino,
+                              final long importeCargoCentimos, final long importeAbonoCentimos) {
+        if (importeCargoCentimos <= 0 || importeAbonoCentimos <= 0) {
+            throw new IllegalArgumentException("Los importes de una transferencia tienen que ser positivos");
+        }
+        final Segmento segmentoOrigen = cargar(cuentaOrigen);
+        final Segmento segmentoDestino = cargar(cuentaDestino);
+        final boolean origenPrimero = indiceSegmento(cuentaOrigen) <= indiceSegmento(cuentaDestino);
+        final Segmento primero = origenPrimero ? segmentoOrigen : segmentoDestino;
+        final Segmento segundo = origenPrimero ? segmentoDestino : segmentoOrigen;
+
+        primero.lock();
+        segundo.lock();
+        try {
+            final long saldoOrigen = segmentoOrigen.saldo(cuentaOrigen) - importeCargoCentimos;
+            if (saldoOrigen < 0) {
+                return false;
+            }
+            // Una transferencia a la propia cuenta abona sobre el saldo ya cargado
+            final long saldoDestino = (cuentaOrigen.equals(cuentaDestino) ? saldoOrigen : segmentoDestino.saldo(cuentaDestino))
+                    + importeAbonoCentimos;
+            this.diario.registrarTransferencia(cuentaOrigen, importeCargoCentimos, saldoOrigen,
+                    cuentaDestino, importeAbonoCentimos, saldoDestino);
+            segmentoOrigen.fijar(cuentaOrigen, saldoOrigen);
+            segmentoDestino.fijar(cuentaDestino, saldoDestino);
+            return true;
+        } finally {
+            segundo.unlock();
+            primero.unlock();
+        }
+    }
+
+    private static boolean esAbono(final TipoMovimiento tipoMovimiento) {
+        return TipoMovimiento.INGRESO == tipoMovimiento || TipoMovimiento.TRANSFERENCIA_ENTRANTE == tipoMovimiento;
+    }
+
+    /**
+     * Devuelve el segmento de la cuenta asegurando que su saldo esta en memoria. Una cuenta que no esta en memoria no
+     * tiene entradas pendientes en el diario, asi que el saldo de base de datos es el vigente.
+     */
+    private Segmento cargar(final String numeroCuenta) {
+        final Segmento segmento = segmento(numeroCuenta);
+        segmento.lock();
+        try {
+            if (segmento.contiene(numeroCuenta)) {
+                return segmento;
+            }
+        } finally {
+            segmento.unlock();
+        }
+
+        // La consulta se hace fuera del cerrojo para no bloquear al resto de cuentas del segmento
+        final Optional<Cuenta> cuentaOptional = this.cuentaRepository.findById(numeroCuenta);
+        if (!cuentaOptional.isPresent()) {
+            throw new NotFoundException("La cuenta no existe");
+        }
+
+        segmento.lock();
+        try {
+            if (!segmento.contiene(numeroCuenta)) {
+                segmento.fijar(numeroCuenta, cuentaOptional.get().getSaldo().centimos());
+            }
+            return segmento;
+        } finally {
+            segmento.unlock();
+        }
+    }
+
+    private Segmento segmento(final String numeroCuenta) {
+        return this.segmentos[indiceSegmento(numeroCuenta)];
+    }
+
+    private int indiceSegmento(final String numeroCuenta) {
+        return Segmento.dispersar(numeroCuenta.hashCode()) & (this.segmentos.length - 1);
+    }
+}
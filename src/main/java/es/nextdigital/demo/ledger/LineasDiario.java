@@ -0,0 +1,72 @@
+package es.nextdigital.demo.ledger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Lectura de los ficheros de diario. Una linea solo cuenta si termina en salto de linea y se puede interpretar; la
+ * primera que no cumple las dos cosas es una escritura a medias y marca el final del fichero. Esa cola hay que cortarla
+ * antes de seguir anadiendo: si no, la siguiente linea se pegaria a la incompleta y todo lo escrito despues se perderia
+ * en la siguiente recuperacion.
+ */
+final class LineasDiario {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LineasDiario.class);
+
+    private LineasDiario() {
+    }
+
+    /**
+     * Pasa cada linea completa a {@code destino}, que lanza {@link IllegalArgumentException} si no la puede
+     * interpretar, y devuelve la longitud en bytes hasta el final de la ultima linea aceptada.
+     */
+    static long leer(final Path fichero, final Consumer<String> destino) throws IOException {
+        long longitudValida = 0;
+        final ByteArrayOutputStream linea = new ByteArrayOutputStream();
+        final byte[] bloque = new byte[8192];
+        try (InputStream entrada = Files.newInputStream(fichero)) {
+            int leidos;
+            while ((leidos = entrada.read(bloque)) != -1) {
+                int inicio = 0;
+                for (int i = 0; i < leidos; i++) {
+                    if (bloque[i] != '\n') {
+                        continue;
+                    }
+                    linea.write(bloque, inicio, i - inicio);
+                    inicio = i + 1;
+                    try {
+                        destino.accept(linea.toString(StandardCharsets.UTF_8));
+                    } catch (IllegalArgumentException e) {
+                        return longitudValida;
+                    }
+                    longitudValida += linea.size() + 1;
+                    linea.reset();
+                }
+                linea.write(bloque, inicio, leidos - inicio);
+            }
+        }
+        return longitudValida;
+    }
+
+    /**
+     * Deja el fichero en {@code longitud} bytes si es mas largo. El fichero puede estar abierto para anadir: las
+     * escrituras siguientes van al nuevo final.
+     */
+    static void cortar(final Path fichero, final long longitud) throws IOException {
+        try (RandomAccessFile acceso = new RandomAccessFile(fichero.toFile(), "rw")) {
+            if (acceso.length() > longitud) {
+                LOG.warn("Descartados {} bytes incompletos al final de {}", acceso.length() - longitud, fichero);
+                acceso.setLength(longitud);
+            }
+        }
+    }
+}
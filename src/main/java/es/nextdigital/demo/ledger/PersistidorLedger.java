@@ -0,0 +1,180 @@
+package es.nextdigital.demo.ledger;
+
+import es.nextdigital.demo.configuracion.LedgerProperties;
+import es.nextdigital.demo.model.Cuenta;
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.model.Movimiento;
+import es.nextdigital.demo.model.PuntoControlLedger;
+import es.nextdigital.demo.servicios.ResumenesCuenta;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lleva a base de datos, en segundo plano y por lotes, las entradas del {@link DiarioLedger}: inserta los
+ * movimientos y sus resumenes diarios, guarda el ultimo saldo de cada cuenta del lote y avanza el punto de control,
+ * todo en una transaccion.
+ * Si un lote falla se reintenta tal cual en el siguiente ciclo; tras {@code reintentosLote} fallos seguidos se
+ * persiste entrada a entrada y las que la base de datos rechaza por sus datos se apartan en la {@link Cuarentena}
+ * (metrica {@value #METRICA_CUARENTENA}) para que no detengan a las demas.
+ */
+@Component
+@ConditionalOnProperty(prefix = "carlosbank.ledger", name = "habilitado", havingValue = "true")
+public class PersistidorLedger {
+
+    public static final String METRICA_CUARENTENA = "carlosbank.ledger.cuarentena";
+
+    private static final Logger LOG = LoggerFactory.getLogger(PersistidorLedger.class);
+
+    private final DiarioLedger diario;
+    private final EntityManager entityManager;
+    private final ResumenesCuenta resumenesCuenta;
+    private final TransactionTemplate transactionTemplate;
+    private final int tamanoLote;
+    private final int reintentosLote;
+    private final Cuarentena cuarentena;
+    private final long intervaloMillis;
+    private final ScheduledExecutorService planificador;
+
+    // Solo lo toca el hilo del planificador (o el cierre, una vez detenido este)
+    private final List<EntradaDiario> lote = new ArrayList<>();
+    private int fallosSeguidos;
+
+    public PersistidorLedger(final DiarioLedger diario,
+                             final EntityManager entityManager,
+                             final ResumenesCuenta resumenesCuenta,
+                             final PlatformTransactionManager transactionManager,
+                             final LedgerProperties propiedades,
+                             final MeterRegistry registro) {
+        this.diario = diario;
+        this.entityManager = entityManager;
+        this.resumenesCuenta = resumenesCuenta;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tamanoLote = propiedades.getTamanoLote();
+        this.reintentosLote = propiedades.getReintentosLote();
+        this.cuarentena = new Cuarentena(Path.of(propiedades.getDirectorio()), METRICA_CUARENTENA, registro);
+        this.intervaloMillis = propiedades.getIntervaloVolcado().toMillis();
+        this.planificador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            final Thread hilo = new Thread(tarea, "ledger-persistidor");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        this.planificador.scheduleWithFixedDelay(this::volcarSinFallar, this.intervaloMillis, this.intervaloMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        this.planificador.shutdown();
+        this.planificador.awaitTermination(30, TimeUnit.SECONDS);
+        volcar();
+    }
+
+    /**
+     * Persiste todo lo pendiente en lotes de como mucho {@code tamanoLote} entradas.
+     */
+    public void volcar() {
+        while (!this.lote.isEmpty() || this.diario.drenar(this.lote, this.tamanoLote) > 0) {
+            final long ultimaSecuencia = this.lote.get(this.lote.size() - 1).secuencia();
+            if (this.fallosSeguidos < this.reintentosLote) {
+                try {
+                    persistir(this.lote, ultimaSecuencia);
+                } catch (RuntimeException e) {
+                    this.fallosSeguidos++;
+                    throw e;
+                }
+            } else {
+                persistirUnaAUna();
+            }
+            this.fallosSeguidos = 0;
+            this.diario.confirmar(ultimaSecuencia);
+            this.lote.clear();
+        }
+    }
+
+    /**
+     * Cada entrada va en su propia transaccion y sale del lote en cuanto se persiste o se aparta, asi que si se
+     * interrumpe (la base de datos ha caido, no es culpa de la entrada) el siguiente ciclo sigue por donde se quedo.
+     */
+    private void persistirUnaAUna() {
+        final Iterator<EntradaDiario> pendientes = this.lote.iterator();
+        while (pendientes.hasNext()) {
+            final EntradaDiario entrada = pendientes.next();
+            try {
+                persistir(List.of(entrada), entrada.secuencia());
+            } catch (RuntimeException e) {
+                if (!Cuarentena.esDefectuosa(e)) {
+                    throw e;
+                }
+                this.cuarentena.apartar(entrada.aLinea(), e);
+                // El punto de control tiene que pasar tambien la apartada, o se recuperaria y volveria a fallar
+                persistir(List.of(), entrada.secuencia());
+            }
+            pendientes.remove();
+        }
+    }
+
+    private void volcarSinFallar() {
+        try {
+            volcar();
+        } catch (RuntimeException e) {
+            LOG.error("Error persistiendo el diario del ledger; se reintentara", e);
+        }
+    }
+
+    private void persistir(final List<EntradaDiario> entradas, final long ultimaSecuencia) {
+        this.transactionTemplate.executeWithoutResult(status -> {
+            final Map<String, Long> saldos = new LinkedHashMap<>();
+            final List<Movimiento> movimientos = new ArrayList<>(entradas.size());
+            for (EntradaDiario entrada : entradas) {
+                final Movimiento movimiento = new Movimiento();
+                movimiento.setFechaMovimiento(new Date(entrada.fechaMillis()));
+                movimiento.setTipoMovimiento(entrada.tipoMovimiento());
+                movimiento.setImporte(Dinero.deCentimos(entrada.importeCentimos()));
+                movimiento.setCuenta(this.entityManager.getReference(Cuenta.class, entrada.numeroCuenta()));
+                this.entityManager.persist(movimiento);
+                movimientos.add(movimiento);
+                // Las entradas van en orden de secuencia: la ultima de cada cuenta tiene su saldo vigente
+                saldos.put(entrada.numeroCuenta(), entrada.saldoCentimos());
+            }
+
+            for (Map.Entry<String, Long> saldo : saldos.entrySet()) {
+                this.entityManager.createQuery("update Cuenta c set c.saldo = :saldo, c.version = c.version + 1 "
+                                + "where c.numeroCuenta = :numeroCuenta")
+                        .setParameter("saldo", Dinero.deCentimos(saldo.getValue()))
+                        .setParameter("numeroCuenta", saldo.getKey())
+                        .executeUpdate();
+            }
+            this.resumenesCuenta.registrar(movimientos);
+
+            PuntoControlLedger puntoControl = this.entityManager.find(PuntoControlLedger.class, PuntoControlLedger.ID);
+            if (puntoControl == null) {
+                puntoControl = new PuntoControlLedger();
+                puntoControl.setId(PuntoControlLedger.ID);
+                this.entityManager.persist(puntoControl);
+            }
+            puntoControl.setUltimaSecuencia(ultimaSecuencia);
+        });
+    }
+}
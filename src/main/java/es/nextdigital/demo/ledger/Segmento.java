@@ -0,0 +1,74 @@
+package es.nextdigital.demo.ledger;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Tabla hash de direccionamiento abierto de numero de cuenta a saldo en centimos, con los saldos en un {@code long[]}
+ * para no crear un objeto por cuenta. No es segura por si misma: todos los accesos se hacen con el cerrojo tomado.
+ */
+final class Segmento extends ReentrantLock {
+
+    private static final int CAPACIDAD_INICIAL = 16;
+
+    private String[] claves = new String[CAPACIDAD_INICIAL];
+    private long[] saldos = new long[CAPACIDAD_INICIAL];
+    private int tamano;
+
+    static int dispersar(final int hash) {
+        final int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    boolean contiene(final String clave) {
+        return this.claves[indice(this.claves, clave)] != null;
+    }
+
+    long saldo(final String clave) {
+        final int i = indice(this.claves, clave);
+        if (this.claves[i] == null) {
+            throw new IllegalStateException("Cuenta no cargada en el ledger: " + clave);
+        }
+        return this.saldos[i];
+    }
+
+    void fijar(final String clave, final long saldo) {
+        int i = indice(this.claves, clave);
+        if (this.claves[i] == null) {
+            if ((this.tamano + 1) * 4 > this.claves.length * 3) {
+                redimensionar();
+                i = indice(this.claves, clave);
+            }
+            this.claves[i] = clave;
+            this.tamano++;
+        }
+        this.saldos[i] = saldo;
+    }
+
+    int tamano() {
+        return this.tamano;
+    }
+
+    private static int indice(final String[] tabla, final String clave) {
+        final int mascara = tabla.length - 1;
+        // Se usan los bits altos: los bajos ya se han gastado en elegir el segmento
+        int i = (dispersar(clave.hashCode()) >>> 8) & mascara;
+        while (tabla[i] != null && !tabla[i].equals(clave)) {
+            i = (i + 1) & mascara;
+        }
+        return i;
+    }
+
+    private void redimensionar() {
+        final String[] clavesAnteriores = this.claves;
+        final long[] saldosAnteriores = this.saldos;
+        this.claves = new String[clavesAnteriores.length * 2];
+        this.saldos = new long[clavesAnteriores.length * 2];
+        for (int j = 0; j < clavesAnteriores.length; j++) {
+            if (clavesAnteriores[j] != null) {
+                final int i = indice(this.claves, clavesAnteriores[j]);
+                this.claves[i] = clavesAnteriores[j];
+                this.saldos[i] = saldosAnteriores[j];
+            }
+        }
+    }
+}
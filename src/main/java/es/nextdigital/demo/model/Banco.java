@@ -1,15 +1,21 @@
 package es.nextdigital.demo.model;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 import lombok.Data;
 
 @Data
 @Entity
+@Table(indexes = @Index(name = "idx_banco_nombre", columnList = "nombre"))
 public class Banco {
 
     @Id
     private Integer bancoId;
     private String nombre;
-    private float comisionRetirada;
+
+    @Column(name = "comision_retirada_centimos")
+    private Dinero comisionRetirada = Dinero.CERO;
 }
@@ -0,0 +1,30 @@
+package es.nextdigital.demo.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * Resultado guardado de una peticion con clave de idempotencia: el importe devuelto si fue bien o el tipo y mensaje
+ * del error de negocio con que se rechazo.
+ */
+@Data
+@Entity
+@Table(indexes = @Index(name = "idx_clave_idempotencia_fecha", columnList = "fechaCreacion"))
+public class ClaveIdempotencia {
+
+    @Id
+    private String clave;
+    private String huella;
+
+    @Column(name = "valor_centimos")
+    private Dinero valor;
+    private String error;
+    private String mensaje;
+    private Date fechaCreacion;
+}
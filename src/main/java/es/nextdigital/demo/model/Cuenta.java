@@ -1,18 +1,43 @@
 package es.nextdigital.demo.model;
 
+import jakarta.persistence.CascadeType;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.Id;
+import jakarta.persistence.NamedQuery;
+import jakarta.persistence.OneToMany;
+import jakarta.persistence.Version;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
 import java.util.List;
 
 @Data
 @Entity
+@NamedQuery(name = "Cuenta.findSaldoById",
+        query = "select new es.nextdigital.demo.model.SaldoCuenta(c.saldo, c.version) from Cuenta c where c.numeroCuenta = :numeroCuenta")
 public class Cuenta {
 
     @Id
     private String numeroCuenta;
+
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @OneToMany(mappedBy = "cuenta", fetch = FetchType.LAZY)
     private List<Tarjeta> tarjetas;
+
+    // El historico puede ser muy grande: no se incluye en toString/equals para no forzar su carga, y las operaciones
+    // guardan sus movimientos directamente sin pasar por esta coleccion
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @OneToMany(mappedBy = "cuenta", fetch = FetchType.LAZY, cascade = CascadeType.ALL)
     private List<Movimiento> movimientos;
-    private float saldo;
+
+    @Column(name = "saldo_centimos")
+    private Dinero saldo = Dinero.CERO;
+
+    @Version
+    private Long version;
 }
@@ -0,0 +1,12 @@
+package es.nextdigital.demo.model;
+
+import java.util.List;
+
+/**
+ * Cuenta cuyo saldo no coincide con el que resulta de sus movimientos: los ingresos y transferencias entrantes suman y
+ * el resto resta. {@code diferencia} es {@code saldo - saldoMovimientos}. Los tipos sin movimientos no aparecen en
+ * {@code totales}.
+ */
+public record DiferenciaSaldo(String numeroCuenta, Dinero saldo, Dinero saldoMovimientos, Dinero diferencia,
+                              List<TotalMovimientos> totales) {
+}
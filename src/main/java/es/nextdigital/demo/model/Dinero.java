@@ -0,0 +1,177 @@
+package es.nextdigital.demo.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * Importe monetario inmutable en centimos de euro. Las operaciones son aritmetica entera exacta (sin la deriva de
+ * redondeo de {@code float}) y solo crean el objeto resultado, a diferencia de {@code BigDecimal}.
+ *
+ * <p>En JSON se representa como un numero con dos decimales y en base de datos como los centimos en un
+ * {@code BIGINT} (ver {@link DineroConverter}). {@link #valueOf(String)} permite recibirlo directamente como
+ * {@code @RequestParam}.
+ */
+@JsonSerialize(using = Dinero.Serializador.class)
+@JsonDeserialize(using = Dinero.Deserializador.class)
+public final class Dinero implements Comparable<Dinero>, Serializable {
+
+    public static final Dinero CERO = new Dinero(0L);
+
+    private static final int DECIMALES = 2;
+    private static final long CENTIMOS_POR_UNIDAD = 100L;
+
+    private final long centimos;
+
+    private Dinero(final long centimos) {
+        this.centimos = centimos;
+    }
+
+    public static Dinero deCentimos(final long centimos) {
+        return centimos == 0L ? CERO : new Dinero(centimos);
+    }
+
+    public static Dinero deUnidades(final long unidades) {
+        return deCentimos(Math.multiplyExact(unidades, CENTIMOS_POR_UNIDAD));
+    }
+
+    /**
+     * Interpreta un importe decimal como {@code "12"}, {@code "-3.5"} o {@code "1250.75"}. Se rechazan mas de dos
+     * decimales en lugar de redondear en silencio.
+     */
+    public static Dinero valueOf(final String texto) {
+        if (texto == null || texto.isEmpty()) {
+            throw new NumberFormatException("Importe vacio");
+        }
+
+        int i = 0;
+        final boolean negativo = texto.charAt(0) == '-';
+        if (negativo || texto.charAt(0) == '+') {
+            i++;
+        }
+
+        long unidades = 0L;
+        boolean hayDigitos = false;
+        for (; i < texto.length() && texto.charAt(i) != '.'; i++) {
+            unidades = Math.addExact(Math.multiplyExact(unidades, 10L), digito(texto, i));
+            hayDigitos = true;
+        }
+
+        long fraccion = 0L;
+        int decimales = 0;
+        if (i < texto.length()) {
+            for (i++; i < texto.length(); i++) {
+                if (++decimales > DECIMALES) {
+                    throw new NumberFormatException("Un importe no puede tener mas de " + DECIMALES + " decimales: " + texto);
+                }
+                fraccion = fraccion * 10L + digito(texto, i);
+                hayDigitos = true;
+            }
+        }
+        if (!hayDigitos) {
+            throw new NumberFormatException("Importe no valido: " + texto);
+        }
+        for (; decimales < DECIMALES; decimales++) {
+            fraccion *= 10L;
+        }
+
+        final long centimos = Math.addExact(Math.multiplyExact(unidades, CENTIMOS_POR_UNIDAD), fraccion);
+        return deCentimos(negativo ? -centimos : centimos);
+    }
+
+    public long centimos() {
+        return this.centimos;
+    }
+
+    public Dinero sumar(final Dinero otro) {
+        return deCentimos(Math.addExact(this.centimos, otro.centimos));
+    }
+
+    public Dinero restar(final Dinero otro) {
+        return deCentimos(Math.subtractExact(this.centimos, otro.centimos));
+    }
+
+    /**
+     * Multiplica por la fraccion {@code numerador / denominador} redondeando al centimo mas cercano (las mitades se
+     * alejan de cero, como {@code RoundingMode.HALF_UP}).
+     */
+    public Dinero multiplicar(final long numerador, final long denominador) {
+        final long producto = Math.multiplyExact(this.centimos, numerador);
+        final long cociente = producto / denominador;
+        final long resto = producto % denominador;
+        if (Math.abs(resto) * 2 >= Math.abs(denominador)) {
+            return deCentimos((producto < 0) == (denominador < 0) ? cociente + 1 : cociente - 1);
+        }
+        return deCentimos(cociente);
+    }
+
+    public boolean esMayorQue(final Dinero otro) {
+        return this.centimos > otro.centimos;
+    }
+
+    public boolean esMenorQue(final Dinero otro) {
+        return this.centimos < otro.centimos;
+    }
+
+    public boolean esNegativo() {
+        return this.centimos < 0L;
+    }
+
+    @Override
+    public int compareTo(final Dinero otro) {
+        return Long.compare(this.centimos, otro.centimos);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        return this == o || (o instanceof Dinero otro && this.centimos == otro.centimos);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(this.centimos);
+    }
+
+    @Override
+    public String toString() {
+        final long absoluto = Math.abs(this.centimos);
+        final long fraccion = absoluto % CENTIMOS_POR_UNIDAD;
+        return (this.centimos < 0L ? "-" : "") + (absoluto / CENTIMOS_POR_UNIDAD) + (fraccion < 10L ? ".0" : ".") + fraccion;
+    }
+
+    private static long digito(final String texto, final int i) {
+        final char c = texto.charAt(i);
+        if (c < '0' || c > '9') {
+            throw new NumberFormatException("Importe no valido: " + texto);
+        }
+        return c - '0';
+    }
+
+    static final class Serializador extends JsonSerializer<Dinero> {
+
+        @Override
+        public void serialize(final Dinero dinero, final JsonGenerator generator, final SerializerProvider provider) throws IOException {
+            generator.writeNumber(dinero.toString());
+        }
+    }
+
+    static final class Deserializador extends JsonDeserializer<Dinero> {
+
+        @Override
+        public Dinero deserialize(final JsonParser parser, final DeserializationContext contexto) throws IOException {
+            try {
+                return Dinero.valueOf(parser.getValueAsString());
+            } catch (NumberFormatException | ArithmeticException e) {
+                return (Dinero) contexto.handleWeirdStringValue(Dinero.class, parser.getText(), e.getMessage());
+            }
+        }
+    }
+}
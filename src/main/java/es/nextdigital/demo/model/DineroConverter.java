@@ -0,0 +1,24 @@
+package es.nextdigital.demo.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import org.hibernate.annotations.Immutable;
+
+/**
+ * Guarda {@link Dinero} como sus centimos en una columna entera. Se marca inmutable para que Hibernate no copie el
+ * valor serializandolo en cada carga al tomar la instantanea del dirty checking.
+ */
+@Immutable
+@Converter(autoApply = true)
+public class DineroConverter implements AttributeConverter<Dinero, Long> {
+
+    @Override
+    public Long convertToDatabaseColumn(final Dinero dinero) {
+        return dinero == null ? null : dinero.centimos();
+    }
+
+    @Override
+    public Dinero convertToEntityAttribute(final Long centimos) {
+        return centimos == null ? null : Dinero.deCentimos(centimos);
+    }
+}
@@ -0,0 +1,18 @@
+package es.nextdigital.demo.model;
+
+/**
+ * Progreso de una exportacion de movimientos. {@code ultimoMovimiento} es el ultimo identificador ya escrito en un
+ * fichero completo y {@code hasta} el mayor identificador que existia al empezar, que es donde termina.
+ */
+public record EstadoExportacion(String nombre, Situacion situacion, long movimientos, int ficheros,
+                                long ultimoMovimiento, long hasta, String error) {
+
+    public enum Situacion {
+        PENDIENTE,
+        EN_CURSO,
+        TERMINADA,
+        FALLIDA,
+        /** Incompleta y sin ejecutarse (la aplicacion se paro a mitad); se reanuda volviendo a iniciarla. */
+        INTERRUMPIDA
+    }
+}
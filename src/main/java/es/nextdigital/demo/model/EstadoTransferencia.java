@@ -0,0 +1,9 @@
+package es.nextdigital.demo.model;
+
+public enum EstadoTransferencia {
+    REALIZADA,
+    SALDO_INSUFICIENTE,
+    CUENTA_ORIGEN_NO_EXISTE,
+    DATOS_NO_VALIDOS,
+    CONFLICTO
+}
@@ -0,0 +1,11 @@
+package es.nextdigital.demo.model;
+
+import java.util.List;
+
+/**
+ * Resultado de conciliar todas las cuentas con sus movimientos. {@code diferencias} va por orden de numero de cuenta y
+ * se corta en el maximo configurado; {@code cuentasConDiferencias} las cuenta todas.
+ */
+public record InformeConciliacion(long cuentas, long movimientos, long cuentasConDiferencias,
+                                  List<DiferenciaSaldo> diferencias, int tramos, long duracionMilisegundos) {
+}
@@ -1,18 +1,48 @@
 package es.nextdigital.demo.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
 import java.util.Date;
 
 @Data
 @Entity
+// Sirve tanto para buscar los movimientos de una cuenta como para su paginacion por fecha e id
+@Table(indexes = @Index(name = "idx_movimiento_cuenta_fecha", columnList = "cuenta_id, fechaMovimiento, movimientoId"))
 public class Movimiento {
 
     @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "movimiento_seq")
+    @SequenceGenerator(name = "movimiento_seq", sequenceName = "movimiento_seq", allocationSize = 50)
     private Integer movimientoId;
     private Date fechaMovimiento;
     private TipoMovimiento tipoMovimiento;
-    private float importe;
+
+    @Column(name = "importe_centimos")
+    private Dinero importe = Dinero.CERO;
+
+    // Secuencia en el diario de movimientos de los que se insertan en diferido; evita insertarlos dos veces al recuperar
+    @JsonIgnore
+    @Column(unique = true)
+    private Long secuenciaDiario;
+
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "cuenta_id", nullable = false)
+    private Cuenta cuenta;
 }
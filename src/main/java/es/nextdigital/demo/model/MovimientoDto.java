@@ -0,0 +1,10 @@
+package es.nextdigital.demo.model;
+
+import java.util.Date;
+
+/**
+ * Vista de solo lectura de un {@link Movimiento}. Al no ser una entidad gestionada no se acumula en el contexto
+ * de persistencia mientras se recorre el historico de una cuenta.
+ */
+public record MovimientoDto(Integer movimientoId, Date fechaMovimiento, TipoMovimiento tipoMovimiento, Dinero importe) {
+}
@@ -0,0 +1,10 @@
+package es.nextdigital.demo.model;
+
+import java.util.List;
+
+/**
+ * Pagina de movimientos ordenada del mas reciente al mas antiguo. {@code siguienteCursor} es nulo cuando no quedan
+ * mas movimientos por leer.
+ */
+public record PaginaMovimientos(List<MovimientoDto> movimientos, String siguienteCursor) {
+}
@@ -0,0 +1,20 @@
+package es.nextdigital.demo.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Data;
+
+/**
+ * Ultima entrada del diario del ledger cuyo efecto ya esta en base de datos. Se actualiza en la misma transaccion que
+ * los movimientos y saldos, asi que al recuperar nunca se aplica dos veces la misma entrada.
+ */
+@Data
+@Entity
+public class PuntoControlLedger {
+
+    public static final int ID = 1;
+
+    @Id
+    private Integer id;
+    private long ultimaSecuencia;
+}
@@ -0,0 +1,19 @@
+package es.nextdigital.demo.model;
+
+/**
+ * Resultado de una {@link SolicitudTransferencia} de un lote. {@code importeCargado} incluye la comision y solo tiene
+ * valor si la transferencia se ha realizado.
+ */
+public record ResultadoTransferencia(String referencia, String cuentaOrigen, String ibanDestino,
+                                     EstadoTransferencia estado, Dinero importeCargado) {
+
+    public static ResultadoTransferencia realizada(final SolicitudTransferencia solicitud, final Dinero importeCargado) {
+        return new ResultadoTransferencia(solicitud.referencia(), solicitud.cuentaOrigen(), solicitud.ibanDestino(),
+                EstadoTransferencia.REALIZADA, importeCargado);
+    }
+
+    public static ResultadoTransferencia rechazada(final SolicitudTransferencia solicitud, final EstadoTransferencia estado) {
+        return new ResultadoTransferencia(solicitud.referencia(), solicitud.cuentaOrigen(), solicitud.ibanDestino(),
+                estado, null);
+    }
+}
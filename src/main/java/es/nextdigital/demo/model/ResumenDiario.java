@@ -0,0 +1,42 @@
+package es.nextdigital.demo.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Totales de un tipo de movimiento de una cuenta en un dia. Se actualizan en la misma transaccion que registra cada
+ * movimiento, asi que un resumen de un periodo se calcula con una fila por dia y tipo en vez de recorrer el historico.
+ */
+@Data
+@Entity
+@IdClass(ResumenDiario.Clave.class)
+public class ResumenDiario {
+
+    // La clave empieza por cuenta y dia: un rango de fechas de una cuenta es un recorrido contiguo de la clave primaria
+    @Id
+    private String numeroCuenta;
+    @Id
+    private LocalDate dia;
+    @Id
+    private TipoMovimiento tipoMovimiento;
+
+    private long numeroMovimientos;
+    // En centimos y sin convertir a Dinero para poder acumularlo con un update sin leer la fila
+    private long totalCentimos;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Clave implements Serializable {
+        private String numeroCuenta;
+        private LocalDate dia;
+        private TipoMovimiento tipoMovimiento;
+    }
+}
@@ -0,0 +1,11 @@
+package es.nextdigital.demo.model;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Totales por tipo de movimiento de una cuenta entre dos dias, ambos incluidos. Los tipos sin movimientos en el
+ * periodo no aparecen.
+ */
+public record ResumenMovimientos(String numeroCuenta, LocalDate desde, LocalDate hasta, List<TotalMovimientos> totales) {
+}
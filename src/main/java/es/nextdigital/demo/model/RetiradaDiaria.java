@@ -0,0 +1,37 @@
+package es.nextdigital.demo.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Total retirado con una tarjeta en un dia. Solo se escribe: los limites se comprueban con los contadores en memoria
+ * y estas filas sirven para reconstruirlos al arrancar.
+ */
+@Data
+@Entity
+@IdClass(RetiradaDiaria.Clave.class)
+public class RetiradaDiaria {
+
+    @Id
+    private String numeroTarjeta;
+    @Id
+    private LocalDate dia;
+
+    // En centimos y sin convertir a Dinero para poder acumularlo con un update sin leer la fila
+    private long totalCentimos;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Clave implements Serializable {
+        private String numeroTarjeta;
+        private LocalDate dia;
+    }
+}
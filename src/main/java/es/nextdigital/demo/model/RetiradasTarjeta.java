@@ -0,0 +1,12 @@
+package es.nextdigital.demo.model;
+
+/**
+ * Lo retirado con una tarjeta en un dia y en lo que va de su mes, en centimos.
+ */
+public record RetiradasTarjeta(String numeroTarjeta, long totalDiaCentimos, long totalMesCentimos) {
+
+    /** Para la consulta que suma {@link RetiradaDiaria}: {@code sum} devuelve {@code Long}. */
+    public RetiradasTarjeta(final String numeroTarjeta, final Long totalDiaCentimos, final Long totalMesCentimos) {
+        this(numeroTarjeta, totalDiaCentimos.longValue(), totalMesCentimos.longValue());
+    }
+}
@@ -0,0 +1,8 @@
+package es.nextdigital.demo.model;
+
+/**
+ * Saldo de una cuenta junto con la version con la que se confirmo. La version permite saber cual de dos copias es la
+ * mas reciente sin volver a base de datos.
+ */
+public record SaldoCuenta(Dinero saldo, long version) {
+}
@@ -0,0 +1,13 @@
+package es.nextdigital.demo.model;
+
+/**
+ * Transferencia dentro de un lote. {@code referencia} es opcional y se devuelve tal cual en su
+ * {@link ResultadoTransferencia} para que el cliente pueda casar cada resultado con su origen.
+ */
+public record SolicitudTransferencia(String referencia, String cuentaOrigen, String ibanDestino, Dinero cantidad) {
+
+    public boolean esValida() {
+        return this.cuentaOrigen != null && this.ibanDestino != null
+                && this.cantidad != null && this.cantidad.esMayorQue(Dinero.CERO);
+    }
+}
@@ -1,12 +1,21 @@
 package es.nextdigital.demo.model;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
 @Data
 @Entity
+// La autenticacion va por la clave primaria; este indice es para las tarjetas de una cuenta
+@Table(indexes = @Index(name = "idx_tarjeta_cuenta", columnList = "cuenta_id"))
 public class Tarjeta {
 
     @Id
@@ -16,10 +25,19 @@ public class Tarjeta {
     private int cvv;
     private String pinEncriptado;
     private boolean activada;
-    private float limiteRetirada;
-    private float limiteCredito;
+
+    @Column(name = "limite_retirada_centimos")
+    private Dinero limiteRetirada = Dinero.CERO;
+
+    @Column(name = "limite_credito_centimos")
+    private Dinero limiteCredito = Dinero.CERO;
+
     private TipoTarjeta tipoTarjeta;
 
-    @ManyToOne
+    // Las operaciones de cajero solo necesitan el numero de cuenta, que se lee de la clave ajena (ver TarjetaRepository)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "cuenta_id")
     private Cuenta cuenta;
 }
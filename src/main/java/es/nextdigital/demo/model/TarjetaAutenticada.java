@@ -0,0 +1,15 @@
+package es.nextdigital.demo.model;
+
+/**
+ * Lo que necesitan las operaciones de cajero de una tarjeta: su estado, sus limites y el numero de su cuenta. Guarda el
+ * hash del pin para poder autenticar sin ir a base de datos, nunca el pin.
+ */
+public record TarjetaAutenticada(
+        String numeroTarjeta,
+        String pinEncriptado,
+        boolean activada,
+        TipoTarjeta tipoTarjeta,
+        Dinero limiteRetirada,
+        Dinero limiteCredito,
+        String numeroCuenta) {
+}
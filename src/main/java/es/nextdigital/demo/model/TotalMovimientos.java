@@ -0,0 +1,9 @@
+package es.nextdigital.demo.model;
+
+public record TotalMovimientos(TipoMovimiento tipoMovimiento, long numeroMovimientos, Dinero total) {
+
+    /** Para las consultas que suman {@link ResumenDiario}: {@code sum} devuelve {@code Long}. */
+    public TotalMovimientos(final TipoMovimiento tipoMovimiento, final Long numeroMovimientos, final Long totalCentimos) {
+        this(tipoMovimiento, numeroMovimientos.longValue(), Dinero.deCentimos(totalCentimos));
+    }
+}
@@ -1,7 +1,47 @@
 package es.nextdigital.demo.repositorio;
 
 import es.nextdigital.demo.model.Cuenta;
+import es.nextdigital.demo.model.SaldoCuenta;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 public interface CuentaRepository extends JpaRepository<Cuenta, String> {
+
+    /**
+     * Lee la cuenta con un bloqueo de escritura sobre la fila ({@code SELECT ... FOR UPDATE}) que se mantiene hasta el
+     * final de la transaccion.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "5000"))
+    @Query("select c from Cuenta c where c.numeroCuenta = :numeroCuenta")
+    Optional<Cuenta> findByIdParaActualizar(@Param("numeroCuenta") String numeroCuenta);
+
+    /**
+     * Igual que {@link #findByIdParaActualizar(String)} para varias cuentas. Las filas se bloquean en orden de numero
+     * de cuenta para que dos transacciones que bloquean cuentas en comun no se esperen mutuamente.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "5000"))
+    @Query("select c from Cuenta c where c.numeroCuenta in :numerosCuenta order by c.numeroCuenta")
+    List<Cuenta> findAllByIdParaActualizar(@Param("numerosCuenta") Collection<String> numerosCuenta);
+
+    /**
+     * Saldo y version de la cuenta, sin cargar la entidad en el contexto de persistencia. La consulta es la
+     * {@code @NamedQuery} de {@link Cuenta}.
+     */
+    @Transactional(readOnly = true)
+    Optional<SaldoCuenta> findSaldoById(@Param("numeroCuenta") String numeroCuenta);
+
+    @Query("select c.numeroCuenta from Cuenta c where c.numeroCuenta in :numerosCuenta")
+    List<String> findNumerosCuentaExistentes(@Param("numerosCuenta") Collection<String> numerosCuenta);
 }
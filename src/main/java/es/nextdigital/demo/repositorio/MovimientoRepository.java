@@ -1,8 +1,55 @@
 package es.nextdigital.demo.repositorio;
 
-import es.nextdigital.demo.model.Cuenta;
 import es.nextdigital.demo.model.Movimiento;
+import es.nextdigital.demo.model.MovimientoDto;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Las consultas del historico devuelven {@link MovimientoDto} en transacciones de solo lectura: ni se crean entidades
+ * ni Hibernate comprueba cambios al terminar.
+ */
 public interface MovimientoRepository extends JpaRepository<Movimiento, Integer> {
+
+    /**
+     * Historico completo de la cuenta, en el orden del indice (fecha e id).
+     */
+    @Transactional(readOnly = true)
+    @Query("select new es.nextdigital.demo.model.MovimientoDto(m.movimientoId, m.fechaMovimiento, m.tipoMovimiento, m.importe) "
+            + "from Movimiento m where m.cuenta.numeroCuenta = :numeroCuenta "
+            + "order by m.fechaMovimiento, m.movimientoId")
+    List<MovimientoDto> findMovimientos(@Param("numeroCuenta") String numeroCuenta);
+
+    @Transactional(readOnly = true)
+    @Query("select new es.nextdigital.demo.model.MovimientoDto(m.movimientoId, m.fechaMovimiento, m.tipoMovimiento, m.importe) "
+            + "from Movimiento m where m.cuenta.numeroCuenta = :numeroCuenta "
+            + "order by m.fechaMovimiento desc, m.movimientoId desc")
+    List<MovimientoDto> findPaginaMovimientos(@Param("numeroCuenta") String numeroCuenta, Pageable pageable);
+
+    /**
+     * Paginacion por clave (keyset): continua justo despues del ultimo movimiento devuelto, de modo que el coste de
+     * cada pagina no depende de cuantas se hayan leido antes.
+     */
+    @Transactional(readOnly = true)
+    @Query("select new es.nextdigital.demo.model.MovimientoDto(m.movimientoId, m.fechaMovimiento, m.tipoMovimiento, m.importe) "
+            + "from Movimiento m where m.cuenta.numeroCuenta = :numeroCuenta "
+            + "and (m.fechaMovimiento < :fecha or (m.fechaMovimiento = :fecha and m.movimientoId < :movimientoId)) "
+            + "order by m.fechaMovimiento desc, m.movimientoId desc")
+    List<MovimientoDto> findPaginaMovimientosDesde(
+            @Param("numeroCuenta") String numeroCuenta,
+            @Param("fecha") Date fecha,
+            @Param("movimientoId") Integer movimientoId,
+            Pageable pageable);
+
+    @Query("select max(m.secuenciaDiario) from Movimiento m")
+    Long findMaximaSecuenciaDiario();
+
+    @Query("select m.secuenciaDiario from Movimiento m where m.secuenciaDiario >= :desde")
+    List<Long> findSecuenciasDiarioDesde(@Param("desde") long desde);
 }
@@ -0,0 +1,7 @@
+package es.nextdigital.demo.repositorio;
+
+import es.nextdigital.demo.model.PuntoControlLedger;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface PuntoControlLedgerRepository extends JpaRepository<PuntoControlLedger, Integer> {
+}
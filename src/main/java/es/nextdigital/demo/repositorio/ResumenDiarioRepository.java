@@ -0,0 +1,36 @@
+package es.nextdigital.demo.repositorio;
+
+import es.nextdigital.demo.model.ResumenDiario;
+import es.nextdigital.demo.model.TipoMovimiento;
+import es.nextdigital.demo.model.TotalMovimientos;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface ResumenDiarioRepository extends JpaRepository<ResumenDiario, ResumenDiario.Clave> {
+
+    /**
+     * Suma a los totales del dia sin leer la fila. Devuelve 0 si es el primer movimiento de ese tipo en el dia y la
+     * fila todavia no existe.
+     */
+    @Modifying
+    @Query("update ResumenDiario r set r.numeroMovimientos = r.numeroMovimientos + :numeroMovimientos, "
+            + "r.totalCentimos = r.totalCentimos + :totalCentimos "
+            + "where r.numeroCuenta = :numeroCuenta and r.dia = :dia and r.tipoMovimiento = :tipoMovimiento")
+    int acumular(@Param("numeroCuenta") String numeroCuenta,
+                 @Param("dia") LocalDate dia,
+                 @Param("tipoMovimiento") TipoMovimiento tipoMovimiento,
+                 @Param("numeroMovimientos") long numeroMovimientos,
+                 @Param("totalCentimos") long totalCentimos);
+
+    @Query("select new es.nextdigital.demo.model.TotalMovimientos(r.tipoMovimiento, sum(r.numeroMovimientos), sum(r.totalCentimos)) "
+            + "from ResumenDiario r where r.numeroCuenta = :numeroCuenta and r.dia between :desde and :hasta "
+            + "group by r.tipoMovimiento order by r.tipoMovimiento")
+    List<TotalMovimientos> sumarPorTipo(@Param("numeroCuenta") String numeroCuenta,
+                                        @Param("desde") LocalDate desde,
+                                        @Param("hasta") LocalDate hasta);
+}
@@ -0,0 +1,34 @@
+package es.nextdigital.demo.repositorio;
+
+import es.nextdigital.demo.model.RetiradaDiaria;
+import es.nextdigital.demo.model.RetiradasTarjeta;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface RetiradaDiariaRepository extends JpaRepository<RetiradaDiaria, RetiradaDiaria.Clave> {
+
+    /**
+     * Suma al total del dia sin leer la fila; el importe es negativo para deshacer una retirada. Devuelve 0 si es la
+     * primera retirada de la tarjeta en el dia y la fila todavia no existe.
+     */
+    @Modifying
+    @Query("update RetiradaDiaria r set r.totalCentimos = r.totalCentimos + :centimos "
+            + "where r.numeroTarjeta = :numeroTarjeta and r.dia = :dia")
+    int acumular(@Param("numeroTarjeta") String numeroTarjeta,
+                 @Param("dia") LocalDate dia,
+                 @Param("centimos") long centimos);
+
+    /**
+     * Lo retirado con cada tarjeta el dia {@code dia} y desde {@code inicioMes}, una fila por tarjeta con retiradas
+     * en ese periodo.
+     */
+    @Query("select new es.nextdigital.demo.model.RetiradasTarjeta(r.numeroTarjeta, "
+            + "sum(case when r.dia = :dia then r.totalCentimos else 0 end), sum(r.totalCentimos)) "
+            + "from RetiradaDiaria r where r.dia >= :inicioMes and r.dia <= :dia group by r.numeroTarjeta")
+    List<RetiradasTarjeta> sumarPorTarjeta(@Param("inicioMes") LocalDate inicioMes, @Param("dia") LocalDate dia);
+}
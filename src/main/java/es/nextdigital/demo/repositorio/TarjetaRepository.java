@@ -1,11 +1,27 @@
 package es.nextdigital.demo.repositorio;
 
 import es.nextdigital.demo.model.Tarjeta;
+import es.nextdigital.demo.model.TarjetaAutenticada;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
 public interface TarjetaRepository extends JpaRepository<Tarjeta, String> {
 
-    Optional<Tarjeta> findByNumeroAndPinEncriptado(String numero, String pinEncriptado);
+    /**
+     * Para las operaciones que modifican la tarjeta; las demas se autentican con la cache de tarjetas.
+     */
+    @Query("select t from Tarjeta t where t.numeroTarjeta = :numero and t.pinEncriptado = :pinEncriptado")
+    Optional<Tarjeta> findByNumeroAndPinEncriptado(@Param("numero") String numero, @Param("pinEncriptado") String pinEncriptado);
+
+    /**
+     * Proyeccion sin entidades para la cache de tarjetas: el numero de cuenta sale de la clave ajena, sin join.
+     */
+    @Transactional(readOnly = true)
+    @Query("select new es.nextdigital.demo.model.TarjetaAutenticada(t.numeroTarjeta, t.pinEncriptado, t.activada, t.tipoTarjeta, "
+            + "t.limiteRetirada, t.limiteCredito, t.cuenta.numeroCuenta) from Tarjeta t where t.numeroTarjeta = :numero")
+    Optional<TarjetaAutenticada> findAutenticadaByNumero(@Param("numero") String numero);
 }
@@ -1,23 +1,66 @@
 package es.nextdigital.demo.servicios;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import es.nextdigital.demo.configuracion.CacheBancosProperties;
 import es.nextdigital.demo.exceptions.NotFoundException;
 import es.nextdigital.demo.model.Banco;
 import es.nextdigital.demo.repositorio.BancoRepository;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.stereotype.Service;
 
 import java.util.Optional;
 
 @Service
-@RequiredArgsConstructor
 public class BancoServicioImpl implements BancoServicio {
 
+    static final String NOMBRE_CACHE = "bancos";
+
     private final BancoRepository bancoRepository;
 
+    // Los bancos casi nunca cambian: se cachean por nombre, incluidos los que no existen (Optional vacio) para que
+    // un cajero con un nombre de banco erroneo no vaya a base de datos en cada retirada.
+    private final LoadingCache<String, Optional<Banco>> cacheBancos;
+
+    public BancoServicioImpl(final BancoRepository bancoRepository, final CacheBancosProperties propiedades,
+                             final MeterRegistry registro) {
+        this.bancoRepository = bancoRepository;
+
+        final long ttlNanos = propiedades.getTtl().toNanos();
+        final long ttlNegativoNanos = propiedades.getTtlNegativo().toNanos();
+        this.cacheBancos = Caffeine.newBuilder()
+                .maximumSize(propiedades.getTamanoMaximo())
+                .expireAfter(new Expiry<String, Optional<Banco>>() {
+                    @Override
+                    public long expireAfterCreate(String nombre, Optional<Banco> banco, long currentTime) {
+                        return banco.isPresent() ? ttlNanos : ttlNegativoNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String nombre, Optional<Banco> banco, long currentTime, long currentDuration) {
+                        return expireAfterCreate(nombre, banco, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String nombre, Optional<Banco> banco, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build(this.bancoRepository::findBancosByNombre);
+        // Aciertos, fallos y tamano de la cache en las metricas cache.* con la etiqueta cache=bancos
+        CaffeineCacheMetrics.monitor(registro, this.cacheBancos, NOMBRE_CACHE);
+    }
+
     @Override
     public Banco obtenerBanco(String nombreBanco) {
+        if (nombreBanco == null) {
+            throw new NotFoundException("El banco no existe");
+        }
 
-        final Optional<Banco> bancoOptional = this.bancoRepository.findBancosByNombre(nombreBanco);
+        final Optional<Banco> bancoOptional = this.cacheBancos.get(nombreBanco);
         if (bancoOptional.isPresent()) {
             return bancoOptional.get();
         } else {
@@ -0,0 +1,114 @@
+package es.nextdigital.demo.servicios;
+
+import es.nextdigital.demo.configuracion.ConcurrenciaCuentasProperties;
+import es.nextdigital.demo.configuracion.ModoConcurrencia;
+import es.nextdigital.demo.exceptions.ConflictException;
+import es.nextdigital.demo.exceptions.NotFoundException;
+import es.nextdigital.demo.model.Cuenta;
+import es.nextdigital.demo.repositorio.CuentaRepository;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Ejecuta una lectura-modificacion-escritura sobre una cuenta en su propia transaccion, de forma que dos operaciones
+ * concurrentes sobre la misma cuenta no pierdan actualizaciones del saldo. Segun {@link ModoConcurrencia} la cuenta se
+ * bloquea al leerla o se confia en su columna de version; en ambos casos una colision se reintenta con una espera
+ * aleatoria creciente hasta {@code maxIntentos}.
+ */
+@Component
+public class BloqueoCuentas {
+
+    private static final int MAX_EXPONENTE_ESPERA = 6;
+
+    private final CuentaRepository cuentaRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ConcurrenciaCuentasProperties propiedades;
+
+    public BloqueoCuentas(final CuentaRepository cuentaRepository,
+                          final PlatformTransactionManager transactionManager,
+                          final ConcurrenciaCuentasProperties propiedades) {
+        this.cuentaRepository = cuentaRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.propiedades = propiedades;
+    }
+
+    public <T> T ejecutar(final String numeroCuenta, final Function<Cuenta, T> operacion) {
+        return ejecutar(numeroCuenta, "La cuenta no existe", operacion);
+    }
+
+    public <T> T ejecutar(final String numeroCuenta, final String mensajeNoExiste, final Function<Cuenta, T> operacion) {
+        return conReintentos(() -> operacion.apply(leerCuenta(numeroCuenta, mensajeNoExiste)));
+    }
+
+    /**
+     * Igual que {@link #ejecutar(String, Function)} para varias cuentas en una misma transaccion. Las cuentas que no
+     * existen no aparecen en el mapa; una colision en cualquiera de ellas repite la operacion completa.
+     */
+    public <T> T ejecutarVarias(final Collection<String> numerosCuenta, final Function<Map<String, Cuenta>, T> operacion) {
+        return conReintentos(() -> operacion.apply(leerCuentas(numerosCuenta)));
+    }
+
+    private <T> T conReintentos(final Supplier<T> operacion) {
+        // Dentro de una transaccion ya abierta no se puede reintentar: el rollback marcaria tambien la externa
+        final int maxIntentos = TransactionSynchronizationManager.isActualTransactionActive()
+                ? 1 : Math.max(1, this.propiedades.getMaxIntentos());
+
+        for (int intento = 1; ; intento++) {
+            try {
+                return this.transactionTemplate.execute(status -> operacion.get());
+            } catch (ConcurrencyFailureException e) {
+                if (intento >= maxIntentos) {
+                    throw new ConflictException("La cuenta esta siendo modificada por otra operacion", e);
+                }
+                esperarAntesDeReintentar(intento, e);
+            }
+        }
+    }
+
+    private Cuenta leerCuenta(final String numeroCuenta, final String mensajeNoExiste) {
+        final Optional<Cuenta> cuentaOptional = ModoConcurrencia.PESIMISTA == this.propiedades.getModo()
+                ? this.cuentaRepository.findByIdParaActualizar(numeroCuenta)
+                : this.cuentaRepository.findById(numeroCuenta);
+
+        if (cuentaOptional.isPresent()) {
+            return cuentaOptional.get();
+        } else {
+            throw new NotFoundException(mensajeNoExiste);
+        }
+    }
+
+    private Map<String, Cuenta> leerCuentas(final Collection<String> numerosCuenta) {
+        final TreeSet<String> ordenados = new TreeSet<>(numerosCuenta);
+        final List<Cuenta> cuentas = ModoConcurrencia.PESIMISTA == this.propiedades.getModo()
+                ? this.cuentaRepository.findAllByIdParaActualizar(ordenados)
+                : this.cuentaRepository.findAllById(ordenados);
+
+        final Map<String, Cuenta> cuentasPorNumero = new HashMap<>();
+        for (Cuenta cuenta : cuentas) {
+            cuentasPorNumero.put(cuenta.getNumeroCuenta(), cuenta);
+        }
+        return cuentasPorNumero;
+    }
+
+    private void esperarAntesDeReintentar(final int intento, final ConcurrencyFailureException causa) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(1L << Math.min(intento, MAX_EXPONENTE_ESPERA)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConflictException("La cuenta esta siendo modificada por otra operacion", causa);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package es.nextdigital.demo.servicios;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import es.nextdigital.demo.configuracion.CacheSaldosProperties;
+import es.nextdigital.demo.configuracion.ConsistenciaSaldos;
+import es.nextdigital.demo.model.Cuenta;
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.model.SaldoCuenta;
+import es.nextdigital.demo.repositorio.CuentaRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+
+/**
+ * Copia en memoria del saldo de las cuentas, con la version con la que se confirmo. Solo se usa en modo
+ * {@link ConsistenciaSaldos#INSTANTANEA}: las operaciones de {@link CuentaServicioImpl} la actualizan al confirmar su
+ * transaccion y las consultas la rellenan al leer; en los dos casos solo se sustituye una copia por otra de version
+ * igual o mayor, asi una lectura lenta no pisa un saldo posterior.
+ */
+@Component
+public class CacheSaldos {
+
+    private final Cache<String, SaldoCuenta> saldos;
+    private final CuentaRepository cuentaRepository;
+    private final ConsistenciaSaldos consistencia;
+
+    public CacheSaldos(final CuentaRepository cuentaRepository, final CacheSaldosProperties propiedades) {
+        this.saldos = Caffeine.newBuilder()
+                .maximumSize(propiedades.getTamanoMaximo())
+                .expireAfterWrite(propiedades.getTtl())
+                .recordStats()
+                .build();
+        this.cuentaRepository = cuentaRepository;
+        this.consistencia = propiedades.getConsistencia();
+    }
+
+    /**
+     * Saldo de la cuenta segun el modo de {@link ConsistenciaSaldos}, o vacio si no existe.
+     */
+    public Optional<Dinero> consultar(final String numeroCuenta) {
+        if (ConsistenciaSaldos.ESTRICTA == this.consistencia) {
+            // La proyeccion no hidrata la cuenta ni la registra en el contexto de persistencia; medida con
+            // ServiciosBenchmark.consultarSaldo no queda por detras de findById
+            return this.cuentaRepository.findSaldoById(numeroCuenta).map(SaldoCuenta::saldo);
+        }
+
+        final SaldoCuenta guardado = this.saldos.getIfPresent(numeroCuenta);
+        if (guardado != null) {
+            return Optional.of(guardado.saldo());
+        }
+
+        final Optional<SaldoCuenta> saldoOptional = this.cuentaRepository.findSaldoById(numeroCuenta);
+        if (saldoOptional.isPresent()) {
+            this.guardar(numeroCuenta, saldoOptional.get());
+            return Optional.of(saldoOptional.get().saldo());
+        } else {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Se llama con la cuenta ya guardada, dentro de la transaccion que la modifica. El saldo se copia al confirmarla,
+     * cuando la cuenta ya tiene su version nueva; si la transaccion se deshace la copia no cambia. En modo estricto no
+     * hace nada.
+     */
+    public void registrar(final Cuenta cuenta) {
+        if (ConsistenciaSaldos.ESTRICTA == this.consistencia) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    CacheSaldos.this.guardar(cuenta.getNumeroCuenta(), new SaldoCuenta(cuenta.getSaldo(), cuenta.getVersion()));
+                }
+            });
+        } else {
+            this.saldos.invalidate(cuenta.getNumeroCuenta());
+        }
+    }
+
+    public CacheStats estadisticas() {
+        return this.saldos.stats();
+    }
+
+    private void guardar(final String numeroCuenta, final SaldoCuenta saldo) {
+        this.saldos.asMap().merge(numeroCuenta, saldo,
+                (actual, nuevo) -> nuevo.version() >= actual.version() ? nuevo : actual);
+    }
+}
@@ -0,0 +1,63 @@
+package es.nextdigital.demo.servicios;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import es.nextdigital.demo.configuracion.CacheTarjetasProperties;
+import es.nextdigital.demo.model.TarjetaAutenticada;
+import es.nextdigital.demo.repositorio.TarjetaRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+
+/**
+ * Autentica tarjetas contra una copia en memoria de su estado, de forma que las operaciones consecutivas de una sesion
+ * de cajero solo consultan la base de datos la primera vez. Las operaciones que modifican una tarjeta la invalidan.
+ */
+@Component
+public class CacheTarjetas {
+
+    // Por numero de tarjeta, incluidas las que no existen (Optional vacio), igual que la cache de bancos
+    private final LoadingCache<String, Optional<TarjetaAutenticada>> cacheTarjetas;
+
+    public CacheTarjetas(final TarjetaRepository tarjetaRepository, final CacheTarjetasProperties propiedades) {
+        this.cacheTarjetas = Caffeine.newBuilder()
+                .maximumSize(propiedades.getTamanoMaximo())
+                .expireAfterWrite(propiedades.getTtl())
+                .recordStats()
+                .build(tarjetaRepository::findAutenticadaByNumero);
+    }
+
+    /**
+     * Devuelve la tarjeta si existe y el pin es el suyo. Un pin erroneo no vuelve a consultar la base de datos.
+     */
+    public Optional<TarjetaAutenticada> autenticar(final String numeroTarjeta, final String pinEncriptado) {
+        final Optional<TarjetaAutenticada> tarjetaOptional = this.cacheTarjetas.get(numeroTarjeta);
+        if (tarjetaOptional.isPresent() && pinEncriptado.equals(tarjetaOptional.get().pinEncriptado())) {
+            return tarjetaOptional;
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Si hay una transaccion en curso se invalida tambien al confirmarla: una lectura concurrente entre la invalidacion
+     * y el commit volveria a cachear el estado anterior.
+     */
+    public void invalidar(final String numeroTarjeta) {
+        this.cacheTarjetas.invalidate(numeroTarjeta);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    CacheTarjetas.this.cacheTarjetas.invalidate(numeroTarjeta);
+                }
+            });
+        }
+    }
+
+    public CacheStats estadisticas() {
+        return this.cacheTarjetas.stats();
+    }
+}
@@ -0,0 +1,77 @@
+package es.nextdigital.demo.servicios;
+
+import es.nextdigital.demo.configuracion.IdempotenciaProperties;
+import es.nextdigital.demo.model.ClaveIdempotencia;
+import es.nextdigital.demo.repositorio.ClaveIdempotenciaRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Segundo nivel de {@link Idempotencia} en base de datos: los resultados sobreviven a un reinicio y los ven las demas
+ * instancias que comparten la base de datos. Un planificador borra periodicamente las claves caducadas.
+ */
+@Component
+@ConditionalOnProperty(prefix = "carlosbank.idempotencia", name = "persistente", havingValue = "true")
+public class ClavesIdempotenciaPersistentes {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ClavesIdempotenciaPersistentes.class);
+
+    private final ClaveIdempotenciaRepository claveIdempotenciaRepository;
+    private final long ttlMillis;
+    private final long intervaloPurgaMillis;
+    private final ScheduledExecutorService planificador;
+
+    public ClavesIdempotenciaPersistentes(final ClaveIdempotenciaRepository claveIdempotenciaRepository,
+                                          final IdempotenciaProperties propiedades) {
+        this.claveIdempotenciaRepository = claveIdempotenciaRepository;
+        this.ttlMillis = propiedades.getTtl().toMillis();
+        this.intervaloPurgaMillis = propiedades.getIntervaloPurga().toMillis();
+        this.planificador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            final Thread hilo = new Thread(tarea, "idempotencia-purga");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        this.planificador.scheduleWithFixedDelay(this::purgarSinFallar, this.intervaloPurgaMillis, this.intervaloPurgaMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void detener() {
+        this.planificador.shutdownNow();
+    }
+
+    public Optional<ClaveIdempotencia> buscar(final String clave) {
+        final Optional<ClaveIdempotencia> claveOptional = this.claveIdempotenciaRepository.findById(clave);
+        // Una clave caducada que todavia no se ha purgado se trata como si no existiera
+        return claveOptional.filter(guardada -> guardada.getFechaCreacion().getTime() >= System.currentTimeMillis() - this.ttlMillis);
+    }
+
+    public void guardar(final ClaveIdempotencia clave) {
+        this.claveIdempotenciaRepository.save(clave);
+    }
+
+    public int purgar() {
+        return this.claveIdempotenciaRepository.borrarAnterioresA(new Date(System.currentTimeMillis() - this.ttlMillis));
+    }
+
+    private void purgarSinFallar() {
+        try {
+            purgar();
+        } catch (RuntimeException e) {
+            LOG.error("Error borrando las claves de idempotencia caducadas; se reintentara", e);
+        }
+    }
+}
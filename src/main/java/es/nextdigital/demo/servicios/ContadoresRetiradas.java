@@ -0,0 +1,152 @@
+package es.nextdigital.demo.servicios;
+
+import es.nextdigital.demo.configuracion.LimitesRetiradaProperties;
+import es.nextdigital.demo.exceptions.BadRequestException;
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.model.RetiradaDiaria;
+import es.nextdigital.demo.model.RetiradasTarjeta;
+import es.nextdigital.demo.repositorio.RetiradaDiariaRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Optional;
+
+/**
+ * Lo retirado con cada tarjeta en el dia y en el mes, para comprobar sus limites sin sumar movimientos: la
+ * comprobacion y la reserva son una operacion sobre los contadores en memoria de la tarjeta, cueste lo que cueste su
+ * historico. Los contadores estan repartidos en segmentos con su propio cerrojo (ver {@link SegmentoRetiradas}) y cada
+ * reserva se suma tambien a la {@link RetiradaDiaria} de su dia, de la que se reconstruyen al arrancar.
+ * <p>
+ * La fila se escribe al reservar, antes de la retirada, y se resta si la retirada no llega a hacerse: si la aplicacion
+ * se para entre medias, lo peor que puede pasar es que cuente de mas una retirada, nunca que se pase del limite.
+ */
+@Component
+public class ContadoresRetiradas {
+
+    private final SegmentoRetiradas[] segmentos;
+    private final RetiradaDiariaRepository retiradaDiariaRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ZoneId zonaHoraria;
+    private final int multiploMensual;
+
+    public ContadoresRetiradas(final LimitesRetiradaProperties propiedades,
+                               final RetiradaDiariaRepository retiradaDiariaRepository,
+                               final EntityManager entityManager,
+                               final PlatformTransactionManager transactionManager) {
+        final int numeroSegmentos = Integer.highestOneBit(Math.max(1, propiedades.getSegmentos()));
+        this.segmentos = new SegmentoRetiradas[numeroSegmentos];
+        for (int i = 0; i < numeroSegmentos; i++) {
+            this.segmentos[i] = new SegmentoRetiradas();
+        }
+        this.retiradaDiariaRepository = retiradaDiariaRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.zonaHoraria = propiedades.getZonaHoraria();
+        this.multiploMensual = Math.max(1, propiedades.getMultiploMensual());
+    }
+
+    /**
+     * Carga lo retirado hoy y en lo que va de mes con cada tarjeta: una fila por tarjeta, sumada en la base de datos.
+     */
+    @PostConstruct
+    public void reconstruir() {
+        final LocalDate hoy = LocalDate.now(this.zonaHoraria);
+        for (RetiradasTarjeta retiradas : this.retiradaDiariaRepository.sumarPorTarjeta(hoy.withDayOfMonth(1), hoy)) {
+            final SegmentoRetiradas segmento = segmento(retiradas.numeroTarjeta());
+            segmento.lock();
+            try {
+                segmento.fijar(retiradas.numeroTarjeta(), hoy.toEpochDay(), retiradas.totalDiaCentimos(), retiradas.totalMesCentimos());
+            } finally {
+                segmento.unlock();
+            }
+        }
+    }
+
+    /**
+     * Reserva {@code cantidad} en los contadores de la tarjeta si cabe en su limite diario y en el mensual. Devuelve el
+     * dia en el que ha contado, que hay que pasar a {@link #liberar} si la retirada no se hace, o vacio si no cabe. Una
+     * cantidad que no sea positiva se rechaza: bajaria lo retirado y dejaria sacar otra vez el limite.
+     */
+    public Optional<LocalDate> reservar(final String numeroTarjeta, final Dinero cantidad, final Dinero limiteDiario) {
+        return this.reservar(numeroTarjeta, cantidad, limiteDiario, LocalDate.now(this.zonaHoraria));
+    }
+
+    Optional<LocalDate> reservar(final String numeroTarjeta, final Dinero cantidad, final Dinero limiteDiario, final LocalDate dia) {
+        if (!cantidad.esMayorQue(Dinero.CERO)) {
+            throw new BadRequestException("La cantidad a retirar debe ser mayor que cero");
+        }
+        final long limiteMensual = Math.multiplyExact(limiteDiario.centimos(), (long) this.multiploMensual);
+        final SegmentoRetiradas segmento = segmento(numeroTarjeta);
+        segmento.lock();
+        try {
+            if (!segmento.reservar(numeroTarjeta, cantidad.centimos(), limiteDiario.centimos(), limiteMensual,
+                    dia.toEpochDay(), dia.withDayOfMonth(1).toEpochDay())) {
+                return Optional.empty();
+            }
+        } finally {
+            segmento.unlock();
+        }
+
+        try {
+            this.persistir(numeroTarjeta, dia, cantidad.centimos());
+        } catch (RuntimeException e) {
+            this.liberarEnMemoria(numeroTarjeta, cantidad, dia);
+            throw e;
+        }
+        return Optional.of(dia);
+    }
+
+    /**
+     * Deshace la reserva de una retirada que no se ha hecho.
+     */
+    public void liberar(final String numeroTarjeta, final Dinero cantidad, final LocalDate dia) {
+        this.liberarEnMemoria(numeroTarjeta, cantidad, dia);
+        this.persistir(numeroTarjeta, dia, -cantidad.centimos());
+    }
+
+    private void liberarEnMemoria(final String numeroTarjeta, final Dinero cantidad, final LocalDate dia) {
+        final SegmentoRetiradas segmento = segmento(numeroTarjeta);
+        segmento.lock();
+        try {
+            segmento.liberar(numeroTarjeta, cantidad.centimos(), dia.toEpochDay(),
+                    dia.withDayOfMonth(1).plusMonths(1).toEpochDay());
+        } finally {
+            segmento.unlock();
+        }
+    }
+
+    private void persistir(final String numeroTarjeta, final LocalDate dia, final long centimos) {
+        try {
+            this.acumular(numeroTarjeta, dia, centimos);
+        } catch (DataIntegrityViolationException e) {
+            // Dos primeras retiradas del dia a la vez: la otra ya ha creado la fila y ahora el update la encuentra
+            this.acumular(numeroTarjeta, dia, centimos);
+        }
+    }
+
+    private void acumular(final String numeroTarjeta, final LocalDate dia, final long centimos) {
+        this.transactionTemplate.executeWithoutResult(status -> {
+            if (this.retiradaDiariaRepository.acumular(numeroTarjeta, dia, centimos) == 0) {
+                final RetiradaDiaria retirada = new RetiradaDiaria();
+                retirada.setNumeroTarjeta(numeroTarjeta);
+                retirada.setDia(dia);
+                retirada.setTotalCentimos(centimos);
+                // Con la clave asignada, save() leeria antes la fila para decidir entre insert y update; el flush por el
+                // repositorio hace que una clave duplicada llegue traducida
+                this.entityManager.persist(retirada);
+                this.retiradaDiariaRepository.flush();
+            }
+        });
+    }
+
+    private SegmentoRetiradas segmento(final String numeroTarjeta) {
+        return this.segmentos[SegmentoRetiradas.dispersar(numeroTarjeta.hashCode()) & (this.segmentos.length - 1)];
+    }
+}
@@ -1,17 +1,34 @@
 package es.nextdigital.demo.servicios;
 
-import es.nextdigital.demo.model.Cuenta;
-import es.nextdigital.demo.model.Movimiento;
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.model.MovimientoDto;
+import es.nextdigital.demo.model.PaginaMovimientos;
+import es.nextdigital.demo.model.ResultadoTransferencia;
+import es.nextdigital.demo.model.SolicitudTransferencia;
 
 import java.util.List;
 
 public interface CuentaServicio {
 
-    List<Movimiento> listarMovimientos(String numeroCuenta);
+    List<MovimientoDto> listarMovimientos(String numeroCuenta);
 
-    boolean sacarDinero(Cuenta cuenta, float cantidad);
+    PaginaMovimientos listarMovimientos(String numeroCuenta, String cursor, int limite);
 
-    void ingresarDinero(Cuenta cuenta, float cantidad);
+    Dinero consultarSaldo(String numeroCuenta);
 
-    void realizarTransferencia(String numeroCuentaOrigen, String ibanDestino, float cantidad);
+    /**
+     * Devuelve {@code false} sin mover dinero si la cuenta no tiene saldo suficiente y no se permite dejarla en
+     * descubierto. El saldo se comprueba con la cuenta ya bloqueada, en la misma operacion que lo descuenta.
+     */
+    boolean sacarDinero(String numeroCuenta, Dinero cantidad, boolean permitirDescubierto);
+
+    void ingresarDinero(String numeroCuenta, Dinero cantidad);
+
+    void realizarTransferencia(String numeroCuentaOrigen, String ibanDestino, Dinero cantidad);
+
+    /**
+     * Realiza un lote de transferencias y devuelve un resultado por cada una, en el mismo orden. Una transferencia
+     * rechazada no impide realizar las demas.
+     */
+    List<ResultadoTransferencia> realizarTransferencias(List<SolicitudTransferencia> transferencias);
 }
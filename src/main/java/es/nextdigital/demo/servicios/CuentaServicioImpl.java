@@ -1,95 +1,290 @@
 package es.nextdigital.demo.servicios;
 
 import es.nextdigital.demo.common.ConstantData;
+import es.nextdigital.demo.configuracion.TransferenciasLoteProperties;
+import es.nextdigital.demo.exceptions.BadRequestException;
+import es.nextdigital.demo.exceptions.ConflictException;
 import es.nextdigital.demo.exceptions.NotFoundException;
 import es.nextdigital.demo.model.Cuenta;
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.model.EstadoTransferencia;
 import es.nextdigital.demo.model.Movimiento;
+import es.nextdigital.demo.model.MovimientoDto;
+import es.nextdigital.demo.model.PaginaMovimientos;
+import es.nextdigital.demo.model.ResultadoTransferencia;
+import es.nextdigital.demo.model.SolicitudTransferencia;
 import es.nextdigital.demo.model.TipoMovimiento;
 import es.nextdigital.demo.repositorio.CuentaRepository;
-import jakarta.transaction.Transactional;
+import es.nextdigital.demo.repositorio.MovimientoRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 public class CuentaServicioImpl implements CuentaServicio {
 
+    private static final int MAX_LIMITE_PAGINA = 500;
+    private static final String SEPARADOR_CURSOR = "_";
+
     private final CuentaRepository cuentaRepository;
+    private final MovimientoRepository movimientoRepository;
+    private final BloqueoCuentas bloqueoCuentas;
+    private final TransferenciasLoteProperties transferenciasLoteProperties;
+    private final RegistroMovimientos registroMovimientos;
+    private final CacheSaldos cacheSaldos;
+
+    @Override
+    public List<MovimientoDto> listarMovimientos(final String numeroCuenta) {
+        final List<MovimientoDto> movimientos = this.movimientoRepository.findMovimientos(numeroCuenta);
+
+        if (movimientos.isEmpty() && !this.cuentaRepository.existsById(numeroCuenta)) {
+            throw new NotFoundException("La cuenta buscada no existe");
+        }
+        return movimientos;
+    }
 
     @Override
-    public List<Movimiento> listarMovimientos(final String numeroCuenta) {
-        final Optional<Cuenta> cuenta = cuentaRepository.findById(numeroCuenta);
+    public PaginaMovimientos listarMovimientos(final String numeroCuenta, final String cursor, final int limite) {
+        final int limitePagina = Math.min(Math.max(limite, 1), MAX_LIMITE_PAGINA);
+        // Se pide un elemento de mas para saber si hay pagina siguiente sin lanzar otra consulta
+        final PageRequest pageRequest = PageRequest.of(0, limitePagina + 1);
 
-        if (cuenta.isPresent()) {
-            return cuenta.get().getMovimientos();
+        final List<MovimientoDto> movimientos;
+        if (cursor == null || cursor.isEmpty()) {
+            movimientos = this.movimientoRepository.findPaginaMovimientos(numeroCuenta, pageRequest);
         } else {
+            final int separador = cursor.indexOf(SEPARADOR_CURSOR);
+            try {
+                final Date fecha = new Date(Long.parseLong(cursor.substring(0, separador)));
+                final Integer movimientoId = Integer.valueOf(cursor.substring(separador + 1));
+                movimientos = this.movimientoRepository.findPaginaMovimientosDesde(numeroCuenta, fecha, movimientoId, pageRequest);
+            } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                throw new BadRequestException("El cursor de paginacion no es valido", e);
+            }
+        }
+
+        // Solo se comprueba la existencia de la cuenta cuando no hay resultados, el caso habitual ahorra la consulta
+        if (movimientos.isEmpty() && !this.cuentaRepository.existsById(numeroCuenta)) {
             throw new NotFoundException("La cuenta buscada no existe");
         }
+
+        if (movimientos.size() > limitePagina) {
+            final List<MovimientoDto> pagina = movimientos.subList(0, limitePagina);
+            final MovimientoDto ultimo = pagina.get(limitePagina - 1);
+            final String siguienteCursor = ultimo.fechaMovimiento().getTime() + SEPARADOR_CURSOR + ultimo.movimientoId();
+            return new PaginaMovimientos(pagina, siguienteCursor);
+        }
+        return new PaginaMovimientos(movimientos, null);
     }
 
-    @Transactional
     @Override
-    public boolean sacarDinero(final Cuenta cuenta, final float cantidad) {
-        cuenta.setSaldo(cuenta.getSaldo() - cantidad);
+    public Dinero consultarSaldo(final String numeroCuenta) {
+        final Optional<Dinero> saldo = this.cacheSaldos.consultar(numeroCuenta);
 
-        final Movimiento movimiento = new Movimiento();
-        movimiento.setFechaMovimiento(new Date());
-        movimiento.setTipoMovimiento(TipoMovimiento.RETIRADA);
-        movimiento.setImporte(cantidad);
-        cuenta.getMovimientos().add(movimiento);
+        if (saldo.isPresent()) {
+            return saldo.get();
+        } else {
+            throw new NotFoundException("La cuenta buscada no existe");
+        }
+    }
+
+    @Override
+    public boolean sacarDinero(final String numeroCuenta, final Dinero cantidad, final boolean permitirDescubierto) {
+        return this.bloqueoCuentas.ejecutar(numeroCuenta, cuentaBloqueada -> {
+            if (!permitirDescubierto && cuentaBloqueada.getSaldo().esMenorQue(cantidad)) {
+                return false;
+            }
 
-        this.cuentaRepository.save(cuenta);
-        return true;
+            cuentaBloqueada.setSaldo(cuentaBloqueada.getSaldo().restar(cantidad));
+
+            this.cuentaRepository.save(cuentaBloqueada);
+            this.cacheSaldos.registrar(cuentaBloqueada);
+            this.registroMovimientos.registrar(nuevoMovimiento(cuentaBloqueada, TipoMovimiento.RETIRADA, cantidad));
+            return true;
+        });
     }
 
     @Override
-    public void ingresarDinero(final Cuenta cuenta, final float cantidad) {
-        cuenta.setSaldo(cuenta.getSaldo() + cantidad);
+    public void ingresarDinero(final String numeroCuenta, final Dinero cantidad) {
+        this.bloqueoCuentas.ejecutar(numeroCuenta, cuentaBloqueada -> {
+            cuentaBloqueada.setSaldo(cuentaBloqueada.getSaldo().sumar(cantidad));
 
-        final Movimiento movimiento = new Movimiento();
-        movimiento.setFechaMovimiento(new Date());
-        movimiento.setTipoMovimiento(TipoMovimiento.INGRESO);
-        movimiento.setImporte(cantidad);
-        cuenta.getMovimientos().add(movimiento);
+            this.cuentaRepository.save(cuentaBloqueada);
+            this.cacheSaldos.registrar(cuentaBloqueada);
+            this.registroMovimientos.registrar(nuevoMovimiento(cuentaBloqueada, TipoMovimiento.INGRESO, cantidad));
+            return null;
+        });
+    }
+
+    /**
+     * Si el destino es una cuenta propia se abona en la misma transaccion que el cargo. Las dos cuentas se leen juntas
+     * y, en modo pesimista, se bloquean en orden de numero de cuenta, asi dos transferencias cruzadas (A a B y B a A)
+     * no pueden quedarse esperando la una a la otra.
+     */
+    @Override
+    public void realizarTransferencia(final String numeroCuentaOrigen, String ibanDestino, final Dinero cantidad) {
+        comprobarCantidadTransferencia(cantidad);
+        this.bloqueoCuentas.ejecutarVarias(List.of(numeroCuentaOrigen, ibanDestino), cuentas -> {
+            final Cuenta cuentaOrigen = cuentas.get(numeroCuentaOrigen);
+            if (cuentaOrigen == null) {
+                throw new NotFoundException("La cuenta origen no existe");
+            }
 
-        this.cuentaRepository.save(cuenta);
+            final Cuenta cuentaDestino = cuentas.get(ibanDestino);
+            final Dinero cantidadTransferencia = calcularImporteTransferencia(ibanDestino, cantidad, cuentaDestino != null);
+            if (!cuentaOrigen.getSaldo().esMenorQue(cantidadTransferencia)) {
+                final List<Movimiento> movimientos = new ArrayList<>(2);
+                cuentaOrigen.setSaldo(cuentaOrigen.getSaldo().restar(cantidadTransferencia));
+                movimientos.add(nuevoMovimiento(cuentaOrigen, TipoMovimiento.TRANSFERENCIA_SALIENTE, cantidadTransferencia));
+                this.cuentaRepository.save(cuentaOrigen);
+                this.cacheSaldos.registrar(cuentaOrigen);
+                if (cuentaDestino != null) {
+                    cuentaDestino.setSaldo(cuentaDestino.getSaldo().sumar(cantidad));
+                    movimientos.add(nuevoMovimiento(cuentaDestino, TipoMovimiento.TRANSFERENCIA_ENTRANTE, cantidad));
+                    this.cuentaRepository.save(cuentaDestino);
+                    this.cacheSaldos.registrar(cuentaDestino);
+                }
+                this.registroMovimientos.registrar(movimientos);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Una cantidad negativa se abonaria en el origen y se cargaria en el destino sin comprobar su saldo: se rechaza
+     * igual que en las transferencias en lote ({@link SolicitudTransferencia#esValida()}).
+     */
+    static void comprobarCantidadTransferencia(final Dinero cantidad) {
+        if (cantidad == null || !cantidad.esMayorQue(Dinero.CERO)) {
+            throw new BadRequestException("La cantidad a transferir debe ser mayor que cero");
+        }
     }
 
-    @Transactional
     @Override
-    public void realizarTransferencia(final String numeroCuentaOrigen, String ibanDestino, final float cantidad) {
-        final Optional<Cuenta> cuentaOrigenOptional = cuentaRepository.findById(numeroCuentaOrigen);
-        if (!cuentaOrigenOptional.isPresent()) {
-            throw new NotFoundException("La cuenta origen no existe");
+    public List<ResultadoTransferencia> realizarTransferencias(final List<SolicitudTransferencia> transferencias) {
+        final int tamanoBloque = Math.max(1, this.transferenciasLoteProperties.getTamanoBloque());
+        final List<ResultadoTransferencia> resultados = new ArrayList<>(transferencias.size());
+        for (int inicio = 0; inicio < transferencias.size(); inicio += tamanoBloque) {
+            final List<SolicitudTransferencia> bloque = transferencias.subList(inicio, Math.min(inicio + tamanoBloque, transferencias.size()));
+            try {
+                resultados.addAll(realizarBloqueTransferencias(bloque));
+            } catch (ConflictException e) {
+                // Solo se pierde el bloque que no ha podido confirmarse; los anteriores ya estan guardados
+                for (SolicitudTransferencia solicitud : bloque) {
+                    resultados.add(ResultadoTransferencia.rechazada(solicitud, EstadoTransferencia.CONFLICTO));
+                }
+            }
         }
+        return resultados;
+    }
 
-        final Cuenta cuentaOrigen = cuentaOrigenOptional.get();
-        final Optional<Cuenta> cuentaDestinoOptional = cuentaRepository.findById(ibanDestino);
-        float comisionFactor = 1f; // No tener comision es multiplicar por factor 1
-        if (!cuentaDestinoOptional.isPresent()) {
-            if (esIBANValido(ibanDestino)) {
-                // Asumo que la comision de transferencia es la misma para cualquier banco. Si no, deberia consultar
-                // con un servicio externo a que banco pertenece el IBAN.
-                comisionFactor = ConstantData.COMISION_TRANSFERENCIA;
+    /**
+     * Procesa un bloque en una sola transaccion: una consulta lee (o bloquea, en orden) las cuentas origen y las de
+     * destino que son propias, que reciben su abono en la misma transaccion, y los movimientos nuevos van en
+     * inserciones por lotes de JDBC.
+     */
+    private List<ResultadoTransferencia> realizarBloqueTransferencias(final List<SolicitudTransferencia> bloque) {
+        final Map<String, List<Integer>> posicionesPorOrigen = new LinkedHashMap<>();
+        final Set<String> destinos = new HashSet<>();
+        for (int i = 0; i < bloque.size(); i++) {
+            final SolicitudTransferencia solicitud = bloque.get(i);
+            if (solicitud.esValida()) {
+                posicionesPorOrigen.computeIfAbsent(solicitud.cuentaOrigen(), origen -> new ArrayList<>()).add(i);
+                destinos.add(solicitud.ibanDestino());
             }
         }
 
-        final float cantidadTransferencia = cantidad * comisionFactor;
-        if (cuentaOrigen.getSaldo() >= cantidadTransferencia) {
-            cuentaOrigen.setSaldo(cuentaOrigen.getSaldo() - cantidadTransferencia);
+        if (posicionesPorOrigen.isEmpty()) {
+            return bloque.stream()
+                    .map(solicitud -> ResultadoTransferencia.rechazada(solicitud, EstadoTransferencia.DATOS_NO_VALIDOS))
+                    .toList();
+        }
+
+        final Set<String> cuentasBloque = new HashSet<>(destinos);
+        cuentasBloque.addAll(posicionesPorOrigen.keySet());
+        return this.bloqueoCuentas.ejecutarVarias(cuentasBloque, cuentas -> {
+            final ResultadoTransferencia[] resultados = new ResultadoTransferencia[bloque.size()];
+            final List<Movimiento> movimientos = new ArrayList<>();
+            final Map<String, Cuenta> cuentasModificadas = new LinkedHashMap<>();
+
+            for (Map.Entry<String, List<Integer>> origen : posicionesPorOrigen.entrySet()) {
+                final Cuenta cuentaOrigen = cuentas.get(origen.getKey());
+                for (Integer posicion : origen.getValue()) {
+                    final SolicitudTransferencia solicitud = bloque.get(posicion);
+                    if (cuentaOrigen == null) {
+                        resultados[posicion] = ResultadoTransferencia.rechazada(solicitud, EstadoTransferencia.CUENTA_ORIGEN_NO_EXISTE);
+                        continue;
+                    }
+
+                    final Cuenta cuentaDestino = cuentas.get(solicitud.ibanDestino());
+                    final Dinero importe = calcularImporteTransferencia(solicitud.ibanDestino(), solicitud.cantidad(),
+                            cuentaDestino != null);
+                    if (!cuentaOrigen.getSaldo().esMenorQue(importe)) {
+                        cuentaOrigen.setSaldo(cuentaOrigen.getSaldo().restar(importe));
+                        movimientos.add(nuevoMovimiento(cuentaOrigen, TipoMovimiento.TRANSFERENCIA_SALIENTE, importe));
+                        cuentasModificadas.put(cuentaOrigen.getNumeroCuenta(), cuentaOrigen);
+                        if (cuentaDestino != null) {
+                            cuentaDestino.setSaldo(cuentaDestino.getSaldo().sumar(solicitud.cantidad()));
+                            movimientos.add(nuevoMovimiento(cuentaDestino, TipoMovimiento.TRANSFERENCIA_ENTRANTE, solicitud.cantidad()));
+                            cuentasModificadas.put(cuentaDestino.getNumeroCuenta(), cuentaDestino);
+                        }
+                        resultados[posicion] = ResultadoTransferencia.realizada(solicitud, importe);
+                    } else {
+                        resultados[posicion] = ResultadoTransferencia.rechazada(solicitud, EstadoTransferencia.SALDO_INSUFICIENTE);
+                    }
+                }
+            }
+
+            for (int i = 0; i < resultados.length; i++) {
+                if (resultados[i] == null) {
+                    resultados[i] = ResultadoTransferencia.rechazada(bloque.get(i), EstadoTransferencia.DATOS_NO_VALIDOS);
+                }
+            }
+
+            this.cuentaRepository.saveAll(cuentasModificadas.values());
+            cuentasModificadas.values().forEach(this.cacheSaldos::registrar);
+            this.registroMovimientos.registrar(movimientos);
+            return Arrays.asList(resultados);
+        });
+    }
+
+    private static Movimiento nuevoMovimiento(final Cuenta cuenta, final TipoMovimiento tipoMovimiento, final Dinero importe) {
+        final Movimiento movimiento = new Movimiento();
+        movimiento.setFechaMovimiento(new Date());
+        movimiento.setTipoMovimiento(tipoMovimiento);
+        movimiento.setImporte(importe);
+        movimiento.setCuenta(cuenta);
+        return movimiento;
+    }
 
-            final Movimiento movimiento = new Movimiento();
-            movimiento.setFechaMovimiento(new Date());
-            movimiento.setTipoMovimiento(TipoMovimiento.TRANSFERENCIA_SALIENTE);
-            movimiento.setImporte(cantidadTransferencia);
-            cuentaOrigen.getMovimientos().add(movimiento);
+    Set<String> buscarCuentasExistentes(final Set<String> numerosCuenta) {
+        if (numerosCuenta.isEmpty()) {
+            return numerosCuenta;
+        }
+        return new HashSet<>(this.cuentaRepository.findNumerosCuentaExistentes(numerosCuenta));
+    }
 
-            this.cuentaRepository.save(cuentaOrigen);
+    Dinero calcularImporteTransferencia(final String ibanDestino, final Dinero cantidad, final boolean destinoExiste) {
+        long comisionPorMil = 1_000L; // No tener comision es multiplicar por factor 1
+        if (!destinoExiste) {
+            if (esIBANValido(ibanDestino)) {
+                // Asumo que la comision de transferencia es la misma para cualquier banco. Si no, deberia consultar
+                // con un servicio externo a que banco pertenece el IBAN.
+                comisionPorMil = ConstantData.COMISION_TRANSFERENCIA_POR_MIL;
+            }
         }
+        return cantidad.multiplicar(comisionPorMil, 1_000L);
     }
 
     private boolean esIBANValido(final String iban) {
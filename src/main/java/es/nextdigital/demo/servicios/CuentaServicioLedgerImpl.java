@@ -0,0 +1,127 @@
+package es.nextdigital.demo.servicios;
+
+import es.nextdigital.demo.exceptions.NotFoundException;
+import es.nextdigital.demo.ledger.LibroSaldos;
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.model.EstadoTransferencia;
+import es.nextdigital.demo.model.MovimientoDto;
+import es.nextdigital.demo.model.PaginaMovimientos;
+import es.nextdigital.demo.model.ResultadoTransferencia;
+import es.nextdigital.demo.model.SolicitudTransferencia;
+import es.nextdigital.demo.model.TipoMovimiento;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Variante de {@link CuentaServicio} que mueve dinero sobre el {@link LibroSaldos} en memoria en lugar de guardar la
+ * cuenta en cada operacion. Las consultas de movimientos se delegan en {@link CuentaServicioImpl} y reflejan lo ya
+ * persistido, que va como mucho un intervalo de volcado por detras.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(prefix = "carlosbank.ledger", name = "habilitado", havingValue = "true")
+@RequiredArgsConstructor
+public class CuentaServicioLedgerImpl implements CuentaServicio {
+
+    private final CuentaServicioImpl cuentaServicioImpl;
+    private final LibroSaldos libroSaldos;
+
+    @Override
+    public List<MovimientoDto> listarMovimientos(final String numeroCuenta) {
+        return this.cuentaServicioImpl.listarMovimientos(numeroCuenta);
+    }
+
+    @Override
+    public PaginaMovimientos listarMovimientos(final String numeroCuenta, final String cursor, final int limite) {
+        return this.cuentaServicioImpl.listarMovimientos(numeroCuenta, cursor, limite);
+    }
+
+    @Override
+    public Dinero consultarSaldo(final String numeroCuenta) {
+        return Dinero.deCentimos(this.libroSaldos.saldo(numeroCuenta));
+    }
+
+    @Override
+    public boolean sacarDinero(final String numeroCuenta, final Dinero cantidad, final boolean permitirDescubierto) {
+        return this.libroSaldos.aplicar(numeroCuenta, TipoMovimiento.RETIRADA,
+                cantidad.centimos(), permitirDescubierto ? LibroSaldos.SIN_LIMITE : 0L);
+    }
+
+    @Override
+    public void ingresarDinero(final String numeroCuenta, final Dinero cantidad) {
+        this.libroSaldos.aplicar(numeroCuenta, TipoMovimiento.INGRESO,
+                cantidad.centimos(), LibroSaldos.SIN_LIMITE);
+    }
+
+    @Override
+    public void realizarTransferencia(final String numeroCuentaOrigen, final String ibanDestino, final Dinero cantidad) {
+        CuentaServicioImpl.comprobarCantidadTransferencia(cantidad);
+        try {
+            this.libroSaldos.saldo(numeroCuentaOrigen);
+        } catch (NotFoundException e) {
+            throw new NotFoundException("La cuenta origen no existe", e);
+        }
+
+        final boolean destinoExiste = this.cuentaServicioImpl.buscarCuentasExistentes(Set.of(ibanDestino)).contains(ibanDestino);
+        // Sin saldo suficiente la transferencia no se hace, igual que en CuentaServicioImpl
+        aplicarTransferencia(numeroCuentaOrigen, ibanDestino, cantidad, destinoExiste);
+    }
+
+    /**
+     * Cada transferencia se aplica por separado sobre el libro, que ya agrupa las escrituras en base de datos; de la
+     * base de datos solo se consulta, una vez por lote, que destinos son cuentas propias.
+     */
+    @Override
+    public List<ResultadoTransferencia> realizarTransferencias(final List<SolicitudTransferencia> transferencias) {
+        final Set<String> destinos = new HashSet<>();
+        for (SolicitudTransferencia solicitud : transferencias) {
+            if (solicitud.esValida()) {
+                destinos.add(solicitud.ibanDestino());
+            }
+        }
+        final Set<String> destinosExistentes = this.cuentaServicioImpl.buscarCuentasExistentes(destinos);
+
+        final List<ResultadoTransferencia> resultados = new ArrayList<>(transferencias.size());
+        for (SolicitudTransferencia solicitud : transferencias) {
+            resultados.add(realizarTransferencia(solicitud, destinosExistentes));
+        }
+        return resultados;
+    }
+
+    private ResultadoTransferencia realizarTransferencia(final SolicitudTransferencia solicitud, final Set<String> destinosExistentes) {
+        if (!solicitud.esValida()) {
+            return ResultadoTransferencia.rechazada(solicitud, EstadoTransferencia.DATOS_NO_VALIDOS);
+        }
+
+        try {
+            final Dinero importe = aplicarTransferencia(solicitud.cuentaOrigen(), solicitud.ibanDestino(), solicitud.cantidad(),
+                    destinosExistentes.contains(solicitud.ibanDestino()));
+            if (importe != null) {
+                return ResultadoTransferencia.realizada(solicitud, importe);
+            }
+            return ResultadoTransferencia.rechazada(solicitud, EstadoTransferencia.SALDO_INSUFICIENTE);
+        } catch (NotFoundException e) {
+            return ResultadoTransferencia.rechazada(solicitud, EstadoTransferencia.CUENTA_ORIGEN_NO_EXISTE);
+        }
+    }
+
+    /**
+     * Devuelve el importe cargado, o {@code null} si el origen no tiene saldo. A una cuenta propia se le abona la
+     * cantidad en la misma operacion sobre el libro.
+     */
+    private Dinero aplicarTransferencia(final String numeroCuentaOrigen, final String ibanDestino, final Dinero cantidad,
+                                        final boolean destinoExiste) {
+        final Dinero importe = this.cuentaServicioImpl.calcularImporteTransferencia(ibanDestino, cantidad, destinoExiste);
+        final boolean aplicada = destinoExiste
+                ? this.libroSaldos.transferir(numeroCuentaOrigen, ibanDestino, importe.centimos(), cantidad.centimos())
+                : this.libroSaldos.aplicar(numeroCuentaOrigen, TipoMovimiento.TRANSFERENCIA_SALIENTE, importe.centimos(), 0L);
+        return aplicada ? importe : null;
+    }
+}
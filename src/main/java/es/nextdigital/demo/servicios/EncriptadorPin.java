@@ -0,0 +1,96 @@
+package es.nextdigital.demo.servicios;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Calcula el hash SHA-256 (en hexadecimal) de un pin. Se ejecuta en cada operacion autenticada con tarjeta, asi que
+ * evita crear un {@link MessageDigest} y buffers intermedios en cada llamada. Como los pines validos son solo 10.000,
+ * opcionalmente se precalculan todos al arrancar y el hash pasa a ser una lectura de array.
+ */
+@Component
+public class EncriptadorPin {
+
+    private static final int NUMERO_PINES = 10_000;
+    private static final byte[] DIGITOS_HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private static final ThreadLocal<EstadoHash> ESTADO = ThreadLocal.withInitial(EstadoHash::new);
+
+    private final String[] tablaPrecalculada;
+
+    public EncriptadorPin(@Value("${carlosbank.pin.tabla-precalculada:true}") final boolean usarTablaPrecalculada) {
+        if (usarTablaPrecalculada) {
+            this.tablaPrecalculada = new String[NUMERO_PINES];
+            for (int pin = 0; pin < NUMERO_PINES; pin++) {
+                this.tablaPrecalculada[pin] = calcularHash(pin);
+            }
+        } else {
+            this.tablaPrecalculada = null;
+        }
+    }
+
+    public String encriptar(final int pin) {
+        // Por ser un "examen" para encriptar simplemente hasheamos el pin. Obviamente no es la encriptacion ideal.
+        // Habria que utilizar algun tipo de clave privada y algun algoritmo complejo de encriptacion.
+        if (this.tablaPrecalculada != null && pin >= 0 && pin < NUMERO_PINES) {
+            return this.tablaPrecalculada[pin];
+        }
+        return calcularHash(pin);
+    }
+
+    static String calcularHash(final int pin) {
+        final EstadoHash estado = ESTADO.get();
+
+        // Digitos decimales del pin, equivalente a Integer.toString(pin).getBytes() sin crear el String intermedio
+        final byte[] entrada = estado.entrada;
+        long valor = pin;
+        final boolean negativo = valor < 0;
+        if (negativo) {
+            valor = -valor;
+        }
+        int inicio = entrada.length;
+        do {
+            entrada[--inicio] = (byte) ('0' + (valor % 10));
+            valor /= 10;
+        } while (valor != 0);
+        if (negativo) {
+            entrada[--inicio] = '-';
+        }
+
+        final byte[] hash = estado.hash;
+        estado.digest.update(entrada, inicio, entrada.length - inicio);
+        try {
+            estado.digest.digest(hash, 0, hash.length);
+        } catch (DigestException e) {
+            throw new RuntimeException("Error al generar hash SHA-256", e);
+        }
+
+        final byte[] hex = estado.hex;
+        for (int i = 0; i < hash.length; i++) {
+            hex[2 * i] = DIGITOS_HEX[(hash[i] >> 4) & 0x0f];
+            hex[2 * i + 1] = DIGITOS_HEX[hash[i] & 0x0f];
+        }
+        return new String(hex, StandardCharsets.ISO_8859_1);
+    }
+
+    private static final class EstadoHash {
+
+        private final MessageDigest digest;
+        private final byte[] entrada = new byte[11];
+        private final byte[] hash = new byte[32];
+        private final byte[] hex = new byte[64];
+
+        private EstadoHash() {
+            try {
+                this.digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException("Error al generar hash SHA-256", e);
+            }
+        }
+    }
+}
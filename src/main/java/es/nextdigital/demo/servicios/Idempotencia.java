@@ -0,0 +1,188 @@
+package es.nextdigital.demo.servicios;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import es.nextdigital.demo.configuracion.IdempotenciaProperties;
+import es.nextdigital.demo.exceptions.BadRequestException;
+import es.nextdigital.demo.exceptions.ForbiddenOperationException;
+import es.nextdigital.demo.exceptions.NotFoundException;
+import es.nextdigital.demo.model.ClaveIdempotencia;
+import es.nextdigital.demo.model.Dinero;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Evita que una peticion repetida con la misma cabecera {@value #CABECERA} (los cajeros reintentan al agotar su
+ * espera) se ejecute dos veces: la primera guarda su resultado, incluido un rechazo de negocio, y las repeticiones lo
+ * reciben sin tocar la cuenta. Las peticiones en curso se reparten entre cerrojos por clave, asi que dos peticiones
+ * con la misma clave se esperan entre si sin serializar al resto. Los errores no previstos (conflictos, caidas de la
+ * base de datos) no se guardan y la repeticion vuelve a intentarlo.
+ */
+@Component
+public class Idempotencia {
+
+    public static final String CABECERA = "Idempotency-Key";
+
+    private final Cache<String, Resultado> resultados;
+    private final ReentrantLock[] cerrojos;
+    private final ClavesIdempotenciaPersistentes persistentes;
+
+    public Idempotencia(final IdempotenciaProperties propiedades,
+                        final ObjectProvider<ClavesIdempotenciaPersistentes> persistentes) {
+        this.resultados = Caffeine.newBuilder()
+                .expireAfterWrite(propiedades.getTtl())
+                .maximumSize(propiedades.getTamanoMaximo())
+                .build();
+        this.cerrojos = new ReentrantLock[Integer.highestOneBit(Math.max(1, propiedades.getCerrojos()))];
+        for (int i = 0; i < this.cerrojos.length; i++) {
+            this.cerrojos[i] = new ReentrantLock();
+        }
+        this.persistentes = persistentes.getIfAvailable();
+    }
+
+    /**
+     * Ejecuta la accion una sola vez por clave y operacion. Sin clave se ejecuta siempre. Reutilizar una clave con otros
+     * parametros se rechaza con {@link BadRequestException}. Los parametros no pueden incluir secretos cortos como el
+     * pin: su huella se guarda en base de datos y se invertiria probando todos los valores posibles.
+     */
+    public Dinero ejecutar(final String clave, final String operacion, final List<?> parametros, final Supplier<Dinero> accion) {
+        if (clave == null || clave.isBlank()) {
+            return accion.get();
+        }
+
+        final String claveOperacion = operacion + ":" + clave;
+        final String huella = huella(operacion, parametros);
+
+        Resultado resultado = this.resultados.getIfPresent(claveOperacion);
+        if (resultado == null) {
+            final ReentrantLock cerrojo = this.cerrojo(claveOperacion);
+            cerrojo.lock();
+            try {
+                resultado = this.resultados.getIfPresent(claveOperacion);
+                if (resultado == null) {
+                    resultado = this.buscarPersistido(claveOperacion);
+                }
+                if (resultado == null) {
+                    return this.ejecutarYGuardar(claveOperacion, huella, accion);
+                }
+            } finally {
+                cerrojo.unlock();
+            }
+        }
+        return resultado.reproducir(huella);
+    }
+
+    public void ejecutar(final String clave, final String operacion, final List<?> parametros, final Runnable accion) {
+        this.ejecutar(clave, operacion, parametros, () -> {
+            accion.run();
+            return null;
+        });
+    }
+
+    void vaciarMemoria() {
+        this.resultados.invalidateAll();
+    }
+
+    private Dinero ejecutarYGuardar(final String claveOperacion, final String huella, final Supplier<Dinero> accion) {
+        final Dinero valor;
+        try {
+            valor = accion.get();
+        } catch (ForbiddenOperationException e) {
+            this.guardar(claveOperacion, new Resultado(huella, null, TipoError.PROHIBIDA, e.getMessage()));
+            throw e;
+        } catch (NotFoundException e) {
+            this.guardar(claveOperacion, new Resultado(huella, null, TipoError.NO_ENCONTRADA, e.getMessage()));
+            throw e;
+        } catch (BadRequestException e) {
+            this.guardar(claveOperacion, new Resultado(huella, null, TipoError.PETICION_INCORRECTA, e.getMessage()));
+            throw e;
+        }
+        this.guardar(claveOperacion, new Resultado(huella, valor, null, null));
+        return valor;
+    }
+
+    private void guardar(final String claveOperacion, final Resultado resultado) {
+        this.resultados.put(claveOperacion, resultado);
+        if (this.persistentes != null) {
+            final ClaveIdempotencia clave = new ClaveIdempotencia();
+            clave.setClave(claveOperacion);
+            clave.setHuella(resultado.huella());
+            clave.setValor(resultado.valor());
+            clave.setError(resultado.error() == null ? null : resultado.error().name());
+            clave.setMensaje(resultado.mensaje());
+            clave.setFechaCreacion(new Date());
+            this.persistentes.guardar(clave);
+        }
+    }
+
+    private Resultado buscarPersistido(final String claveOperacion) {
+        if (this.persistentes == null) {
+            return null;
+        }
+
+        final Optional<ClaveIdempotencia> claveOptional = this.persistentes.buscar(claveOperacion);
+        if (claveOptional.isPresent()) {
+            final ClaveIdempotencia clave = claveOptional.get();
+            final Resultado resultado = new Resultado(clave.getHuella(), clave.getValor(),
+                    clave.getError() == null ? null : TipoError.valueOf(clave.getError()), clave.getMensaje());
+            this.resultados.put(claveOperacion, resultado);
+            return resultado;
+        } else {
+            return null;
+        }
+    }
+
+    private ReentrantLock cerrojo(final String claveOperacion) {
+        final int h = claveOperacion.hashCode() * 0x9E3779B9;
+        return this.cerrojos[(h ^ (h >>> 16)) & (this.cerrojos.length - 1)];
+    }
+
+    /**
+     * Hash de la operacion y sus parametros: identifica la peticion sin guardar sus valores en claro.
+     */
+    private static String huella(final String operacion, final List<?> parametros) {
+        final StringBuilder texto = new StringBuilder(operacion);
+        for (Object parametro : parametros) {
+            texto.append('\n').append(parametro);
+        }
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(texto.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    private enum TipoError {
+        PROHIBIDA,
+        NO_ENCONTRADA,
+        PETICION_INCORRECTA
+    }
+
+    private record Resultado(String huella, Dinero valor, TipoError error, String mensaje) {
+
+        Dinero reproducir(final String huellaPeticion) {
+            if (!this.huella.equals(huellaPeticion)) {
+                throw new BadRequestException("La clave de idempotencia ya se ha usado con otra peticion");
+            }
+            if (this.error == null) {
+                return this.valor;
+            }
+            throw switch (this.error) {
+                case PROHIBIDA -> new ForbiddenOperationException(this.mensaje);
+                case NO_ENCONTRADA -> new NotFoundException(this.mensaje);
+                case PETICION_INCORRECTA -> new BadRequestException(this.mensaje);
+            };
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package es.nextdigital.demo.servicios;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Mide las operaciones de la API y los pasos internos de cada una con observaciones de Micrometer. Cada observacion
+ * genera un timer (con histograma de percentiles segun la configuracion de {@code management.metrics}) y, si hay
+ * tracing, un span; los pasos quedan anidados dentro de la operacion que los ejecuta.
+ */
+@Component
+@RequiredArgsConstructor
+public class MetricasOperaciones {
+
+    public static final String OPERACIONES = "carlosbank.operaciones";
+    public static final String PASOS = "carlosbank.operaciones.pasos";
+    public static final String RESULTADO_EXITO = "exito";
+
+    private final ObservationRegistry registro;
+
+    /**
+     * Ejecuta una operacion etiquetando la medida con su resultado: {@value #RESULTADO_EXITO} o el nombre de la
+     * excepcion que la ha interrumpido (por ejemplo {@code NotFoundException} o {@code ForbiddenOperationException}).
+     */
+    public <T> T operacion(final String nombre, final Supplier<T> accion) {
+        final Observation observacion = Observation.createNotStarted(OPERACIONES, this.registro)
+                .lowCardinalityKeyValue("operacion", nombre)
+                .start();
+        String resultado = RESULTADO_EXITO;
+        try (Observation.Scope ignored = observacion.openScope()) {
+            return accion.get();
+        } catch (RuntimeException e) {
+            resultado = e.getClass().getSimpleName();
+            observacion.error(e);
+            throw e;
+        } finally {
+            observacion.lowCardinalityKeyValue("resultado", resultado);
+            observacion.stop();
+        }
+    }
+
+    public void operacion(final String nombre, final Runnable accion) {
+        operacion(nombre, () -> {
+            accion.run();
+            return null;
+        });
+    }
+
+    /**
+     * Mide un paso interno (hash del pin, consultas a repositorio...) dentro de la operacion en curso.
+     */
+    public <T> T paso(final String nombre, final Supplier<T> accion) {
+        return Observation.createNotStarted(PASOS, this.registro)
+                .lowCardinalityKeyValue("paso", nombre)
+                .observe(accion);
+    }
+
+    public void paso(final String nombre, final Runnable accion) {
+        Observation.createNotStarted(PASOS, this.registro)
+                .lowCardinalityKeyValue("paso", nombre)
+                .observe(accion);
+    }
+}
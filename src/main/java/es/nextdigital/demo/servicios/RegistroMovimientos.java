@@ -0,0 +1,62 @@
+package es.nextdigital.demo.servicios;
+
+import es.nextdigital.demo.ledger.DiarioMovimientos;
+import es.nextdigital.demo.model.Movimiento;
+import es.nextdigital.demo.repositorio.CuentaRepository;
+import es.nextdigital.demo.repositorio.MovimientoRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Guarda los movimientos de las operaciones de {@link CuentaServicioImpl}. Por defecto los inserta, con sus resumenes,
+ * en la misma transaccion que la cuenta; con el {@link DiarioMovimientos} activo la transaccion solo actualiza la
+ * cuenta y los movimientos se insertan despues, por lotes, asi que los listados van un volcado por detras del saldo.
+ */
+@Component
+public class RegistroMovimientos {
+
+    private final MovimientoRepository movimientoRepository;
+    private final CuentaRepository cuentaRepository;
+    private final ResumenesCuenta resumenesCuenta;
+    private final DiarioMovimientos diario;
+
+    public RegistroMovimientos(final MovimientoRepository movimientoRepository,
+                               final CuentaRepository cuentaRepository,
+                               final ResumenesCuenta resumenesCuenta,
+                               final ObjectProvider<DiarioMovimientos> diario) {
+        this.movimientoRepository = movimientoRepository;
+        this.cuentaRepository = cuentaRepository;
+        this.resumenesCuenta = resumenesCuenta;
+        this.diario = diario.getIfAvailable();
+    }
+
+    /**
+     * Tiene que llamarse dentro de la transaccion de la operacion y despues de guardar las cuentas afectadas.
+     */
+    public void registrar(final Movimiento movimiento) {
+        if (this.diario == null) {
+            this.movimientoRepository.save(movimiento);
+            this.resumenesCuenta.registrar(movimiento);
+        } else {
+            registrarEnDiario(List.of(movimiento));
+        }
+    }
+
+    public void registrar(final List<Movimiento> movimientos) {
+        if (this.diario == null) {
+            this.movimientoRepository.saveAll(movimientos);
+            this.resumenesCuenta.registrar(movimientos);
+        } else if (!movimientos.isEmpty()) {
+            registrarEnDiario(movimientos);
+        }
+    }
+
+    private void registrarEnDiario(final List<Movimiento> movimientos) {
+        // El update de las cuentas se lanza ya: un conflicto de version falla aqui, donde se reintenta, y el diario
+        // guarda la version con la que queda cada cuenta
+        this.cuentaRepository.flush();
+        this.diario.registrar(movimientos);
+    }
+}
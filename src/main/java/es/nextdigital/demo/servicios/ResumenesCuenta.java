@@ -0,0 +1,95 @@
+package es.nextdigital.demo.servicios;
+
+import es.nextdigital.demo.configuracion.ResumenesCuentaProperties;
+import es.nextdigital.demo.exceptions.BadRequestException;
+import es.nextdigital.demo.exceptions.NotFoundException;
+import es.nextdigital.demo.model.Movimiento;
+import es.nextdigital.demo.model.ResumenDiario;
+import es.nextdigital.demo.model.ResumenMovimientos;
+import es.nextdigital.demo.model.TotalMovimientos;
+import es.nextdigital.demo.repositorio.CuentaRepository;
+import es.nextdigital.demo.repositorio.ResumenDiarioRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mantiene los {@link ResumenDiario} de cada cuenta a medida que se registran movimientos y responde los totales de un
+ * periodo a partir de ellos, con un coste que depende de los dias del periodo y no de los movimientos.
+ */
+@Component
+@RequiredArgsConstructor
+public class ResumenesCuenta {
+
+    private final ResumenDiarioRepository resumenDiarioRepository;
+    private final CuentaRepository cuentaRepository;
+    private final EntityManager entityManager;
+    private final ResumenesCuentaProperties propiedades;
+
+    /**
+     * Acumula los movimientos en los resumenes de su dia. Tiene que llamarse dentro de la transaccion que guarda los
+     * movimientos y despues de modificar las cuentas afectadas.
+     */
+    public void registrar(final List<Movimiento> movimientos) {
+        if (movimientos.isEmpty()) {
+            return;
+        }
+
+        // Primero se escriben las cuentas: su update ordena las operaciones concurrentes sobre una misma cuenta (espera
+        // al bloqueo de la fila o falla por version) antes de tocar sus resumenes, asi dos transacciones no pueden crear
+        // a la vez la fila del dia. Se vacia por el repositorio para que un fallo de version llegue traducido y se reintente
+        this.cuentaRepository.flush();
+
+        final Map<ResumenDiario.Clave, long[]> acumulados = new LinkedHashMap<>();
+        for (Movimiento movimiento : movimientos) {
+            final ResumenDiario.Clave clave = new ResumenDiario.Clave(movimiento.getCuenta().getNumeroCuenta(),
+                    this.dia(movimiento), movimiento.getTipoMovimiento());
+            final long[] acumulado = acumulados.computeIfAbsent(clave, c -> new long[2]);
+            acumulado[0]++;
+            acumulado[1] += movimiento.getImporte().centimos();
+        }
+
+        for (Map.Entry<ResumenDiario.Clave, long[]> acumulado : acumulados.entrySet()) {
+            final ResumenDiario.Clave clave = acumulado.getKey();
+            final long numeroMovimientos = acumulado.getValue()[0];
+            final long totalCentimos = acumulado.getValue()[1];
+            if (this.resumenDiarioRepository.acumular(clave.getNumeroCuenta(), clave.getDia(), clave.getTipoMovimiento(),
+                    numeroMovimientos, totalCentimos) == 0) {
+                final ResumenDiario resumen = new ResumenDiario();
+                resumen.setNumeroCuenta(clave.getNumeroCuenta());
+                resumen.setDia(clave.getDia());
+                resumen.setTipoMovimiento(clave.getTipoMovimiento());
+                resumen.setNumeroMovimientos(numeroMovimientos);
+                resumen.setTotalCentimos(totalCentimos);
+                // Con la clave asignada, save() leeria antes la fila para decidir entre insert y update
+                this.entityManager.persist(resumen);
+            }
+        }
+    }
+
+    public void registrar(final Movimiento movimiento) {
+        this.registrar(List.of(movimiento));
+    }
+
+    public ResumenMovimientos consultar(final String numeroCuenta, final LocalDate desde, final LocalDate hasta) {
+        if (desde.isAfter(hasta)) {
+            throw new BadRequestException("La fecha de inicio es posterior a la de fin");
+        }
+
+        final List<TotalMovimientos> totales = this.resumenDiarioRepository.sumarPorTipo(numeroCuenta, desde, hasta);
+        // Solo se comprueba la existencia de la cuenta cuando no hay resultados, el caso habitual ahorra la consulta
+        if (totales.isEmpty() && !this.cuentaRepository.existsById(numeroCuenta)) {
+            throw new NotFoundException("La cuenta buscada no existe");
+        }
+        return new ResumenMovimientos(numeroCuenta, desde, hasta, totales);
+    }
+
+    private LocalDate dia(final Movimiento movimiento) {
+        return movimiento.getFechaMovimiento().toInstant().atZone(this.propiedades.getZonaHoraria()).toLocalDate();
+    }
+}
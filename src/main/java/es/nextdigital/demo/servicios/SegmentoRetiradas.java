@@ -0,0 +1,129 @@
+package es.nextdigital.demo.servicios;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Tabla hash de direccionamiento abierto de numero de tarjeta a sus contadores de retiradas, guardados en un unico
+ * {@code long[]} con {@value #CAMPOS} posiciones por tarjeta: el dia de la ultima retirada (dia de epoca), lo retirado
+ * ese dia y lo retirado en su mes. No crea ningun objeto por tarjeta. No es segura por si misma: todos los accesos se
+ * hacen con el cerrojo tomado.
+ */
+final class SegmentoRetiradas extends ReentrantLock {
+
+    private static final int CAPACIDAD_INICIAL = 16;
+    private static final int CAMPOS = 3;
+    private static final int DIA = 0;
+    private static final int TOTAL_DIA = 1;
+    private static final int TOTAL_MES = 2;
+
+    private String[] claves = new String[CAPACIDAD_INICIAL];
+    private long[] contadores = new long[CAPACIDAD_INICIAL * CAMPOS];
+    private int tamano;
+
+    static int dispersar(final int hash) {
+        final int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Suma {@code centimos} a la tarjeta si con ellos no pasa de ninguno de los dos limites. Los contadores de un dia o
+     * un mes anteriores a {@code dia} cuentan como cero. {@code inicioMes} es el primer dia del mes de {@code dia}.
+     */
+    boolean reservar(final String clave, final long centimos, final long limiteDia, final long limiteMes,
+                     final long dia, final long inicioMes) {
+        int i = indice(this.claves, clave);
+        final long totalDia;
+        final long totalMes;
+        if (this.claves[i] == null) {
+            totalDia = 0;
+            totalMes = 0;
+        } else {
+            final int base = i * CAMPOS;
+            // Una retirada de un dia anterior al guardado (se leyo el reloj antes de un cambio de dia) cuenta en el guardado
+            final long diaGuardado = this.contadores[base + DIA];
+            totalDia = diaGuardado >= dia ? this.contadores[base + TOTAL_DIA] : 0;
+            totalMes = diaGuardado >= inicioMes ? this.contadores[base + TOTAL_MES] : 0;
+        }
+
+        if (totalDia + centimos > limiteDia || totalMes + centimos > limiteMes) {
+            return false;
+        }
+
+        if (this.claves[i] == null) {
+            if ((this.tamano + 1) * 4 > this.claves.length * 3) {
+                redimensionar();
+                i = indice(this.claves, clave);
+            }
+            this.claves[i] = clave;
+            this.tamano++;
+        }
+        final int base = i * CAMPOS;
+        this.contadores[base + DIA] = Math.max(dia, this.contadores[base + DIA]);
+        this.contadores[base + TOTAL_DIA] = totalDia + centimos;
+        this.contadores[base + TOTAL_MES] = totalMes + centimos;
+        return true;
+    }
+
+    /**
+     * Deshace una reserva de {@code dia}; {@code inicioMesSiguiente} es el primer dia del mes siguiente. Si la tarjeta
+     * ya ha pasado a otro dia o a otro mes, ese contador ya no incluye la reserva y no se toca.
+     */
+    void liberar(final String clave, final long centimos, final long dia, final long inicioMesSiguiente) {
+        final int i = indice(this.claves, clave);
+        if (this.claves[i] == null) {
+            return;
+        }
+        final int base = i * CAMPOS;
+        final long diaGuardado = this.contadores[base + DIA];
+        if (diaGuardado == dia) {
+            this.contadores[base + TOTAL_DIA] = Math.max(0, this.contadores[base + TOTAL_DIA] - centimos);
+        }
+        if (diaGuardado < inicioMesSiguiente) {
+            this.contadores[base + TOTAL_MES] = Math.max(0, this.contadores[base + TOTAL_MES] - centimos);
+        }
+    }
+
+    void fijar(final String clave, final long dia, final long totalDia, final long totalMes) {
+        int i = indice(this.claves, clave);
+        if (this.claves[i] == null) {
+            if ((this.tamano + 1) * 4 > this.claves.length * 3) {
+                redimensionar();
+                i = indice(this.claves, clave);
+            }
+            this.claves[i] = clave;
+            this.tamano++;
+        }
+        final int base = i * CAMPOS;
+        this.contadores[base + DIA] = dia;
+        this.contadores[base + TOTAL_DIA] = totalDia;
+        this.contadores[base + TOTAL_MES] = totalMes;
+    }
+
+    int tamano() {
+        return this.tamano;
+    }
+
+    private static int indice(final String[] tabla, final String clave) {
+        final int mascara = tabla.length - 1;
+        // Se usan los bits altos: los bajos ya se han gastado en elegir el segmento
+        int i = (dispersar(clave.hashCode()) >>> 8) & mascara;
+        while (tabla[i] != null && !tabla[i].equals(clave)) {
+            i = (i + 1) & mascara;
+        }
+        return i;
+    }
+
+    private void redimensionar() {
+        final String[] clavesAnteriores = this.claves;
+        final long[] contadoresAnteriores = this.contadores;
+        this.claves = new String[clavesAnteriores.length * 2];
+        this.contadores = new long[this.claves.length * CAMPOS];
+        for (int j = 0; j < clavesAnteriores.length; j++) {
+            if (clavesAnteriores[j] != null) {
+                final int i = indice(this.claves, clavesAnteriores[j]);
+                this.claves[i] = clavesAnteriores[j];
+                System.arraycopy(contadoresAnteriores, j * CAMPOS, this.contadores, i * CAMPOS, CAMPOS);
+            }
+        }
+    }
+}
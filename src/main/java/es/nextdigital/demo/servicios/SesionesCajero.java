@@ -0,0 +1,72 @@
+package es.nextdigital.demo.servicios;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.github.benmanes.caffeine.cache.Ticker;
+import es.nextdigital.demo.configuracion.SesionesCajeroProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Sesiones de cajero en memoria, identificadas por un token aleatorio opaco. Caducan tras un tiempo sin usarse y un
+ * planificador las retira aunque nadie vuelva a consultarlas, asi que las sesiones abandonadas no se acumulan.
+ */
+@Component
+public class SesionesCajero {
+
+    private static final int BYTES_TOKEN = 32;
+
+    private final SecureRandom aleatorio = new SecureRandom();
+    private final Cache<String, Sesion> sesiones;
+
+    @Autowired
+    public SesionesCajero(final SesionesCajeroProperties propiedades) {
+        this(propiedades, Ticker.systemTicker());
+    }
+
+    SesionesCajero(final SesionesCajeroProperties propiedades, final Ticker reloj) {
+        this.sesiones = Caffeine.newBuilder()
+                .expireAfterAccess(propiedades.getInactividadMaxima())
+                .maximumSize(propiedades.getMaximoSesiones())
+                .scheduler(Scheduler.systemScheduler())
+                .ticker(reloj)
+                .build();
+    }
+
+    public String abrir(final String numeroTarjeta, final String pinEncriptado) {
+        final byte[] bytes = new byte[BYTES_TOKEN];
+        this.aleatorio.nextBytes(bytes);
+        final String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        this.sesiones.put(token, new Sesion(numeroTarjeta, pinEncriptado));
+        return token;
+    }
+
+    /**
+     * Devuelve la sesion si sigue abierta y reinicia su tiempo de inactividad.
+     */
+    public Optional<Sesion> obtener(final String token) {
+        return Optional.ofNullable(this.sesiones.getIfPresent(token));
+    }
+
+    public void cerrar(final String token) {
+        this.sesiones.invalidate(token);
+    }
+
+    long sesionesAbiertas() {
+        this.sesiones.cleanUp();
+        return this.sesiones.estimatedSize();
+    }
+
+    /**
+     * Guarda el hash del pin con el que se abrio para volver a autenticar contra la cache de tarjetas sin calcularlo:
+     * si el pin cambia durante la sesion, la sesion deja de valer.
+     */
+    public record Sesion(String numeroTarjeta, String pinEncriptado) {
+    }
+}
@@ -1,16 +1,32 @@
 package es.nextdigital.demo.servicios;
 
+import es.nextdigital.demo.model.Dinero;
+
 public interface TarjetaServicio {
 
-    float sacarDinero(String numeroTarjeta, int pin, float cantidad, String bancoCajero);
+    Dinero sacarDinero(String numeroTarjeta, int pin, Dinero cantidad, String bancoCajero);
 
-    void ingresarDinero(String numeroTarjeta, int pin, float cantidad, String bancoCajero);
+    void ingresarDinero(String numeroTarjeta, int pin, Dinero cantidad, String bancoCajero);
 
     void activarTarjeta(String numeroTarjeta, int pin);
 
     void cambiarPin(String numeroTarjeta, int pin, int nuevoPin);
 
-    float consultarConfiguracion(String numeroTarjeta, int pin);
+    Dinero consultarConfiguracion(String numeroTarjeta, int pin);
+
+    void modificarConfiguracion(String numeroTarjeta, int pin, Dinero limiteRetirada);
+
+    /**
+     * Autentica la tarjeta con su pin y abre una sesion de cajero. Devuelve el token con el que se hacen las
+     * operaciones de la sesion sin volver a enviar ni comprobar el pin.
+     */
+    String abrirSesion(String numeroTarjeta, int pin);
+
+    void cerrarSesion(String token);
+
+    Dinero sacarDineroEnSesion(String token, Dinero cantidad, String bancoCajero);
+
+    void ingresarDineroEnSesion(String token, Dinero cantidad, String bancoCajero);
 
-    void modificarConfiguracion(String numeroTarjeta, int pin, float limiteRetirada);
+    Dinero consultarConfiguracionEnSesion(String token);
 }
@@ -3,61 +3,71 @@ package es.nextdigital.demo.servicios;
 import es.nextdigital.demo.common.ConstantData;
 import es.nextdigital.demo.exceptions.ForbiddenOperationException;
 import es.nextdigital.demo.exceptions.NotFoundException;
+import es.nextdigital.demo.exceptions.UnauthorizedException;
 import es.nextdigital.demo.model.Banco;
-import es.nextdigital.demo.model.Cuenta;
+import es.nextdigital.demo.model.Dinero;
 import es.nextdigital.demo.model.Tarjeta;
+import es.nextdigital.demo.model.TarjetaAutenticada;
 import es.nextdigital.demo.model.TipoTarjeta;
 import es.nextdigital.demo.repositorio.TarjetaRepository;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
 import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
 public class TarjetaServicioImpl implements TarjetaServicio {
 
-    private static final float MIN_LIMITE_RETIRADA = 500;
-    private static final float MAX_LIMITE_RETIRADA = 6000;
+    private static final Dinero MIN_LIMITE_RETIRADA = Dinero.deUnidades(500);
+    private static final Dinero MAX_LIMITE_RETIRADA = Dinero.deUnidades(6000);
 
     private final TarjetaRepository tarjetaRepository;
     private final CuentaServicio cuentaServicio;
     private final BancoServicio bancoServicio;
+    private final EncriptadorPin encriptadorPin;
+    private final MetricasOperaciones metricas;
+    private final CacheTarjetas cacheTarjetas;
+    private final SesionesCajero sesionesCajero;
+    private final ContadoresRetiradas contadoresRetiradas;
 
     @Override
-    public float sacarDinero(final String numeroTarjeta, int pin, final float cantidad, final String bancoCajero) {
-        final Optional<Tarjeta> tarjetaOptional = this.tarjetaRepository.findByNumeroAndPinEncriptado(numeroTarjeta, this.encriptarPin(pin));
+    public Dinero sacarDinero(final String numeroTarjeta, int pin, final Dinero cantidad, final String bancoCajero) {
+        return this.sacarDinero(this.autenticarTarjeta(numeroTarjeta, pin), cantidad, bancoCajero);
+    }
+
+    @Override
+    public Dinero sacarDineroEnSesion(final String token, final Dinero cantidad, final String bancoCajero) {
+        return this.sacarDinero(this.tarjetaDeSesion(token), cantidad, bancoCajero);
+    }
 
+    private Dinero sacarDinero(final Optional<TarjetaAutenticada> tarjetaOptional, final Dinero cantidad, final String bancoCajero) {
         if (tarjetaOptional.isPresent()) {
-            final Tarjeta tarjeta = tarjetaOptional.get();
-            final Cuenta cuenta = tarjeta.getCuenta();
-            if (!tarjeta.isActivada()) {
+            final TarjetaAutenticada tarjeta = tarjetaOptional.get();
+            if (!tarjeta.activada()) {
                 throw new ForbiddenOperationException("La tarjeta no está activada");
             }
 
+            // Con debito el saldo lo comprueba la cuenta al descontarlo, ya bloqueada; con credito puede quedar negativa
+            final boolean debito = TipoTarjeta.DEBITO == tarjeta.tipoTarjeta();
             boolean puedeSacar;
-            if (TipoTarjeta.DEBITO == tarjeta.getTipoTarjeta()) {
-                puedeSacar = cantidad <= cuenta.getSaldo() && cantidad <= tarjeta.getLimiteRetirada();
+            if (debito) {
+                puedeSacar = !cantidad.esMayorQue(tarjeta.limiteRetirada());
             } else {
-                puedeSacar = cantidad <= tarjeta.getLimiteCredito() && cantidad <= tarjeta.getLimiteRetirada();
+                puedeSacar = !cantidad.esMayorQue(tarjeta.limiteCredito()) && !cantidad.esMayorQue(tarjeta.limiteRetirada());
             }
 
-            if (puedeSacar) {
-                if (cuentaServicio.sacarDinero(cuenta, cantidad)) {
-                    float comisiones = 0f;
-
-                    if (!ConstantData.MI_BANCO.equals(bancoCajero)) {
-                        final Banco banco = bancoServicio.obtenerBanco(bancoCajero);
-                        comisiones = banco.getComisionRetirada();
-                    }
+            if (puedeSacar && this.sacarDentroDeLimites(tarjeta, cantidad, debito)) {
+                Dinero comisiones = Dinero.CERO;
 
-                    return comisiones;
-                } else {
-                    throw new ForbiddenOperationException("Hubo algun error sacando dinero");
+                if (!ConstantData.MI_BANCO.equals(bancoCajero)) {
+                    final Banco banco = this.metricas.paso("obtener-banco", () -> bancoServicio.obtenerBanco(bancoCajero));
+                    comisiones = banco.getComisionRetirada();
                 }
+
+                return comisiones;
             } else {
                 throw new ForbiddenOperationException("No se puede sacar dinero");
             }
@@ -66,20 +76,48 @@ public class TarjetaServicioImpl implements TarjetaServicio {
         }
     }
 
+    /**
+     * Reserva la cantidad en lo retirado hoy y este mes con la tarjeta y saca el dinero de la cuenta. Si no cabe en los
+     * limites lanza una excepcion; si la cuenta no tiene saldo o algo falla, la reserva se deshace.
+     */
+    private boolean sacarDentroDeLimites(final TarjetaAutenticada tarjeta, final Dinero cantidad, final boolean debito) {
+        final Optional<LocalDate> diaOptional = this.metricas.paso("reservar-limites",
+                () -> this.contadoresRetiradas.reservar(tarjeta.numeroTarjeta(), cantidad, tarjeta.limiteRetirada()));
+        if (diaOptional.isEmpty()) {
+            throw new ForbiddenOperationException("Se ha superado el limite diario o mensual de retirada de la tarjeta");
+        }
+
+        boolean sacado = false;
+        try {
+            sacado = this.metricas.paso("guardar-movimiento", () -> cuentaServicio.sacarDinero(tarjeta.numeroCuenta(), cantidad, !debito));
+            return sacado;
+        } finally {
+            if (!sacado) {
+                this.contadoresRetiradas.liberar(tarjeta.numeroTarjeta(), cantidad, diaOptional.get());
+            }
+        }
+    }
+
     @Override
-    public void ingresarDinero(final String numeroTarjeta, int pin, final float cantidad, final String bancoCajero) {
-        final Optional<Tarjeta> tarjetaOptional = this.tarjetaRepository.findByNumeroAndPinEncriptado(numeroTarjeta, this.encriptarPin(pin));
+    public void ingresarDinero(final String numeroTarjeta, int pin, final Dinero cantidad, final String bancoCajero) {
+        this.ingresarDinero(this.autenticarTarjeta(numeroTarjeta, pin), cantidad, bancoCajero);
+    }
+
+    @Override
+    public void ingresarDineroEnSesion(final String token, final Dinero cantidad, final String bancoCajero) {
+        this.ingresarDinero(this.tarjetaDeSesion(token), cantidad, bancoCajero);
+    }
 
+    private void ingresarDinero(final Optional<TarjetaAutenticada> tarjetaOptional, final Dinero cantidad, final String bancoCajero) {
         if (tarjetaOptional.isPresent()) {
-            final Tarjeta tarjeta = tarjetaOptional.get();
-            final Cuenta cuenta = tarjeta.getCuenta();
-            if (!tarjeta.isActivada()) {
+            final TarjetaAutenticada tarjeta = tarjetaOptional.get();
+            if (!tarjeta.activada()) {
                 throw new ForbiddenOperationException("La tarjeta no está activada");
             }
 
             boolean puedeIngresar = ConstantData.MI_BANCO.equals(bancoCajero);
             if (puedeIngresar) {
-                cuentaServicio.ingresarDinero(cuenta, cantidad);
+                this.metricas.paso("guardar-movimiento", () -> cuentaServicio.ingresarDinero(tarjeta.numeroCuenta(), cantidad));
             } else {
                 throw new ForbiddenOperationException("No se puede ingresar dinero desde un cajero de otro banco");
             }
@@ -89,7 +127,7 @@ public class TarjetaServicioImpl implements TarjetaServicio {
     @Transactional
     @Override
     public void activarTarjeta(final String numeroTarjeta, final int pin) {
-        final Optional<Tarjeta> tarjetaOptional = this.tarjetaRepository.findById(numeroTarjeta);
+        final Optional<Tarjeta> tarjetaOptional = this.metricas.paso("buscar-tarjeta", () -> this.tarjetaRepository.findById(numeroTarjeta));
         if (tarjetaOptional.isPresent()) {
             final Tarjeta tarjeta = tarjetaOptional.get();
             if (tarjeta.isActivada()) {
@@ -99,7 +137,8 @@ public class TarjetaServicioImpl implements TarjetaServicio {
             tarjeta.setActivada(true);
             tarjeta.setPinEncriptado(this.encriptarPin(pin));
 
-            tarjetaRepository.save(tarjeta);
+            this.metricas.paso("guardar-tarjeta", () -> tarjetaRepository.save(tarjeta));
+            this.cacheTarjetas.invalidar(numeroTarjeta);
         } else {
             throw new NotFoundException("Tarjeta no encontrada");
         }
@@ -108,7 +147,7 @@ public class TarjetaServicioImpl implements TarjetaServicio {
     @Transactional
     @Override
     public void cambiarPin(final String numeroTarjeta, final int pin, final int nuevoPin) {
-        final Optional<Tarjeta> tarjetaOptional = this.tarjetaRepository.findByNumeroAndPinEncriptado(numeroTarjeta, this.encriptarPin(pin));
+        final Optional<Tarjeta> tarjetaOptional = this.buscarTarjeta(numeroTarjeta, pin);
         if (tarjetaOptional.isPresent()) {
             final Tarjeta tarjeta = tarjetaOptional.get();
             if (!tarjeta.isActivada()) {
@@ -121,39 +160,49 @@ public class TarjetaServicioImpl implements TarjetaServicio {
             }
 
             tarjeta.setPinEncriptado(nuevoPinEncriptado);
-            tarjetaRepository.save(tarjeta);
+            this.metricas.paso("guardar-tarjeta", () -> tarjetaRepository.save(tarjeta));
+            this.cacheTarjetas.invalidar(numeroTarjeta);
         } else {
             throw new NotFoundException("Tarjeta no encontrada");
         }
     }
 
     @Override
-    public float consultarConfiguracion(String numeroTarjeta, int pin) {
-        final Optional<Tarjeta> tarjetaOptional = this.tarjetaRepository.findByNumeroAndPinEncriptado(numeroTarjeta, this.encriptarPin(pin));
+    public Dinero consultarConfiguracion(String numeroTarjeta, int pin) {
+        return this.consultarConfiguracion(this.autenticarTarjeta(numeroTarjeta, pin));
+    }
+
+    @Override
+    public Dinero consultarConfiguracionEnSesion(final String token) {
+        return this.consultarConfiguracion(this.tarjetaDeSesion(token));
+    }
+
+    private Dinero consultarConfiguracion(final Optional<TarjetaAutenticada> tarjetaOptional) {
         if (tarjetaOptional.isPresent()) {
-            final Tarjeta tarjeta = tarjetaOptional.get();
-            if (!tarjeta.isActivada()) {
+            final TarjetaAutenticada tarjeta = tarjetaOptional.get();
+            if (!tarjeta.activada()) {
                 throw new ForbiddenOperationException("La tarjeta no está activada");
             }
 
-            return tarjeta.getLimiteRetirada();
+            return tarjeta.limiteRetirada();
         } else {
             throw new NotFoundException("Tarjeta no encontrada");
         }
     }
 
     @Override
-    public void modificarConfiguracion(String numeroTarjeta, int pin, float limiteRetirada) {
-        final Optional<Tarjeta> tarjetaOptional = this.tarjetaRepository.findByNumeroAndPinEncriptado(numeroTarjeta, this.encriptarPin(pin));
+    public void modificarConfiguracion(String numeroTarjeta, int pin, Dinero limiteRetirada) {
+        final Optional<Tarjeta> tarjetaOptional = this.buscarTarjeta(numeroTarjeta, pin);
         if (tarjetaOptional.isPresent()) {
             final Tarjeta tarjeta = tarjetaOptional.get();
             if (!tarjeta.isActivada()) {
                 throw new ForbiddenOperationException("La tarjeta no está activada");
             }
 
-            if (limiteRetirada >= MIN_LIMITE_RETIRADA && limiteRetirada <= MAX_LIMITE_RETIRADA) {
+            if (!limiteRetirada.esMenorQue(MIN_LIMITE_RETIRADA) && !limiteRetirada.esMayorQue(MAX_LIMITE_RETIRADA)) {
                 tarjeta.setLimiteRetirada(limiteRetirada);
-                tarjetaRepository.save(tarjeta);
+                this.metricas.paso("guardar-tarjeta", () -> tarjetaRepository.save(tarjeta));
+                this.cacheTarjetas.invalidar(numeroTarjeta);
             } else {
                 throw new ForbiddenOperationException("El nuevo limite de retirada esta fuera de los valores permitidos");
             }
@@ -162,23 +211,61 @@ public class TarjetaServicioImpl implements TarjetaServicio {
         }
     }
 
+    @Override
+    public String abrirSesion(final String numeroTarjeta, final int pin) {
+        final String pinEncriptado = this.encriptarPin(pin);
+        final Optional<TarjetaAutenticada> tarjetaOptional = this.metricas.paso("autenticar-tarjeta",
+                () -> this.cacheTarjetas.autenticar(numeroTarjeta, pinEncriptado));
+
+        if (tarjetaOptional.isPresent()) {
+            if (!tarjetaOptional.get().activada()) {
+                throw new ForbiddenOperationException("La tarjeta no está activada");
+            }
+
+            return this.sesionesCajero.abrir(numeroTarjeta, pinEncriptado);
+        } else {
+            throw new NotFoundException("Tarjeta no encontrada");
+        }
+    }
+
+    @Override
+    public void cerrarSesion(final String token) {
+        this.sesionesCajero.cerrar(token);
+    }
+
+    /**
+     * Vuelve a autenticar la tarjeta de la sesion con el hash del pin guardado al abrirla, sin calcularlo de nuevo.
+     * Si la tarjeta ha cambiado de pin desde entonces, la sesion se cierra.
+     */
+    private Optional<TarjetaAutenticada> tarjetaDeSesion(final String token) {
+        final Optional<SesionesCajero.Sesion> sesionOptional = this.sesionesCajero.obtener(token);
+
+        if (sesionOptional.isPresent()) {
+            final SesionesCajero.Sesion sesion = sesionOptional.get();
+            final Optional<TarjetaAutenticada> tarjetaOptional = this.metricas.paso("autenticar-tarjeta",
+                    () -> this.cacheTarjetas.autenticar(sesion.numeroTarjeta(), sesion.pinEncriptado()));
+            if (tarjetaOptional.isEmpty()) {
+                this.sesionesCajero.cerrar(token);
+                throw new UnauthorizedException("La sesion ya no es valida");
+            }
+
+            return tarjetaOptional;
+        } else {
+            throw new UnauthorizedException("La sesion no existe o ha caducado");
+        }
+    }
+
+    private Optional<TarjetaAutenticada> autenticarTarjeta(final String numeroTarjeta, final int pin) {
+        final String pinEncriptado = this.encriptarPin(pin);
+        return this.metricas.paso("autenticar-tarjeta", () -> this.cacheTarjetas.autenticar(numeroTarjeta, pinEncriptado));
+    }
+
+    private Optional<Tarjeta> buscarTarjeta(final String numeroTarjeta, final int pin) {
+        final String pinEncriptado = this.encriptarPin(pin);
+        return this.metricas.paso("buscar-tarjeta", () -> this.tarjetaRepository.findByNumeroAndPinEncriptado(numeroTarjeta, pinEncriptado));
+    }
+
     private String encriptarPin(int pin){
-       // Por ser un "examen" para encriptar simplemente hasheamos el pin. Obviamente no es la encriptacion ideal.
-       // Habria que utilizar algun tipo de clave privada y algun algoritmo complejo de encriptacion.
-       try {
-           MessageDigest digest = MessageDigest.getInstance("SHA-256");
-           byte[] hash = digest.digest(Integer.toString(pin).getBytes());
-
-           StringBuilder hexString = new StringBuilder();
-           for (byte b : hash) {
-               String hex = Integer.toHexString(0xff & b);
-               if (hex.length() == 1) hexString.append('0');
-               hexString.append(hex);
-           }
-           return hexString.toString();
-
-       } catch (NoSuchAlgorithmException e) {
-           throw new RuntimeException("Error al generar hash SHA-256", e);
-       }
-   }
+        return this.metricas.paso("encriptar-pin", () -> this.encriptadorPin.encriptar(pin));
+    }
 }
@@ -0,0 +1,37 @@
+package es.nextdigital.demo.configuracion;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Solo se compila con el perfil {@code java21}. Tomcat atiende cada peticion en un hilo virtual y las respuestas
+ * asincronas de Spring MVC (los endpoints en streaming) tambien se ejecutan en hilos virtuales. Las llamadas bloqueantes
+ * a JDBC aparcan el hilo virtual en lugar de ocupar un hilo de plataforma; el acceso al pool de conexiones lo ordena
+ * {@code LimitadorConcurrenciaFilter}.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "carlosbank.hilos-virtuales", name = "habilitado", havingValue = "true")
+public class HilosVirtualesConfiguracion {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> ejecutorHilosVirtualesTomcat() {
+        return protocolHandler -> protocolHandler.setExecutor(ejecutorHilosVirtuales("carlosbank-http-"));
+    }
+
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(ejecutorHilosVirtuales("carlosbank-async-"));
+    }
+
+    private static ExecutorService ejecutorHilosVirtuales(final String prefijo) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefijo, 0).factory());
+    }
+}
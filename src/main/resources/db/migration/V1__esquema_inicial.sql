@@ -0,0 +1,85 @@
+-- Esquema inicial. Hibernate solo lo valida al arrancar (spring.jpa.hibernate.ddl-auto=validate): cualquier cambio en
+-- las entidades necesita su migracion.
+
+create sequence movimiento_seq start with 1 increment by 50;
+
+create table banco (
+    banco_id integer not null,
+    nombre varchar(255),
+    comision_retirada_centimos bigint,
+    primary key (banco_id)
+);
+
+-- Busqueda de bancos por nombre (BancoRepository.findBancosByNombre)
+create index idx_banco_nombre on banco (nombre);
+
+create table cuenta (
+    numero_cuenta varchar(255) not null,
+    saldo_centimos bigint,
+    version bigint,
+    primary key (numero_cuenta)
+);
+
+-- La autenticacion de tarjetas (findByNumeroAndPinEncriptado, findAutenticadaByNumero) va por la clave primaria y
+-- compara el pin en la misma fila: no necesita otro indice
+create table tarjeta (
+    numero_tarjeta varchar(255) not null,
+    mes_caducidad integer not null,
+    ano_caducidad integer not null,
+    cvv integer not null,
+    pin_encriptado varchar(255),
+    activada boolean not null,
+    limite_retirada_centimos bigint,
+    limite_credito_centimos bigint,
+    tipo_tarjeta tinyint check (tipo_tarjeta between 0 and 1),
+    cuenta_id varchar(255),
+    primary key (numero_tarjeta),
+    constraint fk_tarjeta_cuenta foreign key (cuenta_id) references cuenta
+);
+
+-- Tarjetas de una cuenta (Cuenta.tarjetas); no todas las bases de datos indexan las claves ajenas por su cuenta
+create index idx_tarjeta_cuenta on tarjeta (cuenta_id);
+
+create table movimiento (
+    movimiento_id integer not null,
+    fecha_movimiento timestamp(6),
+    tipo_movimiento tinyint check (tipo_movimiento between 0 and 4),
+    importe_centimos bigint,
+    secuencia_diario bigint,
+    cuenta_id varchar(255) not null,
+    primary key (movimiento_id),
+    constraint uk_movimiento_secuencia_diario unique (secuencia_diario),
+    constraint fk_movimiento_cuenta foreign key (cuenta_id) references cuenta
+);
+
+-- Movimientos de una cuenta y su paginacion por fecha e id; tambien cubre la clave ajena
+create index idx_movimiento_cuenta_fecha on movimiento (cuenta_id, fecha_movimiento, movimiento_id);
+
+-- La clave empieza por la cuenta para que las consultas por cuenta y periodo (sumarPorTipo) recorran un rango
+create table resumen_diario (
+    numero_cuenta varchar(255) not null,
+    dia date not null,
+    tipo_movimiento tinyint not null check (tipo_movimiento between 0 and 4),
+    numero_movimientos bigint not null,
+    total_centimos bigint not null,
+    primary key (numero_cuenta, dia, tipo_movimiento)
+);
+
+create table punto_control_ledger (
+    id integer not null,
+    ultima_secuencia bigint not null,
+    primary key (id)
+);
+
+create table clave_idempotencia (
+    clave varchar(255) not null,
+    huella varchar(255),
+    valor_centimos bigint,
+    error varchar(255),
+    mensaje varchar(255),
+    fecha_creacion timestamp(6),
+    primary key (clave)
+);
+
+-- Purga de claves caducadas
+create index idx_clave_idempotencia_fecha on clave_idempotencia (fecha_creacion);
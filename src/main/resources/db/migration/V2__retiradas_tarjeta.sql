@@ -0,0 +1,11 @@
+-- Total retirado con cada tarjeta por dia (RetiradaDiaria). Cada retirada suma a la fila de su dia; al arrancar se leen
+-- las del mes en curso para reconstruir los contadores de los limites de retirada
+create table retirada_diaria (
+    numero_tarjeta varchar(255) not null,
+    dia date not null,
+    total_centimos bigint not null,
+    primary key (numero_tarjeta, dia)
+);
+
+-- Lectura del mes en curso al arrancar (ContadoresRetiradas.reconstruir)
+create index idx_retirada_diaria_dia on retirada_diaria (dia);
@@ -0,0 +1,134 @@
+package es.nextdigital.demo.conciliacion;
+
+import es.nextdigital.demo.model.Cuenta;
+import es.nextdigital.demo.model.DiferenciaSaldo;
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.model.InformeConciliacion;
+import es.nextdigital.demo.model.Movimiento;
+import es.nextdigital.demo.model.TipoMovimiento;
+import es.nextdigital.demo.model.TotalMovimientos;
+import es.nextdigital.demo.repositorio.CuentaRepository;
+import es.nextdigital.demo.repositorio.MovimientoRepository;
+import es.nextdigital.demo.repositorio.TarjetaRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Tramos de dos cuentas para que cualquier prueba tenga varios y se concilien en paralelo
+@SpringBootTest(properties = {
+        "carlosbank.conciliacion.cuentas-por-tramo=2",
+        "carlosbank.conciliacion.paralelismo=3",
+        "carlosbank.conciliacion.tamano-fetch=3",
+        "carlosbank.conciliacion.max-diferencias=2"
+})
+class ConciliadorCuentasTest {
+
+    @Autowired
+    private ConciliadorCuentas conciliador;
+
+    @Autowired
+    private CuentaRepository cuentaRepository;
+
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+
+    @Autowired
+    private TarjetaRepository tarjetaRepository;
+
+    @Autowired
+    private MeterRegistry registro;
+
+    @BeforeEach
+    void setUp() {
+        movimientoRepository.deleteAllInBatch();
+        tarjetaRepository.deleteAllInBatch();
+        cuentaRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void conciliar_deberiaDetectarLasCuentasCuyoSaldoNoCuadraConSusMovimientos() {
+        // Arrange: cuatro cuentas que cuadran (una sin movimientos) y dos que no
+        sembrar("ES-01", 70, TipoMovimiento.INGRESO, 100, TipoMovimiento.RETIRADA, 30);
+        sembrar("ES-02", 0);
+        sembrar("ES-03", 45, TipoMovimiento.TRANSFERENCIA_ENTRANTE, 50, TipoMovimiento.COMISION, 5);
+        sembrar("ES-04", 90, TipoMovimiento.INGRESO, 100, TipoMovimiento.TRANSFERENCIA_SALIENTE, 20);
+        sembrar("ES-05", 10, TipoMovimiento.INGRESO, 10);
+        sembrar("ES-06", 500);
+
+        // Act
+        final InformeConciliacion informe = conciliador.conciliar();
+
+        // Assert
+        assertEquals(6, informe.cuentas());
+        assertEquals(7, informe.movimientos());
+        assertEquals(4, informe.tramos());
+        assertEquals(2, informe.cuentasConDiferencias());
+        assertEquals(List.of(
+                new DiferenciaSaldo("ES-04", Dinero.deUnidades(90), Dinero.deUnidades(80), Dinero.deUnidades(10), List.of(
+                        new TotalMovimientos(TipoMovimiento.INGRESO, 1, Dinero.deUnidades(100)),
+                        new TotalMovimientos(TipoMovimiento.TRANSFERENCIA_SALIENTE, 1, Dinero.deUnidades(20)))),
+                new DiferenciaSaldo("ES-06", Dinero.deUnidades(500), Dinero.CERO, Dinero.deUnidades(500), List.of())),
+                informe.diferencias());
+        assertEquals(2.0, registro.get(ConciliadorCuentas.METRICA_DIFERENCIAS).gauge().value());
+    }
+
+    @Test
+    void conciliar_deberiaDetallarSoloLasPrimerasDiferencias() {
+        // Arrange
+        for (int i = 1; i <= 5; i++) {
+            sembrar("ES-0" + i, i, TipoMovimiento.INGRESO, 100);
+        }
+
+        // Act
+        final InformeConciliacion informe = conciliador.conciliar();
+
+        // Assert: todas se cuentan, pero solo se detallan las dos primeras por numero de cuenta
+        assertEquals(5, informe.cuentasConDiferencias());
+        assertEquals(List.of("ES-01", "ES-02"), informe.diferencias().stream().map(DiferenciaSaldo::numeroCuenta).toList());
+    }
+
+    @Test
+    void iniciar_deberiaConciliarEnSegundoPlano() throws Exception {
+        // Arrange
+        sembrar("ES-01", 100, TipoMovimiento.INGRESO, 100);
+
+        // Act
+        final InformeConciliacion informe = conciliador.iniciar().get(30, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(1, informe.cuentas());
+        assertEquals(0, informe.cuentasConDiferencias());
+        assertTrue(informe.diferencias().isEmpty());
+    }
+
+    /**
+     * Da de alta la cuenta con el saldo indicado (en unidades) y los movimientos de {@code tiposEImportes}, pares de
+     * tipo e importe en unidades.
+     */
+    private void sembrar(final String numeroCuenta, final long saldo, final Object... tiposEImportes) {
+        final Cuenta cuenta = new Cuenta();
+        cuenta.setNumeroCuenta(numeroCuenta);
+        cuenta.setSaldo(Dinero.deUnidades(saldo));
+        cuentaRepository.save(cuenta);
+
+        final List<Movimiento> movimientos = new ArrayList<>();
+        for (int i = 0; i < tiposEImportes.length; i += 2) {
+            final Movimiento movimiento = new Movimiento();
+            movimiento.setFechaMovimiento(new Date());
+            movimiento.setTipoMovimiento((TipoMovimiento) tiposEImportes[i]);
+            movimiento.setImporte(Dinero.deUnidades(((Number) tiposEImportes[i + 1]).longValue()));
+            movimiento.setCuenta(cuenta);
+            movimientos.add(movimiento);
+        }
+        movimientoRepository.saveAll(movimientos);
+    }
+}
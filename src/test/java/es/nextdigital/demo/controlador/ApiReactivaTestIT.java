@@ -0,0 +1,177 @@
+package es.nextdigital.demo.controlador;
+
+import es.nextdigital.demo.common.ConstantData;
+import es.nextdigital.demo.model.Cuenta;
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.model.Movimiento;
+import es.nextdigital.demo.model.Tarjeta;
+import es.nextdigital.demo.model.TipoMovimiento;
+import es.nextdigital.demo.model.TipoTarjeta;
+import es.nextdigital.demo.repositorio.CuentaRepository;
+import es.nextdigital.demo.repositorio.MovimientoRepository;
+import es.nextdigital.demo.repositorio.TarjetaRepository;
+import es.nextdigital.demo.servicios.EncriptadorPin;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.embedded.netty.NettyWebServer;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * La API completa con el perfil {@code reactivo}: Netty, controladores WebFlux, servicios y base de datos reales.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "carlosbank.limites.tarjeta.capacidad=3")
+@ActiveProfiles("reactivo")
+class ApiReactivaTestIT {
+
+    private static final int PIN = 1234;
+    private static final int MOVIMIENTOS_HISTORICO = 1_200;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private ReactiveWebServerApplicationContext contexto;
+
+    @Autowired
+    private CuentaRepository cuentaRepository;
+
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+
+    @Autowired
+    private TarjetaRepository tarjetaRepository;
+
+    @Autowired
+    private EncriptadorPin encriptadorPin;
+
+    private Cuenta cuenta;
+    private String numeroTarjeta;
+
+    @BeforeEach
+    void setUp() {
+        final String sufijo = Long.toString(System.nanoTime());
+        cuenta = new Cuenta();
+        cuenta.setNumeroCuenta("ES-REACTIVO-" + sufijo);
+        cuenta.setSaldo(Dinero.deUnidades(10_000));
+        cuentaRepository.save(cuenta);
+
+        final Tarjeta tarjeta = new Tarjeta();
+        numeroTarjeta = "R-" + sufijo;
+        tarjeta.setNumeroTarjeta(numeroTarjeta);
+        tarjeta.setActivada(true);
+        tarjeta.setTipoTarjeta(TipoTarjeta.DEBITO);
+        tarjeta.setLimiteRetirada(Dinero.deUnidades(1_000));
+        tarjeta.setPinEncriptado(encriptadorPin.encriptar(PIN));
+        tarjeta.setCuenta(cuenta);
+        tarjetaRepository.save(tarjeta);
+    }
+
+    @Test
+    void contexto_deberiaUsarNettyYLosControladoresReactivos() {
+        assertInstanceOf(NettyWebServer.class, contexto.getWebServer());
+        assertEquals(1, contexto.getBeanNamesForType(TarjetaControllerReactivo.class).length);
+        assertEquals(0, contexto.getBeanNamesForType(TarjetaController.class).length);
+    }
+
+    @Test
+    void sacarDinero_deberiaDescontarElSaldo() {
+        webTestClient.post()
+                .uri("/carlosbank/api/tarjetas/{numero}/sacar?pin={pin}&cantidad=100&banco={banco}", numeroTarjeta, PIN, ConstantData.MI_BANCO)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("0.00");
+
+        assertEquals(Dinero.deUnidades(9_900), cuentaRepository.findById(cuenta.getNumeroCuenta()).get().getSaldo());
+    }
+
+    @Test
+    void sacarDinero_deberiaResponder404_siLaTarjetaNoExiste() {
+        webTestClient.post()
+                .uri("/carlosbank/api/tarjetas/no-existe/sacar?pin={pin}&cantidad=100&banco={banco}", PIN, ConstantData.MI_BANCO)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody(String.class).isEqualTo("Tarjeta no encontrada");
+    }
+
+    @Test
+    void consultarConfiguracion_deberiaResponder429_alSuperarElLimiteDeLaTarjeta() {
+        for (int i = 0; i < 3; i++) {
+            webTestClient.get()
+                    .uri("/carlosbank/api/tarjetas/{numero}/configuracion?pin={pin}", numeroTarjeta, PIN)
+                    .exchange()
+                    .expectStatus().isOk();
+        }
+
+        webTestClient.get()
+                .uri("/carlosbank/api/tarjetas/{numero}/configuracion?pin={pin}", numeroTarjeta, PIN)
+                .exchange()
+                .expectStatus().isEqualTo(429)
+                .expectHeader().exists("Retry-After");
+    }
+
+    @Test
+    void streamMovimientos_deberiaDevolverTodasLasPaginas() {
+        final List<Movimiento> historico = new ArrayList<>();
+        for (int i = 0; i < MOVIMIENTOS_HISTORICO; i++) {
+            final Movimiento movimiento = new Movimiento();
+            movimiento.setFechaMovimiento(new Date(i * 1_000L));
+            movimiento.setTipoMovimiento(TipoMovimiento.INGRESO);
+            movimiento.setImporte(Dinero.deUnidades(1));
+            movimiento.setCuenta(cuenta);
+            historico.add(movimiento);
+        }
+        movimientoRepository.saveAll(historico);
+
+        final String cuerpo = webTestClient.get()
+                .uri("/carlosbank/api/cuentas/{numero}/movimientos/stream", cuenta.getNumeroCuenta())
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).returnResult().getResponseBody();
+
+        assertEquals(MOVIMIENTOS_HISTORICO, cuerpo.lines().count());
+    }
+
+    @Test
+    void streamMovimientos_deberiaResponder404_siLaCuentaNoExiste() {
+        webTestClient.get()
+                .uri("/carlosbank/api/cuentas/no-existe/movimientos/stream")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void realizarTransferenciasStream_deberiaDevolverUnResultadoPorLinea() {
+        final String lote = String.join("\n",
+                "{\"cuentaOrigen\":\"" + cuenta.getNumeroCuenta() + "\",\"ibanDestino\":\"ES9999\",\"cantidad\":\"10\"}",
+                "{\"cuentaOrigen\":\"no-existe\",\"ibanDestino\":\"ES9999\",\"cantidad\":\"10\"}",
+                "{\"cuentaOrigen\":\"" + cuenta.getNumeroCuenta() + "\",\"ibanDestino\":\"ES9999\",\"cantidad\":\"20\"}") + "\n";
+
+        final String cuerpo = webTestClient.post()
+                .uri("/carlosbank/api/cuentas/transferencias/lote")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue(lote)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).returnResult().getResponseBody();
+
+        final List<String> resultados = cuerpo.lines().toList();
+        assertEquals(3, resultados.size());
+        assertTrue(resultados.get(0).contains("REALIZADA"));
+        assertTrue(resultados.get(1).contains("CUENTA_ORIGEN_NO_EXISTE"));
+        assertTrue(resultados.get(2).contains("REALIZADA"));
+    }
+}
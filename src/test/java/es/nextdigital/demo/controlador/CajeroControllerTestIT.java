@@ -0,0 +1,128 @@
+package es.nextdigital.demo.controlador;
+
+import es.nextdigital.demo.common.ConstantData;
+import es.nextdigital.demo.configuracion.IdempotenciaProperties;
+import es.nextdigital.demo.exceptions.UnauthorizedException;
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.servicios.Idempotencia;
+import es.nextdigital.demo.servicios.MetricasOperaciones;
+import es.nextdigital.demo.servicios.TarjetaServicio;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.observation.ObservationAutoConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ImportAutoConfiguration(ObservationAutoConfiguration.class)
+// Los limites por tarjeta y banco tienen su propia prueba (LimitePeticionesFilterTest)
+@WebMvcTest(value = {CajeroController.class}, properties = "carlosbank.limites.habilitado=false")
+@Import({MetricasOperaciones.class, Idempotencia.class, IdempotenciaProperties.class, GlobalExceptionHandler.class})
+class CajeroControllerTestIT {
+
+    private static final String BASE_ENDPOINT = "/carlosbank/api/cajero";
+    private static final String TOKEN = "token-sesion";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private TarjetaServicio tarjetaServicio;
+
+    @Test
+    void abrirSesion_OK() throws Exception {
+        when(tarjetaServicio.abrirSesion("1111", 1234)).thenReturn(TOKEN);
+
+        mockMvc.perform(post(BASE_ENDPOINT + "/sesiones")
+                        .param("numeroTarjeta", "1111")
+                        .param("pin", "1234"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(TOKEN));
+    }
+
+    @Test
+    void sacarDinero_OK() throws Exception {
+        when(tarjetaServicio.sacarDineroEnSesion(TOKEN, Dinero.deUnidades(500), ConstantData.MI_BANCO)).thenReturn(Dinero.CERO);
+
+        mockMvc.perform(post(BASE_ENDPOINT + "/sacar")
+                        .header(CajeroController.CABECERA_SESION, TOKEN)
+                        .param("cantidad", "500")
+                        .param("banco", ConstantData.MI_BANCO))
+                .andExpect(status().isOk())
+                .andExpect(content().string("0.00"));
+    }
+
+    @Test
+    void sacarDinero_repetidoConLaMismaClave_deberiaSacarUnaSolaVez() throws Exception {
+        when(tarjetaServicio.sacarDineroEnSesion(TOKEN, Dinero.deUnidades(500), ConstantData.MI_BANCO)).thenReturn(Dinero.CERO);
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post(BASE_ENDPOINT + "/sacar")
+                            .header(CajeroController.CABECERA_SESION, TOKEN)
+                            .header(Idempotencia.CABECERA, "clave-cajero-1")
+                            .param("cantidad", "500")
+                            .param("banco", ConstantData.MI_BANCO))
+                    .andExpect(status().isOk())
+                    .andExpect(content().string("0.00"));
+        }
+
+        verify(tarjetaServicio, times(1)).sacarDineroEnSesion(TOKEN, Dinero.deUnidades(500), ConstantData.MI_BANCO);
+    }
+
+    @Test
+    void sacarDinero_mismaClaveConOtraCantidad_deberiaResponder400() throws Exception {
+        when(tarjetaServicio.sacarDineroEnSesion(TOKEN, Dinero.deUnidades(500), ConstantData.MI_BANCO)).thenReturn(Dinero.CERO);
+
+        mockMvc.perform(post(BASE_ENDPOINT + "/sacar")
+                        .header(CajeroController.CABECERA_SESION, TOKEN)
+                        .header(Idempotencia.CABECERA, "clave-cajero-2")
+                        .param("cantidad", "500")
+                        .param("banco", ConstantData.MI_BANCO))
+                .andExpect(status().isOk());
+        mockMvc.perform(post(BASE_ENDPOINT + "/sacar")
+                        .header(CajeroController.CABECERA_SESION, TOKEN)
+                        .header(Idempotencia.CABECERA, "clave-cajero-2")
+                        .param("cantidad", "600")
+                        .param("banco", ConstantData.MI_BANCO))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void consultarConfiguracion_sesionCaducada() throws Exception {
+        when(tarjetaServicio.consultarConfiguracionEnSesion(TOKEN))
+                .thenThrow(new UnauthorizedException("La sesion no existe o ha caducado"));
+
+        mockMvc.perform(get(BASE_ENDPOINT + "/configuracion")
+                        .header(CajeroController.CABECERA_SESION, TOKEN))
+                .andExpect(status().isUnauthorized())
+                .andExpect(content().string("La sesion no existe o ha caducado"));
+    }
+
+    @Test
+    void sacarDinero_sinSesion() throws Exception {
+        mockMvc.perform(post(BASE_ENDPOINT + "/sacar")
+                        .param("cantidad", "500")
+                        .param("banco", ConstantData.MI_BANCO))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void cerrarSesion_OK() throws Exception {
+        mockMvc.perform(delete(BASE_ENDPOINT + "/sesiones")
+                        .header(CajeroController.CABECERA_SESION, TOKEN))
+                .andExpect(status().isOk());
+
+        verify(tarjetaServicio).cerrarSesion(TOKEN);
+    }
+}
@@ -0,0 +1,66 @@
+package es.nextdigital.demo.controlador;
+
+import es.nextdigital.demo.conciliacion.ConciliadorCuentas;
+import es.nextdigital.demo.model.DiferenciaSaldo;
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.model.InformeConciliacion;
+import es.nextdigital.demo.model.TipoMovimiento;
+import es.nextdigital.demo.model.TotalMovimientos;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(value = {ConciliacionController.class}, properties = "carlosbank.limites.habilitado=false")
+@Import(GlobalExceptionHandler.class)
+class ConciliacionControllerTestIT {
+
+    private static final String BASE_ENDPOINT = "/carlosbank/api/conciliaciones";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ConciliadorCuentas conciliador;
+
+    @Test
+    void conciliar_OK() throws Exception {
+        final DiferenciaSaldo diferencia = new DiferenciaSaldo("ES-1", Dinero.deUnidades(90), Dinero.deUnidades(80),
+                Dinero.deUnidades(10), List.of(new TotalMovimientos(TipoMovimiento.INGRESO, 1, Dinero.deUnidades(80))));
+        when(conciliador.iniciar()).thenReturn(CompletableFuture.completedFuture(
+                new InformeConciliacion(1_000, 25_000, 1, List.of(diferencia), 1, 120)));
+
+        final MvcResult resultado = mockMvc.perform(post(BASE_ENDPOINT))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cuentasConDiferencias").value(1))
+                .andExpect(jsonPath("$.diferencias[0].numeroCuenta").value("ES-1"))
+                .andExpect(jsonPath("$.diferencias[0].diferencia").value(10.00))
+                .andExpect(jsonPath("$.diferencias[0].totales[0].tipoMovimiento").value("INGRESO"));
+    }
+
+    @Test
+    void conciliar_ServiceUnavailable_siElPoolEstaParado() throws Exception {
+        when(conciliador.iniciar()).thenThrow(new RejectedExecutionException());
+
+        mockMvc.perform(post(BASE_ENDPOINT))
+                .andExpect(status().isServiceUnavailable());
+    }
+}
@@ -1,35 +1,70 @@
 package es.nextdigital.demo.controlador;
 
+import es.nextdigital.demo.configuracion.CacheSaldosProperties;
+import es.nextdigital.demo.configuracion.CacheTarjetasProperties;
+import es.nextdigital.demo.configuracion.ConcurrenciaCuentasProperties;
+import es.nextdigital.demo.configuracion.IdempotenciaProperties;
+import es.nextdigital.demo.configuracion.SesionesCajeroProperties;
+import es.nextdigital.demo.configuracion.TransferenciasLoteProperties;
 import es.nextdigital.demo.model.Cuenta;
-import es.nextdigital.demo.model.Movimiento;
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.model.MovimientoDto;
+import es.nextdigital.demo.model.ResumenMovimientos;
+import es.nextdigital.demo.model.SaldoCuenta;
 import es.nextdigital.demo.model.TipoMovimiento;
+import es.nextdigital.demo.model.TotalMovimientos;
+import org.springframework.http.MediaType;
 import es.nextdigital.demo.repositorio.CuentaRepository;
+import es.nextdigital.demo.repositorio.MovimientoRepository;
 import es.nextdigital.demo.repositorio.TarjetaRepository;
 import es.nextdigital.demo.servicios.BancoServicio;
+import es.nextdigital.demo.servicios.BloqueoCuentas;
+import es.nextdigital.demo.servicios.CacheSaldos;
+import es.nextdigital.demo.servicios.CacheTarjetas;
+import es.nextdigital.demo.servicios.ContadoresRetiradas;
 import es.nextdigital.demo.servicios.CuentaServicioImpl;
+import es.nextdigital.demo.servicios.EncriptadorPin;
+import es.nextdigital.demo.servicios.Idempotencia;
+import es.nextdigital.demo.servicios.MetricasOperaciones;
+import es.nextdigital.demo.servicios.RegistroMovimientos;
+import es.nextdigital.demo.servicios.ResumenesCuenta;
+import es.nextdigital.demo.servicios.SesionesCajero;
 import es.nextdigital.demo.servicios.TarjetaServicioImpl;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.observation.ObservationAutoConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-@WebMvcTest({CuentaController.class})
-@Import({TarjetaServicioImpl.class, CuentaServicioImpl.class, GlobalExceptionHandler.class})
+@ImportAutoConfiguration(ObservationAutoConfiguration.class)
+// Los limites por tarjeta y banco tienen su propia prueba (LimitePeticionesFilterTest)
+@WebMvcTest(value = {CuentaController.class}, properties = "carlosbank.limites.habilitado=false")
+@Import({TarjetaServicioImpl.class, CuentaServicioImpl.class, EncriptadorPin.class, MetricasOperaciones.class, BloqueoCuentas.class,
+        CacheTarjetas.class, CacheTarjetasProperties.class, CacheSaldos.class, CacheSaldosProperties.class, SesionesCajero.class, SesionesCajeroProperties.class, Idempotencia.class, IdempotenciaProperties.class, RegistroMovimientos.class,
+        ConcurrenciaCuentasProperties.class, TransferenciasLoteProperties.class, GlobalExceptionHandler.class})
 class CuentaControllerTestIT {
 
     private static final String BASE_ENDPOINT = "/carlosbank/api/cuentas";
@@ -43,39 +78,168 @@ class CuentaControllerTestIT {
     @MockBean
     private CuentaRepository cuentaRepository;
 
+    @MockBean
+    private MovimientoRepository movimientoRepository;
+
     @MockBean
     private BancoServicio bancoServicio;
+
+    @MockBean
+    private ResumenesCuenta resumenesCuenta;
+
+    @MockBean
+    private ContadoresRetiradas contadoresRetiradas;
+
+    @MockBean
+    private PlatformTransactionManager transactionManager;
     
     @Test
     void listarMovimientos_OK() throws Exception {
-        Movimiento movimiento = new Movimiento();
-        movimiento.setImporte(100f);
-        movimiento.setTipoMovimiento(TipoMovimiento.INGRESO);
-        movimiento.setFechaMovimiento(new Date());
+        MovimientoDto movimiento = new MovimientoDto(1, new Date(), TipoMovimiento.INGRESO, Dinero.deUnidades(100));
 
-        Cuenta cuenta = new Cuenta();
-        cuenta.setMovimientos(List.of(movimiento));
-
-        when(cuentaRepository.findById("ES01")).thenReturn(Optional.of(cuenta));
+        when(movimientoRepository.findMovimientos("ES01")).thenReturn(List.of(movimiento));
 
         mockMvc.perform(get(BASE_ENDPOINT + "/ES01/movimientos"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$[0].importe").value(100f));
+                .andExpect(jsonPath("$[0].importe").value(100.0));
+    }
+
+    @Test
+    void consultarSaldo_OK() throws Exception {
+        when(cuentaRepository.findSaldoById("ES01")).thenReturn(Optional.of(new SaldoCuenta(Dinero.valueOf("250.5"), 3)));
+
+        mockMvc.perform(get(BASE_ENDPOINT + "/ES01/saldo"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("250.50"));
+    }
+
+    @Test
+    void consultarSaldo_NotFound() throws Exception {
+        when(cuentaRepository.findSaldoById("ES01")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get(BASE_ENDPOINT + "/ES01/saldo"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void listarMovimientosPaginados_OK() throws Exception {
+        MovimientoDto mov1 = new MovimientoDto(2, new Date(2000L), TipoMovimiento.INGRESO, Dinero.deUnidades(100));
+        MovimientoDto mov2 = new MovimientoDto(1, new Date(1000L), TipoMovimiento.RETIRADA, Dinero.deUnidades(50));
+
+        when(movimientoRepository.findPaginaMovimientos(eq("ES01"), any())).thenReturn(new ArrayList<>(List.of(mov1, mov2)));
+
+        mockMvc.perform(get(BASE_ENDPOINT + "/ES01/movimientos/paginas")
+                        .param("limite", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.movimientos[0].importe").value(100.0))
+                .andExpect(jsonPath("$.siguienteCursor").value("2000_2"));
+    }
+
+    @Test
+    void listarMovimientosPaginados_NotFound() throws Exception {
+        when(movimientoRepository.findPaginaMovimientos(eq("ES01"), any())).thenReturn(List.of());
+        when(cuentaRepository.existsById("ES01")).thenReturn(false);
+
+        mockMvc.perform(get(BASE_ENDPOINT + "/ES01/movimientos/paginas"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void consultarResumen_OK() throws Exception {
+        final LocalDate desde = LocalDate.of(2024, 1, 1);
+        final LocalDate hasta = LocalDate.of(2024, 1, 31);
+        when(resumenesCuenta.consultar("ES01", desde, hasta)).thenReturn(new ResumenMovimientos("ES01", desde, hasta,
+                List.of(new TotalMovimientos(TipoMovimiento.RETIRADA, 3, Dinero.deUnidades(150)))));
+
+        mockMvc.perform(get(BASE_ENDPOINT + "/ES01/resumen")
+                        .param("desde", "2024-01-01")
+                        .param("hasta", "2024-01-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totales[0].tipoMovimiento").value("RETIRADA"))
+                .andExpect(jsonPath("$.totales[0].numeroMovimientos").value(3))
+                .andExpect(jsonPath("$.totales[0].total").value(150.0));
+    }
+
+    @Test
+    void streamMovimientos_OK() throws Exception {
+        MovimientoDto mov1 = new MovimientoDto(2, new Date(2000L), TipoMovimiento.INGRESO, Dinero.deUnidades(100));
+        MovimientoDto mov2 = new MovimientoDto(1, new Date(1000L), TipoMovimiento.RETIRADA, Dinero.deUnidades(50));
+
+        when(movimientoRepository.findPaginaMovimientos(eq("ES01"), any())).thenReturn(List.of(mov1, mov2));
+
+        MvcResult resultado = mockMvc.perform(get(BASE_ENDPOINT + "/ES01/movimientos/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(content().string(
+                        "{\"movimientoId\":2,\"fechaMovimiento\":\"1970-01-01T00:00:02.000+00:00\",\"tipoMovimiento\":\"INGRESO\",\"importe\":100.00}\n"
+                                + "{\"movimientoId\":1,\"fechaMovimiento\":\"1970-01-01T00:00:01.000+00:00\",\"tipoMovimiento\":\"RETIRADA\",\"importe\":50.00}\n"));
     }
 
     @Test
     void realizarTransferencia_OK() throws Exception {
         Cuenta cuenta = new Cuenta();
-        cuenta.setSaldo(1000f);
+        cuenta.setNumeroCuenta("ES01");
+        cuenta.setSaldo(Dinero.deUnidades(1000));
         cuenta.setMovimientos(new ArrayList<>());
 
-        when(cuentaRepository.findById("ES01")).thenReturn(Optional.of(cuenta));
+        when(cuentaRepository.findAllById(any())).thenReturn(List.of(cuenta));
 
         mockMvc.perform(post(BASE_ENDPOINT + "/ES01/transferencias")
                         .param("ibanDestino", "ES02")
                         .param("cantidad", "100"))
                 .andExpect(status().isOk());
 
-        verify(cuentaRepository).save(any());
+        verify(cuentaRepository).save(cuenta);
+    }
+
+    @Test
+    void realizarTransferencias_OK() throws Exception {
+        Cuenta cuenta = new Cuenta();
+        cuenta.setNumeroCuenta("ES01");
+        cuenta.setSaldo(Dinero.deUnidades(100));
+
+        Cuenta destino = new Cuenta();
+        destino.setNumeroCuenta("ES02");
+
+        when(cuentaRepository.findAllById(any())).thenReturn(List.of(cuenta, destino));
+
+        mockMvc.perform(post(BASE_ENDPOINT + "/transferencias/lote")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"referencia\":\"n1\",\"cuentaOrigen\":\"ES01\",\"ibanDestino\":\"ES02\",\"cantidad\":60.5},"
+                                + "{\"referencia\":\"n2\",\"cuentaOrigen\":\"ES01\",\"ibanDestino\":\"ES02\",\"cantidad\":60}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].estado").value("REALIZADA"))
+                .andExpect(jsonPath("$[0].importeCargado").value(60.5))
+                .andExpect(jsonPath("$[1].referencia").value("n2"))
+                .andExpect(jsonPath("$[1].estado").value("SALDO_INSUFICIENTE"));
+    }
+
+    @Test
+    void realizarTransferenciasStream_OK() throws Exception {
+        Cuenta cuenta = new Cuenta();
+        cuenta.setNumeroCuenta("ES01");
+        cuenta.setSaldo(Dinero.deUnidades(100));
+
+        Cuenta destino = new Cuenta();
+        destino.setNumeroCuenta("ES02");
+
+        when(cuentaRepository.findAllById(any())).thenReturn(List.of(cuenta, destino));
+
+        MvcResult resultado = mockMvc.perform(post(BASE_ENDPOINT + "/transferencias/lote")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .content("{\"referencia\":\"n1\",\"cuentaOrigen\":\"ES01\",\"ibanDestino\":\"ES02\",\"cantidad\":\"10\"}\n"
+                                + "{\"referencia\":\"n2\",\"cuentaOrigen\":\"ES01\",\"ibanDestino\":\"ES02\",\"cantidad\":\"-1\"}\n"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(content().string(
+                        "{\"referencia\":\"n1\",\"cuentaOrigen\":\"ES01\",\"ibanDestino\":\"ES02\",\"estado\":\"REALIZADA\",\"importeCargado\":10.00}\n"
+                                + "{\"referencia\":\"n2\",\"cuentaOrigen\":\"ES01\",\"ibanDestino\":\"ES02\",\"estado\":\"DATOS_NO_VALIDOS\",\"importeCargado\":null}\n"));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,74 @@
+package es.nextdigital.demo.controlador;
+
+import es.nextdigital.demo.exceptions.BadRequestException;
+import es.nextdigital.demo.exportacion.ExportadorMovimientos;
+import es.nextdigital.demo.model.EstadoExportacion;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(value = {ExportacionController.class}, properties = "carlosbank.limites.habilitado=false")
+@Import(GlobalExceptionHandler.class)
+class ExportacionControllerTestIT {
+
+    private static final String BASE_ENDPOINT = "/carlosbank/api/exportaciones";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ExportadorMovimientos exportador;
+
+    @Test
+    void iniciarExportacion_OK() throws Exception {
+        when(exportador.iniciar("auditoria", List.of("ES-1", "ES-2"))).thenReturn(
+                new EstadoExportacion("auditoria", EstadoExportacion.Situacion.PENDIENTE, 0, 0, 0, -1, null));
+
+        mockMvc.perform(post(BASE_ENDPOINT + "/auditoria")
+                        .param("cuentas", "ES-1", "ES-2"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.situacion").value("PENDIENTE"));
+    }
+
+    @Test
+    void iniciarExportacion_nombreNoValido() throws Exception {
+        when(exportador.iniciar("a.b", List.of())).thenThrow(new BadRequestException("Nombre de exportacion no valido"));
+
+        mockMvc.perform(post(BASE_ENDPOINT + "/a.b"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Nombre de exportacion no valido"));
+    }
+
+    @Test
+    void consultarExportacion_OK() throws Exception {
+        when(exportador.consultar("auditoria")).thenReturn(Optional.of(
+                new EstadoExportacion("auditoria", EstadoExportacion.Situacion.EN_CURSO, 2_000_000, 2, 2_000_050, 9_000_000, null)));
+
+        mockMvc.perform(get(BASE_ENDPOINT + "/auditoria"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.movimientos").value(2_000_000))
+                .andExpect(jsonPath("$.ficheros").value(2));
+    }
+
+    @Test
+    void consultarExportacion_NotFound() throws Exception {
+        when(exportador.consultar("no-existe")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get(BASE_ENDPOINT + "/no-existe"))
+                .andExpect(status().isNotFound())
+                .andExpect(content().string("Exportacion no encontrada"));
+    }
+}
@@ -0,0 +1,94 @@
+package es.nextdigital.demo.controlador;
+
+import com.zaxxer.hikari.HikariDataSource;
+import es.nextdigital.demo.configuracion.HilosVirtualesProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LimitadorConcurrenciaFilterTest {
+
+    private static final String ENDPOINT = "/carlosbank/api/tarjetas/123456/sacar";
+
+    @Test
+    void constructor_deberiaUsarElTamanoDelPoolDeHikari() {
+        try (HikariDataSource dataSource = new HikariDataSource()) {
+            dataSource.setMaximumPoolSize(7);
+
+            final LimitadorConcurrenciaFilter filtro = new LimitadorConcurrenciaFilter(dataSource, propiedades(0));
+
+            assertEquals(7, filtro.permisosDisponibles());
+        }
+    }
+
+    @Test
+    void constructor_deberiaUsarElTamanoPorDefectoDeHikari_siElPoolNoHaArrancado() {
+        try (HikariDataSource dataSource = new HikariDataSource()) {
+            final LimitadorConcurrenciaFilter filtro = new LimitadorConcurrenciaFilter(dataSource, propiedades(0));
+
+            assertEquals(10, filtro.permisosDisponibles());
+        }
+    }
+
+    @Test
+    void doFilter_deberiaLiberarElPermiso_alTerminarLaPeticion() throws Exception {
+        final LimitadorConcurrenciaFilter filtro = new LimitadorConcurrenciaFilter(new HikariDataSource(), propiedades(1));
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filtro.doFilter(new MockHttpServletRequest("POST", ENDPOINT), response, new MockFilterChain());
+
+        assertEquals(200, response.getStatus());
+        assertEquals(1, filtro.permisosDisponibles());
+    }
+
+    @Test
+    void doFilter_deberiaResponder503_siNoHayHuecoATiempo() throws Exception {
+        final LimitadorConcurrenciaFilter filtro = new LimitadorConcurrenciaFilter(new HikariDataSource(), propiedades(1));
+        final MockHttpServletResponse respuestaInterna = new MockHttpServletResponse();
+
+        // La segunda peticion llega mientras la primera ocupa el unico permiso
+        filtro.doFilter(new MockHttpServletRequest("POST", ENDPOINT), new MockHttpServletResponse(),
+                (request, response) -> filtro.doFilter(new MockHttpServletRequest("POST", ENDPOINT), respuestaInterna, new MockFilterChain()));
+
+        assertEquals(503, respuestaInterna.getStatus());
+        assertEquals(1, filtro.permisosDisponibles());
+    }
+
+    @Test
+    void doFilter_deberiaMantenerElPermiso_hastaQueTermineLaRespuestaAsincrona() throws Exception {
+        final LimitadorConcurrenciaFilter filtro = new LimitadorConcurrenciaFilter(new HikariDataSource(), propiedades(1));
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/carlosbank/api/cuentas/ES1/movimientos/stream");
+        request.setAsyncSupported(true);
+
+        filtro.doFilter(request, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+        assertEquals(0, filtro.permisosDisponibles());
+
+        ((MockAsyncContext) request.getAsyncContext()).complete();
+        assertEquals(1, filtro.permisosDisponibles());
+    }
+
+    @Test
+    void doFilter_noDeberiaLimitar_fueraDeLaApi() throws Exception {
+        final LimitadorConcurrenciaFilter filtro = new LimitadorConcurrenciaFilter(new HikariDataSource(), propiedades(1));
+        final MockHttpServletResponse respuestaInterna = new MockHttpServletResponse();
+
+        filtro.doFilter(new MockHttpServletRequest("POST", ENDPOINT), new MockHttpServletResponse(),
+                (request, response) -> filtro.doFilter(new MockHttpServletRequest("GET", "/actuator/health"), respuestaInterna, new MockFilterChain()));
+
+        assertEquals(200, respuestaInterna.getStatus());
+    }
+
+    private static HilosVirtualesProperties propiedades(final int maximoConcurrente) {
+        final HilosVirtualesProperties propiedades = new HilosVirtualesProperties();
+        propiedades.setHabilitado(true);
+        propiedades.setMaximoConcurrente(maximoConcurrente);
+        propiedades.setEsperaMaxima(Duration.ofMillis(50));
+        return propiedades;
+    }
+}
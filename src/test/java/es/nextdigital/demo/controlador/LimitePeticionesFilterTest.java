@@ -0,0 +1,175 @@
+package es.nextdigital.demo.controlador;
+
+import es.nextdigital.demo.configuracion.LimitesPeticionesProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LimitePeticionesFilterTest {
+
+    private static final String SACAR = "/carlosbank/api/tarjetas/123456/sacar";
+    private static final String OTRA_TARJETA = "/carlosbank/api/tarjetas/654321/sacar";
+
+    private MeterRegistry registro;
+    private LimitePeticionesFilter filtro;
+    private LimitePeticionesWebFilter filtroWebFlux;
+
+    @BeforeEach
+    void setUp() {
+        final LimitesPeticionesProperties propiedades = new LimitesPeticionesProperties();
+        propiedades.setTarjeta(new LimitesPeticionesProperties.Limite(2, Duration.ofMinutes(1)));
+        propiedades.setBanco(new LimitesPeticionesProperties.Limite(3, Duration.ofMinutes(1)));
+        this.registro = new SimpleMeterRegistry();
+        this.filtro = new LimitePeticionesFilter(propiedades, this.registro);
+        this.filtroWebFlux = new LimitePeticionesWebFilter(propiedades, this.registro);
+    }
+
+    @Test
+    void doFilter_deberiaResponder429_alSuperarElLimiteDeLaTarjeta() throws Exception {
+        assertEquals(200, peticion(SACAR, "BANCO1").getStatus());
+        assertEquals(200, peticion(SACAR, "BANCO2").getStatus());
+
+        final MockHttpServletResponse rechazada = peticion(SACAR, "BANCO3");
+
+        assertEquals(429, rechazada.getStatus());
+        assertEquals("60", rechazada.getHeader("Retry-After"));
+        assertEquals(1, rechazadas("tarjeta"));
+        // Las demas tarjetas tienen su propio limite
+        assertEquals(200, peticion(OTRA_TARJETA, "BANCO3").getStatus());
+    }
+
+    @Test
+    void doFilter_deberiaUsarElNumeroDeTarjetaQueVeElControlador() throws Exception {
+        assertEquals(200, peticion(SACAR, "BANCO1").getStatus());
+        assertEquals(200, peticion(SACAR, "BANCO2").getStatus());
+
+        // Spring decodifica la ruta y quita los parametros ';' antes de resolver {numeroTarjeta}: todas son la 123456
+        assertEquals(429, peticion("/carlosbank/api/tarjetas/123456;v=1/sacar", "BANCO3").getStatus());
+        assertEquals(429, peticion("/carlosbank/api/tarjetas/%3123456/sacar", "BANCO3").getStatus());
+        assertEquals(429, peticion("/carlosbank/api/tarjetas/1%323%3456/sacar", "BANCO4").getStatus());
+        assertEquals(429, peticion("/carlosbank/api/%74arjetas/123456/sacar", "BANCO4").getStatus());
+        assertEquals(429, peticion("/carlosbank/api;v=1/tarjetas/123456/sacar", "BANCO5").getStatus());
+        assertEquals(5, rechazadas("tarjeta"));
+    }
+
+    @Test
+    void filter_webFlux_deberiaUsarElNumeroDeTarjetaQueVeElControlador() {
+        assertNull(peticionWebFlux(SACAR, "BANCO1"));
+        assertNull(peticionWebFlux(SACAR, "BANCO2"));
+
+        assertEquals(429, peticionWebFlux("/carlosbank/api/tarjetas/123456;v=1/sacar", "BANCO3"));
+        assertEquals(429, peticionWebFlux("/carlosbank/api/tarjetas/%3123456/sacar", "BANCO3"));
+        assertEquals(429, peticionWebFlux("/carlosbank/api/%74arjetas/1%323456/sacar", "BANCO4"));
+    }
+
+    @Test
+    void doFilter_deberiaResponder429_alSuperarElLimiteDelBanco() throws Exception {
+        assertEquals(200, peticion("/carlosbank/api/tarjetas/1/sacar", "BANCO1").getStatus());
+        assertEquals(200, peticion("/carlosbank/api/tarjetas/2/sacar", "BANCO1").getStatus());
+        assertEquals(200, peticion("/carlosbank/api/tarjetas/3/sacar", "BANCO1").getStatus());
+
+        assertEquals(429, peticion("/carlosbank/api/tarjetas/4/sacar", "BANCO1").getStatus());
+        assertEquals(1, rechazadas("banco"));
+        assertEquals(200, peticion("/carlosbank/api/tarjetas/4/sacar", "BANCO2").getStatus());
+    }
+
+    @Test
+    void doFilter_conLaTarjetaRechazada_noDeberiaGastarElLimiteDelBanco() throws Exception {
+        assertEquals(200, peticion(SACAR, "BANCO1").getStatus());
+        assertEquals(200, peticion(SACAR, "BANCO1").getStatus());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(429, peticion(SACAR, "BANCO1").getStatus());
+        }
+
+        // Al banco le queda el tercer token que no han gastado las rechazadas
+        assertEquals(200, peticion(OTRA_TARJETA, "BANCO1").getStatus());
+        assertEquals(0, rechazadas("banco"));
+    }
+
+    @Test
+    void doFilter_conElBancoRechazado_deberiaDevolverElTokenDeLaTarjeta() throws Exception {
+        for (int i = 1; i <= 3; i++) {
+            assertEquals(200, peticion("/carlosbank/api/tarjetas/" + i + "/sacar", "BANCO1").getStatus());
+        }
+        assertEquals(429, peticion(SACAR, "BANCO1").getStatus());
+
+        // La tarjeta conserva sus dos tokens
+        assertEquals(200, peticion(SACAR, "BANCO2").getStatus());
+        assertEquals(200, peticion(SACAR, "BANCO2").getStatus());
+        assertEquals(0, rechazadas("tarjeta"));
+    }
+
+    @Test
+    void doFilter_deberiaLimitarLaAperturaDeSesionesPorTarjeta() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            assertEquals(200, aperturaSesion().getStatus());
+        }
+
+        assertEquals(429, aperturaSesion().getStatus());
+    }
+
+    @Test
+    void doFilter_noDeberiaLimitar_lasCuentas() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            assertEquals(200, peticion("/carlosbank/api/cuentas/ES1/movimientos", "BANCO1").getStatus());
+        }
+        assertEquals(0, rechazadas("banco"));
+    }
+
+    @Test
+    void consumir_deberiaReponerLosTokensConElTiempo() {
+        final CubosTokens cubos = new CubosTokens("prueba", new LimitesPeticionesProperties.Limite(2, Duration.ofSeconds(1)),
+                10, this.registro);
+        final long ahora = System.nanoTime();
+
+        assertEquals(0, cubos.consumir("clave", ahora));
+        assertEquals(0, cubos.consumir("clave", ahora));
+        assertEquals(1_000_000_000L, cubos.consumir("clave", ahora));
+        assertEquals(0, cubos.consumir("clave", ahora + 1_000_000_000L));
+        assertEquals(0, cubos.consumir(null, ahora));
+    }
+
+    private MockHttpServletResponse peticion(final String uri, final String banco) throws Exception {
+        final MockHttpServletRequest request = new MockHttpServletRequest("POST", uri);
+        request.setParameter("banco", banco);
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        this.filtro.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    /**
+     * Estado de la respuesta de la version WebFlux, o {@code null} si la peticion ha pasado el filtro sin que se fije.
+     */
+    private Integer peticionWebFlux(final String uri, final String banco) {
+        // Con URI y no con plantilla, que volveria a codificar los '%'
+        final MockServerWebExchange exchange = MockServerWebExchange.from(
+                MockServerHttpRequest.method(HttpMethod.POST, URI.create(uri + "?banco=" + banco)));
+        this.filtroWebFlux.filter(exchange, e -> Mono.empty()).block();
+        return exchange.getResponse().getStatusCode() == null ? null : exchange.getResponse().getStatusCode().value();
+    }
+
+    private MockHttpServletResponse aperturaSesion() throws Exception {
+        final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/carlosbank/api/cajero/sesiones");
+        request.setParameter("numeroTarjeta", "123456");
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        this.filtro.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private double rechazadas(final String limite) {
+        return this.registro.get(CubosTokens.METRICA_RECHAZADAS).tag("limite", limite).counter().count();
+    }
+}
@@ -1,29 +1,55 @@
 package es.nextdigital.demo.controlador;
 
 import es.nextdigital.demo.common.ConstantData;
+import es.nextdigital.demo.configuracion.CacheSaldosProperties;
+import es.nextdigital.demo.configuracion.CacheTarjetasProperties;
+import es.nextdigital.demo.configuracion.ConcurrenciaCuentasProperties;
+import es.nextdigital.demo.configuracion.IdempotenciaProperties;
+import es.nextdigital.demo.configuracion.SesionesCajeroProperties;
+import es.nextdigital.demo.configuracion.TransferenciasLoteProperties;
 import es.nextdigital.demo.model.Cuenta;
+import es.nextdigital.demo.model.Dinero;
 import es.nextdigital.demo.model.Tarjeta;
+import es.nextdigital.demo.model.TarjetaAutenticada;
 import es.nextdigital.demo.model.TipoTarjeta;
 import es.nextdigital.demo.repositorio.CuentaRepository;
+import es.nextdigital.demo.repositorio.MovimientoRepository;
 import es.nextdigital.demo.repositorio.TarjetaRepository;
 import es.nextdigital.demo.servicios.BancoServicio;
+import es.nextdigital.demo.servicios.BloqueoCuentas;
+import es.nextdigital.demo.servicios.CacheSaldos;
+import es.nextdigital.demo.servicios.CacheTarjetas;
+import es.nextdigital.demo.servicios.ContadoresRetiradas;
 import es.nextdigital.demo.servicios.CuentaServicio;
 import es.nextdigital.demo.servicios.CuentaServicioImpl;
+import es.nextdigital.demo.servicios.EncriptadorPin;
+import es.nextdigital.demo.servicios.Idempotencia;
+import es.nextdigital.demo.servicios.MetricasOperaciones;
+import es.nextdigital.demo.servicios.RegistroMovimientos;
+import es.nextdigital.demo.servicios.ResumenesCuenta;
+import es.nextdigital.demo.servicios.SesionesCajero;
 import es.nextdigital.demo.servicios.TarjetaServicioImpl;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.observation.ObservationAutoConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -31,8 +57,12 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-@WebMvcTest({TarjetaController.class})
-@Import({TarjetaServicioImpl.class, CuentaServicioImpl.class, GlobalExceptionHandler.class})
+@ImportAutoConfiguration(ObservationAutoConfiguration.class)
+// Los limites por tarjeta y banco tienen su propia prueba (LimitePeticionesFilterTest)
+@WebMvcTest(value = {TarjetaController.class}, properties = "carlosbank.limites.habilitado=false")
+@Import({TarjetaServicioImpl.class, CuentaServicioImpl.class, EncriptadorPin.class, MetricasOperaciones.class, BloqueoCuentas.class,
+        CacheTarjetas.class, CacheTarjetasProperties.class, CacheSaldos.class, CacheSaldosProperties.class, SesionesCajero.class, SesionesCajeroProperties.class, Idempotencia.class, IdempotenciaProperties.class, RegistroMovimientos.class,
+        ConcurrenciaCuentasProperties.class, TransferenciasLoteProperties.class, GlobalExceptionHandler.class})
 class TarjetaControllerTestIT {
 
     private static final String BASE_ENDPOINT = "/carlosbank/api/tarjetas";
@@ -46,32 +76,74 @@ class TarjetaControllerTestIT {
     @MockBean
     private CuentaRepository cuentaRepository;
 
+    @MockBean
+    private MovimientoRepository movimientoRepository;
+
     @MockBean
     private CuentaServicio cuentaServicio;
 
     @MockBean
     private BancoServicio bancoServicio;
 
+    @MockBean
+    private ResumenesCuenta resumenesCuenta;
+
+    @MockBean
+    private ContadoresRetiradas contadoresRetiradas;
+
+    @MockBean
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CacheTarjetas cacheTarjetas;
+
     private final String PIN_ENCRIPTADO = encriptarPin(1234);
 
+    @BeforeEach
+    void setUp() {
+        // La cache se comparte entre tests con el contexto; el repositorio simulado no
+        cacheTarjetas.invalidar("1111");
+        when(contadoresRetiradas.reservar(any(), any(), any())).thenReturn(Optional.of(LocalDate.now()));
+    }
+
     @Test
     void sacarDinero_OK() throws Exception {
-        Tarjeta tarjeta = buildTarjeta(true, TipoTarjeta.DEBITO, 1000, 0, 500);
-        when(tarjetaRepository.findByNumeroAndPinEncriptado("1111", PIN_ENCRIPTADO)).thenReturn(Optional.of(tarjeta));
-        when(cuentaServicio.sacarDinero(any(), eq(500f))).thenReturn(true);
+        TarjetaAutenticada tarjeta = buildTarjetaAutenticada(true, TipoTarjeta.DEBITO, Dinero.CERO, Dinero.deUnidades(500));
+        when(tarjetaRepository.findAutenticadaByNumero("1111")).thenReturn(Optional.of(tarjeta));
+        when(cuentaServicio.sacarDinero(any(), eq(Dinero.deUnidades(500)), anyBoolean())).thenReturn(true);
 
         mockMvc.perform(post(BASE_ENDPOINT + "/1111/sacar")
                         .param("pin", "1234")
                         .param("cantidad", "500")
                         .param("banco", ConstantData.MI_BANCO))
                 .andExpect(status().isOk())
-                .andExpect(content().string("0.0"));
+                .andExpect(content().string("0.00"));
+    }
+
+    @Test
+    void sacarDinero_repetidoConLaMismaClave_deberiaSacarUnaSolaVezSinQueElPinFormeParteDeLaHuella() throws Exception {
+        TarjetaAutenticada tarjeta = buildTarjetaAutenticada(true, TipoTarjeta.DEBITO, Dinero.CERO, Dinero.deUnidades(500));
+        when(tarjetaRepository.findAutenticadaByNumero("1111")).thenReturn(Optional.of(tarjeta));
+        when(cuentaServicio.sacarDinero(any(), eq(Dinero.deUnidades(500)), anyBoolean())).thenReturn(true);
+
+        // La repeticion recibe el resultado guardado aunque llegue con otro pin: el pin no se guarda en la huella
+        for (String pin : new String[]{"1234", "9999"}) {
+            mockMvc.perform(post(BASE_ENDPOINT + "/1111/sacar")
+                            .header(Idempotencia.CABECERA, "clave-tarjeta-1")
+                            .param("pin", pin)
+                            .param("cantidad", "500")
+                            .param("banco", ConstantData.MI_BANCO))
+                    .andExpect(status().isOk())
+                    .andExpect(content().string("0.00"));
+        }
+
+        verify(cuentaServicio, times(1)).sacarDinero(any(), eq(Dinero.deUnidades(500)), anyBoolean());
     }
 
     @Test
     void ingresarDinero_OK() throws Exception {
-        Tarjeta tarjeta = buildTarjeta(true, TipoTarjeta.DEBITO, 1000, 0, 500);
-        when(tarjetaRepository.findByNumeroAndPinEncriptado("1111", PIN_ENCRIPTADO)).thenReturn(Optional.of(tarjeta));
+        TarjetaAutenticada tarjeta = buildTarjetaAutenticada(true, TipoTarjeta.DEBITO, Dinero.CERO, Dinero.deUnidades(500));
+        when(tarjetaRepository.findAutenticadaByNumero("1111")).thenReturn(Optional.of(tarjeta));
 
         mockMvc.perform(post(BASE_ENDPOINT + "/1111/ingresar")
                         .param("pin", "1234")
@@ -79,7 +151,7 @@ class TarjetaControllerTestIT {
                         .param("banco", ConstantData.MI_BANCO))
                 .andExpect(status().isOk());
 
-        verify(cuentaServicio).ingresarDinero(any(), eq(500f));
+        verify(cuentaServicio).ingresarDinero(any(), eq(Dinero.deUnidades(500)));
     }
 
     @Test
@@ -97,7 +169,7 @@ class TarjetaControllerTestIT {
 
     @Test
     void cambiarPin_OK() throws Exception {
-        Tarjeta tarjeta = buildTarjeta(true, TipoTarjeta.DEBITO, 1000, 0, 500);
+        Tarjeta tarjeta = buildTarjeta(true, TipoTarjeta.DEBITO, Dinero.deUnidades(1000), Dinero.CERO, Dinero.deUnidades(500));
         when(tarjetaRepository.findByNumeroAndPinEncriptado("1111", PIN_ENCRIPTADO)).thenReturn(Optional.of(tarjeta));
 
         mockMvc.perform(post(BASE_ENDPOINT + "/1111/cambiar-pin")
@@ -108,18 +180,18 @@ class TarjetaControllerTestIT {
 
     @Test
     void consultarConfiguracion_OK() throws Exception {
-        Tarjeta tarjeta = buildTarjeta(true, TipoTarjeta.DEBITO, 1000, 0, 500);
-        when(tarjetaRepository.findByNumeroAndPinEncriptado("1111", PIN_ENCRIPTADO)).thenReturn(Optional.of(tarjeta));
+        TarjetaAutenticada tarjeta = buildTarjetaAutenticada(true, TipoTarjeta.DEBITO, Dinero.CERO, Dinero.deUnidades(500));
+        when(tarjetaRepository.findAutenticadaByNumero("1111")).thenReturn(Optional.of(tarjeta));
 
         mockMvc.perform(get(BASE_ENDPOINT + "/1111/configuracion")
                         .param("pin", "1234"))
                 .andExpect(status().isOk())
-                .andExpect(content().string("500.0"));
+                .andExpect(content().string("500.00"));
     }
 
     @Test
     void modificarConfiguracion_OK() throws Exception {
-        Tarjeta tarjeta = buildTarjeta(true, TipoTarjeta.DEBITO, 1000, 0, 500);
+        Tarjeta tarjeta = buildTarjeta(true, TipoTarjeta.DEBITO, Dinero.deUnidades(1000), Dinero.CERO, Dinero.deUnidades(500));
         when(tarjetaRepository.findByNumeroAndPinEncriptado("1111", PIN_ENCRIPTADO)).thenReturn(Optional.of(tarjeta));
 
         mockMvc.perform(post(BASE_ENDPOINT + "/1111/configuracion")
@@ -130,7 +202,7 @@ class TarjetaControllerTestIT {
         verify(tarjetaRepository).save(any());
     }
 
-    private Tarjeta buildTarjeta(boolean activada, TipoTarjeta tipo, float saldo, float credito, float limite) {
+    private Tarjeta buildTarjeta(boolean activada, TipoTarjeta tipo, Dinero saldo, Dinero credito, Dinero limite) {
         Cuenta cuenta = new Cuenta();
         cuenta.setSaldo(saldo);
         cuenta.setMovimientos(new ArrayList<>());
@@ -145,6 +217,10 @@ class TarjetaControllerTestIT {
         return tarjeta;
     }
 
+    private TarjetaAutenticada buildTarjetaAutenticada(boolean activada, TipoTarjeta tipo, Dinero credito, Dinero limite) {
+        return new TarjetaAutenticada("1111", PIN_ENCRIPTADO, activada, tipo, limite, credito, "ES1111");
+    }
+
 
 
     private static String encriptarPin(final int pin){
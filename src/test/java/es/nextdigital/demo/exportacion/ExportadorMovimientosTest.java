@@ -0,0 +1,164 @@
+package es.nextdigital.demo.exportacion;
+
+import es.nextdigital.demo.configuracion.ExportacionMovimientosProperties;
+import es.nextdigital.demo.exceptions.BadRequestException;
+import es.nextdigital.demo.exceptions.ConflictException;
+import es.nextdigital.demo.model.Cuenta;
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.model.EstadoExportacion;
+import es.nextdigital.demo.model.Movimiento;
+import es.nextdigital.demo.model.TipoMovimiento;
+import es.nextdigital.demo.repositorio.CuentaRepository;
+import es.nextdigital.demo.repositorio.MovimientoRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "carlosbank.exportacion.directorio=target/exportaciones-test/${random.uuid}",
+        "carlosbank.exportacion.movimientos-por-fichero=100",
+        "carlosbank.exportacion.tamano-fetch=10"
+})
+class ExportadorMovimientosTest {
+
+    @Autowired
+    private ExportadorMovimientos exportador;
+
+    @Autowired
+    private ExportacionMovimientosProperties propiedades;
+
+    @Autowired
+    private CuentaRepository cuentaRepository;
+
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+
+    @Test
+    void iniciar_deberiaExportarLosMovimientosDeLasCuentasEnFicherosComprimidos() throws Exception {
+        // Arrange: una cuenta que no se exporta entre medias
+        final List<Movimiento> primera = sembrar("ES-EXPORTAR-1", 150);
+        sembrar("ES-NO-EXPORTAR", 30);
+        final List<Movimiento> segunda = sembrar("ES-EXPORTAR-2", 100);
+
+        // Act
+        exportador.iniciar("auditoria", List.of("ES-EXPORTAR-1", "ES-EXPORTAR-2"));
+        final EstadoExportacion estado = esperar("auditoria");
+
+        // Assert
+        assertEquals(EstadoExportacion.Situacion.TERMINADA, estado.situacion());
+        assertEquals(250, estado.movimientos());
+        assertEquals(3, estado.ficheros());
+
+        final List<String> filas = leer(carpeta("auditoria"), 1, 3);
+        assertEquals(250, filas.size());
+        final Movimiento movimiento = primera.get(0);
+        assertEquals(movimiento.getMovimientoId() + ",ES-EXPORTAR-1," + movimiento.getFechaMovimiento().toInstant() + ",INGRESO,1.25",
+                filas.get(0));
+        assertTrue(filas.get(249).startsWith(segunda.get(99).getMovimientoId() + ",ES-EXPORTAR-2,"));
+        assertTrue(filas.stream().noneMatch(fila -> fila.contains("ES-NO-EXPORTAR")));
+    }
+
+    @Test
+    void iniciar_deberiaReanudarDesdeElUltimoFicheroCompleto() throws Exception {
+        // Arrange: exportacion interrumpida tras el primer fichero y con el segundo a medio escribir
+        final List<Movimiento> movimientos = sembrar("ES-REANUDAR", 250);
+        final Path carpeta = carpeta("reanudada");
+        Files.createDirectories(carpeta);
+        new ProgresoExportacion(List.of("ES-REANUDAR"), movimientos.get(249).getMovimientoId(),
+                movimientos.get(99).getMovimientoId(), 1, 100, false).escribir(carpeta);
+        Files.writeString(carpeta.resolve("movimientos-000002.csv.gz.tmp"), "a medias");
+        assertEquals(EstadoExportacion.Situacion.INTERRUMPIDA, exportador.consultar("reanudada").orElseThrow().situacion());
+
+        // Act
+        exportador.iniciar("reanudada", List.of());
+        final EstadoExportacion estado = esperar("reanudada");
+
+        // Assert
+        assertEquals(EstadoExportacion.Situacion.TERMINADA, estado.situacion());
+        assertEquals(250, estado.movimientos());
+        assertEquals(3, estado.ficheros());
+        final List<String> filas = leer(carpeta, 2, 3);
+        assertEquals(150, filas.size());
+        assertTrue(filas.get(0).startsWith(movimientos.get(100).getMovimientoId() + ","));
+        assertFalse(Files.exists(carpeta.resolve("movimientos-000002.csv.gz.tmp")));
+    }
+
+    @Test
+    void iniciar_deberiaRechazarOtrasCuentasParaUnaExportacionExistente() throws Exception {
+        sembrar("ES-EXISTENTE", 1);
+        exportador.iniciar("existente", List.of("ES-EXISTENTE"));
+        esperar("existente");
+
+        assertThrows(ConflictException.class, () -> exportador.iniciar("existente", List.of("ES-OTRA")));
+        assertEquals(EstadoExportacion.Situacion.TERMINADA, exportador.iniciar("existente", List.of()).situacion());
+    }
+
+    @Test
+    void iniciar_deberiaRechazarNombresQueSalenDelDirectorio() {
+        assertThrows(BadRequestException.class, () -> exportador.iniciar("../fuera", List.of()));
+        assertTrue(exportador.consultar("../fuera").isEmpty());
+        assertTrue(exportador.consultar("no-existe").isEmpty());
+    }
+
+    private List<Movimiento> sembrar(final String numeroCuenta, final int numeroMovimientos) {
+        final Cuenta cuenta = new Cuenta();
+        cuenta.setNumeroCuenta(numeroCuenta);
+        cuenta.setSaldo(Dinero.deUnidades(1_000));
+        cuentaRepository.save(cuenta);
+
+        final List<Movimiento> movimientos = new ArrayList<>();
+        for (int i = 0; i < numeroMovimientos; i++) {
+            final Movimiento movimiento = new Movimiento();
+            movimiento.setFechaMovimiento(new Date(1_700_000_000_000L + i * 1_000L));
+            movimiento.setTipoMovimiento(TipoMovimiento.INGRESO);
+            movimiento.setImporte(Dinero.valueOf("1.25"));
+            movimiento.setCuenta(cuenta);
+            movimientos.add(movimiento);
+        }
+        return movimientoRepository.saveAll(movimientos);
+    }
+
+    private EstadoExportacion esperar(final String nombre) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            final EstadoExportacion estado = exportador.consultar(nombre).orElseThrow();
+            if (estado.situacion() != EstadoExportacion.Situacion.PENDIENTE
+                    && estado.situacion() != EstadoExportacion.Situacion.EN_CURSO) {
+                return estado;
+            }
+            Thread.sleep(20);
+        }
+        return fail("La exportacion " + nombre + " no ha terminado");
+    }
+
+    private Path carpeta(final String nombre) {
+        return Paths.get(propiedades.getDirectorio(), nombre);
+    }
+
+    // Filas (sin cabecera) de los ficheros desde..hasta, en orden
+    private static List<String> leer(final Path carpeta, final int desde, final int hasta) throws IOException {
+        final List<String> filas = new ArrayList<>();
+        for (int i = desde; i <= hasta; i++) {
+            final Path fichero = carpeta.resolve(String.format("movimientos-%06d.csv.gz", i));
+            try (BufferedReader lector = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(fichero)), StandardCharsets.UTF_8))) {
+                assertEquals(ExportadorMovimientos.CABECERA.trim(), lector.readLine());
+                lector.lines().forEach(filas::add);
+            }
+        }
+        return filas;
+    }
+}
@@ -0,0 +1,115 @@
+package es.nextdigital.demo.ledger;
+
+import es.nextdigital.demo.configuracion.LedgerProperties;
+import es.nextdigital.demo.model.TipoMovimiento;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiarioLedgerTest {
+
+    @TempDir
+    Path directorio;
+
+    private DiarioLedger diario;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        diario.cerrar();
+    }
+
+    @Test
+    void registrar_conLaColaLlena_deberiaEsperarAlPersistidorSinBloquearlo() {
+        // Arrange: cola de dos entradas y un persistidor que tarda en drenar
+        diario = new DiarioLedger(propiedades(2, Duration.ofSeconds(10)));
+        diario.recuperar(0);
+
+        // Act: el escritor llena la cola y tiene que esperar a que el persistidor la vaya vaciando
+        final CompletableFuture<Void> escritor = CompletableFuture.runAsync(() -> {
+            for (int i = 0; i < 20; i++) {
+                diario.registrar("ES01", TipoMovimiento.INGRESO, 100, 100L * (i + 1));
+            }
+        });
+        final List<EntradaDiario> persistidas = new ArrayList<>();
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            while (persistidas.size() < 20) {
+                Thread.sleep(5);
+                final List<EntradaDiario> lote = new ArrayList<>();
+                if (diario.drenar(lote, 3) > 0) {
+                    diario.confirmar(lote.get(lote.size() - 1).secuencia());
+                    persistidas.addAll(lote);
+                }
+            }
+            escritor.get(10, TimeUnit.SECONDS);
+        });
+
+        // Assert: los dos avanzan y las entradas salen en orden de secuencia
+        for (int i = 0; i < persistidas.size(); i++) {
+            assertEquals(i + 1, persistidas.get(i).secuencia());
+        }
+    }
+
+    @Test
+    void registrar_conElPersistidorParado_deberiaRechazarseSinEscribirNada() throws Exception {
+        // Arrange
+        diario = new DiarioLedger(propiedades(2, Duration.ofMillis(50)));
+        diario.recuperar(0);
+        diario.registrar("ES01", TipoMovimiento.INGRESO, 100, 100);
+        diario.registrar("ES01", TipoMovimiento.INGRESO, 100, 200);
+
+        // Act / Assert
+        assertThrows(RejectedExecutionException.class, () -> diario.registrar("ES01", TipoMovimiento.INGRESO, 100, 300));
+        assertThrows(RejectedExecutionException.class, () ->
+                diario.registrarTransferencia("ES01", 100, 100, "ES02", 100, 100));
+        assertEquals(2, Files.readAllLines(directorio.resolve(DiarioLedger.NOMBRE_FICHERO)).size());
+
+        // En cuanto el persistidor drena, vuelve a haber hueco
+        assertEquals(2, diario.drenar(new ArrayList<>(), 10));
+        assertEquals(3, diario.registrar("ES01", TipoMovimiento.INGRESO, 100, 300).secuencia());
+    }
+
+    @Test
+    void recuperar_deberiaCortarUnaLineaIncompletaAntesDeSeguirEscribiendo() throws Exception {
+        // Arrange: dos entradas completas y una tercera cortada a mitad por una caida
+        diario = new DiarioLedger(propiedades(10, Duration.ofSeconds(1)));
+        diario.recuperar(0);
+        diario.registrar("ES01", TipoMovimiento.INGRESO, 100, 100);
+        diario.registrar("ES01", TipoMovimiento.INGRESO, 100, 200);
+        diario.cerrar();
+        final Path fichero = directorio.resolve(DiarioLedger.NOMBRE_FICHERO);
+        Files.writeString(fichero, "3|ES01|ING", StandardOpenOption.APPEND);
+
+        // Act: se recupera, se sigue escribiendo y se vuelve a recuperar
+        diario = new DiarioLedger(propiedades(10, Duration.ofSeconds(1)));
+        assertEquals(2, diario.recuperar(0).size());
+        diario.registrar("ES01", TipoMovimiento.RETIRADA, 50, 150);
+        diario.cerrar();
+        diario = new DiarioLedger(propiedades(10, Duration.ofSeconds(1)));
+        final List<EntradaDiario> recuperadas = diario.recuperar(0);
+
+        // Assert: la entrada escrita despues de la caida no se pierde
+        assertEquals(List.of(1L, 2L, 3L), recuperadas.stream().map(EntradaDiario::secuencia).toList());
+        assertEquals(150, recuperadas.get(2).saldoCentimos());
+        assertEquals(3, Files.readAllLines(fichero).size());
+    }
+
+    private LedgerProperties propiedades(final int capacidadCola, final Duration esperaMaximaCola) {
+        final LedgerProperties propiedades = new LedgerProperties();
+        propiedades.setDirectorio(directorio.toString());
+        propiedades.setCapacidadCola(capacidadCola);
+        propiedades.setEsperaMaximaCola(esperaMaximaCola);
+        return propiedades;
+    }
+}
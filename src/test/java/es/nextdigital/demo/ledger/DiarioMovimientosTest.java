@@ -0,0 +1,80 @@
+package es.nextdigital.demo.ledger;
+
+import es.nextdigital.demo.configuracion.DiarioMovimientosProperties;
+import es.nextdigital.demo.model.Cuenta;
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.model.Movimiento;
+import es.nextdigital.demo.model.TipoMovimiento;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiarioMovimientosTest {
+
+    @TempDir
+    Path directorio;
+
+    private DiarioMovimientos diario;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        diario.cerrar();
+    }
+
+    @Test
+    void leer_deberiaCortarUnaLineaIncompletaAntesDeSeguirEscribiendo() throws Exception {
+        // Arrange: una entrada completa y otra cortada a mitad por una caida
+        final Path fichero = directorio.resolve(DiarioMovimientos.NOMBRE_FICHERO);
+        Files.writeString(fichero, new EntradaMovimiento(1, 1, "ES01", 1, TipoMovimiento.INGRESO, 100, 0L).aLinea() + "2;2;ES0");
+
+        // Act: se recupera, se escribe un movimiento nuevo y se vuelve a leer
+        diario = new DiarioMovimientos(propiedades());
+        final List<EntradaMovimiento> leidas = diario.leer();
+        diario.reanudar(leidas, 1);
+        escribirEnTransaccion(movimiento("ES01", 2));
+        final List<EntradaMovimiento> releidas = diario.leer();
+
+        // Assert: el movimiento escrito despues de la caida no se pierde
+        assertEquals(1, leidas.size());
+        assertEquals(List.of(1L, 2L), releidas.stream().map(EntradaMovimiento::secuencia).toList());
+        assertEquals(2, releidas.get(1).versionCuenta());
+        assertEquals(2, Files.readAllLines(fichero).size());
+    }
+
+    private void escribirEnTransaccion(final Movimiento movimiento) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            diario.registrar(List.of(movimiento));
+            TransactionSynchronizationUtils.triggerBeforeCommit(false);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static Movimiento movimiento(final String numeroCuenta, final long versionCuenta) {
+        final Cuenta cuenta = new Cuenta();
+        cuenta.setNumeroCuenta(numeroCuenta);
+        cuenta.setVersion(versionCuenta);
+        final Movimiento movimiento = new Movimiento();
+        movimiento.setCuenta(cuenta);
+        movimiento.setTipoMovimiento(TipoMovimiento.INGRESO);
+        movimiento.setImporte(Dinero.deUnidades(1));
+        movimiento.setFechaMovimiento(new Date());
+        return movimiento;
+    }
+
+    private DiarioMovimientosProperties propiedades() {
+        final DiarioMovimientosProperties propiedades = new DiarioMovimientosProperties();
+        propiedades.setDirectorio(directorio.toString());
+        return propiedades;
+    }
+}
@@ -0,0 +1,55 @@
+package es.nextdigital.demo.ledger;
+
+import es.nextdigital.demo.model.TipoMovimiento;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EscritorMovimientosTest {
+
+    @Test
+    void filtrarRecuperables_deberiaDescartarLasYaInsertadas() {
+        final List<EntradaMovimiento> entradas = List.of(entrada(1, 1, "ES1", 1), entrada(2, 2, "ES1", 2));
+
+        final List<EntradaMovimiento> recuperables = EscritorMovimientos.filtrarRecuperables(entradas, Set.of(1L), Map.of("ES1", 2L));
+
+        assertEquals(List.of(entradas.get(1)), recuperables);
+    }
+
+    @Test
+    void filtrarRecuperables_deberiaDescartarLasDeTransaccionesNoConfirmadas() {
+        // La cuenta sigue en la version 1: la transaccion que la llevo a la 2 se cayo antes del commit
+        final List<EntradaMovimiento> entradas = List.of(entrada(1, 1, "ES1", 1), entrada(2, 2, "ES1", 2));
+
+        final List<EntradaMovimiento> recuperables = EscritorMovimientos.filtrarRecuperables(entradas, Set.of(), Map.of("ES1", 1L));
+
+        assertEquals(List.of(entradas.get(0)), recuperables);
+    }
+
+    @Test
+    void filtrarRecuperables_conLaMismaVersion_deberiaQuedarseConLaUltimaTransaccion() {
+        // El grupo 1 se deshizo en el commit y el grupo 3 volvio a escribir la version 1 de la cuenta
+        final List<EntradaMovimiento> entradas = List.of(
+                entrada(1, 1, "ES1", 1), entrada(2, 1, "ES1", 1), entrada(3, 3, "ES1", 1), entrada(4, 4, "ES2", 5));
+
+        final List<EntradaMovimiento> recuperables = EscritorMovimientos.filtrarRecuperables(entradas, Set.of(),
+                Map.of("ES1", 1L, "ES2", 5L));
+
+        assertEquals(List.of(entradas.get(2), entradas.get(3)), recuperables);
+    }
+
+    @Test
+    void filtrarRecuperables_deberiaDescartarLasDeCuentasQueNoExisten() {
+        final List<EntradaMovimiento> entradas = List.of(entrada(1, 1, "ES-BORRADA", 1));
+
+        assertTrue(EscritorMovimientos.filtrarRecuperables(entradas, Set.of(), Map.of()).isEmpty());
+    }
+
+    private static EntradaMovimiento entrada(final long secuencia, final long grupo, final String cuenta, final long version) {
+        return new EntradaMovimiento(secuencia, grupo, cuenta, version, TipoMovimiento.INGRESO, 100, 0L);
+    }
+}
@@ -0,0 +1,234 @@
+package es.nextdigital.demo.ledger;
+
+import es.nextdigital.demo.configuracion.LedgerProperties;
+import es.nextdigital.demo.exceptions.NotFoundException;
+import es.nextdigital.demo.model.Cuenta;
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.model.PuntoControlLedger;
+import es.nextdigital.demo.model.TipoMovimiento;
+import es.nextdigital.demo.repositorio.CuentaRepository;
+import es.nextdigital.demo.repositorio.PuntoControlLedgerRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class LibroSaldosTest {
+
+    @TempDir
+    Path directorio;
+
+    @Mock
+    private CuentaRepository cuentaRepository;
+
+    @Mock
+    private PuntoControlLedgerRepository puntoControlRepository;
+
+    private DiarioLedger diario;
+    private LibroSaldos libroSaldos;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(puntoControlRepository.findById(PuntoControlLedger.ID)).thenReturn(Optional.empty());
+        diario = new DiarioLedger(propiedades());
+        libroSaldos = new LibroSaldos(propiedades(), diario, cuentaRepository, puntoControlRepository);
+        libroSaldos.recuperar();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        diario.cerrar();
+    }
+
+    @Test
+    void aplicar_deberiaCargarSaldoUnaVezYAnotarEnDiario() {
+        // Arrange
+        when(cuentaRepository.findById("ES01")).thenReturn(Optional.of(cuenta("ES01", Dinero.deUnidades(100))));
+
+        // Act
+        assertTrue(libroSaldos.aplicar("ES01", TipoMovimiento.RETIRADA, 2_550, LibroSaldos.SIN_LIMITE));
+        assertTrue(libroSaldos.aplicar("ES01", TipoMovimiento.INGRESO, 1_000, LibroSaldos.SIN_LIMITE));
+
+        // Assert
+        assertEquals(8_450, libroSaldos.saldo("ES01"));
+        verify(cuentaRepository, times(1)).findById("ES01");
+
+        final List<EntradaDiario> entradas = new ArrayList<>();
+        assertEquals(2, diario.drenar(entradas, 10));
+        assertEquals(new EntradaDiario(1, "ES01", TipoMovimiento.RETIRADA, 2_550, 7_450, entradas.get(0).fechaMillis()), entradas.get(0));
+        assertEquals(8_450, entradas.get(1).saldoCentimos());
+    }
+
+    @Test
+    void aplicar_noDeberiaModificarNada_siQuedaPorDebajoDelMinimo() {
+        when(cuentaRepository.findById("ES01")).thenReturn(Optional.of(cuenta("ES01", Dinero.deUnidades(10))));
+
+        assertFalse(libroSaldos.aplicar("ES01", TipoMovimiento.TRANSFERENCIA_SALIENTE, 1_001, 0L));
+
+        assertEquals(1_000, libroSaldos.saldo("ES01"));
+        assertEquals(0, diario.pendientes());
+    }
+
+    @Test
+    void aplicar_deberiaLanzarExcepcion_siCuentaNoExiste() {
+        when(cuentaRepository.findById(any())).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () ->
+                libroSaldos.aplicar("NO-EXISTE", TipoMovimiento.INGRESO, 100, LibroSaldos.SIN_LIMITE));
+    }
+
+    @Test
+    void aplicar_deberiaSerAtomicoConVariosHilos() throws Exception {
+        // Arrange
+        final int cuentas = 37;
+        for (int i = 0; i < cuentas; i++) {
+            when(cuentaRepository.findById("ES" + i)).thenReturn(Optional.of(cuenta("ES" + i, Dinero.CERO)));
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final List<Future<?>> tareas = new ArrayList<>();
+
+        // Act: cada hilo ingresa 3 y retira 1 centimo 1.000 veces en todas las cuentas
+        for (int hilo = 0; hilo < 8; hilo++) {
+            tareas.add(executor.submit(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    final String numeroCuenta = "ES" + (i % cuentas);
+                    libroSaldos.aplicar(numeroCuenta, TipoMovimiento.INGRESO, 3, LibroSaldos.SIN_LIMITE);
+                    libroSaldos.aplicar(numeroCuenta, TipoMovimiento.RETIRADA, 1, LibroSaldos.SIN_LIMITE);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> tarea : tareas) {
+            tarea.get();
+        }
+        executor.shutdown();
+
+        // Assert
+        long total = 0;
+        for (int i = 0; i < cuentas; i++) {
+            total += libroSaldos.saldo("ES" + i);
+        }
+        assertEquals(8 * 1_000 * 2, total);
+        assertEquals(8 * 1_000 * 2, diario.pendientes());
+    }
+
+    @Test
+    void transferir_deberiaCargarYAbonarEnUnaSolaLineaDelDiario() throws Exception {
+        when(cuentaRepository.findById("ES01")).thenReturn(Optional.of(cuenta("ES01", Dinero.deUnidades(100))));
+        when(cuentaRepository.findById("ES02")).thenReturn(Optional.of(cuenta("ES02", Dinero.deUnidades(5))));
+
+        assertTrue(libroSaldos.transferir("ES01", "ES02", 3_000, 3_000));
+        assertFalse(libroSaldos.transferir("ES01", "ES02", 7_001, 7_001));
+
+        assertEquals(7_000, libroSaldos.saldo("ES01"));
+        assertEquals(3_500, libroSaldos.saldo("ES02"));
+        diario.cerrar();
+        final List<EntradaDiario> recuperadas = new DiarioLedger(propiedades()).recuperar(0);
+        assertEquals(List.of(TipoMovimiento.TRANSFERENCIA_SALIENTE, TipoMovimiento.TRANSFERENCIA_ENTRANTE),
+                recuperadas.stream().map(EntradaDiario::tipoMovimiento).toList());
+        assertEquals(List.of(7_000L, 3_500L), recuperadas.stream().map(EntradaDiario::saldoCentimos).toList());
+    }
+
+    @Test
+    void transferir_cruzadasConVariosHilos_noDeberianBloquearseNiPerderDinero() throws Exception {
+        // Arrange: pocas cuentas en distintos segmentos para que las transferencias se crucen constantemente
+        final int cuentas = 6;
+        for (int i = 0; i < cuentas; i++) {
+            when(cuentaRepository.findById("ES" + i)).thenReturn(Optional.of(cuenta("ES" + i, Dinero.deUnidades(10))));
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final List<Future<?>> tareas = new ArrayList<>();
+
+        // Act
+        for (int hilo = 0; hilo < 8; hilo++) {
+            final int desplazamiento = hilo;
+            tareas.add(executor.submit(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    final int origen = (i + desplazamiento) % cuentas;
+                    final int destino = (i * 7 + desplazamiento * 3 + 1) % cuentas;
+                    libroSaldos.transferir("ES" + origen, "ES" + destino, 1 + i % 50, 1 + i % 50);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> tarea : tareas) {
+            tarea.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        // Assert
+        long total = 0;
+        for (int i = 0; i < cuentas; i++) {
+            assertTrue(libroSaldos.saldo("ES" + i) >= 0);
+            total += libroSaldos.saldo("ES" + i);
+        }
+        assertEquals(cuentas * 1_000L, total);
+    }
+
+    @Test
+    void recuperar_deberiaReconstruirSaldosNoPersistidosDesdeElDiario() throws Exception {
+        // Arrange: tres movimientos, de los que solo el primero llego a base de datos
+        when(cuentaRepository.findById("ES01")).thenReturn(Optional.of(cuenta("ES01", Dinero.deUnidades(100))));
+        libroSaldos.aplicar("ES01", TipoMovimiento.RETIRADA, 1_000, LibroSaldos.SIN_LIMITE);
+        libroSaldos.aplicar("ES01", TipoMovimiento.RETIRADA, 1_000, LibroSaldos.SIN_LIMITE);
+        libroSaldos.aplicar("ES01", TipoMovimiento.INGRESO, 500, LibroSaldos.SIN_LIMITE);
+        diario.cerrar();
+
+        final PuntoControlLedger puntoControl = new PuntoControlLedger();
+        puntoControl.setId(PuntoControlLedger.ID);
+        puntoControl.setUltimaSecuencia(1);
+        when(puntoControlRepository.findById(PuntoControlLedger.ID)).thenReturn(Optional.of(puntoControl));
+        reset(cuentaRepository);
+
+        // Act
+        diario = new DiarioLedger(propiedades());
+        libroSaldos = new LibroSaldos(propiedades(), diario, cuentaRepository, puntoControlRepository);
+        libroSaldos.recuperar();
+
+        // Assert
+        assertEquals(8_500, libroSaldos.saldo("ES01"));
+        verify(cuentaRepository, never()).findById(any());
+
+        final List<EntradaDiario> pendientes = new ArrayList<>();
+        diario.drenar(pendientes, 10);
+        assertEquals(List.of(2L, 3L), pendientes.stream().map(EntradaDiario::secuencia).toList());
+
+        // Las secuencias nuevas continuan tras la ultima del diario
+        libroSaldos.aplicar("ES01", TipoMovimiento.INGRESO, 500, LibroSaldos.SIN_LIMITE);
+        pendientes.clear();
+        diario.drenar(pendientes, 10);
+        assertEquals(4L, pendientes.get(0).secuencia());
+    }
+
+    private LedgerProperties propiedades() {
+        final LedgerProperties propiedades = new LedgerProperties();
+        propiedades.setHabilitado(true);
+        propiedades.setSegmentos(4);
+        propiedades.setCapacidadCola(100_000);
+        propiedades.setDirectorio(directorio.toString());
+        return propiedades;
+    }
+
+    private static Cuenta cuenta(final String numeroCuenta, final Dinero saldo) {
+        final Cuenta cuenta = new Cuenta();
+        cuenta.setNumeroCuenta(numeroCuenta);
+        cuenta.setSaldo(saldo);
+        return cuenta;
+    }
+}
@@ -0,0 +1,82 @@
+package es.nextdigital.demo.ledger;
+
+import es.nextdigital.demo.configuracion.LedgerProperties;
+import es.nextdigital.demo.model.Cuenta;
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.model.PuntoControlLedger;
+import es.nextdigital.demo.repositorio.CuentaRepository;
+import es.nextdigital.demo.repositorio.MovimientoRepository;
+import es.nextdigital.demo.repositorio.PuntoControlLedgerRepository;
+import es.nextdigital.demo.servicios.CuentaServicio;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "carlosbank.ledger.habilitado=true",
+        "carlosbank.ledger.directorio=target/ledger-test/${random.uuid}",
+        "carlosbank.ledger.intervalo-volcado=1h",
+        "carlosbank.ledger.reintentos-lote=1"
+})
+class PersistidorLedgerTest {
+
+    @Autowired
+    private PersistidorLedger persistidorLedger;
+
+    @Autowired
+    private CuentaServicio cuentaServicio;
+
+    @Autowired
+    private CuentaRepository cuentaRepository;
+
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+
+    @Autowired
+    private PuntoControlLedgerRepository puntoControlRepository;
+
+    @Autowired
+    private LedgerProperties propiedades;
+
+    @Autowired
+    private MeterRegistry registro;
+
+    @Test
+    void volcar_conUnaEntradaQueSiempreFalla_deberiaApartarlaYPersistirLasDemas() throws Exception {
+        // Arrange: un ingreso en cada cuenta y una de ellas borrada de la base de datos antes de persistirlo
+        for (String numeroCuenta : new String[]{"ES-SANA", "ES-BORRADA"}) {
+            final Cuenta cuenta = new Cuenta();
+            cuenta.setNumeroCuenta(numeroCuenta);
+            cuenta.setSaldo(Dinero.deUnidades(100));
+            cuentaRepository.save(cuenta);
+            cuentaServicio.ingresarDinero(numeroCuenta, Dinero.deUnidades(10));
+        }
+        cuentaRepository.deleteById("ES-BORRADA");
+
+        // Act: el lote entero falla una vez; al siguiente ciclo va entrada a entrada
+        assertThrows(RuntimeException.class, () -> persistidorLedger.volcar());
+        persistidorLedger.volcar();
+
+        // Assert: la sana esta persistida, la otra en cuarentena y el punto de control ha pasado las dos
+        assertEquals(Dinero.deUnidades(110), cuentaRepository.findById("ES-SANA").orElseThrow().getSaldo());
+        assertEquals(1, movimientoRepository.findPaginaMovimientos("ES-SANA", PageRequest.of(0, 10)).size());
+        final List<String> apartadas = Files.readAllLines(Path.of(propiedades.getDirectorio(), Cuarentena.NOMBRE_FICHERO));
+        assertEquals(1, apartadas.size());
+        assertTrue(apartadas.get(0).contains("ES-BORRADA"));
+        assertEquals(1.0, registro.get(PersistidorLedger.METRICA_CUARENTENA).counter().count());
+        assertTrue(puntoControlRepository.findById(PuntoControlLedger.ID).orElseThrow().getUltimaSecuencia() >= 2);
+
+        // Y lo siguiente ya se persiste en lote
+        cuentaServicio.ingresarDinero("ES-SANA", Dinero.deUnidades(5));
+        persistidorLedger.volcar();
+        assertEquals(Dinero.deUnidades(115), cuentaRepository.findById("ES-SANA").orElseThrow().getSaldo());
+    }
+}
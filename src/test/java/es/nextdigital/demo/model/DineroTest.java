@@ -0,0 +1,74 @@
+package es.nextdigital.demo.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DineroTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void valueOf_deberiaInterpretarImportesDecimales() {
+        assertEquals(1_250L, Dinero.valueOf("12.5").centimos());
+        assertEquals(1_200L, Dinero.valueOf("12").centimos());
+        assertEquals(-305L, Dinero.valueOf("-3.05").centimos());
+        assertEquals(5L, Dinero.valueOf(".05").centimos());
+        assertSame(Dinero.CERO, Dinero.valueOf("0.00"));
+    }
+
+    @Test
+    void valueOf_deberiaRechazarImportesNoValidos() {
+        assertThrows(NumberFormatException.class, () -> Dinero.valueOf("1.005"));
+        assertThrows(NumberFormatException.class, () -> Dinero.valueOf("1,5"));
+        assertThrows(NumberFormatException.class, () -> Dinero.valueOf("-"));
+        assertThrows(NumberFormatException.class, () -> Dinero.valueOf(""));
+        assertThrows(ArithmeticException.class, () -> Dinero.valueOf("999999999999999999999"));
+    }
+
+    @Test
+    void operaciones_deberianSerExactas() {
+        Dinero saldo = Dinero.CERO;
+        for (int i = 0; i < 1_000; i++) {
+            saldo = saldo.sumar(Dinero.valueOf("0.10"));
+        }
+
+        assertEquals(Dinero.deUnidades(100), saldo);
+        assertEquals(Dinero.valueOf("99.90"), saldo.restar(Dinero.valueOf("0.10")));
+    }
+
+    @Test
+    void multiplicar_deberiaRedondearAlCentimoMasCercano() {
+        assertEquals(Dinero.valueOf("130.00"), Dinero.deUnidades(100).multiplicar(1_300, 1_000));
+        assertEquals(Dinero.valueOf("0.14"), Dinero.valueOf("0.11").multiplicar(1_300, 1_000));
+        assertEquals(Dinero.valueOf("0.03"), Dinero.valueOf("0.05").multiplicar(1, 2));
+        assertEquals(Dinero.valueOf("0.01"), Dinero.valueOf("0.04").multiplicar(1, 3));
+        assertEquals(Dinero.valueOf("-0.03"), Dinero.valueOf("-0.05").multiplicar(1, 2));
+    }
+
+    @Test
+    void toString_deberiaUsarDosDecimales() {
+        assertEquals("12.50", Dinero.valueOf("12.5").toString());
+        assertEquals("-0.05", Dinero.deCentimos(-5).toString());
+        assertEquals("0.00", Dinero.CERO.toString());
+    }
+
+    @Test
+    void json_deberiaSerializarseComoNumeroConDosDecimales() throws Exception {
+        assertEquals("12.50", objectMapper.writeValueAsString(Dinero.valueOf("12.5")));
+        assertEquals(Dinero.valueOf("12.5"), objectMapper.readValue("12.5", Dinero.class));
+        assertEquals(Dinero.valueOf("12.5"), objectMapper.readValue("\"12.50\"", Dinero.class));
+        assertThrows(InvalidFormatException.class, () -> objectMapper.readValue("12.345", Dinero.class));
+    }
+
+    @Test
+    void converter_deberiaGuardarCentimos() {
+        final DineroConverter converter = new DineroConverter();
+
+        assertEquals(1_250L, converter.convertToDatabaseColumn(Dinero.valueOf("12.5")));
+        assertEquals(Dinero.valueOf("12.5"), converter.convertToEntityAttribute(1_250L));
+        assertNull(converter.convertToDatabaseColumn(null));
+    }
+}
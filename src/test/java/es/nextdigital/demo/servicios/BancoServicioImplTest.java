@@ -1,17 +1,21 @@
 package es.nextdigital.demo.servicios;
 
+import es.nextdigital.demo.configuracion.CacheBancosProperties;
 import es.nextdigital.demo.exceptions.NotFoundException;
 import es.nextdigital.demo.model.Banco;
 import es.nextdigital.demo.repositorio.BancoRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class BancoServicioImplTest {
@@ -19,12 +23,15 @@ class BancoServicioImplTest {
     @Mock
     private BancoRepository bancoRepository;
 
-    @InjectMocks
+    private MeterRegistry registro;
+
     private BancoServicioImpl bancoServicio;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        registro = new SimpleMeterRegistry();
+        bancoServicio = new BancoServicioImpl(bancoRepository, new CacheBancosProperties(), registro);
     }
 
     @Test
@@ -61,4 +68,44 @@ class BancoServicioImplTest {
 
         assertEquals("El banco no existe", excepcion.getMessage());
     }
-}
\ No newline at end of file
+
+    @Test
+    void obtenerBanco_deberiaConsultarRepositorioUnaVez_siSePideVariasVeces() {
+        // Arrange
+        String nombreBanco = "Banco Madrid";
+        Banco banco = new Banco();
+        banco.setNombre(nombreBanco);
+
+        when(bancoRepository.findBancosByNombre(nombreBanco))
+                .thenReturn(Optional.of(banco));
+
+        // Act
+        bancoServicio.obtenerBanco(nombreBanco);
+        bancoServicio.obtenerBanco(nombreBanco);
+
+        // Assert
+        verify(bancoRepository, times(1)).findBancosByNombre(nombreBanco);
+        assertEquals(1, consultasCache("hit"));
+        assertEquals(1, consultasCache("miss"));
+    }
+
+    @Test
+    void obtenerBanco_deberiaRecordarBancosInexistentes() {
+        // Arrange
+        String nombreBanco = "Banco Fantasma";
+
+        when(bancoRepository.findBancosByNombre(nombreBanco))
+                .thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(NotFoundException.class, () -> bancoServicio.obtenerBanco(nombreBanco));
+        assertThrows(NotFoundException.class, () -> bancoServicio.obtenerBanco(nombreBanco));
+
+        verify(bancoRepository, times(1)).findBancosByNombre(nombreBanco);
+    }
+
+    private double consultasCache(final String resultado) {
+        return registro.get("cache.gets").tag("cache", BancoServicioImpl.NOMBRE_CACHE).tag("result", resultado)
+                .functionCounter().count();
+    }
+}
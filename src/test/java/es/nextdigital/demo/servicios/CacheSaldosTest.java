@@ -0,0 +1,137 @@
+package es.nextdigital.demo.servicios;
+
+import es.nextdigital.demo.configuracion.CacheSaldosProperties;
+import es.nextdigital.demo.configuracion.ConsistenciaSaldos;
+import es.nextdigital.demo.model.Cuenta;
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.model.SaldoCuenta;
+import es.nextdigital.demo.repositorio.CuentaRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CacheSaldosTest {
+
+    private static final String NUMERO_CUENTA = "ES123";
+
+    @Mock
+    private CuentaRepository cuentaRepository;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(cuentaRepository.findSaldoById(NUMERO_CUENTA)).thenReturn(Optional.of(new SaldoCuenta(Dinero.deUnidades(100), 1)));
+    }
+
+    @AfterEach
+    void limpiarTransaccion() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void consultar_estricta_deberiaLeerSiempreDeBaseDeDatos() {
+        final CacheSaldos cacheSaldos = cacheSaldos(ConsistenciaSaldos.ESTRICTA);
+
+        assertEquals(Optional.of(Dinero.deUnidades(100)), cacheSaldos.consultar(NUMERO_CUENTA));
+        assertEquals(Optional.of(Dinero.deUnidades(100)), cacheSaldos.consultar(NUMERO_CUENTA));
+
+        verify(cuentaRepository, times(2)).findSaldoById(NUMERO_CUENTA);
+    }
+
+    @Test
+    void consultar_instantanea_deberiaLeerDeBaseDeDatosUnaSolaVez() {
+        final CacheSaldos cacheSaldos = cacheSaldos(ConsistenciaSaldos.INSTANTANEA);
+
+        assertEquals(Optional.of(Dinero.deUnidades(100)), cacheSaldos.consultar(NUMERO_CUENTA));
+        assertEquals(Optional.of(Dinero.deUnidades(100)), cacheSaldos.consultar(NUMERO_CUENTA));
+
+        verify(cuentaRepository, times(1)).findSaldoById(NUMERO_CUENTA);
+    }
+
+    @Test
+    void consultar_deberiaDevolverVacio_siLaCuentaNoExiste() {
+        when(cuentaRepository.findSaldoById("ES000")).thenReturn(Optional.empty());
+
+        assertTrue(cacheSaldos(ConsistenciaSaldos.INSTANTANEA).consultar("ES000").isEmpty());
+    }
+
+    @Test
+    void registrar_deberiaActualizarLaCopiaAlConfirmar() {
+        final CacheSaldos cacheSaldos = cacheSaldos(ConsistenciaSaldos.INSTANTANEA);
+        cacheSaldos.consultar(NUMERO_CUENTA);
+
+        TransactionSynchronizationManager.initSynchronization();
+        cacheSaldos.registrar(cuenta(Dinero.deUnidades(70), 2));
+        // Sin confirmar todavia sigue el saldo anterior
+        assertEquals(Optional.of(Dinero.deUnidades(100)), cacheSaldos.consultar(NUMERO_CUENTA));
+        confirmar();
+
+        assertEquals(Optional.of(Dinero.deUnidades(70)), cacheSaldos.consultar(NUMERO_CUENTA));
+        verify(cuentaRepository, times(1)).findSaldoById(NUMERO_CUENTA);
+    }
+
+    @Test
+    void registrar_noDeberiaCambiarLaCopia_siLaTransaccionSeDeshace() {
+        final CacheSaldos cacheSaldos = cacheSaldos(ConsistenciaSaldos.INSTANTANEA);
+        cacheSaldos.consultar(NUMERO_CUENTA);
+
+        TransactionSynchronizationManager.initSynchronization();
+        cacheSaldos.registrar(cuenta(Dinero.deUnidades(70), 2));
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sincronizacion -> sincronizacion.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        TransactionSynchronizationManager.clearSynchronization();
+
+        assertEquals(Optional.of(Dinero.deUnidades(100)), cacheSaldos.consultar(NUMERO_CUENTA));
+    }
+
+    @Test
+    void registrar_noDeberiaPisarUnaVersionPosterior() {
+        final CacheSaldos cacheSaldos = cacheSaldos(ConsistenciaSaldos.INSTANTANEA);
+
+        TransactionSynchronizationManager.initSynchronization();
+        cacheSaldos.registrar(cuenta(Dinero.deUnidades(50), 5));
+        cacheSaldos.registrar(cuenta(Dinero.deUnidades(80), 4));
+        confirmar();
+
+        assertEquals(Optional.of(Dinero.deUnidades(50)), cacheSaldos.consultar(NUMERO_CUENTA));
+        verify(cuentaRepository, never()).findSaldoById(NUMERO_CUENTA);
+    }
+
+    @Test
+    void registrar_estricta_noDeberiaRegistrarNadaEnLaTransaccion() {
+        TransactionSynchronizationManager.initSynchronization();
+        cacheSaldos(ConsistenciaSaldos.ESTRICTA).registrar(cuenta(Dinero.deUnidades(70), 2));
+
+        assertTrue(TransactionSynchronizationManager.getSynchronizations().isEmpty());
+    }
+
+    private CacheSaldos cacheSaldos(final ConsistenciaSaldos consistencia) {
+        final CacheSaldosProperties propiedades = new CacheSaldosProperties();
+        propiedades.setConsistencia(consistencia);
+        return new CacheSaldos(cuentaRepository, propiedades);
+    }
+
+    private static Cuenta cuenta(final Dinero saldo, final long version) {
+        final Cuenta cuenta = new Cuenta();
+        cuenta.setNumeroCuenta(NUMERO_CUENTA);
+        cuenta.setSaldo(saldo);
+        cuenta.setVersion(version);
+        return cuenta;
+    }
+
+    private static void confirmar() {
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+}
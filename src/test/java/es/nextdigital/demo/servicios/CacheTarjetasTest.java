@@ -0,0 +1,74 @@
+package es.nextdigital.demo.servicios;
+
+import es.nextdigital.demo.configuracion.CacheTarjetasProperties;
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.model.TarjetaAutenticada;
+import es.nextdigital.demo.model.TipoTarjeta;
+import es.nextdigital.demo.repositorio.TarjetaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CacheTarjetasTest {
+
+    private static final String NUMERO_TARJETA = "123456";
+    private static final String PIN_ENCRIPTADO = "hash-del-pin";
+
+    @Mock
+    private TarjetaRepository tarjetaRepository;
+
+    private CacheTarjetas cacheTarjetas;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        cacheTarjetas = new CacheTarjetas(tarjetaRepository, new CacheTarjetasProperties());
+
+        final TarjetaAutenticada tarjeta = new TarjetaAutenticada(NUMERO_TARJETA, PIN_ENCRIPTADO, true, TipoTarjeta.DEBITO,
+                Dinero.deUnidades(500), Dinero.CERO, "ES123");
+        when(tarjetaRepository.findAutenticadaByNumero(NUMERO_TARJETA)).thenReturn(Optional.of(tarjeta));
+    }
+
+    @Test
+    void autenticar_deberiaConsultarLaBaseDeDatosUnaSolaVez() {
+        assertTrue(cacheTarjetas.autenticar(NUMERO_TARJETA, PIN_ENCRIPTADO).isPresent());
+        assertTrue(cacheTarjetas.autenticar(NUMERO_TARJETA, PIN_ENCRIPTADO).isPresent());
+
+        verify(tarjetaRepository, times(1)).findAutenticadaByNumero(NUMERO_TARJETA);
+        assertEquals(1, cacheTarjetas.estadisticas().hitCount());
+    }
+
+    @Test
+    void autenticar_deberiaDevolverVacio_siElPinNoCoincide() {
+        cacheTarjetas.autenticar(NUMERO_TARJETA, PIN_ENCRIPTADO);
+
+        assertTrue(cacheTarjetas.autenticar(NUMERO_TARJETA, "otro-hash").isEmpty());
+        verify(tarjetaRepository, times(1)).findAutenticadaByNumero(NUMERO_TARJETA);
+    }
+
+    @Test
+    void autenticar_deberiaRecordarLasTarjetasQueNoExisten() {
+        when(tarjetaRepository.findAutenticadaByNumero("000000")).thenReturn(Optional.empty());
+
+        assertTrue(cacheTarjetas.autenticar("000000", PIN_ENCRIPTADO).isEmpty());
+        assertTrue(cacheTarjetas.autenticar("000000", PIN_ENCRIPTADO).isEmpty());
+
+        verify(tarjetaRepository, times(1)).findAutenticadaByNumero("000000");
+    }
+
+    @Test
+    void invalidar_deberiaVolverALeerLaTarjeta() {
+        cacheTarjetas.autenticar(NUMERO_TARJETA, PIN_ENCRIPTADO);
+
+        cacheTarjetas.invalidar(NUMERO_TARJETA);
+        cacheTarjetas.autenticar(NUMERO_TARJETA, PIN_ENCRIPTADO);
+
+        verify(tarjetaRepository, times(2)).findAutenticadaByNumero(NUMERO_TARJETA);
+    }
+}
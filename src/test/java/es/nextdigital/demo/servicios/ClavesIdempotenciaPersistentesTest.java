@@ -0,0 +1,112 @@
+package es.nextdigital.demo.servicios;
+
+import es.nextdigital.demo.model.ClaveIdempotencia;
+import es.nextdigital.demo.model.Cuenta;
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.repositorio.ClaveIdempotenciaRepository;
+import es.nextdigital.demo.repositorio.CuentaRepository;
+import es.nextdigital.demo.repositorio.MovimientoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "carlosbank.idempotencia.persistente=true")
+class ClavesIdempotenciaPersistentesTest {
+
+    private static final Dinero RETIRADA = Dinero.deUnidades(10);
+
+    @Autowired
+    private Idempotencia idempotencia;
+
+    @Autowired
+    private ClavesIdempotenciaPersistentes clavesPersistentes;
+
+    @Autowired
+    private ClaveIdempotenciaRepository claveIdempotenciaRepository;
+
+    @Autowired
+    private CuentaServicio cuentaServicio;
+
+    @Autowired
+    private CuentaRepository cuentaRepository;
+
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+
+    private String numeroCuenta;
+
+    @BeforeEach
+    void setUp() {
+        numeroCuenta = "ES-IDEMPOTENCIA-" + System.nanoTime();
+        final Cuenta cuenta = new Cuenta();
+        cuenta.setNumeroCuenta(numeroCuenta);
+        cuenta.setSaldo(Dinero.deUnidades(1_000));
+        cuentaRepository.save(cuenta);
+    }
+
+    @Test
+    void reintentosConcurrentes_deberianSacarElDineroUnaSolaVez() throws Exception {
+        final int hilos = 16;
+        final CountDownLatch salida = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(hilos);
+
+        final List<Future<?>> tareas = new ArrayList<>();
+        for (int i = 0; i < hilos; i++) {
+            tareas.add(executor.submit(() -> {
+                salida.await();
+                idempotencia.ejecutar("reintento-1", "cuenta.sacar", List.of(numeroCuenta, RETIRADA),
+                        () -> cuentaServicio.sacarDinero(numeroCuenta, RETIRADA, false));
+                return null;
+            }));
+        }
+        salida.countDown();
+        for (Future<?> tarea : tareas) {
+            tarea.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        assertEquals(Dinero.deUnidades(990), cuentaRepository.findById(numeroCuenta).orElseThrow().getSaldo());
+        assertEquals(1, movimientoRepository.findPaginaMovimientos(numeroCuenta, PageRequest.of(0, 10)).size());
+    }
+
+    @Test
+    void ejecutar_deberiaRecuperarElResultadoDeBaseDeDatos_trasPerderLaMemoria() {
+        final String clave = "reinicio-" + numeroCuenta;
+        idempotencia.ejecutar(clave, "cuenta.sacar", List.of(numeroCuenta, RETIRADA),
+                () -> cuentaServicio.sacarDinero(numeroCuenta, RETIRADA, false));
+
+        idempotencia.vaciarMemoria();
+        idempotencia.ejecutar(clave, "cuenta.sacar", List.of(numeroCuenta, RETIRADA),
+                () -> cuentaServicio.sacarDinero(numeroCuenta, RETIRADA, false));
+
+        assertEquals(Dinero.deUnidades(990), cuentaRepository.findById(numeroCuenta).orElseThrow().getSaldo());
+        assertTrue(claveIdempotenciaRepository.findById("cuenta.sacar:" + clave).isPresent());
+    }
+
+    @Test
+    void purgar_deberiaBorrarLasClavesCaducadas() {
+        final ClaveIdempotencia caducada = new ClaveIdempotencia();
+        caducada.setClave("caducada-" + numeroCuenta);
+        caducada.setHuella("huella");
+        caducada.setFechaCreacion(new Date(System.currentTimeMillis() - Duration.ofDays(2).toMillis()));
+        claveIdempotenciaRepository.save(caducada);
+
+        assertTrue(clavesPersistentes.buscar(caducada.getClave()).isEmpty());
+        assertTrue(clavesPersistentes.purgar() >= 1);
+        assertFalse(claveIdempotenciaRepository.existsById(caducada.getClave()));
+    }
+}
@@ -0,0 +1,194 @@
+package es.nextdigital.demo.servicios;
+
+import es.nextdigital.demo.common.ConstantData;
+import es.nextdigital.demo.model.Cuenta;
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.model.Movimiento;
+import es.nextdigital.demo.model.MovimientoDto;
+import es.nextdigital.demo.model.PaginaMovimientos;
+import es.nextdigital.demo.model.ResumenMovimientos;
+import es.nextdigital.demo.model.Tarjeta;
+import es.nextdigital.demo.model.TipoMovimiento;
+import es.nextdigital.demo.model.TipoTarjeta;
+import es.nextdigital.demo.repositorio.CuentaRepository;
+import es.nextdigital.demo.repositorio.MovimientoRepository;
+import es.nextdigital.demo.repositorio.TarjetaRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Numero de sentencias SQL y de entidades cargadas por operacion, medido con las estadisticas de Hibernate. La cuenta
+ * tiene un historico de movimientos para comprobar que ninguna operacion lo carga sin necesitarlo.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class ConsultasPorOperacionTest {
+
+    private static final int MOVIMIENTOS_HISTORICO = 200;
+    private static final int PIN = 1234;
+
+    @Autowired
+    private CuentaServicio cuentaServicio;
+
+    @Autowired
+    private TarjetaServicio tarjetaServicio;
+
+    @Autowired
+    private CuentaRepository cuentaRepository;
+
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+
+    @Autowired
+    private TarjetaRepository tarjetaRepository;
+
+    @Autowired
+    private EncriptadorPin encriptadorPin;
+
+    @Autowired
+    private ResumenesCuenta resumenesCuenta;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics estadisticas;
+    private Cuenta cuenta;
+    private String numeroTarjeta;
+
+    @BeforeEach
+    void setUp() {
+        final String sufijo = Long.toString(System.nanoTime());
+        cuenta = new Cuenta();
+        cuenta.setNumeroCuenta("ES-CONSULTAS-" + sufijo);
+        cuenta.setSaldo(Dinero.deUnidades(10_000));
+        cuentaRepository.save(cuenta);
+
+        final List<Movimiento> historico = new ArrayList<>();
+        for (int i = 0; i < MOVIMIENTOS_HISTORICO; i++) {
+            final Movimiento movimiento = new Movimiento();
+            movimiento.setFechaMovimiento(new Date(i * 1_000L));
+            movimiento.setTipoMovimiento(TipoMovimiento.INGRESO);
+            movimiento.setImporte(Dinero.deUnidades(1));
+            movimiento.setCuenta(cuenta);
+            historico.add(movimiento);
+        }
+        movimientoRepository.saveAll(historico);
+
+        final Tarjeta tarjeta = new Tarjeta();
+        numeroTarjeta = "T-" + sufijo;
+        tarjeta.setNumeroTarjeta(numeroTarjeta);
+        tarjeta.setActivada(true);
+        tarjeta.setTipoTarjeta(TipoTarjeta.DEBITO);
+        tarjeta.setLimiteRetirada(Dinero.deUnidades(1_000));
+        tarjeta.setPinEncriptado(encriptadorPin.encriptar(PIN));
+        tarjeta.setCuenta(cuenta);
+        tarjetaRepository.save(tarjeta);
+
+        estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+    }
+
+    @Test
+    void sacarDinero_conTarjeta_deberiaAutenticarConUnaProyeccion() {
+        tarjetaServicio.sacarDinero(numeroTarjeta, PIN, Dinero.deUnidades(10), ConstantData.MI_BANCO);
+
+        // Proyeccion de la tarjeta sin entidades y retirada: lectura de la cuenta, insert del movimiento, update del
+        // saldo y, al ser el primer movimiento del dia, update sin filas e insert del resumen diario y de lo retirado
+        // con la tarjeta en el dia
+        assertEquals(1, estadisticas.getQueryExecutionCount());
+        assertEquals(1, estadisticas.getEntityLoadCount());
+        assertEquals(0, estadisticas.getCollectionLoadCount());
+        assertSentencias(8);
+    }
+
+    @Test
+    void sacarDinero_conTarjeta_noDeberiaVolverAConsultarLaTarjeta() {
+        tarjetaServicio.sacarDinero(numeroTarjeta, PIN, Dinero.deUnidades(10), ConstantData.MI_BANCO);
+        estadisticas.clear();
+
+        tarjetaServicio.sacarDinero(numeroTarjeta, PIN, Dinero.deUnidades(10), ConstantData.MI_BANCO);
+
+        // La tarjeta sale de la cache: solo queda la retirada, que ya encuentra el resumen y lo retirado en el dia
+        assertEquals(0, estadisticas.getQueryExecutionCount());
+        assertEquals(1, estadisticas.getEntityLoadCount());
+        assertSentencias(5);
+    }
+
+    @Test
+    void sacarDinero_deberiaLeerSoloLaCuenta() {
+        cuentaServicio.sacarDinero(cuenta.getNumeroCuenta(), Dinero.deUnidades(10), false);
+
+        // Lectura de la cuenta, insert del movimiento, update del saldo y alta del resumen del dia
+        assertEquals(1, estadisticas.getEntityLoadCount());
+        assertEquals(0, estadisticas.getCollectionLoadCount());
+        assertEquals(2, estadisticas.getEntityInsertCount());
+        assertEquals(1, estadisticas.getEntityUpdateCount());
+        assertSentencias(5);
+    }
+
+    @Test
+    void consultarSaldo_deberiaLanzarUnaConsultaSinEntidades() {
+        cuentaServicio.sacarDinero(cuenta.getNumeroCuenta(), Dinero.deUnidades(10), false);
+        estadisticas.clear();
+
+        assertEquals(Dinero.deUnidades(9_990), cuentaServicio.consultarSaldo(cuenta.getNumeroCuenta()));
+
+        // Consistencia ESTRICTA por defecto: siempre a base de datos, pero con una proyeccion de saldo y version
+        assertEquals(0, estadisticas.getEntityLoadCount());
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+    }
+
+    @Test
+    void listarMovimientosPaginados_deberiaLanzarUnaConsultaSinEntidades() {
+        final PaginaMovimientos pagina = cuentaServicio.listarMovimientos(cuenta.getNumeroCuenta(), null, 20);
+
+        assertEquals(20, pagina.movimientos().size());
+        assertEquals(0, estadisticas.getEntityLoadCount());
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+    }
+
+    @Test
+    void consultarResumen_deberiaLanzarUnaConsultaSinEntidades() {
+        cuentaServicio.ingresarDinero(cuenta.getNumeroCuenta(), Dinero.deUnidades(1));
+        estadisticas.clear();
+
+        final LocalDate hoy = LocalDate.now();
+        final ResumenMovimientos resumen = resumenesCuenta.consultar(cuenta.getNumeroCuenta(), hoy.minusYears(1), hoy.plusDays(1));
+
+        assertEquals(1, resumen.totales().size());
+
+        assertEquals(0, estadisticas.getEntityLoadCount());
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+    }
+
+    @Test
+    void listarMovimientos_deberiaLanzarUnaConsultaSinEntidades() {
+        final List<MovimientoDto> movimientos = cuentaServicio.listarMovimientos(cuenta.getNumeroCuenta());
+
+        assertEquals(MOVIMIENTOS_HISTORICO, movimientos.size());
+        assertEquals(0, estadisticas.getEntityLoadCount());
+        assertEquals(0, estadisticas.getCollectionLoadCount());
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+    }
+
+    /**
+     * Los ids de movimiento se reservan de 50 en 50, asi que segun el estado de la secuencia una insercion puede
+     * necesitar una sentencia mas para pedir el siguiente bloque.
+     */
+    private void assertSentencias(final int esperadas) {
+        final long sentencias = estadisticas.getPrepareStatementCount();
+        assertTrue(sentencias == esperadas || sentencias == esperadas + 1,
+                "Se esperaban " + esperadas + " sentencias (+1 de secuencia) y hubo " + sentencias);
+    }
+}
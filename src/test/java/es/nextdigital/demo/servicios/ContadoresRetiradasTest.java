@@ -0,0 +1,117 @@
+package es.nextdigital.demo.servicios;
+
+import es.nextdigital.demo.configuracion.LimitesRetiradaProperties;
+import es.nextdigital.demo.exceptions.BadRequestException;
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.model.RetiradaDiaria;
+import es.nextdigital.demo.repositorio.RetiradaDiariaRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Limite mensual de dos dias de limite diario para llegar a el en pocas retiradas
+@SpringBootTest(properties = "carlosbank.tarjetas.retiradas.multiplo-mensual=2")
+class ContadoresRetiradasTest {
+
+    private static final Dinero LIMITE_DIARIO = Dinero.deUnidades(100);
+    private static final LocalDate DIA = LocalDate.of(2023, 6, 15);
+
+    @Autowired
+    private ContadoresRetiradas contadoresRetiradas;
+
+    @Autowired
+    private RetiradaDiariaRepository retiradaDiariaRepository;
+
+    @Autowired
+    private LimitesRetiradaProperties propiedades;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private String numeroTarjeta;
+
+    @BeforeEach
+    void setUp() {
+        numeroTarjeta = "TARJETA-" + System.nanoTime();
+    }
+
+    @Test
+    void reservar_deberiaRechazarLoQueNoCabeEnElLimiteDiario() {
+        assertEquals(Optional.of(DIA), contadoresRetiradas.reservar(numeroTarjeta, Dinero.deUnidades(60), LIMITE_DIARIO, DIA));
+        assertEquals(Optional.of(DIA), contadoresRetiradas.reservar(numeroTarjeta, Dinero.deUnidades(40), LIMITE_DIARIO, DIA));
+
+        assertTrue(contadoresRetiradas.reservar(numeroTarjeta, Dinero.valueOf("0.01"), LIMITE_DIARIO, DIA).isEmpty());
+        assertEquals(10_000, totalPersistido(DIA));
+    }
+
+    @Test
+    void reservar_deberiaRechazarCantidadesNoPositivas_sinBajarLoRetirado() {
+        assertTrue(contadoresRetiradas.reservar(numeroTarjeta, LIMITE_DIARIO, LIMITE_DIARIO, DIA).isPresent());
+
+        assertThrows(BadRequestException.class, () ->
+                contadoresRetiradas.reservar(numeroTarjeta, Dinero.deUnidades(-100), LIMITE_DIARIO, DIA));
+        assertThrows(BadRequestException.class, () ->
+                contadoresRetiradas.reservar(numeroTarjeta, Dinero.CERO, LIMITE_DIARIO, DIA));
+
+        assertEquals(10_000, totalPersistido(DIA));
+        assertTrue(contadoresRetiradas.reservar(numeroTarjeta, Dinero.valueOf("0.01"), LIMITE_DIARIO, DIA).isEmpty());
+    }
+
+    @Test
+    void reservar_deberiaEmpezarDeCeroCadaDiaPeroNoCadaMes() {
+        assertTrue(contadoresRetiradas.reservar(numeroTarjeta, LIMITE_DIARIO, LIMITE_DIARIO, DIA).isPresent());
+        assertTrue(contadoresRetiradas.reservar(numeroTarjeta, LIMITE_DIARIO, LIMITE_DIARIO, DIA.plusDays(1)).isPresent());
+
+        // El dia siguiente el limite diario vuelve a estar libre, pero el mensual (200) ya esta agotado
+        assertTrue(contadoresRetiradas.reservar(numeroTarjeta, Dinero.deUnidades(1), LIMITE_DIARIO, DIA.plusDays(2)).isEmpty());
+        // Hasta el mes siguiente
+        assertTrue(contadoresRetiradas.reservar(numeroTarjeta, Dinero.deUnidades(1), LIMITE_DIARIO, DIA.plusMonths(1).withDayOfMonth(1)).isPresent());
+    }
+
+    @Test
+    void liberar_deberiaDevolverLaReservaAlDiaYAlMes() {
+        final LocalDate dia = contadoresRetiradas.reservar(numeroTarjeta, LIMITE_DIARIO, LIMITE_DIARIO, DIA).orElseThrow();
+
+        contadoresRetiradas.liberar(numeroTarjeta, LIMITE_DIARIO, dia);
+
+        assertEquals(0, totalPersistido(DIA));
+        assertTrue(contadoresRetiradas.reservar(numeroTarjeta, LIMITE_DIARIO, LIMITE_DIARIO, DIA).isPresent());
+    }
+
+    @Test
+    void reconstruir_deberiaCargarLoRetiradoHoyYEnElMes() {
+        // Arrange: lo retirado hoy por una instancia anterior y, si hoy no es dia 1, algo mas en lo que va de mes
+        final LocalDate hoy = LocalDate.now(propiedades.getZonaHoraria());
+        if (hoy.getDayOfMonth() > 1) {
+            contadoresRetiradas.reservar(numeroTarjeta, Dinero.deUnidades(100), LIMITE_DIARIO, hoy.minusDays(1)).orElseThrow();
+        }
+        contadoresRetiradas.reservar(numeroTarjeta, Dinero.deUnidades(70), LIMITE_DIARIO, hoy).orElseThrow();
+        final long retiradoEnElMes = hoy.getDayOfMonth() > 1 ? 170 : 70;
+
+        // Act
+        final ContadoresRetiradas reconstruidos = new ContadoresRetiradas(propiedades, retiradaDiariaRepository, entityManager, transactionManager);
+        reconstruidos.reconstruir();
+
+        // Assert: caben los 30 que quedan hoy y lo que queda del mes, pero ni un centimo mas
+        final Dinero quedaHoy = Dinero.deUnidades(Math.min(30, 200 - retiradoEnElMes));
+        assertTrue(reconstruidos.reservar(numeroTarjeta, quedaHoy, LIMITE_DIARIO).isPresent());
+        assertTrue(reconstruidos.reservar(numeroTarjeta, Dinero.valueOf("0.01"), LIMITE_DIARIO).isEmpty());
+    }
+
+    private long totalPersistido(final LocalDate dia) {
+        return retiradaDiariaRepository.findById(new RetiradaDiaria.Clave(numeroTarjeta, dia))
+                .map(RetiradaDiaria::getTotalCentimos)
+                .orElse(0L);
+    }
+}
@@ -0,0 +1,136 @@
+package es.nextdigital.demo.servicios;
+
+import es.nextdigital.demo.configuracion.ConcurrenciaCuentasProperties;
+import es.nextdigital.demo.configuracion.ModoConcurrencia;
+import es.nextdigital.demo.exceptions.ConflictException;
+import es.nextdigital.demo.model.Cuenta;
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.model.TipoMovimiento;
+import es.nextdigital.demo.model.TotalMovimientos;
+import es.nextdigital.demo.repositorio.CuentaRepository;
+import es.nextdigital.demo.repositorio.MovimientoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Prueba de estres: varios hilos sacan e ingresan dinero a la vez sobre la misma cuenta. Con cualquiera de los dos
+ * modos de concurrencia el saldo final tiene que cuadrar con las operaciones que terminaron bien.
+ */
+@SpringBootTest
+class CuentaServicioConcurrenciaTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CuentaServicioConcurrenciaTest.class);
+
+    private static final int HILOS = 8;
+    private static final int OPERACIONES_POR_HILO = 50;
+    private static final Dinero SALDO_INICIAL = Dinero.deUnidades(100000);
+    private static final Dinero RETIRADA = Dinero.deUnidades(1);
+    private static final Dinero INGRESO = Dinero.deUnidades(3);
+
+    @Autowired
+    private CuentaServicio cuentaServicio;
+
+    @Autowired
+    private CuentaRepository cuentaRepository;
+
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+
+    @Autowired
+    private ConcurrenciaCuentasProperties propiedades;
+
+    @Autowired
+    private ResumenesCuenta resumenesCuenta;
+
+    private final ModoConcurrencia modoOriginal = ModoConcurrencia.OPTIMISTA;
+
+    @AfterEach
+    void tearDown() {
+        propiedades.setModo(modoOriginal);
+    }
+
+    @ParameterizedTest
+    @EnumSource(ModoConcurrencia.class)
+    void operacionesConcurrentes_noDeberianPerderActualizaciones(final ModoConcurrencia modo) throws Exception {
+        // Arrange
+        propiedades.setModo(modo);
+        final String numeroCuenta = "ES-ESTRES-" + modo;
+        final Cuenta cuenta = new Cuenta();
+        cuenta.setNumeroCuenta(numeroCuenta);
+        cuenta.setSaldo(SALDO_INICIAL);
+        cuentaRepository.save(cuenta);
+
+        final AtomicInteger retiradas = new AtomicInteger();
+        final AtomicInteger ingresos = new AtomicInteger();
+        final AtomicInteger conflictos = new AtomicInteger();
+        final CountDownLatch salida = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+
+        // Act
+        final List<Future<?>> tareas = new ArrayList<>();
+        for (int hilo = 0; hilo < HILOS; hilo++) {
+            final boolean hiloDeRetiradas = hilo % 2 == 0;
+            tareas.add(executor.submit(() -> {
+                salida.await();
+                for (int i = 0; i < OPERACIONES_POR_HILO; i++) {
+                    try {
+                        if (hiloDeRetiradas) {
+                            cuentaServicio.sacarDinero(numeroCuenta, RETIRADA, true);
+                            retiradas.incrementAndGet();
+                        } else {
+                            cuentaServicio.ingresarDinero(numeroCuenta, INGRESO);
+                            ingresos.incrementAndGet();
+                        }
+                    } catch (ConflictException e) {
+                        conflictos.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        final long inicio = System.nanoTime();
+        salida.countDown();
+        for (Future<?> tarea : tareas) {
+            tarea.get(2, TimeUnit.MINUTES);
+        }
+        final long duracionNanos = System.nanoTime() - inicio;
+        executor.shutdown();
+
+        // Assert
+        final Cuenta cuentaFinal = cuentaRepository.findById(numeroCuenta).orElseThrow();
+        final int operacionesOk = retiradas.get() + ingresos.get();
+        assertEquals(SALDO_INICIAL.restar(RETIRADA.multiplicar(retiradas.get(), 1)).sumar(INGRESO.multiplicar(ingresos.get(), 1)), cuentaFinal.getSaldo());
+        assertEquals(operacionesOk, movimientoRepository.findPaginaMovimientos(numeroCuenta, PageRequest.of(0, HILOS * OPERACIONES_POR_HILO + 1)).size());
+        assertEquals(HILOS * OPERACIONES_POR_HILO, operacionesOk + conflictos.get());
+        final LocalDate hoy = LocalDate.now();
+        assertEquals(List.of(
+                new TotalMovimientos(TipoMovimiento.INGRESO, ingresos.get(), INGRESO.multiplicar(ingresos.get(), 1)),
+                new TotalMovimientos(TipoMovimiento.RETIRADA, retiradas.get(), RETIRADA.multiplicar(retiradas.get(), 1))),
+                resumenesCuenta.consultar(numeroCuenta, hoy.minusDays(1), hoy.plusDays(1)).totales());
+        if (ModoConcurrencia.PESIMISTA == modo) {
+            assertEquals(0, conflictos.get());
+        }
+
+        LOG.info("Modo {}: {} operaciones correctas, {} conflictos, {} ops/s", modo, operacionesOk, conflictos.get(),
+                String.format("%.0f", operacionesOk / (duracionNanos / 1e9)));
+    }
+}
@@ -0,0 +1,111 @@
+package es.nextdigital.demo.servicios;
+
+import es.nextdigital.demo.configuracion.DiarioMovimientosProperties;
+import es.nextdigital.demo.ledger.DiarioMovimientos;
+import es.nextdigital.demo.ledger.EscritorMovimientos;
+import es.nextdigital.demo.model.Cuenta;
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.model.TipoMovimiento;
+import es.nextdigital.demo.model.TotalMovimientos;
+import es.nextdigital.demo.repositorio.CuentaRepository;
+import es.nextdigital.demo.repositorio.MovimientoRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "carlosbank.movimientos.diario.habilitado=true",
+        "carlosbank.movimientos.diario.directorio=target/movimientos-test/${random.uuid}",
+        "carlosbank.movimientos.diario.intervalo-volcado=1h"
+})
+class CuentaServicioDiarioMovimientosTest {
+
+    @Autowired
+    private CuentaServicio cuentaServicio;
+
+    @Autowired
+    private DiarioMovimientos diarioMovimientos;
+
+    @Autowired
+    private EscritorMovimientos escritorMovimientos;
+
+    @Autowired
+    private CuentaRepository cuentaRepository;
+
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+
+    @Autowired
+    private ResumenesCuenta resumenesCuenta;
+
+    @Autowired
+    private DiarioMovimientosProperties propiedades;
+
+    @Autowired
+    private MeterRegistry registro;
+
+    @Test
+    void operaciones_deberianConfirmarElSaldoEInsertarLosMovimientosAlVolcar() {
+        // Arrange
+        final Cuenta cuenta = new Cuenta();
+        cuenta.setNumeroCuenta("ES-DIARIO");
+        cuenta.setSaldo(Dinero.deUnidades(100));
+        cuentaRepository.save(cuenta);
+
+        // Act
+        assertTrue(cuentaServicio.sacarDinero("ES-DIARIO", Dinero.valueOf("30.5"), false));
+        cuentaServicio.ingresarDinero("ES-DIARIO", Dinero.deUnidades(10));
+        assertFalse(cuentaServicio.sacarDinero("ES-DIARIO", Dinero.deUnidades(500), false));
+
+        // Assert: el saldo ya esta confirmado y los movimientos esperan en el diario
+        assertEquals(Dinero.valueOf("79.5"), cuentaRepository.findById("ES-DIARIO").orElseThrow().getSaldo());
+        assertEquals(2, diarioMovimientos.pendientes());
+        assertTrue(movimientoRepository.findPaginaMovimientos("ES-DIARIO", PageRequest.of(0, 10)).isEmpty());
+
+        escritorMovimientos.volcar();
+
+        assertEquals(0, diarioMovimientos.pendientes());
+        assertEquals(2, movimientoRepository.findPaginaMovimientos("ES-DIARIO", PageRequest.of(0, 10)).size());
+        final LocalDate hoy = LocalDate.now();
+        assertEquals(List.of(
+                new TotalMovimientos(TipoMovimiento.INGRESO, 1, Dinero.deUnidades(10)),
+                new TotalMovimientos(TipoMovimiento.RETIRADA, 1, Dinero.valueOf("30.5"))),
+                resumenesCuenta.consultar("ES-DIARIO", hoy.minusDays(1), hoy.plusDays(1)).totales());
+    }
+
+    @Test
+    void volcar_conUnMovimientoQueSiempreFalla_deberiaApartarloEInsertarLosDemas() throws Exception {
+        // Arrange: un ingreso en cada cuenta y una de ellas borrada antes de insertar sus movimientos
+        for (String numeroCuenta : new String[]{"ES-DIARIO-SANA", "ES-DIARIO-BORRADA"}) {
+            final Cuenta cuenta = new Cuenta();
+            cuenta.setNumeroCuenta(numeroCuenta);
+            cuenta.setSaldo(Dinero.deUnidades(100));
+            cuentaRepository.save(cuenta);
+            cuentaServicio.ingresarDinero(numeroCuenta, Dinero.deUnidades(10));
+        }
+        cuentaRepository.deleteById("ES-DIARIO-BORRADA");
+
+        // Act: el lote entero falla las veces permitidas y despues se inserta movimiento a movimiento
+        for (int i = 0; i < propiedades.getReintentosLote(); i++) {
+            assertThrows(RuntimeException.class, () -> escritorMovimientos.volcar());
+        }
+        escritorMovimientos.volcar();
+
+        // Assert
+        assertEquals(0, diarioMovimientos.pendientes());
+        assertEquals(1, movimientoRepository.findPaginaMovimientos("ES-DIARIO-SANA", PageRequest.of(0, 10)).size());
+        final List<String> apartados = Files.readAllLines(Path.of(propiedades.getDirectorio(), "cuarentena.log"));
+        assertEquals(1, apartados.size());
+        assertTrue(apartados.get(0).contains("ES-DIARIO-BORRADA"));
+        assertEquals(1.0, registro.get(EscritorMovimientos.METRICA_CUARENTENA).counter().count());
+    }
+}
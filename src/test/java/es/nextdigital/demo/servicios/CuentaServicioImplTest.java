@@ -1,21 +1,37 @@
 package es.nextdigital.demo.servicios;
 
-import es.nextdigital.demo.common.ConstantData;
+import es.nextdigital.demo.configuracion.CacheSaldosProperties;
+import es.nextdigital.demo.configuracion.ConcurrenciaCuentasProperties;
+import es.nextdigital.demo.configuracion.TransferenciasLoteProperties;
+import es.nextdigital.demo.exceptions.BadRequestException;
 import es.nextdigital.demo.exceptions.NotFoundException;
+import es.nextdigital.demo.ledger.DiarioMovimientos;
 import es.nextdigital.demo.model.Cuenta;
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.model.EstadoTransferencia;
 import es.nextdigital.demo.model.Movimiento;
+import es.nextdigital.demo.model.MovimientoDto;
+import es.nextdigital.demo.model.PaginaMovimientos;
+import es.nextdigital.demo.model.ResultadoTransferencia;
+import es.nextdigital.demo.model.SolicitudTransferencia;
 import es.nextdigital.demo.model.TipoMovimiento;
 import es.nextdigital.demo.repositorio.CuentaRepository;
+import es.nextdigital.demo.repositorio.MovimientoRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.TreeSet;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -25,32 +41,45 @@ class CuentaServicioImplTest {
     @Mock
     private CuentaRepository cuentaRepository;
 
-    @InjectMocks
+    @Mock
+    private MovimientoRepository movimientoRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ResumenesCuenta resumenesCuenta;
+
     private CuentaServicioImpl cuentaServicio;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        final BloqueoCuentas bloqueoCuentas = new BloqueoCuentas(cuentaRepository, transactionManager, new ConcurrenciaCuentasProperties());
+        final TransferenciasLoteProperties transferenciasLoteProperties = new TransferenciasLoteProperties();
+        transferenciasLoteProperties.setTamanoBloque(2);
+        final RegistroMovimientos registroMovimientos = new RegistroMovimientos(movimientoRepository, cuentaRepository, resumenesCuenta,
+                new StaticListableBeanFactory().getBeanProvider(DiarioMovimientos.class));
+        cuentaServicio = new CuentaServicioImpl(cuentaRepository, movimientoRepository, bloqueoCuentas, transferenciasLoteProperties, registroMovimientos,
+                new CacheSaldos(cuentaRepository, new CacheSaldosProperties()));
     }
 
     @Test
     void listarMovimientos_deberiaRetornarLista_siCuentaExiste() {
         // Arrange
         String numeroCuenta = "ES1233838388992228";
-        Movimiento mov1 = new Movimiento();
-        Movimiento mov2 = new Movimiento();
+        MovimientoDto mov1 = new MovimientoDto(1, new Date(1000L), TipoMovimiento.INGRESO, Dinero.deUnidades(100));
+        MovimientoDto mov2 = new MovimientoDto(2, new Date(2000L), TipoMovimiento.RETIRADA, Dinero.deUnidades(50));
 
-        Cuenta cuenta = new Cuenta();
-        cuenta.setMovimientos(new ArrayList<>(Arrays.asList(mov1, mov2)));
-
-        when(cuentaRepository.findById(numeroCuenta)).thenReturn(Optional.of(cuenta));
+        when(movimientoRepository.findMovimientos(numeroCuenta)).thenReturn(List.of(mov1, mov2));
 
         // Act
-        List<Movimiento> movimientos = cuentaServicio.listarMovimientos(numeroCuenta);
+        List<MovimientoDto> movimientos = cuentaServicio.listarMovimientos(numeroCuenta);
 
         // Assert
         assertNotNull(movimientos);
         assertEquals(2, movimientos.size());
+        verify(cuentaRepository, never()).existsById(numeroCuenta);
     }
 
     @Test
@@ -69,77 +98,180 @@ class CuentaServicioImplTest {
         assertEquals("La cuenta buscada no existe", ex.getMessage());
     }
 
+    @Test
+    void listarMovimientosPaginados_deberiaDevolverCursor_siHayMasMovimientos() {
+        // Arrange
+        String numeroCuenta = "ES1233838388992228";
+        MovimientoDto mov1 = new MovimientoDto(3, new Date(3000L), TipoMovimiento.INGRESO, Dinero.deUnidades(10));
+        MovimientoDto mov2 = new MovimientoDto(2, new Date(2000L), TipoMovimiento.RETIRADA, Dinero.deUnidades(20));
+        MovimientoDto mov3 = new MovimientoDto(1, new Date(1000L), TipoMovimiento.INGRESO, Dinero.deUnidades(30));
+
+        when(movimientoRepository.findPaginaMovimientos(numeroCuenta, PageRequest.of(0, 3)))
+                .thenReturn(new ArrayList<>(Arrays.asList(mov1, mov2, mov3)));
+
+        // Act
+        PaginaMovimientos pagina = cuentaServicio.listarMovimientos(numeroCuenta, null, 2);
+
+        // Assert
+        assertEquals(List.of(mov1, mov2), pagina.movimientos());
+        assertEquals("2000_2", pagina.siguienteCursor());
+        verify(cuentaRepository, never()).existsById(any());
+    }
+
+    @Test
+    void listarMovimientosPaginados_deberiaContinuarDesdeCursor_yNoDevolverCursorEnUltimaPagina() {
+        // Arrange
+        String numeroCuenta = "ES1233838388992228";
+        MovimientoDto mov3 = new MovimientoDto(1, new Date(1000L), TipoMovimiento.INGRESO, Dinero.deUnidades(30));
+
+        when(movimientoRepository.findPaginaMovimientosDesde(numeroCuenta, new Date(2000L), 2, PageRequest.of(0, 3)))
+                .thenReturn(List.of(mov3));
+
+        // Act
+        PaginaMovimientos pagina = cuentaServicio.listarMovimientos(numeroCuenta, "2000_2", 2);
+
+        // Assert
+        assertEquals(List.of(mov3), pagina.movimientos());
+        assertNull(pagina.siguienteCursor());
+    }
+
+    @Test
+    void listarMovimientosPaginados_deberiaLanzarExcepcion_siCuentaNoExiste() {
+        String numeroCuenta = "ES1233838388992228";
+
+        when(movimientoRepository.findPaginaMovimientos(eq(numeroCuenta), any())).thenReturn(List.of());
+        when(cuentaRepository.existsById(numeroCuenta)).thenReturn(false);
+
+        NotFoundException ex = assertThrows(
+                NotFoundException.class,
+                () -> cuentaServicio.listarMovimientos(numeroCuenta, null, 50)
+        );
+
+        assertEquals("La cuenta buscada no existe", ex.getMessage());
+    }
+
+    @Test
+    void listarMovimientosPaginados_deberiaLanzarExcepcion_siCursorNoValido() {
+        assertThrows(BadRequestException.class, () ->
+                cuentaServicio.listarMovimientos("ES1233838388992228", "no-es-un-cursor", 50)
+        );
+    }
+
     @Test
     void sacarDinero_deberiaActualizarSaldoYGuardarMovimiento() {
         // Arrange
-        float saldoInicial = 1000f;
-        float cantidad = 200f;
+        Dinero saldoInicial = Dinero.deUnidades(1000);
+        Dinero cantidad = Dinero.deUnidades(200);
 
         Cuenta cuenta = new Cuenta();
+        cuenta.setNumeroCuenta("ES123");
         cuenta.setSaldo(saldoInicial);
         cuenta.setMovimientos(new ArrayList<>());
 
+        when(cuentaRepository.findById("ES123")).thenReturn(Optional.of(cuenta));
+
         // Act
-        boolean resultado = cuentaServicio.sacarDinero(cuenta, cantidad);
+        boolean resultado = cuentaServicio.sacarDinero("ES123", cantidad, false);
 
         // Assert
         assertTrue(resultado);
-        assertEquals(saldoInicial - cantidad, cuenta.getSaldo());
-        assertEquals(1, cuenta.getMovimientos().size());
+        assertEquals(Dinero.deUnidades(800), cuenta.getSaldo());
+        // El movimiento se guarda por su repositorio sin cargar el historico de la cuenta
+        assertTrue(cuenta.getMovimientos().isEmpty());
 
-        Movimiento movimiento = cuenta.getMovimientos().get(0);
+        Movimiento movimiento = movimientoGuardado();
+        assertSame(cuenta, movimiento.getCuenta());
         assertEquals(cantidad, movimiento.getImporte());
         assertEquals(TipoMovimiento.RETIRADA, movimiento.getTipoMovimiento());
         assertNotNull(movimiento.getFechaMovimiento());
 
         verify(cuentaRepository).save(cuenta);
+        verify(resumenesCuenta).registrar(movimiento);
+    }
+
+    @Test
+    void sacarDinero_deberiaRechazarlo_siNoHaySaldoYNoSePermiteDescubierto() {
+        Cuenta cuenta = new Cuenta();
+        cuenta.setNumeroCuenta("ES123");
+        cuenta.setSaldo(Dinero.deUnidades(100));
+
+        when(cuentaRepository.findById("ES123")).thenReturn(Optional.of(cuenta));
+
+        boolean resultado = cuentaServicio.sacarDinero("ES123", Dinero.deUnidades(200), false);
+
+        assertFalse(resultado);
+        assertEquals(Dinero.deUnidades(100), cuenta.getSaldo());
+        verify(cuentaRepository, never()).save(any());
+        verifyNoInteractions(resumenesCuenta);
     }
 
     @Test
     void realizarTransferencia_deberiaTransferirDinero_siDestinoExiste() {
         String origen = "ES123";
         String destino = "ES999";
-        float cantidad = 100f;
-
-        Cuenta cuentaOrigen = new Cuenta();
-        cuentaOrigen.setSaldo(200f);
-        cuentaOrigen.setMovimientos(new ArrayList<>());
+        Dinero cantidad = Dinero.deUnidades(100);
 
-        Cuenta cuentaDestino = new Cuenta();
+        Cuenta cuentaOrigen = cuenta(origen, Dinero.deUnidades(200));
+        Cuenta cuentaDestino = cuenta(destino, Dinero.deUnidades(5));
 
-        when(cuentaRepository.findById(origen)).thenReturn(Optional.of(cuentaOrigen));
-        when(cuentaRepository.findById(destino)).thenReturn(Optional.of(cuentaDestino));
+        when(cuentaRepository.findAllById(any())).thenReturn(List.of(cuentaOrigen, cuentaDestino));
 
         cuentaServicio.realizarTransferencia(origen, destino, cantidad);
 
-        assertEquals(100f, cuentaOrigen.getMovimientos().get(0).getImporte());
-        assertEquals(TipoMovimiento.TRANSFERENCIA_SALIENTE, cuentaOrigen.getMovimientos().get(0).getTipoMovimiento());
-        assertEquals(100f, cuentaOrigen.getSaldo());
+        List<Movimiento> movimientos = movimientosGuardados();
+        assertEquals(2, movimientos.size());
+        assertSame(cuentaOrigen, movimientos.get(0).getCuenta());
+        assertEquals(Dinero.deUnidades(100), movimientos.get(0).getImporte());
+        assertEquals(TipoMovimiento.TRANSFERENCIA_SALIENTE, movimientos.get(0).getTipoMovimiento());
+        assertSame(cuentaDestino, movimientos.get(1).getCuenta());
+        assertEquals(Dinero.deUnidades(100), movimientos.get(1).getImporte());
+        assertEquals(TipoMovimiento.TRANSFERENCIA_ENTRANTE, movimientos.get(1).getTipoMovimiento());
+        assertEquals(Dinero.deUnidades(100), cuentaOrigen.getSaldo());
+        assertEquals(Dinero.deUnidades(105), cuentaDestino.getSaldo());
         verify(cuentaRepository).save(cuentaOrigen);
+        verify(cuentaRepository).save(cuentaDestino);
+    }
+
+    @Test
+    void realizarTransferencia_deberiaLeerLasDosCuentasOrdenadas() {
+        when(cuentaRepository.findAllById(any())).thenReturn(List.of(cuenta("ES1", Dinero.deUnidades(10)), cuenta("ES2", Dinero.CERO)));
+
+        cuentaServicio.realizarTransferencia("ES2", "ES1", Dinero.deUnidades(1));
+
+        verify(cuentaRepository).findAllById(new TreeSet<>(List.of("ES1", "ES2")));
+        verify(cuentaRepository, never()).findById(any());
+    }
+
+    @Test
+    void realizarTransferencia_aLaPropiaCuenta_noDeberiaCambiarElSaldo() {
+        Cuenta cuenta = cuenta("ES123", Dinero.deUnidades(200));
+        when(cuentaRepository.findAllById(any())).thenReturn(List.of(cuenta));
+
+        cuentaServicio.realizarTransferencia("ES123", "ES123", Dinero.deUnidades(100));
+
+        assertEquals(Dinero.deUnidades(200), cuenta.getSaldo());
+        assertEquals(2, movimientosGuardados().size());
     }
 
     @Test
     void realizarTransferencia_deberiaAplicarComision_siDestinoNoExistePeroIBANValido() {
         String origen = "ES123";
         String destino = "ES456"; // válido, pero no existe
-        float cantidad = 100f;
+        Dinero cantidad = Dinero.deUnidades(100);
 
-        Cuenta cuentaOrigen = new Cuenta();
-        cuentaOrigen.setSaldo(200f);
-        cuentaOrigen.setMovimientos(new ArrayList<>());
+        Cuenta cuentaOrigen = cuenta(origen, Dinero.deUnidades(200));
 
-        when(cuentaRepository.findById(origen)).thenReturn(Optional.of(cuentaOrigen));
-        when(cuentaRepository.findById(destino)).thenReturn(Optional.empty());
+        when(cuentaRepository.findAllById(any())).thenReturn(List.of(cuentaOrigen));
 
         cuentaServicio.realizarTransferencia(origen, destino, cantidad);
 
-        float cantidadEsperada = cantidad * ConstantData.COMISION_TRANSFERENCIA;
+        Dinero cantidadEsperada = Dinero.deUnidades(130);
 
-        assertEquals(1, cuentaOrigen.getMovimientos().size());
-        Movimiento mov = cuentaOrigen.getMovimientos().get(0);
-        assertEquals(cantidadEsperada, mov.getImporte());
-        assertEquals(TipoMovimiento.TRANSFERENCIA_SALIENTE, mov.getTipoMovimiento());
-        assertEquals(200f - cantidadEsperada, cuentaOrigen.getSaldo(), 0.001);
+        List<Movimiento> movimientos = movimientosGuardados();
+        assertEquals(1, movimientos.size());
+        assertEquals(cantidadEsperada, movimientos.get(0).getImporte());
+        assertEquals(TipoMovimiento.TRANSFERENCIA_SALIENTE, movimientos.get(0).getTipoMovimiento());
+        assertEquals(Dinero.deUnidades(70), cuentaOrigen.getSaldo());
         verify(cuentaRepository).save(cuentaOrigen);
     }
 
@@ -147,28 +279,116 @@ class CuentaServicioImplTest {
     void realizarTransferencia_noDeberiaTransferir_siSaldoInsuficiente() {
         String origen = "ES123";
         String destino = "ES456";
-        float cantidad = 100f;
+        Dinero cantidad = Dinero.deUnidades(100);
 
-        Cuenta cuentaOrigen = new Cuenta();
-        cuentaOrigen.setSaldo(50f); // no suficiente
-        cuentaOrigen.setMovimientos(new ArrayList<>());
+        Cuenta cuentaOrigen = cuenta(origen, Dinero.deUnidades(50)); // no suficiente
 
-        when(cuentaRepository.findById(origen)).thenReturn(Optional.of(cuentaOrigen));
-        when(cuentaRepository.findById(destino)).thenReturn(Optional.empty());
+        when(cuentaRepository.findAllById(any())).thenReturn(List.of(cuentaOrigen));
 
         cuentaServicio.realizarTransferencia(origen, destino, cantidad);
 
-        assertTrue(cuentaOrigen.getMovimientos().isEmpty());
-        assertEquals(50f, cuentaOrigen.getSaldo());
+        verify(movimientoRepository, never()).saveAll(any());
+        assertEquals(Dinero.deUnidades(50), cuentaOrigen.getSaldo());
         verify(cuentaRepository, never()).save(any());
     }
 
+    @Test
+    void realizarTransferencia_deberiaRechazarCantidadesNoPositivas_sinTocarLasCuentas() {
+        Cuenta cuentaOrigen = cuenta("ES123", Dinero.deUnidades(10));
+        Cuenta cuentaDestino = cuenta("ES999", Dinero.deUnidades(1000));
+        when(cuentaRepository.findAllById(any())).thenReturn(List.of(cuentaOrigen, cuentaDestino));
+
+        assertThrows(BadRequestException.class, () ->
+                cuentaServicio.realizarTransferencia("ES123", "ES999", Dinero.deUnidades(-1000))
+        );
+        assertThrows(BadRequestException.class, () ->
+                cuentaServicio.realizarTransferencia("ES123", "ES999", Dinero.CERO)
+        );
+
+        assertEquals(Dinero.deUnidades(10), cuentaOrigen.getSaldo());
+        assertEquals(Dinero.deUnidades(1000), cuentaDestino.getSaldo());
+        verify(cuentaRepository, never()).save(any());
+        verify(movimientoRepository, never()).saveAll(any());
+    }
+
     @Test
     void realizarTransferencia_deberiaLanzarExcepcion_siCuentaOrigenNoExiste() {
-        when(cuentaRepository.findById("ORIGEN")).thenReturn(Optional.empty());
+        when(cuentaRepository.findAllById(any())).thenReturn(List.of(cuenta("DESTINO", Dinero.CERO)));
 
         assertThrows(NotFoundException.class, () ->
-                cuentaServicio.realizarTransferencia("ORIGEN", "DESTINO", 100f)
+                cuentaServicio.realizarTransferencia("ORIGEN", "DESTINO", Dinero.deUnidades(100))
         );
     }
-}
\ No newline at end of file
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void realizarTransferencias_deberiaDevolverUnResultadoPorSolicitudEnOrden() {
+        Cuenta origen1 = new Cuenta();
+        origen1.setNumeroCuenta("ES01");
+        origen1.setSaldo(Dinero.deUnidades(150));
+        Cuenta origen2 = new Cuenta();
+        origen2.setNumeroCuenta("ES02");
+        origen2.setSaldo(Dinero.deUnidades(10));
+
+        when(cuentaRepository.findAllById(any())).thenReturn(List.of(origen1, origen2));
+
+        List<SolicitudTransferencia> solicitudes = List.of(
+                new SolicitudTransferencia("n1", "ES01", "ES02", Dinero.deUnidades(100)),
+                new SolicitudTransferencia("n2", "ES02", "ES99", Dinero.deUnidades(20)),
+                new SolicitudTransferencia("n3", "ES01", "ES99", Dinero.deUnidades(30)),
+                new SolicitudTransferencia("n4", "ES01", "ES02", Dinero.deUnidades(60)),
+                new SolicitudTransferencia("n5", "ES01", "ES02", Dinero.CERO));
+
+        List<ResultadoTransferencia> resultados = cuentaServicio.realizarTransferencias(solicitudes);
+
+        assertEquals(List.of("n1", "n2", "n3", "n4", "n5"), resultados.stream().map(ResultadoTransferencia::referencia).toList());
+        assertEquals(EstadoTransferencia.REALIZADA, resultados.get(0).estado());
+        assertEquals(Dinero.deUnidades(100), resultados.get(0).importeCargado());
+        // ES02 es cuenta propia: el abono de la primera le da saldo para la segunda, que va a un IBAN externo
+        assertEquals(EstadoTransferencia.REALIZADA, resultados.get(1).estado());
+        assertEquals(Dinero.deUnidades(26), resultados.get(1).importeCargado());
+        // Bloque de 2: la tercera va en otro bloque y a un IBAN externo, con comision
+        assertEquals(EstadoTransferencia.REALIZADA, resultados.get(2).estado());
+        assertEquals(Dinero.deUnidades(39), resultados.get(2).importeCargado());
+        assertEquals(EstadoTransferencia.SALDO_INSUFICIENTE, resultados.get(3).estado());
+        assertEquals(EstadoTransferencia.DATOS_NO_VALIDOS, resultados.get(4).estado());
+        assertEquals(Dinero.deUnidades(11), origen1.getSaldo());
+        assertEquals(Dinero.deUnidades(84), origen2.getSaldo());
+
+        ArgumentCaptor<List<Movimiento>> movimientos = ArgumentCaptor.forClass(List.class);
+        verify(movimientoRepository, times(2)).saveAll(movimientos.capture());
+        assertEquals(4, movimientos.getAllValues().stream().mapToInt(List::size).sum());
+        verify(cuentaRepository, never()).findById(any());
+    }
+
+    @Test
+    void realizarTransferencias_deberiaRechazar_siCuentaOrigenNoExiste() {
+        when(cuentaRepository.findAllById(any())).thenReturn(List.of());
+
+        List<ResultadoTransferencia> resultados = cuentaServicio.realizarTransferencias(
+                List.of(new SolicitudTransferencia(null, "NO-EXISTE", "ES02", Dinero.deUnidades(1))));
+
+        assertEquals(EstadoTransferencia.CUENTA_ORIGEN_NO_EXISTE, resultados.get(0).estado());
+        assertNull(resultados.get(0).importeCargado());
+    }
+
+    private static Cuenta cuenta(final String numeroCuenta, final Dinero saldo) {
+        Cuenta cuenta = new Cuenta();
+        cuenta.setNumeroCuenta(numeroCuenta);
+        cuenta.setSaldo(saldo);
+        return cuenta;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Movimiento> movimientosGuardados() {
+        ArgumentCaptor<List<Movimiento>> movimientos = ArgumentCaptor.forClass(List.class);
+        verify(movimientoRepository).saveAll(movimientos.capture());
+        return movimientos.getValue();
+    }
+
+    private Movimiento movimientoGuardado() {
+        ArgumentCaptor<Movimiento> movimiento = ArgumentCaptor.forClass(Movimiento.class);
+        verify(movimientoRepository).save(movimiento.capture());
+        return movimiento.getValue();
+    }
+}
@@ -0,0 +1,83 @@
+package es.nextdigital.demo.servicios;
+
+import es.nextdigital.demo.exceptions.BadRequestException;
+import es.nextdigital.demo.ledger.PersistidorLedger;
+import es.nextdigital.demo.model.Cuenta;
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.model.PuntoControlLedger;
+import es.nextdigital.demo.repositorio.CuentaRepository;
+import es.nextdigital.demo.repositorio.MovimientoRepository;
+import es.nextdigital.demo.repositorio.PuntoControlLedgerRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "carlosbank.ledger.habilitado=true",
+        "carlosbank.ledger.directorio=target/ledger-test/${random.uuid}",
+        "carlosbank.ledger.intervalo-volcado=1h"
+})
+class CuentaServicioLedgerImplTest {
+
+    @Autowired
+    private CuentaServicio cuentaServicio;
+
+    @Autowired
+    private PersistidorLedger persistidorLedger;
+
+    @Autowired
+    private CuentaRepository cuentaRepository;
+
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+
+    @Autowired
+    private PuntoControlLedgerRepository puntoControlRepository;
+
+    @Test
+    void operaciones_deberianAplicarseEnMemoriaYPersistirseAlVolcar() {
+        // Arrange
+        final Cuenta cuenta = new Cuenta();
+        cuenta.setNumeroCuenta("ES-LEDGER");
+        cuenta.setSaldo(Dinero.deUnidades(100));
+        cuentaRepository.save(cuenta);
+
+        // Act
+        assertInstanceOf(CuentaServicioLedgerImpl.class, cuentaServicio);
+        cuentaServicio.sacarDinero("ES-LEDGER", Dinero.valueOf("30.5"), false);
+        cuentaServicio.ingresarDinero("ES-LEDGER", Dinero.deUnidades(10));
+        cuentaServicio.realizarTransferencia("ES-LEDGER", "ES-LEDGER", Dinero.deUnidades(500));
+
+        // Assert: el saldo en memoria esta al dia y la base de datos todavia no
+        assertEquals(Dinero.valueOf("79.5"), cuentaServicio.consultarSaldo("ES-LEDGER"));
+        assertEquals(Dinero.deUnidades(100), cuentaRepository.findById("ES-LEDGER").orElseThrow().getSaldo());
+
+        persistidorLedger.volcar();
+
+        assertEquals(Dinero.valueOf("79.5"), cuentaRepository.findById("ES-LEDGER").orElseThrow().getSaldo());
+        assertEquals(2, movimientoRepository.findPaginaMovimientos("ES-LEDGER", PageRequest.of(0, 10)).size());
+        assertTrue(puntoControlRepository.findById(PuntoControlLedger.ID).orElseThrow().getUltimaSecuencia() >= 2);
+    }
+
+    @Test
+    void realizarTransferencia_deberiaRechazarUnaCantidadNegativa_sinTocarNingunSaldo() {
+        // Arrange
+        for (String numeroCuenta : new String[]{"ES-LEDGER-ORIGEN", "ES-LEDGER-DESTINO"}) {
+            final Cuenta cuenta = new Cuenta();
+            cuenta.setNumeroCuenta(numeroCuenta);
+            cuenta.setSaldo(Dinero.deUnidades(100));
+            cuentaRepository.save(cuenta);
+        }
+
+        // Act
+        assertThrows(BadRequestException.class, () ->
+                cuentaServicio.realizarTransferencia("ES-LEDGER-ORIGEN", "ES-LEDGER-DESTINO", Dinero.deUnidades(-1000)));
+
+        // Assert
+        assertEquals(Dinero.deUnidades(100), cuentaServicio.consultarSaldo("ES-LEDGER-ORIGEN"));
+        assertEquals(Dinero.deUnidades(100), cuentaServicio.consultarSaldo("ES-LEDGER-DESTINO"));
+    }
+}
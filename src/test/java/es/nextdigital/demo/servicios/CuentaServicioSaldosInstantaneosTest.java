@@ -0,0 +1,55 @@
+package es.nextdigital.demo.servicios;
+
+import es.nextdigital.demo.model.Cuenta;
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.repositorio.CuentaRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "carlosbank.cuentas.saldos.cache.consistencia=INSTANTANEA",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class CuentaServicioSaldosInstantaneosTest {
+
+    @Autowired
+    private CuentaServicio cuentaServicio;
+
+    @Autowired
+    private CuentaRepository cuentaRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void consultarSaldo_deberiaServirElSaldoConfirmadoPorLasOperacionesSinConsultar() {
+        // Arrange
+        final Cuenta origen = new Cuenta();
+        origen.setNumeroCuenta("ES-SALDOS-1");
+        origen.setSaldo(Dinero.deUnidades(100));
+        final Cuenta destino = new Cuenta();
+        destino.setNumeroCuenta("ES-SALDOS-2");
+        destino.setSaldo(Dinero.deUnidades(100));
+        cuentaRepository.saveAll(List.of(origen, destino));
+
+        // Act
+        cuentaServicio.sacarDinero("ES-SALDOS-1", Dinero.deUnidades(30), false);
+        cuentaServicio.ingresarDinero("ES-SALDOS-1", Dinero.deUnidades(5));
+        cuentaServicio.realizarTransferencia("ES-SALDOS-1", "ES-SALDOS-2", Dinero.deUnidades(10));
+
+        // Assert: las operaciones dejan su saldo al confirmar y las consultas no vuelven a base de datos
+        final Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+        assertEquals(Dinero.deUnidades(65), cuentaServicio.consultarSaldo("ES-SALDOS-1"));
+        assertEquals(Dinero.deUnidades(110), cuentaServicio.consultarSaldo("ES-SALDOS-2"));
+        assertEquals(0, estadisticas.getPrepareStatementCount());
+    }
+}
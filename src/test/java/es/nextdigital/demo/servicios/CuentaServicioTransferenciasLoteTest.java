@@ -0,0 +1,96 @@
+package es.nextdigital.demo.servicios;
+
+import es.nextdigital.demo.configuracion.ConcurrenciaCuentasProperties;
+import es.nextdigital.demo.configuracion.ModoConcurrencia;
+import es.nextdigital.demo.model.Cuenta;
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.model.EstadoTransferencia;
+import es.nextdigital.demo.model.ResultadoTransferencia;
+import es.nextdigital.demo.model.SolicitudTransferencia;
+import es.nextdigital.demo.repositorio.CuentaRepository;
+import es.nextdigital.demo.repositorio.MovimientoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Lote de nominas contra la base de datos real: varias cuentas origen, mas transferencias que el tamano de bloque y
+ * una cuenta que se queda sin saldo a mitad del lote.
+ */
+@SpringBootTest(properties = "carlosbank.transferencias.lote.tamano-bloque=200")
+class CuentaServicioTransferenciasLoteTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CuentaServicioTransferenciasLoteTest.class);
+
+    private static final int TRANSFERENCIAS_POR_ORIGEN = 500;
+
+    @Autowired
+    private CuentaServicio cuentaServicio;
+
+    @Autowired
+    private CuentaRepository cuentaRepository;
+
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+
+    @Autowired
+    private ConcurrenciaCuentasProperties propiedades;
+
+    @AfterEach
+    void tearDown() {
+        propiedades.setModo(ModoConcurrencia.OPTIMISTA);
+    }
+
+    @ParameterizedTest
+    @EnumSource(ModoConcurrencia.class)
+    void realizarTransferencias_deberiaCargarCadaOrigenHastaAgotarSaldo(final ModoConcurrencia modo) {
+        // Arrange
+        propiedades.setModo(modo);
+        final String origenConSaldo = crearCuenta("ES-LOTE-A-" + modo, Dinero.deUnidades(1_000_000));
+        final String origenSinSaldo = crearCuenta("ES-LOTE-B-" + modo, Dinero.deUnidades(100));
+        final String destino = crearCuenta("ES-LOTE-C-" + modo, Dinero.CERO);
+
+        final List<SolicitudTransferencia> solicitudes = new ArrayList<>();
+        for (int i = 0; i < TRANSFERENCIAS_POR_ORIGEN; i++) {
+            solicitudes.add(new SolicitudTransferencia("A" + i, origenConSaldo, destino, Dinero.deUnidades(10)));
+            solicitudes.add(new SolicitudTransferencia("B" + i, origenSinSaldo, destino, Dinero.deUnidades(1)));
+        }
+
+        // Act
+        final long inicio = System.nanoTime();
+        final List<ResultadoTransferencia> resultados = cuentaServicio.realizarTransferencias(solicitudes);
+        final long duracionNanos = System.nanoTime() - inicio;
+
+        // Assert
+        assertEquals(solicitudes.size(), resultados.size());
+        final long realizadas = resultados.stream().filter(r -> EstadoTransferencia.REALIZADA == r.estado()).count();
+        assertEquals(TRANSFERENCIAS_POR_ORIGEN + 100, realizadas);
+        assertEquals(EstadoTransferencia.SALDO_INSUFICIENTE, resultados.get(2 * 100 + 1).estado());
+
+        assertEquals(Dinero.deUnidades(1_000_000 - 10 * TRANSFERENCIAS_POR_ORIGEN), cuentaRepository.findById(origenConSaldo).orElseThrow().getSaldo());
+        assertEquals(Dinero.CERO, cuentaRepository.findById(origenSinSaldo).orElseThrow().getSaldo());
+        assertEquals(TRANSFERENCIAS_POR_ORIGEN, movimientoRepository.findPaginaMovimientos(origenConSaldo, PageRequest.of(0, 1_000)).size());
+        assertEquals(100, movimientoRepository.findPaginaMovimientos(origenSinSaldo, PageRequest.of(0, 1_000)).size());
+
+        LOG.info("Modo {}: {} transferencias en lote, {} transferencias/s", modo, solicitudes.size(),
+                String.format("%.0f", solicitudes.size() / (duracionNanos / 1e9)));
+    }
+
+    private String crearCuenta(final String numeroCuenta, final Dinero saldo) {
+        final Cuenta cuenta = new Cuenta();
+        cuenta.setNumeroCuenta(numeroCuenta);
+        cuenta.setSaldo(saldo);
+        cuentaRepository.save(cuenta);
+        return numeroCuenta;
+    }
+}
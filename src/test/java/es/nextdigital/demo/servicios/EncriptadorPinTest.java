@@ -0,0 +1,76 @@
+package es.nextdigital.demo.servicios;
+
+import org.junit.jupiter.api.Test;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EncriptadorPinTest {
+
+    private final EncriptadorPin encriptadorSinTabla = new EncriptadorPin(false);
+    private final EncriptadorPin encriptadorConTabla = new EncriptadorPin(true);
+
+    @Test
+    void encriptar_deberiaCoincidirConSha256Hexadecimal() {
+        for (int pin : new int[]{0, 7, 42, 1234, 9999, 10000, 123456, -1, Integer.MIN_VALUE, Integer.MAX_VALUE}) {
+            assertEquals(sha256(pin), encriptadorSinTabla.encriptar(pin), "pin " + pin);
+            assertEquals(sha256(pin), encriptadorConTabla.encriptar(pin), "pin " + pin);
+        }
+    }
+
+    @Test
+    void encriptar_tablaPrecalculadaDeberiaCubrirTodosLosPines() {
+        for (int pin = 0; pin < 10_000; pin++) {
+            assertEquals(encriptadorSinTabla.encriptar(pin), encriptadorConTabla.encriptar(pin));
+        }
+    }
+
+    @Test
+    void encriptar_deberiaSerConsistenteDesdeVariosHilos() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<Boolean>> resultados = new ArrayList<>();
+            for (int hilo = 0; hilo < 8; hilo++) {
+                resultados.add(executor.submit(() -> {
+                    for (int pin = 0; pin < 2_000; pin++) {
+                        if (!sha256(pin).equals(encriptadorSinTabla.encriptar(pin))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+
+            for (Future<Boolean> resultado : resultados) {
+                assertTrue(resultado.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static String sha256(final int pin) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(Integer.toString(pin).getBytes());
+
+            StringBuilder hexString = new StringBuilder();
+            for (byte b : hash) {
+                String hex = Integer.toHexString(0xff & b);
+                if (hex.length() == 1) hexString.append('0');
+                hexString.append(hex);
+            }
+            return hexString.toString();
+
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("Error al generar hash SHA-256", e);
+        }
+    }
+}
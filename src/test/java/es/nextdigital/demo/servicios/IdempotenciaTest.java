@@ -0,0 +1,123 @@
+package es.nextdigital.demo.servicios;
+
+import es.nextdigital.demo.configuracion.IdempotenciaProperties;
+import es.nextdigital.demo.exceptions.BadRequestException;
+import es.nextdigital.demo.exceptions.ConflictException;
+import es.nextdigital.demo.exceptions.ForbiddenOperationException;
+import es.nextdigital.demo.model.Dinero;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotenciaTest {
+
+    private static final List<Object> PARAMETROS = List.of("ES123", Dinero.deUnidades(100));
+
+    private Idempotencia idempotencia;
+    private AtomicInteger ejecuciones;
+
+    @BeforeEach
+    void setUp() {
+        idempotencia = new Idempotencia(new IdempotenciaProperties(),
+                new StaticListableBeanFactory().getBeanProvider(ClavesIdempotenciaPersistentes.class));
+        ejecuciones = new AtomicInteger();
+    }
+
+    @Test
+    void ejecutar_sinClave_deberiaEjecutarSiempre() {
+        idempotencia.ejecutar(null, "sacar", PARAMETROS, this::sacar);
+        idempotencia.ejecutar(null, "sacar", PARAMETROS, this::sacar);
+
+        assertEquals(2, ejecuciones.get());
+    }
+
+    @Test
+    void ejecutar_conLaMismaClave_deberiaDevolverElPrimerResultado() {
+        final Dinero primero = idempotencia.ejecutar("clave", "sacar", PARAMETROS, this::sacar);
+        final Dinero repetido = idempotencia.ejecutar("clave", "sacar", PARAMETROS, this::sacar);
+
+        assertEquals(1, ejecuciones.get());
+        assertEquals(primero, repetido);
+    }
+
+    @Test
+    void ejecutar_laMismaClaveEnOtraOperacion_deberiaEjecutarse() {
+        idempotencia.ejecutar("clave", "sacar", PARAMETROS, this::sacar);
+        idempotencia.ejecutar("clave", "ingresar", PARAMETROS, this::sacar);
+
+        assertEquals(2, ejecuciones.get());
+    }
+
+    @Test
+    void ejecutar_conOtrosParametros_deberiaLanzarBadRequest() {
+        idempotencia.ejecutar("clave", "sacar", PARAMETROS, this::sacar);
+
+        assertThrows(BadRequestException.class,
+                () -> idempotencia.ejecutar("clave", "sacar", List.of("ES123", Dinero.deUnidades(200)), this::sacar));
+        assertEquals(1, ejecuciones.get());
+    }
+
+    @Test
+    void ejecutar_deberiaRepetirLosRechazosDeNegocio() {
+        final Runnable rechazo = () -> {
+            ejecuciones.incrementAndGet();
+            throw new ForbiddenOperationException("No hay saldo suficiente");
+        };
+
+        assertThrows(ForbiddenOperationException.class, () -> idempotencia.ejecutar("clave", "sacar", PARAMETROS, rechazo));
+        final ForbiddenOperationException repetida = assertThrows(ForbiddenOperationException.class,
+                () -> idempotencia.ejecutar("clave", "sacar", PARAMETROS, rechazo));
+
+        assertEquals("No hay saldo suficiente", repetida.getMessage());
+        assertEquals(1, ejecuciones.get());
+    }
+
+    @Test
+    void ejecutar_noDeberiaGuardarLosErroresTransitorios() {
+        assertThrows(ConflictException.class, () -> idempotencia.ejecutar("clave", "sacar", PARAMETROS, (Runnable) () -> {
+            ejecuciones.incrementAndGet();
+            throw new ConflictException("Conflicto");
+        }));
+
+        idempotencia.ejecutar("clave", "sacar", PARAMETROS, this::sacar);
+
+        assertEquals(2, ejecuciones.get());
+    }
+
+    @Test
+    void ejecutar_concurrenteConLaMismaClave_deberiaEjecutarUnaSolaVez() throws Exception {
+        final int hilos = 16;
+        final CountDownLatch salida = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(hilos);
+
+        final List<Future<Dinero>> resultados = new ArrayList<>();
+        for (int i = 0; i < hilos; i++) {
+            resultados.add(executor.submit(() -> {
+                salida.await();
+                return idempotencia.ejecutar("clave", "sacar", PARAMETROS, this::sacar);
+            }));
+        }
+        salida.countDown();
+        for (Future<Dinero> resultado : resultados) {
+            assertEquals(Dinero.deUnidades(1), resultado.get(1, TimeUnit.MINUTES));
+        }
+        executor.shutdown();
+
+        assertEquals(1, ejecuciones.get());
+    }
+
+    private Dinero sacar() {
+        return Dinero.deUnidades(ejecuciones.incrementAndGet());
+    }
+}
@@ -0,0 +1,73 @@
+package es.nextdigital.demo.servicios;
+
+import es.nextdigital.demo.exceptions.ForbiddenOperationException;
+import es.nextdigital.demo.exceptions.NotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricasOperacionesTest {
+
+    private MeterRegistry meterRegistry;
+    private ObservationRegistry observationRegistry;
+    private MetricasOperaciones metricas;
+
+    @BeforeEach
+    void setUp() {
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.observationRegistry = ObservationRegistry.create();
+        this.observationRegistry.observationConfig().observationHandler(new DefaultMeterObservationHandler(this.meterRegistry));
+        this.metricas = new MetricasOperaciones(this.observationRegistry);
+    }
+
+    @Test
+    void operacion_deberiaEtiquetarExito() {
+        final String resultado = this.metricas.operacion("tarjeta.sacar", () -> "ok");
+
+        assertEquals("ok", resultado);
+        assertEquals(1, timer(MetricasOperaciones.OPERACIONES, "resultado", MetricasOperaciones.RESULTADO_EXITO).count());
+    }
+
+    @Test
+    void operacion_deberiaEtiquetarElTipoDeExcepcion() {
+        assertThrows(NotFoundException.class, () -> this.metricas.operacion("tarjeta.sacar", () -> {
+            throw new NotFoundException("Tarjeta no encontrada");
+        }));
+        assertThrows(ForbiddenOperationException.class, () -> this.metricas.operacion("tarjeta.sacar", () -> {
+            throw new ForbiddenOperationException("La tarjeta no está activada");
+        }));
+
+        assertEquals(1, timer(MetricasOperaciones.OPERACIONES, "resultado", "NotFoundException").count());
+        assertEquals(1, timer(MetricasOperaciones.OPERACIONES, "resultado", "ForbiddenOperationException").count());
+    }
+
+    @Test
+    void paso_deberiaAnidarseEnLaOperacionEnCurso() {
+        final AtomicReference<Observation> padre = new AtomicReference<>();
+        final AtomicReference<Observation> paso = new AtomicReference<>();
+
+        this.metricas.operacion("tarjeta.sacar", () -> {
+            padre.set(this.observationRegistry.getCurrentObservation());
+            this.metricas.paso("encriptar-pin", () -> paso.set(this.observationRegistry.getCurrentObservation()));
+        });
+
+        assertNotNull(paso.get());
+        assertSame(padre.get(), paso.get().getContextView().getParentObservation());
+        assertEquals(1, timer(MetricasOperaciones.PASOS, "paso", "encriptar-pin").count());
+    }
+
+    private Timer timer(final String nombre, final String etiqueta, final String valor) {
+        final Timer timer = this.meterRegistry.find(nombre).tag(etiqueta, valor).timer();
+        assertNotNull(timer, "No existe el timer " + nombre + " con " + etiqueta + "=" + valor);
+        return timer;
+    }
+}
@@ -0,0 +1,94 @@
+package es.nextdigital.demo.servicios;
+
+import es.nextdigital.demo.configuracion.ResumenesCuentaProperties;
+import es.nextdigital.demo.exceptions.BadRequestException;
+import es.nextdigital.demo.exceptions.NotFoundException;
+import es.nextdigital.demo.model.Cuenta;
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.model.ResumenMovimientos;
+import es.nextdigital.demo.model.SolicitudTransferencia;
+import es.nextdigital.demo.model.TipoMovimiento;
+import es.nextdigital.demo.model.TotalMovimientos;
+import es.nextdigital.demo.repositorio.CuentaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class ResumenesCuentaTest {
+
+    @Autowired
+    private CuentaServicio cuentaServicio;
+
+    @Autowired
+    private ResumenesCuenta resumenesCuenta;
+
+    @Autowired
+    private CuentaRepository cuentaRepository;
+
+    @Autowired
+    private ResumenesCuentaProperties propiedades;
+
+    private String numeroCuenta;
+    private LocalDate hoy;
+
+    @BeforeEach
+    void setUp() {
+        numeroCuenta = "ES-RESUMEN-" + System.nanoTime();
+        final Cuenta cuenta = new Cuenta();
+        cuenta.setNumeroCuenta(numeroCuenta);
+        cuenta.setSaldo(Dinero.deUnidades(1_000));
+        cuentaRepository.save(cuenta);
+        hoy = LocalDate.now(propiedades.getZonaHoraria());
+    }
+
+    @Test
+    void consultar_deberiaSumarLosMovimientosDelPeriodoPorTipo() {
+        cuentaServicio.ingresarDinero(numeroCuenta, Dinero.deUnidades(100));
+        cuentaServicio.ingresarDinero(numeroCuenta, Dinero.deUnidades(100));
+        cuentaServicio.sacarDinero(numeroCuenta, Dinero.valueOf("30.5"), false);
+
+        final ResumenMovimientos resumen = resumenesCuenta.consultar(numeroCuenta, hoy.minusDays(30), hoy);
+
+        assertEquals(List.of(
+                new TotalMovimientos(TipoMovimiento.INGRESO, 2, Dinero.deUnidades(200)),
+                new TotalMovimientos(TipoMovimiento.RETIRADA, 1, Dinero.valueOf("30.5"))), resumen.totales());
+    }
+
+    @Test
+    void consultar_deberiaAcumularLasTransferenciasDeUnLote() {
+        final List<SolicitudTransferencia> lote = List.of(
+                new SolicitudTransferencia("T1", numeroCuenta, "ES-DESTINO-EXTERNO", Dinero.deUnidades(10)),
+                new SolicitudTransferencia("T2", numeroCuenta, "ES-DESTINO-EXTERNO", Dinero.deUnidades(10)),
+                new SolicitudTransferencia("T3", numeroCuenta, "ES-DESTINO-EXTERNO", Dinero.deUnidades(10)));
+
+        cuentaServicio.realizarTransferencias(lote);
+
+        // Con la comision de transferencia a otro banco (x1,3)
+        assertEquals(List.of(new TotalMovimientos(TipoMovimiento.TRANSFERENCIA_SALIENTE, 3, Dinero.deUnidades(39))),
+                resumenesCuenta.consultar(numeroCuenta, hoy, hoy).totales());
+    }
+
+    @Test
+    void consultar_deberiaDevolverTotalesVacios_siNoHayMovimientosEnElPeriodo() {
+        cuentaServicio.ingresarDinero(numeroCuenta, Dinero.deUnidades(100));
+
+        assertTrue(resumenesCuenta.consultar(numeroCuenta, hoy.minusDays(10), hoy.minusDays(1)).totales().isEmpty());
+    }
+
+    @Test
+    void consultar_deberiaLanzarExcepcion_siCuentaNoExiste() {
+        assertThrows(NotFoundException.class, () -> resumenesCuenta.consultar("ES-NO-EXISTE", hoy, hoy));
+    }
+
+    @Test
+    void consultar_deberiaLanzarExcepcion_siElPeriodoEstaInvertido() {
+        assertThrows(BadRequestException.class, () -> resumenesCuenta.consultar(numeroCuenta, hoy, hoy.minusDays(1)));
+    }
+}
@@ -0,0 +1,69 @@
+package es.nextdigital.demo.servicios;
+
+import es.nextdigital.demo.configuracion.SesionesCajeroProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SesionesCajeroTest {
+
+    private static final Duration INACTIVIDAD_MAXIMA = Duration.ofMinutes(2);
+
+    private final AtomicLong reloj = new AtomicLong();
+    private SesionesCajero sesionesCajero;
+
+    @BeforeEach
+    void setUp() {
+        final SesionesCajeroProperties propiedades = new SesionesCajeroProperties();
+        propiedades.setInactividadMaxima(INACTIVIDAD_MAXIMA);
+        sesionesCajero = new SesionesCajero(propiedades, reloj::get);
+    }
+
+    @Test
+    void abrir_deberiaDevolverTokensDistintosParaLaMismaTarjeta() {
+        final String token = sesionesCajero.abrir("123456", "hash");
+        final String otroToken = sesionesCajero.abrir("123456", "hash");
+
+        assertNotEquals(token, otroToken);
+        assertEquals(Optional.of(new SesionesCajero.Sesion("123456", "hash")), sesionesCajero.obtener(token));
+    }
+
+    @Test
+    void obtener_deberiaDevolverVacio_siLaSesionHaCaducado() {
+        final String token = sesionesCajero.abrir("123456", "hash");
+
+        avanzar(INACTIVIDAD_MAXIMA.plusSeconds(1));
+
+        assertTrue(sesionesCajero.obtener(token).isEmpty());
+        assertEquals(0, sesionesCajero.sesionesAbiertas());
+    }
+
+    @Test
+    void obtener_deberiaAlargarLaSesion_mientrasSeUse() {
+        final String token = sesionesCajero.abrir("123456", "hash");
+
+        avanzar(INACTIVIDAD_MAXIMA.minusSeconds(10));
+        assertTrue(sesionesCajero.obtener(token).isPresent());
+        avanzar(INACTIVIDAD_MAXIMA.minusSeconds(10));
+
+        assertTrue(sesionesCajero.obtener(token).isPresent());
+    }
+
+    @Test
+    void cerrar_deberiaInvalidarElToken() {
+        final String token = sesionesCajero.abrir("123456", "hash");
+
+        sesionesCajero.cerrar(token);
+
+        assertTrue(sesionesCajero.obtener(token).isEmpty());
+    }
+
+    private void avanzar(final Duration tiempo) {
+        reloj.addAndGet(tiempo.toNanos());
+    }
+}
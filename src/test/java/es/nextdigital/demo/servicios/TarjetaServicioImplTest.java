@@ -3,11 +3,14 @@ package es.nextdigital.demo.servicios;
 import es.nextdigital.demo.common.ConstantData;
 import es.nextdigital.demo.exceptions.ForbiddenOperationException;
 import es.nextdigital.demo.exceptions.NotFoundException;
+import es.nextdigital.demo.exceptions.UnauthorizedException;
 import es.nextdigital.demo.model.Banco;
-import es.nextdigital.demo.model.Cuenta;
+import es.nextdigital.demo.model.Dinero;
 import es.nextdigital.demo.model.Tarjeta;
+import es.nextdigital.demo.model.TarjetaAutenticada;
 import es.nextdigital.demo.model.TipoTarjeta;
 import es.nextdigital.demo.repositorio.TarjetaRepository;
+import io.micrometer.observation.ObservationRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -17,6 +20,7 @@ import org.mockito.Spy;
 
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -27,7 +31,10 @@ class TarjetaServicioImplTest {
     private static final String NUMERO_TARJETA = "123456";
     private static final int PIN = 1234;
     private static final String PIN_ENCRIPTADO = TarjetaServicioImplTest.encriptarPin(PIN) ;
-    private static final float CANTIDAD = 100f;
+    private static final String NUMERO_CUENTA = "ES123";
+    private static final String TOKEN = "token-sesion";
+    private static final Dinero CANTIDAD = Dinero.deUnidades(100);
+    private static final LocalDate DIA = LocalDate.of(2023, 6, 15);
 
     @Mock
     private TarjetaRepository tarjetaRepository;
@@ -38,6 +45,21 @@ class TarjetaServicioImplTest {
     @Mock
     private BancoServicio bancoServicio;
 
+    @Mock
+    private CacheTarjetas cacheTarjetas;
+
+    @Mock
+    private SesionesCajero sesionesCajero;
+
+    @Mock
+    private ContadoresRetiradas contadoresRetiradas;
+
+    @Spy
+    private EncriptadorPin encriptadorPin = new EncriptadorPin(true);
+
+    @Spy
+    private MetricasOperaciones metricas = new MetricasOperaciones(ObservationRegistry.NOOP);
+
     @InjectMocks
     @Spy
     private TarjetaServicioImpl tarjetaServicio;
@@ -45,45 +67,43 @@ class TarjetaServicioImplTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(contadoresRetiradas.reservar(any(), any(), any())).thenReturn(Optional.of(DIA));
     }
 
     @Test
     void sacarDinero_deberiaRetornar0_siBancoPropioYDebitoOK() {
-        final Cuenta cuenta = new Cuenta();
-        cuenta.setSaldo(200f);
-
-        final Tarjeta tarjeta = tarjeta(true, TipoTarjeta.DEBITO, 150f, 0f, cuenta);
+        final TarjetaAutenticada tarjeta = tarjeta(true, TipoTarjeta.DEBITO, Dinero.deUnidades(150), Dinero.CERO);
 
-        when(tarjetaRepository.findByNumeroAndPinEncriptado(NUMERO_TARJETA, PIN_ENCRIPTADO)).thenReturn(Optional.of(tarjeta));
-        when(cuentaServicio.sacarDinero(cuenta, CANTIDAD)).thenReturn(true);
+        when(cacheTarjetas.autenticar(NUMERO_TARJETA, PIN_ENCRIPTADO)).thenReturn(Optional.of(tarjeta));
+        when(cuentaServicio.sacarDinero(NUMERO_CUENTA, CANTIDAD, false)).thenReturn(true);
 
-        final float resultado = tarjetaServicio.sacarDinero(NUMERO_TARJETA, PIN, CANTIDAD, ConstantData.MI_BANCO);
+        final Dinero resultado = tarjetaServicio.sacarDinero(NUMERO_TARJETA, PIN, CANTIDAD, ConstantData.MI_BANCO);
 
-        assertEquals(0f, resultado);
+        assertEquals(Dinero.CERO, resultado);
+        verifyNoInteractions(tarjetaRepository);
     }
 
     @Test
     void sacarDinero_deberiaAplicarComision_siBancoAjenoYCreditoOK() {
-        final Cuenta cuenta = new Cuenta();
-        final Tarjeta tarjeta = tarjeta(true, TipoTarjeta.CREDITO, 200f, 1000f, cuenta);
+        final TarjetaAutenticada tarjeta = tarjeta(true, TipoTarjeta.CREDITO, Dinero.deUnidades(200), Dinero.deUnidades(1000));
 
         Banco banco = new Banco();
-        banco.setComisionRetirada(3.5f);
+        banco.setComisionRetirada(Dinero.valueOf("3.5"));
 
-        when(tarjetaRepository.findByNumeroAndPinEncriptado(NUMERO_TARJETA, PIN_ENCRIPTADO)).thenReturn(Optional.of(tarjeta));
-        when(cuentaServicio.sacarDinero(cuenta, CANTIDAD)).thenReturn(true);
+        when(cacheTarjetas.autenticar(NUMERO_TARJETA, PIN_ENCRIPTADO)).thenReturn(Optional.of(tarjeta));
+        when(cuentaServicio.sacarDinero(NUMERO_CUENTA, CANTIDAD, true)).thenReturn(true);
         when(bancoServicio.obtenerBanco("OtroBanco")).thenReturn(banco);
 
-        float resultado = tarjetaServicio.sacarDinero(NUMERO_TARJETA, PIN, CANTIDAD, "OtroBanco");
+        Dinero resultado = tarjetaServicio.sacarDinero(NUMERO_TARJETA, PIN, CANTIDAD, "OtroBanco");
 
-        assertEquals(3.5f, resultado);
+        assertEquals(Dinero.valueOf("3.5"), resultado);
     }
 
     @Test
     void sacarDinero_deberiaLanzarExcepcion_siTarjetaNoActivada() {
-        Tarjeta tarjeta = tarjeta(false, TipoTarjeta.DEBITO, 100f, 0f, new Cuenta());
+        final TarjetaAutenticada tarjeta = tarjeta(false, TipoTarjeta.DEBITO, Dinero.deUnidades(100), Dinero.CERO);
 
-        when(tarjetaRepository.findByNumeroAndPinEncriptado(NUMERO_TARJETA, PIN_ENCRIPTADO)).thenReturn(Optional.of(tarjeta));
+        when(cacheTarjetas.autenticar(NUMERO_TARJETA, PIN_ENCRIPTADO)).thenReturn(Optional.of(tarjeta));
 
         assertThrows(ForbiddenOperationException.class, () ->
                 tarjetaServicio.sacarDinero(NUMERO_TARJETA, PIN, CANTIDAD, ConstantData.MI_BANCO)
@@ -92,7 +112,7 @@ class TarjetaServicioImplTest {
 
     @Test
     void sacarDinero_deberiaLanzarExcepcion_siTarjetaNoExiste() {
-        when(tarjetaRepository.findByNumeroAndPinEncriptado(NUMERO_TARJETA, PIN_ENCRIPTADO)).thenReturn(Optional.empty());
+        when(cacheTarjetas.autenticar(NUMERO_TARJETA, PIN_ENCRIPTADO)).thenReturn(Optional.empty());
 
         assertThrows(NotFoundException.class, () ->
                 tarjetaServicio.sacarDinero(NUMERO_TARJETA, PIN, CANTIDAD, ConstantData.MI_BANCO)
@@ -100,49 +120,73 @@ class TarjetaServicioImplTest {
     }
 
     @Test
-    void sacarDinero_deberiaLanzarExcepcion_siCuentaServicioFalla() {
-        final Cuenta cuenta = new Cuenta();
-        cuenta.setSaldo(200f);
-        final Tarjeta tarjeta = tarjeta(true, TipoTarjeta.DEBITO, 200f, 0f, cuenta);
+    void sacarDinero_deberiaLanzarExcepcion_siDebitoSinSaldo() {
+        final TarjetaAutenticada tarjeta = tarjeta(true, TipoTarjeta.DEBITO, Dinero.deUnidades(200), Dinero.CERO);
 
-        when(tarjetaRepository.findByNumeroAndPinEncriptado(NUMERO_TARJETA, PIN_ENCRIPTADO)).thenReturn(Optional.of(tarjeta));
-        when(cuentaServicio.sacarDinero(cuenta, CANTIDAD)).thenReturn(false);
+        when(cacheTarjetas.autenticar(NUMERO_TARJETA, PIN_ENCRIPTADO)).thenReturn(Optional.of(tarjeta));
+        when(cuentaServicio.sacarDinero(NUMERO_CUENTA, CANTIDAD, false)).thenReturn(false);
 
         assertThrows(ForbiddenOperationException.class, () ->
                 tarjetaServicio.sacarDinero(NUMERO_TARJETA, PIN, CANTIDAD, ConstantData.MI_BANCO)
         );
+        verify(contadoresRetiradas).liberar(NUMERO_TARJETA, CANTIDAD, DIA);
+    }
+
+    @Test
+    void sacarDinero_deberiaLanzarExcepcion_siSuperaLoRetiradoEnElDiaOElMes() {
+        final TarjetaAutenticada tarjeta = tarjeta(true, TipoTarjeta.DEBITO, Dinero.deUnidades(200), Dinero.CERO);
+
+        when(cacheTarjetas.autenticar(NUMERO_TARJETA, PIN_ENCRIPTADO)).thenReturn(Optional.of(tarjeta));
+        when(contadoresRetiradas.reservar(NUMERO_TARJETA, CANTIDAD, Dinero.deUnidades(200))).thenReturn(Optional.empty());
+
+        assertThrows(ForbiddenOperationException.class, () ->
+                tarjetaServicio.sacarDinero(NUMERO_TARJETA, PIN, CANTIDAD, ConstantData.MI_BANCO)
+        );
+        verify(cuentaServicio, never()).sacarDinero(any(), any(), anyBoolean());
+        verify(contadoresRetiradas, never()).liberar(any(), any(), any());
+    }
+
+    @Test
+    void sacarDinero_noDeberiaLiberarLaReserva_siSacaElDinero() {
+        final TarjetaAutenticada tarjeta = tarjeta(true, TipoTarjeta.DEBITO, Dinero.deUnidades(200), Dinero.CERO);
+
+        when(cacheTarjetas.autenticar(NUMERO_TARJETA, PIN_ENCRIPTADO)).thenReturn(Optional.of(tarjeta));
+        when(cuentaServicio.sacarDinero(NUMERO_CUENTA, CANTIDAD, false)).thenReturn(true);
+
+        tarjetaServicio.sacarDinero(NUMERO_TARJETA, PIN, CANTIDAD, ConstantData.MI_BANCO);
+
+        verify(contadoresRetiradas).reservar(NUMERO_TARJETA, CANTIDAD, Dinero.deUnidades(200));
+        verify(contadoresRetiradas, never()).liberar(any(), any(), any());
     }
 
     @Test
     void sacarDinero_deberiaLanzarExcepcion_siCantidadSuperaLimites() {
-        final Cuenta cuenta = new Cuenta();
-        cuenta.setSaldo(100f);
-        final Tarjeta tarjeta = tarjeta(true, TipoTarjeta.DEBITO, 80f, 0f, cuenta);
+        final TarjetaAutenticada tarjeta = tarjeta(true, TipoTarjeta.DEBITO, Dinero.deUnidades(80), Dinero.CERO);
 
-        when(tarjetaRepository.findByNumeroAndPinEncriptado(NUMERO_TARJETA, PIN_ENCRIPTADO)).thenReturn(Optional.of(tarjeta));
+        when(cacheTarjetas.autenticar(NUMERO_TARJETA, PIN_ENCRIPTADO)).thenReturn(Optional.of(tarjeta));
 
         assertThrows(ForbiddenOperationException.class, () ->
                 tarjetaServicio.sacarDinero(NUMERO_TARJETA, PIN, CANTIDAD, ConstantData.MI_BANCO)
         );
+        verify(cuentaServicio, never()).sacarDinero(any(), any(), anyBoolean());
     }
 
     @Test
     void ingresarDinero_deberiaIngresar_siBancoPropioYActivada() {
-        final Cuenta cuenta = new Cuenta();
-        final Tarjeta tarjeta = tarjeta(true, TipoTarjeta.DEBITO, 100f, 0f, cuenta);
+        final TarjetaAutenticada tarjeta = tarjeta(true, TipoTarjeta.DEBITO, Dinero.deUnidades(100), Dinero.CERO);
 
-        when(tarjetaRepository.findByNumeroAndPinEncriptado(NUMERO_TARJETA, PIN_ENCRIPTADO)).thenReturn(Optional.of(tarjeta));
+        when(cacheTarjetas.autenticar(NUMERO_TARJETA, PIN_ENCRIPTADO)).thenReturn(Optional.of(tarjeta));
 
         tarjetaServicio.ingresarDinero(NUMERO_TARJETA, PIN, CANTIDAD, ConstantData.MI_BANCO);
 
-        verify(cuentaServicio).ingresarDinero(cuenta, CANTIDAD);
+        verify(cuentaServicio).ingresarDinero(NUMERO_CUENTA, CANTIDAD);
     }
 
     @Test
     void ingresarDinero_deberiaLanzarExcepcion_siBancoAjeno() {
-        final Tarjeta tarjeta = tarjeta(true, TipoTarjeta.DEBITO, 100f, 0f, new Cuenta());
+        final TarjetaAutenticada tarjeta = tarjeta(true, TipoTarjeta.DEBITO, Dinero.deUnidades(100), Dinero.CERO);
 
-        when(tarjetaRepository.findByNumeroAndPinEncriptado(NUMERO_TARJETA, PIN_ENCRIPTADO)).thenReturn(Optional.of(tarjeta));
+        when(cacheTarjetas.autenticar(NUMERO_TARJETA, PIN_ENCRIPTADO)).thenReturn(Optional.of(tarjeta));
 
         assertThrows(ForbiddenOperationException.class, () ->
                 tarjetaServicio.ingresarDinero(NUMERO_TARJETA, PIN, CANTIDAD, "OtroBanco")
@@ -151,9 +195,9 @@ class TarjetaServicioImplTest {
 
     @Test
     void ingresarDinero_deberiaLanzarExcepcion_siTarjetaNoActivada() {
-        final Tarjeta tarjeta = tarjeta(false, TipoTarjeta.DEBITO, 100f, 0f, new Cuenta());
+        final TarjetaAutenticada tarjeta = tarjeta(false, TipoTarjeta.DEBITO, Dinero.deUnidades(100), Dinero.CERO);
 
-        when(tarjetaRepository.findByNumeroAndPinEncriptado(NUMERO_TARJETA, PIN_ENCRIPTADO)).thenReturn(Optional.of(tarjeta));
+        when(cacheTarjetas.autenticar(NUMERO_TARJETA, PIN_ENCRIPTADO)).thenReturn(Optional.of(tarjeta));
 
         assertThrows(ForbiddenOperationException.class, () ->
                 tarjetaServicio.ingresarDinero(NUMERO_TARJETA, PIN, CANTIDAD, ConstantData.MI_BANCO)
@@ -172,6 +216,7 @@ class TarjetaServicioImplTest {
         assertTrue(tarjeta.isActivada());
         assertEquals(PIN_ENCRIPTADO, tarjeta.getPinEncriptado());
         verify(tarjetaRepository).save(tarjeta);
+        verify(cacheTarjetas).invalidar(NUMERO_TARJETA);
     }
 
     @Test
@@ -203,6 +248,7 @@ class TarjetaServicioImplTest {
         // Assert
         assertEquals(nuevoPinHash, tarjeta.getPinEncriptado());
         verify(tarjetaRepository).save(tarjeta);
+        verify(cacheTarjetas).invalidar(NUMERO_TARJETA);
     }
 
     @Test
@@ -249,26 +295,20 @@ class TarjetaServicioImplTest {
 
     @Test
     void consultarConfiguracion_deberiaDevolverLimiteRetirada_siTarjetaActiva() {
-        Tarjeta tarjeta = new Tarjeta();
-        tarjeta.setActivada(true);
-        tarjeta.setLimiteRetirada(300f);
+        final TarjetaAutenticada tarjeta = tarjeta(true, TipoTarjeta.DEBITO, Dinero.deUnidades(300), Dinero.CERO);
 
-        when(tarjetaRepository.findByNumeroAndPinEncriptado(NUMERO_TARJETA, PIN_ENCRIPTADO))
-                .thenReturn(Optional.of(tarjeta));
+        when(cacheTarjetas.autenticar(NUMERO_TARJETA, PIN_ENCRIPTADO)).thenReturn(Optional.of(tarjeta));
 
-        float resultado = tarjetaServicio.consultarConfiguracion(NUMERO_TARJETA, PIN);
+        Dinero resultado = tarjetaServicio.consultarConfiguracion(NUMERO_TARJETA, PIN);
 
-        assertEquals(300f, resultado);
+        assertEquals(Dinero.deUnidades(300), resultado);
     }
 
     @Test
     void consultarConfiguracion_deberiaLanzarExcepcion_siTarjetaNoActivada() {
-        Tarjeta tarjeta = new Tarjeta();
-        tarjeta.setActivada(false);
-        tarjeta.setLimiteRetirada(300f);
+        final TarjetaAutenticada tarjeta = tarjeta(false, TipoTarjeta.DEBITO, Dinero.deUnidades(300), Dinero.CERO);
 
-        when(tarjetaRepository.findByNumeroAndPinEncriptado(NUMERO_TARJETA, PIN_ENCRIPTADO))
-                .thenReturn(Optional.of(tarjeta));
+        when(cacheTarjetas.autenticar(NUMERO_TARJETA, PIN_ENCRIPTADO)).thenReturn(Optional.of(tarjeta));
 
         ForbiddenOperationException ex = assertThrows(ForbiddenOperationException.class, () ->
                 tarjetaServicio.consultarConfiguracion(NUMERO_TARJETA, PIN)
@@ -278,8 +318,7 @@ class TarjetaServicioImplTest {
 
     @Test
     void consultarConfiguracion_deberiaLanzarExcepcion_siTarjetaNoExiste() {
-        when(tarjetaRepository.findByNumeroAndPinEncriptado(NUMERO_TARJETA, PIN_ENCRIPTADO))
-                .thenReturn(Optional.empty());
+        when(cacheTarjetas.autenticar(NUMERO_TARJETA, PIN_ENCRIPTADO)).thenReturn(Optional.empty());
 
         NotFoundException ex = assertThrows(NotFoundException.class, () ->
                 tarjetaServicio.consultarConfiguracion(NUMERO_TARJETA, PIN)
@@ -291,15 +330,16 @@ class TarjetaServicioImplTest {
     void modificarConfiguracion_deberiaGuardarNuevoLimite_siTodoEsValido() {
         Tarjeta tarjeta = new Tarjeta();
         tarjeta.setActivada(true);
-        tarjeta.setLimiteRetirada(250f);
+        tarjeta.setLimiteRetirada(Dinero.deUnidades(250));
 
         when(tarjetaRepository.findByNumeroAndPinEncriptado(NUMERO_TARJETA, PIN_ENCRIPTADO))
                 .thenReturn(Optional.of(tarjeta));
 
-        tarjetaServicio.modificarConfiguracion(NUMERO_TARJETA, PIN, 900f);
+        tarjetaServicio.modificarConfiguracion(NUMERO_TARJETA, PIN, Dinero.deUnidades(900));
 
-        assertEquals(900f, tarjeta.getLimiteRetirada());
+        assertEquals(Dinero.deUnidades(900), tarjeta.getLimiteRetirada());
         verify(tarjetaRepository).save(tarjeta);
+        verify(cacheTarjetas).invalidar(NUMERO_TARJETA);
     }
 
     @Test
@@ -311,7 +351,7 @@ class TarjetaServicioImplTest {
                 .thenReturn(Optional.of(tarjeta));
 
         ForbiddenOperationException ex = assertThrows(ForbiddenOperationException.class, () ->
-                tarjetaServicio.modificarConfiguracion(NUMERO_TARJETA, PIN, 300f)
+                tarjetaServicio.modificarConfiguracion(NUMERO_TARJETA, PIN, Dinero.deUnidades(300))
         );
         assertEquals("La tarjeta no está activada", ex.getMessage());
     }
@@ -325,7 +365,7 @@ class TarjetaServicioImplTest {
                 .thenReturn(Optional.of(tarjeta));
 
         ForbiddenOperationException ex = assertThrows(ForbiddenOperationException.class, () ->
-                tarjetaServicio.modificarConfiguracion(NUMERO_TARJETA, PIN, 20f)
+                tarjetaServicio.modificarConfiguracion(NUMERO_TARJETA, PIN, Dinero.deUnidades(20))
         );
         assertEquals("El nuevo limite de retirada esta fuera de los valores permitidos", ex.getMessage());
     }
@@ -340,7 +380,7 @@ class TarjetaServicioImplTest {
                 .thenReturn(Optional.of(tarjeta));
 
         ForbiddenOperationException ex = assertThrows(ForbiddenOperationException.class, () ->
-                tarjetaServicio.modificarConfiguracion(NUMERO_TARJETA, PIN, 10000f)
+                tarjetaServicio.modificarConfiguracion(NUMERO_TARJETA, PIN, Dinero.deUnidades(10000))
         );
         assertEquals("El nuevo limite de retirada esta fuera de los valores permitidos", ex.getMessage());
     }
@@ -351,20 +391,79 @@ class TarjetaServicioImplTest {
                 .thenReturn(Optional.empty());
 
         NotFoundException ex = assertThrows(NotFoundException.class, () ->
-                tarjetaServicio.modificarConfiguracion(NUMERO_TARJETA, PIN, 700f)
+                tarjetaServicio.modificarConfiguracion(NUMERO_TARJETA, PIN, Dinero.deUnidades(700))
         );
         assertEquals("Tarjeta no encontrada", ex.getMessage());
     }
 
 
-    private Tarjeta tarjeta(final boolean activada, final TipoTarjeta tipo, final float limiteRetirada, final float limiteCredito, final Cuenta cuenta) {
-        final Tarjeta t = new Tarjeta();
-        t.setActivada(activada);
-        t.setTipoTarjeta(tipo);
-        t.setLimiteRetirada(limiteRetirada);
-        t.setLimiteCredito(limiteCredito);
-        t.setCuenta(cuenta);
-        return t;
+    @Test
+    void abrirSesion_deberiaDevolverElToken_siTarjetaActivaYPinCorrecto() {
+        final TarjetaAutenticada tarjeta = tarjeta(true, TipoTarjeta.DEBITO, Dinero.deUnidades(300), Dinero.CERO);
+
+        when(cacheTarjetas.autenticar(NUMERO_TARJETA, PIN_ENCRIPTADO)).thenReturn(Optional.of(tarjeta));
+        when(sesionesCajero.abrir(NUMERO_TARJETA, PIN_ENCRIPTADO)).thenReturn(TOKEN);
+
+        assertEquals(TOKEN, tarjetaServicio.abrirSesion(NUMERO_TARJETA, PIN));
+    }
+
+    @Test
+    void abrirSesion_deberiaLanzarExcepcion_siTarjetaNoActivada() {
+        final TarjetaAutenticada tarjeta = tarjeta(false, TipoTarjeta.DEBITO, Dinero.deUnidades(300), Dinero.CERO);
+
+        when(cacheTarjetas.autenticar(NUMERO_TARJETA, PIN_ENCRIPTADO)).thenReturn(Optional.of(tarjeta));
+
+        assertThrows(ForbiddenOperationException.class, () -> tarjetaServicio.abrirSesion(NUMERO_TARJETA, PIN));
+        verify(sesionesCajero, never()).abrir(any(), any());
+    }
+
+    @Test
+    void sacarDineroEnSesion_noDeberiaVolverAEncriptarElPin() {
+        final TarjetaAutenticada tarjeta = tarjeta(true, TipoTarjeta.DEBITO, Dinero.deUnidades(150), Dinero.CERO);
+
+        when(sesionesCajero.obtener(TOKEN)).thenReturn(Optional.of(new SesionesCajero.Sesion(NUMERO_TARJETA, PIN_ENCRIPTADO)));
+        when(cacheTarjetas.autenticar(NUMERO_TARJETA, PIN_ENCRIPTADO)).thenReturn(Optional.of(tarjeta));
+        when(cuentaServicio.sacarDinero(NUMERO_CUENTA, CANTIDAD, false)).thenReturn(true);
+
+        final Dinero resultado = tarjetaServicio.sacarDineroEnSesion(TOKEN, CANTIDAD, ConstantData.MI_BANCO);
+
+        assertEquals(Dinero.CERO, resultado);
+        verify(encriptadorPin, never()).encriptar(anyInt());
+    }
+
+    @Test
+    void sacarDineroEnSesion_deberiaLanzarExcepcion_siLaSesionNoExiste() {
+        when(sesionesCajero.obtener(TOKEN)).thenReturn(Optional.empty());
+
+        assertThrows(UnauthorizedException.class, () ->
+                tarjetaServicio.sacarDineroEnSesion(TOKEN, CANTIDAD, ConstantData.MI_BANCO)
+        );
+        verifyNoInteractions(cuentaServicio);
+    }
+
+    @Test
+    void consultarConfiguracionEnSesion_deberiaCerrarLaSesion_siElPinHaCambiado() {
+        when(sesionesCajero.obtener(TOKEN)).thenReturn(Optional.of(new SesionesCajero.Sesion(NUMERO_TARJETA, PIN_ENCRIPTADO)));
+        when(cacheTarjetas.autenticar(NUMERO_TARJETA, PIN_ENCRIPTADO)).thenReturn(Optional.empty());
+
+        assertThrows(UnauthorizedException.class, () -> tarjetaServicio.consultarConfiguracionEnSesion(TOKEN));
+        verify(sesionesCajero).cerrar(TOKEN);
+    }
+
+    @Test
+    void ingresarDineroEnSesion_deberiaIngresarEnLaCuentaDeLaTarjeta() {
+        final TarjetaAutenticada tarjeta = tarjeta(true, TipoTarjeta.DEBITO, Dinero.deUnidades(100), Dinero.CERO);
+
+        when(sesionesCajero.obtener(TOKEN)).thenReturn(Optional.of(new SesionesCajero.Sesion(NUMERO_TARJETA, PIN_ENCRIPTADO)));
+        when(cacheTarjetas.autenticar(NUMERO_TARJETA, PIN_ENCRIPTADO)).thenReturn(Optional.of(tarjeta));
+
+        tarjetaServicio.ingresarDineroEnSesion(TOKEN, CANTIDAD, ConstantData.MI_BANCO);
+
+        verify(cuentaServicio).ingresarDinero(NUMERO_CUENTA, CANTIDAD);
+    }
+
+    private TarjetaAutenticada tarjeta(final boolean activada, final TipoTarjeta tipo, final Dinero limiteRetirada, final Dinero limiteCredito) {
+        return new TarjetaAutenticada(NUMERO_TARJETA, PIN_ENCRIPTADO, activada, tipo, limiteRetirada, limiteCredito, NUMERO_CUENTA);
     }
 
     private static String encriptarPin(final int pin){
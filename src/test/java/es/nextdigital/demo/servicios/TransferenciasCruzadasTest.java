@@ -0,0 +1,136 @@
+package es.nextdigital.demo.servicios;
+
+import es.nextdigital.demo.configuracion.ConcurrenciaCuentasProperties;
+import es.nextdigital.demo.configuracion.ModoConcurrencia;
+import es.nextdigital.demo.exceptions.ConflictException;
+import es.nextdigital.demo.model.Cuenta;
+import es.nextdigital.demo.model.Dinero;
+import es.nextdigital.demo.model.MovimientoDto;
+import es.nextdigital.demo.model.TipoMovimiento;
+import es.nextdigital.demo.repositorio.CuentaRepository;
+import es.nextdigital.demo.repositorio.MovimientoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Prueba de estres: varios hilos hacen transferencias cruzadas (A a B y B a A a la vez) entre unas pocas cuentas
+ * propias. El dinero total no puede cambiar, cada cargo tiene su abono y, en modo pesimista, ninguna transferencia puede
+ * acabar en conflicto por un interbloqueo.
+ */
+@SpringBootTest
+class TransferenciasCruzadasTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TransferenciasCruzadasTest.class);
+
+    private static final int CUENTAS = 4;
+    private static final int HILOS = 8;
+    private static final int TRANSFERENCIAS_POR_HILO = 40;
+    private static final Dinero SALDO_INICIAL = Dinero.deUnidades(1_000);
+
+    @Autowired
+    private CuentaServicio cuentaServicio;
+
+    @Autowired
+    private CuentaRepository cuentaRepository;
+
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+
+    @Autowired
+    private ConcurrenciaCuentasProperties propiedades;
+
+    @AfterEach
+    void tearDown() {
+        propiedades.setModo(ModoConcurrencia.OPTIMISTA);
+    }
+
+    @ParameterizedTest
+    @EnumSource(ModoConcurrencia.class)
+    void transferenciasCruzadas_noDeberianPerderDineroNiInterbloquearse(final ModoConcurrencia modo) throws Exception {
+        // Arrange
+        propiedades.setModo(modo);
+        final List<String> numerosCuenta = new ArrayList<>();
+        for (int i = 0; i < CUENTAS; i++) {
+            final Cuenta cuenta = new Cuenta();
+            cuenta.setNumeroCuenta("ES-CRUCE-" + modo + "-" + i);
+            cuenta.setSaldo(SALDO_INICIAL);
+            cuentaRepository.save(cuenta);
+            numerosCuenta.add(cuenta.getNumeroCuenta());
+        }
+
+        final AtomicInteger realizadas = new AtomicInteger();
+        final AtomicInteger conflictos = new AtomicInteger();
+        final CountDownLatch salida = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+
+        // Act
+        final List<Future<?>> tareas = new ArrayList<>();
+        for (int hilo = 0; hilo < HILOS; hilo++) {
+            tareas.add(executor.submit(() -> {
+                salida.await();
+                for (int i = 0; i < TRANSFERENCIAS_POR_HILO; i++) {
+                    final int origen = ThreadLocalRandom.current().nextInt(CUENTAS);
+                    final int destino = (origen + 1 + ThreadLocalRandom.current().nextInt(CUENTAS - 1)) % CUENTAS;
+                    try {
+                        cuentaServicio.realizarTransferencia(numerosCuenta.get(origen), numerosCuenta.get(destino), Dinero.deUnidades(1));
+                        realizadas.incrementAndGet();
+                    } catch (ConflictException e) {
+                        conflictos.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        final long inicio = System.nanoTime();
+        salida.countDown();
+        for (Future<?> tarea : tareas) {
+            tarea.get(2, TimeUnit.MINUTES);
+        }
+        final long duracionNanos = System.nanoTime() - inicio;
+        executor.shutdown();
+
+        // Assert
+        Dinero total = Dinero.CERO;
+        int salientes = 0;
+        int entrantes = 0;
+        for (String numeroCuenta : numerosCuenta) {
+            total = total.sumar(cuentaRepository.findById(numeroCuenta).orElseThrow().getSaldo());
+            for (MovimientoDto movimiento : movimientoRepository.findPaginaMovimientos(numeroCuenta, PageRequest.of(0, 1_000))) {
+                if (TipoMovimiento.TRANSFERENCIA_SALIENTE == movimiento.tipoMovimiento()) {
+                    salientes++;
+                } else if (TipoMovimiento.TRANSFERENCIA_ENTRANTE == movimiento.tipoMovimiento()) {
+                    entrantes++;
+                }
+            }
+        }
+        assertEquals(SALDO_INICIAL.multiplicar(CUENTAS, 1), total);
+        assertEquals(realizadas.get(), salientes);
+        assertEquals(realizadas.get(), entrantes);
+        assertEquals(HILOS * TRANSFERENCIAS_POR_HILO, realizadas.get() + conflictos.get());
+        if (ModoConcurrencia.PESIMISTA == modo) {
+            assertEquals(0, conflictos.get());
+        }
+
+        LOG.info("Modo {}: {} transferencias cruzadas, {} conflictos, {} ops/s", modo, realizadas.get(), conflictos.get(),
+                String.format("%.0f", realizadas.get() / (duracionNanos / 1e9)));
+    }
+}